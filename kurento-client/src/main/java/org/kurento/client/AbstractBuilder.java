@@ -18,6 +18,10 @@
 
 package org.kurento.client;
 
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+
+import org.kurento.client.internal.client.CompletionContinuation;
 import org.kurento.client.internal.client.DefaultContinuation;
 import org.kurento.client.internal.client.RemoteObject;
 import org.kurento.client.internal.client.RemoteObjectInvocationHandler;
@@ -106,6 +110,30 @@ public class AbstractBuilder<T> {
 
   }
 
+  /**
+   * Builds an object asynchronously. The returned stage is completed in the completion executor
+   * of the client, if any, or in the thread that receives the response.
+   *
+   * @return the stage completed with the object when it is ready
+   */
+  public CompletionStage<T> buildAsync() {
+    return buildAsync(manager.getCompletionExecutor());
+  }
+
+  /**
+   * Builds an object asynchronously, completing the returned stage in the given executor.
+   *
+   * @param executor
+   *          executor where the stage is completed, or null to complete it in the thread that
+   *          receives the response
+   * @return the stage completed with the object when it is ready
+   */
+  public CompletionStage<T> buildAsync(Executor executor) {
+    CompletionContinuation<T> completion = new CompletionContinuation<>(executor);
+    buildAsync(completion);
+    return completion;
+  }
+
   public AbstractBuilder<T> withProperties(Properties properties) {
     genericProperties.getMap().putAll(properties.getMap());
     return this;
@@ -0,0 +1,303 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.client;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.kurento.commons.PropertiesManager;
+import org.kurento.commons.exception.KurentoException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Limits the number of requests a client has in flight to a media server, adapting the limit to
+ * the latency of the responses.
+ *
+ * <p>
+ * The lowest latency observed is taken as the latency of the server when it is not loaded. While
+ * responses arrive within {@code latencyTolerance} times that latency, the limit grows by one
+ * request for each limit's worth of responses. When they are slower, or a request times out or
+ * can't be sent, the limit is multiplied by {@code backoffRatio}, at most once every minimum
+ * latency. So when the server is saturated the client sends less work instead of piling up
+ * requests until they time out.
+ *
+ * <p>
+ * Requests beyond the limit wait for a free slot. Synchronous requests wait at most
+ * {@code maxWait} milliseconds, and asynchronous ones are queued up to {@code maxQueue} requests.
+ * Otherwise, a {@link ConcurrencyLimitExceededException} is thrown.
+ *
+ * <p>
+ * The limiter is disabled by default. It is enabled for all clients with the property
+ * {@code kurento.client.concurrencyLimit.enabled}, and the rest of its parameters are read from
+ * properties with the same prefix. The current limit is published by {@link #getLimit()}.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+  private static final Logger log = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+
+  private static final String PREFIX = "kurento.client.concurrencyLimit.";
+
+  /**
+   * The minimum latency is forgotten after this time, so it follows changes in the server or the
+   * network.
+   */
+  private static final long MIN_LATENCY_WINDOW = TimeUnit.SECONDS.toNanos(
+      PropertiesManager.getProperty(PREFIX + "minLatencyWindow", 30));
+
+  private final int minLimit;
+  private final int maxLimit;
+  private final double latencyTolerance;
+  private final double backoffRatio;
+  private final int maxQueue;
+  private final long maxWait;
+
+  private final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+
+  private double limit;
+  private int inFlight;
+  private long minLatency = Long.MAX_VALUE;
+  private long minLatencyExpiration;
+  private long lastDecrease;
+
+  /**
+   * Creates a limiter with the parameters given in properties.
+   */
+  public AdaptiveConcurrencyLimiter() {
+    this(PropertiesManager.getProperty(PREFIX + "initial", 20),
+        PropertiesManager.getProperty(PREFIX + "min", 1),
+        PropertiesManager.getProperty(PREFIX + "max", 200),
+        PropertiesManager.getProperty(PREFIX + "latencyTolerance", 2.0),
+        PropertiesManager.getProperty(PREFIX + "backoffRatio", 0.9),
+        PropertiesManager.getProperty(PREFIX + "maxQueue", 1000),
+        PropertiesManager.getProperty(PREFIX + "maxWait", 10000L));
+  }
+
+  /**
+   * @param initialLimit
+   *          requests allowed in flight before any response is received
+   * @param minLimit
+   *          the limit is never lower than this
+   * @param maxLimit
+   *          the limit is never higher than this
+   * @param latencyTolerance
+   *          responses slower than the minimum latency multiplied by this value are considered a
+   *          sign of overload
+   * @param backoffRatio
+   *          the limit is multiplied by this value on overload
+   * @param maxQueue
+   *          asynchronous requests that can wait for a free slot
+   * @param maxWait
+   *          milliseconds a synchronous request waits for a free slot
+   */
+  public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit,
+      double latencyTolerance, double backoffRatio, int maxQueue, long maxWait) {
+
+    if (minLimit < 1 || maxLimit < minLimit) {
+      throw new IllegalArgumentException(
+          "Invalid limits: min=" + minLimit + ", max=" + maxLimit);
+    }
+    if (latencyTolerance <= 1 || backoffRatio <= 0 || backoffRatio >= 1) {
+      throw new IllegalArgumentException("Invalid latencyTolerance " + latencyTolerance
+          + " or backoffRatio " + backoffRatio);
+    }
+
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.latencyTolerance = latencyTolerance;
+    this.backoffRatio = backoffRatio;
+    this.maxQueue = maxQueue;
+    this.maxWait = maxWait;
+    this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+  }
+
+  static boolean isEnabled() {
+    return PropertiesManager.getProperty(PREFIX + "enabled", false);
+  }
+
+  /**
+   * @return the number of requests allowed in flight
+   */
+  public synchronized int getLimit() {
+    return (int) limit;
+  }
+
+  /**
+   * @return the number of requests sent and not yet answered
+   */
+  public synchronized int getInFlight() {
+    return inFlight;
+  }
+
+  /**
+   * @return the number of asynchronous requests waiting for a free slot
+   */
+  public synchronized int getQueued() {
+    return queue.size();
+  }
+
+  /**
+   * @return the lowest latency observed, in milliseconds, or -1 if no response has been received
+   */
+  public synchronized long getMinLatency() {
+    return minLatency == Long.MAX_VALUE ? -1 : TimeUnit.NANOSECONDS.toMillis(minLatency);
+  }
+
+  /**
+   * Takes a slot for a synchronous request, waiting for it if needed. Asynchronous requests
+   * already waiting are served first.
+   *
+   * @return the time the request starts, to be passed to {@link #release(long, boolean)}
+   * @throws ConcurrencyLimitExceededException
+   *           if no slot is freed in {@code maxWait} milliseconds
+   */
+  public long acquire() {
+
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWait);
+
+    synchronized (this) {
+      while (inFlight >= (int) limit || !queue.isEmpty()) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          throw new ConcurrencyLimitExceededException("No request to the media server finished in "
+              + maxWait + " ms with " + inFlight + " requests in flight (limit " + (int) limit
+              + ")");
+        }
+        try {
+          TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new KurentoException("Interrupted while waiting to send a request", e);
+        }
+      }
+      inFlight++;
+    }
+
+    return System.nanoTime();
+  }
+
+  /**
+   * Takes a slot for an asynchronous request if there is one free. Otherwise, the request is
+   * queued and run in the thread that frees a slot for it.
+   *
+   * @param request
+   *          the request to run when a slot is freed. It must call
+   *          {@link #release(long, boolean)} when finished
+   * @return true if a slot was taken and the caller has to send the request now, false if it has
+   *         been queued
+   * @throws ConcurrencyLimitExceededException
+   *           if {@code maxQueue} requests are already waiting
+   */
+  public synchronized boolean tryAcquire(Runnable request) {
+
+    if (inFlight < (int) limit && queue.isEmpty()) {
+      inFlight++;
+      return true;
+    }
+
+    if (queue.size() >= maxQueue) {
+      throw new ConcurrencyLimitExceededException(
+          maxQueue + " requests to the media server are already waiting with " + inFlight
+              + " requests in flight (limit " + (int) limit + ")");
+    }
+
+    queue.add(request);
+    return false;
+  }
+
+  /**
+   * Frees the slot of a finished request and updates the limit with its latency.
+   *
+   * @param start
+   *          the time the request started, as returned by {@link #acquire()} or
+   *          {@link System#nanoTime()}
+   * @param dropped
+   *          true if the request wasn't answered by the server (timeout or transport error)
+   */
+  public void release(long start, boolean dropped) {
+
+    long now = System.nanoTime();
+    List<Runnable> ready = null;
+
+    synchronized (this) {
+
+      inFlight--;
+      int oldLimit = (int) limit;
+      updateLimit(now, now - start, dropped);
+      if ((int) limit != oldLimit) {
+        log.debug("Concurrency limit changed from {} to {} (min latency {} us)", oldLimit,
+            (int) limit, TimeUnit.NANOSECONDS.toMicros(minLatency));
+      }
+
+      while (inFlight < (int) limit && !queue.isEmpty()) {
+        if (ready == null) {
+          ready = new ArrayList<>();
+        }
+        ready.add(queue.poll());
+        inFlight++;
+      }
+
+      if (inFlight < (int) limit) {
+        notifyAll();
+      }
+    }
+
+    if (ready != null) {
+      for (Runnable request : ready) {
+        try {
+          request.run();
+        } catch (Exception e) {
+          log.warn("Exception sending queued request", e);
+        }
+      }
+    }
+  }
+
+  private void updateLimit(long now, long latency, boolean dropped) {
+
+    if (dropped) {
+      decrease(now);
+      return;
+    }
+
+    if (latency < minLatency || now - minLatencyExpiration > 0) {
+      minLatency = latency;
+      minLatencyExpiration = now + MIN_LATENCY_WINDOW;
+    }
+
+    if (latency > minLatency * latencyTolerance) {
+      decrease(now);
+    } else if (inFlight + 1 >= limit / 2) {
+      // Only grow when the limit is being used, so it doesn't grow without bound while idle
+      limit = Math.min(maxLimit, limit + 1 / limit);
+    }
+  }
+
+  private void decrease(long now) {
+    // Responses already in flight reflect the previous limit, so it is decreased once for each
+    // round trip at most
+    long interval = minLatency == Long.MAX_VALUE ? 0 : minLatency;
+    if (lastDecrease == 0 || now - lastDecrease > interval) {
+      limit = Math.max(minLimit, limit * backoffRatio);
+      lastDecrease = now;
+    }
+  }
+
+}
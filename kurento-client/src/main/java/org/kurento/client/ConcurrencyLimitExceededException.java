@@ -0,0 +1,35 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.client;
+
+import org.kurento.commons.exception.KurentoException;
+
+/**
+ * Thrown when a request to the media server can't be sent because the client already has as many
+ * requests in flight as allowed by its {@link AdaptiveConcurrencyLimiter}, and no more requests
+ * can wait.
+ */
+public class ConcurrencyLimitExceededException extends KurentoException {
+
+  private static final long serialVersionUID = 4371826582017449301L;
+
+  public ConcurrencyLimitExceededException(String message) {
+    super(message);
+  }
+
+}
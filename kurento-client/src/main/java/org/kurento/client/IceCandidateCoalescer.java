@@ -0,0 +1,372 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.client;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.kurento.client.internal.TransactionImpl;
+import org.kurento.client.internal.client.RemoteObjectInvocationHandler;
+import org.kurento.client.internal.client.RomManager;
+import org.kurento.client.internal.client.operation.Operation;
+import org.kurento.commons.PropertiesManager;
+import org.kurento.commons.ThreadFactoryCreator;
+import org.kurento.commons.exception.KurentoException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Coalesces the trickle ICE traffic of many {@link WebRtcEndpoint}s.
+ *
+ * <p>
+ * Candidates added with {@link #addIceCandidate(WebRtcEndpoint, IceCandidate)} are gathered during
+ * a short window and sent in one transaction per media server, instead of one request per
+ * candidate. If the transaction fails (for example, because one of the endpoints has been
+ * released), only the candidates that the media server didn't add are sent again one by one, so a
+ * failing endpoint doesn't affect the rest. Transactions are committed asynchronously, so a slow
+ * media server doesn't delay the candidates of the others.
+ *
+ * <p>
+ * Listeners added with {@link #addIceCandidateFoundListener(WebRtcEndpoint, CandidatesListener)}
+ * receive the {@link IceCandidateFoundEvent}s of the endpoint in batches, so an application that
+ * forwards candidates to the browser can send them in one signaling message.
+ *
+ * <p>
+ * The window and the maximum size of a batch are taken by default from the properties
+ * {@code kurento.client.ice.coalescingWindow} (milliseconds) and
+ * {@code kurento.client.ice.maxBatch}. A batch is sent as soon as it reaches the maximum size.
+ *
+ * <pre>
+ * IceCandidateCoalescer coalescer = new IceCandidateCoalescer();
+ * coalescer.addIceCandidateFoundListener(webRtcEndpoint, new CandidatesListener() {
+ *   public void onIceCandidates(WebRtcEndpoint endpoint,
+ *       List&lt;IceCandidateFoundEvent&gt; events) {
+ *     signaling.sendCandidates(events);
+ *   }
+ * });
+ * ...
+ * coalescer.addIceCandidate(webRtcEndpoint, candidateFromBrowser);
+ * </pre>
+ */
+public class IceCandidateCoalescer implements Closeable {
+
+  private static final Logger log = LoggerFactory.getLogger(IceCandidateCoalescer.class);
+
+  private static final long DEFAULT_WINDOW =
+      PropertiesManager.getProperty("kurento.client.ice.coalescingWindow", 20L);
+
+  private static final int DEFAULT_MAX_BATCH =
+      PropertiesManager.getProperty("kurento.client.ice.maxBatch", 64);
+
+  /**
+   * Receives the candidates found by an endpoint in batches.
+   */
+  public interface CandidatesListener {
+
+    void onIceCandidates(WebRtcEndpoint endpoint, List<IceCandidateFoundEvent> events);
+  }
+
+  private static class OutboundCandidate {
+
+    private final WebRtcEndpoint endpoint;
+    private final IceCandidate candidate;
+    private final Continuation<Void> cont;
+
+    private OutboundCandidate(WebRtcEndpoint endpoint, IceCandidate candidate,
+        Continuation<Void> cont) {
+      this.endpoint = endpoint;
+      this.candidate = candidate;
+      this.cont = cont;
+    }
+  }
+
+  private class InboundBatch implements EventListener<IceCandidateFoundEvent>, Runnable {
+
+    private final WebRtcEndpoint endpoint;
+    private final CandidatesListener listener;
+
+    private List<IceCandidateFoundEvent> events = new ArrayList<>();
+    private boolean scheduled;
+
+    private InboundBatch(WebRtcEndpoint endpoint, CandidatesListener listener) {
+      this.endpoint = endpoint;
+      this.listener = listener;
+    }
+
+    @Override
+    public void onEvent(IceCandidateFoundEvent event) {
+
+      boolean full;
+      boolean schedule;
+      synchronized (this) {
+        events.add(event);
+        full = events.size() >= maxBatch;
+        schedule = !scheduled && !full;
+        scheduled |= schedule;
+      }
+
+      if (full) {
+        run();
+      } else if (schedule) {
+        IceCandidateCoalescer.this.schedule(this);
+      }
+    }
+
+    @Override
+    public void run() {
+
+      List<IceCandidateFoundEvent> batch;
+      synchronized (this) {
+        batch = events;
+        events = new ArrayList<>();
+        scheduled = false;
+      }
+
+      if (batch.isEmpty()) {
+        return;
+      }
+
+      try {
+        listener.onIceCandidates(endpoint, batch);
+      } catch (Exception e) {
+        log.warn("Exception executing candidates listener", e);
+      }
+    }
+  }
+
+  private final long window;
+  private final int maxBatch;
+  private final ScheduledExecutorService scheduler;
+
+  private List<OutboundCandidate> outbound = new ArrayList<>();
+  private boolean flushScheduled;
+  private boolean closed;
+
+  private final Runnable flushTask = new Runnable() {
+    @Override
+    public void run() {
+      flush();
+    }
+  };
+
+  public IceCandidateCoalescer() {
+    this(DEFAULT_WINDOW, DEFAULT_MAX_BATCH);
+  }
+
+  /**
+   * @param window
+   *          time, in milliseconds, that candidates are gathered before being sent or delivered
+   * @param maxBatch
+   *          number of candidates that makes a batch to be sent or delivered without waiting
+   */
+  public IceCandidateCoalescer(long window, int maxBatch) {
+    if (window < 0 || maxBatch < 1) {
+      throw new IllegalArgumentException("Invalid window " + window + " or batch " + maxBatch);
+    }
+    this.window = window;
+    this.maxBatch = maxBatch;
+    this.scheduler = Executors
+        .newSingleThreadScheduledExecutor(ThreadFactoryCreator.create("IceCandidateCoalescer"));
+  }
+
+  /**
+   * Adds a remote candidate to the endpoint in the next batch.
+   */
+  public void addIceCandidate(WebRtcEndpoint endpoint, IceCandidate candidate) {
+    addIceCandidate(endpoint, candidate, null);
+  }
+
+  /**
+   * Adds a remote candidate to the endpoint in the next batch.
+   *
+   * @param cont
+   *          called when the candidate has been added, or null
+   */
+  public void addIceCandidate(WebRtcEndpoint endpoint, IceCandidate candidate,
+      Continuation<Void> cont) {
+
+    boolean full;
+    boolean schedule;
+    synchronized (this) {
+      if (closed) {
+        throw new IllegalStateException("ICE candidate coalescer is closed");
+      }
+      outbound.add(new OutboundCandidate(endpoint, candidate, cont));
+      full = outbound.size() >= maxBatch;
+      schedule = !flushScheduled;
+      flushScheduled = true;
+    }
+
+    if (full) {
+      scheduler.execute(flushTask);
+    } else if (schedule) {
+      schedule(flushTask);
+    }
+  }
+
+  /**
+   * Subscribes to the candidates found by the endpoint and delivers them to the listener in
+   * batches.
+   *
+   * @return the subscription, to be removed with
+   *         {@link WebRtcEndpoint#removeIceCandidateFoundListener(ListenerSubscription)}
+   */
+  public ListenerSubscription addIceCandidateFoundListener(WebRtcEndpoint endpoint,
+      CandidatesListener listener) {
+    return endpoint.addIceCandidateFoundListener(new InboundBatch(endpoint, listener));
+  }
+
+  /**
+   * Sends the pending candidates, without waiting for the media servers to add them.
+   */
+  public void flush() {
+
+    List<OutboundCandidate> batch;
+    synchronized (this) {
+      batch = outbound;
+      outbound = new ArrayList<>();
+      flushScheduled = false;
+    }
+
+    if (batch.isEmpty()) {
+      return;
+    }
+
+    Map<RomManager, List<OutboundCandidate>> batchByManager = new LinkedHashMap<>();
+    for (OutboundCandidate candidate : batch) {
+      RomManager manager = RemoteObjectInvocationHandler.getFor(candidate.endpoint).getRomManager();
+      List<OutboundCandidate> managerBatch = batchByManager.get(manager);
+      if (managerBatch == null) {
+        managerBatch = new ArrayList<>();
+        batchByManager.put(manager, managerBatch);
+      }
+      managerBatch.add(candidate);
+    }
+
+    for (Map.Entry<RomManager, List<OutboundCandidate>> e : batchByManager.entrySet()) {
+      if (e.getValue().size() == 1) {
+        sendOne(e.getValue().get(0));
+      } else {
+        sendInTransaction(e.getKey(), e.getValue());
+      }
+    }
+  }
+
+  private void sendInTransaction(RomManager manager, final List<OutboundCandidate> managerBatch) {
+
+    // Each candidate adds one operation, so operations and candidates have the same order
+    final TransactionImpl tx = new TransactionImpl(manager);
+    for (OutboundCandidate candidate : managerBatch) {
+      candidate.endpoint.addIceCandidate(tx, candidate.candidate);
+    }
+
+    try {
+      tx.commit(new Continuation<Void>() {
+        @Override
+        public void onSuccess(Void result) {
+          for (OutboundCandidate candidate : managerBatch) {
+            notifySuccess(candidate);
+          }
+        }
+
+        @Override
+        public void onError(Throwable cause) {
+          retryFailed(managerBatch, tx.getOperations(), cause);
+        }
+      });
+    } catch (KurentoException e) {
+      retryFailed(managerBatch, tx.getOperations(), e);
+    }
+  }
+
+  private void retryFailed(List<OutboundCandidate> managerBatch, List<Operation> operations,
+      Throwable cause) {
+
+    log.debug("Transaction with {} candidates failed. Sending again the failed ones one by one",
+        managerBatch.size(), cause);
+
+    for (int i = 0; i < managerBatch.size(); i++) {
+      if (operations.get(i).isExecuted()) {
+        notifySuccess(managerBatch.get(i));
+      } else {
+        sendOne(managerBatch.get(i));
+      }
+    }
+  }
+
+  private void notifySuccess(OutboundCandidate candidate) {
+    if (candidate.cont != null) {
+      try {
+        candidate.cont.onSuccess(null);
+      } catch (Exception e) {
+        log.warn("[Continuation] error invoking onSuccess implemented by client", e);
+      }
+    }
+  }
+
+  private void sendOne(final OutboundCandidate candidate) {
+    candidate.endpoint.addIceCandidate(candidate.candidate, new Continuation<Void>() {
+      @Override
+      public void onSuccess(Void result) throws Exception {
+        if (candidate.cont != null) {
+          candidate.cont.onSuccess(result);
+        }
+      }
+
+      @Override
+      public void onError(Throwable cause) throws Exception {
+        if (candidate.cont != null) {
+          candidate.cont.onError(cause);
+        } else {
+          log.warn("Exception adding ICE candidate {} to {}", candidate.candidate.getCandidate(),
+              candidate.endpoint, cause);
+        }
+      }
+    });
+  }
+
+  private void schedule(Runnable task) {
+    try {
+      scheduler.schedule(task, window, TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      // Closed: nothing will be gathered anymore
+      task.run();
+    }
+  }
+
+  /**
+   * Sends the pending candidates and stops the coalescer. Candidates found afterwards are
+   * delivered without waiting.
+   */
+  @Override
+  public void close() {
+    synchronized (this) {
+      closed = true;
+    }
+    scheduler.shutdown();
+    flush();
+  }
+
+}
@@ -20,7 +20,15 @@ package org.kurento.client;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
 
 import javax.annotation.PreDestroy;
 
@@ -39,6 +47,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.StandardSystemProperty;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
@@ -67,40 +76,65 @@ public class KurentoClient {
   private long connectionTimeout =
       PropertiesManager.getProperty("kurento.client.connectionTimeout", 5000);
 
+  private boolean propagateDeadline =
+      PropertiesManager.getProperty("kurento.client.propagateDeadline", false);
+
   private String id;
 
   private ServerManager serverManager;
 
   private JsonRpcClient client;
 
-  private static KmsUrlLoader kmsUrlLoader;
+  private static volatile KmsUrlLoader kmsUrlLoader;
+
+  /**
+   * Connects clients created asynchronously. Threads are created on demand, so clients are
+   * connected in parallel.
+   */
+  private static final Executor CONNECTION_EXECUTOR = Executors.newCachedThreadPool(
+      new ThreadFactoryBuilder().setNameFormat("KurentoClient-connect-%d").setDaemon(true).build());
 
   private String label;
   
   private boolean destroyed = false;
 
-  public static synchronized String getKmsUrl(String id, Properties properties) {
+  private static KmsUrlLoader getKmsUrlLoader() {
+    KmsUrlLoader loader = kmsUrlLoader;
+    if (loader == null) {
+      synchronized (KurentoClient.class) {
+        loader = kmsUrlLoader;
+        if (loader == null) {
+          Path configFile =
+              Paths.get(StandardSystemProperty.USER_HOME.value(), ".kurento", "config.properties");
+          loader = new KmsUrlLoader(configFile);
+          kmsUrlLoader = loader;
+        }
+      }
+    }
+    return loader;
+  }
+
+  /**
+   * Obtains the url of the media server for a new client. The lock of this class is only held
+   * while the url loader is created, so clients with a static url don't wait for clients that are
+   * asking a provider.
+   */
+  public static String getKmsUrl(String id, Properties properties) {
 
     if (properties == null) {
       properties = new Properties();
     }
 
-    if (kmsUrlLoader == null) {
-
-      Path configFile =
-          Paths.get(StandardSystemProperty.USER_HOME.value(), ".kurento", "config.properties");
-
-      kmsUrlLoader = new KmsUrlLoader(configFile);
-    }
+    KmsUrlLoader loader = getKmsUrlLoader();
 
     Object load = properties.get("loadPoints");
     if (load == null) {
-      return kmsUrlLoader.getKmsUrl(id);
+      return loader.getKmsUrl(id);
     } else {
       if (load instanceof Number) {
-        return kmsUrlLoader.getKmsUrlLoad(id, ((Number) load).intValue());
+        return loader.getKmsUrlLoad(id, ((Number) load).intValue());
       } else {
-        return kmsUrlLoader.getKmsUrlLoad(id, Integer.parseInt(load.toString()));
+        return loader.getKmsUrlLoad(id, Integer.parseInt(load.toString()));
       }
     }
   }
@@ -131,6 +165,41 @@ public class KurentoClient {
     return new KurentoClient(client);
   }
 
+  /**
+   * Creates a client for the media server given by the provider or the configuration, without
+   * blocking the calling thread. The url is obtained and the connection established in a
+   * background thread, so several clients are connected in parallel.
+   *
+   * @return a stage completed with the connected client, or with the exception thrown while
+   *         connecting
+   */
+  public static CompletionStage<KurentoClient> createAsync(final Properties properties) {
+    return supplyAsync(new Supplier<KurentoClient>() {
+      @Override
+      public KurentoClient get() {
+        return create(properties);
+      }
+    });
+  }
+
+  /**
+   * Connects to a media server without blocking the calling thread.
+   *
+   * @see #createAsync(Properties)
+   */
+  public static CompletionStage<KurentoClient> createAsync(final String websocketUrl) {
+    return supplyAsync(new Supplier<KurentoClient>() {
+      @Override
+      public KurentoClient get() {
+        return create(websocketUrl);
+      }
+    });
+  }
+
+  static CompletableFuture<KurentoClient> supplyAsync(Supplier<KurentoClient> connector) {
+    return CompletableFuture.supplyAsync(connector, CONNECTION_EXECUTOR);
+  }
+
   protected static void configureJsonRpcClient(AbstractJsonRpcClientWebSocket client) {
     client.enableHeartbeat(KEEPALIVE_TIME);
     client.setTryReconnectingForever(true);
@@ -246,13 +315,27 @@ public class KurentoClient {
 
   protected KurentoClient(JsonRpcClient client, boolean overrideClientTimeouts) {
     this.client = client;
-    this.manager = new RomManager(new RomClientJsonRpcClient(client));
+    this.manager = new RomManager(new RomClientJsonRpcClient(client,
+        AdaptiveConcurrencyLimiter.isEnabled() ? new AdaptiveConcurrencyLimiter() : null));
     if (overrideClientTimeouts) {
       client.setRequestTimeout(requesTimeout);
       client.setConnectionTimeout((int) connectionTimeout);
     }
     if (client instanceof AbstractJsonRpcClientWebSocket) {
       ((AbstractJsonRpcClientWebSocket) client).enableHeartbeat(KEEPALIVE_TIME);
+      ((AbstractJsonRpcClientWebSocket) client)
+          .addReconnectedListener(new org.kurento.jsonrpc.client.ReconnectedHandler() {
+            @Override
+            public void run(boolean sameServer) {
+              if (!sameServer) {
+                manager.clearPropertyCaches();
+                manager.renewSubscriptions();
+              }
+            }
+          });
+      if (propagateDeadline) {
+        ((AbstractJsonRpcClientWebSocket) client).setPropagateDeadline(true);
+      }
     }
     try {
       long start = System.currentTimeMillis();
@@ -291,6 +374,60 @@ public class KurentoClient {
     new AbstractBuilder<MediaPipeline>(MediaPipeline.class, manager).buildAsync(cont);
   }
 
+  /**
+   * Creates a new {@link MediaPipeline} in the media server asynchronously.
+   *
+   * @return the stage completed with the pipeline when it is created
+   */
+  public CompletionStage<MediaPipeline> createMediaPipelineAsync() {
+    return new AbstractBuilder<MediaPipeline>(MediaPipeline.class, manager).buildAsync();
+  }
+
+  /**
+   * Releases several objects (for example, all the pipelines of a room) with one request to the
+   * media server. Elements whose pipeline is also in the collection are released with it, without
+   * their own request. Local objects of the released ones are discarded with their listeners.
+   *
+   * @param objects
+   *          the objects to release
+   */
+  public void releaseAll(Collection<? extends KurentoObject> objects) {
+    manager.release(objects);
+  }
+
+  /**
+   * Releases several objects with one request to the media server, asynchronously.
+   *
+   * @see #releaseAll(Collection)
+   */
+  public void releaseAll(Collection<? extends KurentoObject> objects, Continuation<Void> cont) {
+    manager.release(objects, cont);
+  }
+
+  /**
+   * Rebuilds the local objects of a pipeline that exists in the media server, with one request
+   * for each level of the pipeline instead of one for each object.
+   *
+   * @param pipelineId
+   *          the id of the pipeline
+   * @return the pipeline with its objects and connections
+   */
+  public RehydratedPipeline rehydrate(String pipelineId) {
+    MediaPipeline pipeline = getById(pipelineId, MediaPipeline.class);
+    return RehydratedPipeline.rehydrate(manager, Collections.singletonList(pipeline)).get(0);
+  }
+
+  /**
+   * Rebuilds the local objects of all the pipelines of the media server. The objects of all
+   * pipelines are read together, so the number of requests doesn't depend on the number of
+   * pipelines.
+   *
+   * @see #rehydrate(String)
+   */
+  public List<RehydratedPipeline> rehydrateAll() {
+    return RehydratedPipeline.rehydrate(manager, getServerManager().getPipelines());
+  }
+
   public MediaPipeline createMediaPipeline(Transaction tx) {
     return new AbstractBuilder<MediaPipeline>(MediaPipeline.class, manager).build(tx);
   }
@@ -365,6 +502,28 @@ public class KurentoClient {
     return new TransactionImpl(manager);
   }
 
+  /**
+   * Sets the executor where the stages returned by the asynchronous methods of this client and
+   * its objects are completed. By default (null), stages are completed in the thread that
+   * receives the response from the media server, so dependent actions must not block.
+   */
+  public void setCompletionExecutor(Executor executor) {
+    manager.setCompletionExecutor(executor);
+  }
+
+  public Executor getCompletionExecutor() {
+    return manager.getCompletionExecutor();
+  }
+
+  /**
+   * @return the limiter of the requests in flight to the media server, or null if requests are
+   *         not limited
+   * @see AdaptiveConcurrencyLimiter
+   */
+  public AdaptiveConcurrencyLimiter getConcurrencyLimiter() {
+    return ((RomClientJsonRpcClient) manager.getRomClient()).getConcurrencyLimiter();
+  }
+
   public ServerManager getServerManager() {
     if (serverManager == null) {
       serverManager = getById("manager_ServerManager", ServerManager.class);
@@ -1,6 +1,10 @@
 
 package org.kurento.client;
 
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
 public class KurentoClientBuilder {
 
   private Properties properties;
@@ -15,6 +19,8 @@ public class KurentoClientBuilder {
   private Long tryReconnectingMaxTime;
   private Long connectionTimeout;
 
+  private Executor completionExecutor;
+
   public KurentoClientBuilder() {
   }
 
@@ -63,10 +69,34 @@ public class KurentoClientBuilder {
     return this;
   }
 
+  /**
+   * @see KurentoClient#setCompletionExecutor(Executor)
+   */
+  public KurentoClientBuilder setCompletionExecutor(Executor completionExecutor) {
+    this.completionExecutor = completionExecutor;
+    return this;
+  }
+
   public KurentoClient connect() {
-    return KurentoClient.create(kmsWsUri, properties, connectedHandler, connectionFailedHandler,
-        reconnectingHandler, disconnectedHandler, reconnectedHandler, tryReconnectingMaxTime,
-        connectionTimeout);
+    KurentoClient client = KurentoClient.create(kmsWsUri, properties, connectedHandler,
+        connectionFailedHandler, reconnectingHandler, disconnectedHandler, reconnectedHandler,
+        tryReconnectingMaxTime, connectionTimeout);
+    client.setCompletionExecutor(completionExecutor);
+    return client;
+  }
+
+  /**
+   * Connects in a background thread, so the calling thread is not blocked.
+   *
+   * @return a stage completed with the connected client
+   */
+  public CompletionStage<KurentoClient> connectAsync() {
+    return KurentoClient.supplyAsync(new Supplier<KurentoClient>() {
+      @Override
+      public KurentoClient get() {
+        return connect();
+      }
+    });
   }
 
 }
@@ -0,0 +1,246 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.client;
+
+import java.io.Closeable;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import org.kurento.commons.PropertiesManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps clients already connected to each media server, so a new session doesn't wait for the
+ * connection to be established.
+ *
+ * <p>
+ * For each url, up to {@code size} idle clients are connected in parallel in background threads.
+ * When a client is taken, it belongs to the caller (who destroys it when done) and a new one is
+ * connected to replace it. Calling {@link #warmUp(String)} when the application starts, or when a
+ * new media server is added, makes its first sessions as fast as the rest.
+ *
+ * <pre>
+ * KurentoClientPool pool = new KurentoClientPool();
+ * pool.warmUp(kmsUrl);
+ * ...
+ * KurentoClient kurento = pool.take(kmsUrl);
+ * </pre>
+ *
+ * <p>
+ * The default size is read from property {@code kurento.client.pool.size}.
+ */
+public class KurentoClientPool implements Closeable {
+
+  private static final Logger log = LoggerFactory.getLogger(KurentoClientPool.class);
+
+  private static final int DEFAULT_SIZE =
+      PropertiesManager.getProperty("kurento.client.pool.size", 2);
+
+  private static class Pool {
+
+    private final Queue<KurentoClient> idle = new ConcurrentLinkedQueue<>();
+
+    // Idle clients plus clients being connected
+    private final AtomicInteger size = new AtomicInteger();
+
+    // Completed once the client being connected is idle
+    private final Set<CompletableFuture<KurentoClient>> connecting = ConcurrentHashMap.newKeySet();
+  }
+
+  private final int size;
+  private final ConcurrentMap<String, Pool> pools = new ConcurrentHashMap<>();
+  private volatile boolean closed;
+
+  public KurentoClientPool() {
+    this(DEFAULT_SIZE);
+  }
+
+  /**
+   * @param size
+   *          idle clients kept for each media server
+   */
+  public KurentoClientPool(int size) {
+    this.size = size;
+  }
+
+  /**
+   * Starts connecting the idle clients of a media server.
+   *
+   * @return a stage completed when the clients being connected are ready, including those
+   *         started before this call, or with the exception thrown while connecting one of them
+   */
+  public CompletionStage<Void> warmUp(String url) {
+    Pool pool = getPool(url);
+    refill(url, pool);
+    return CompletableFuture.allOf(pool.connecting.toArray(new CompletableFuture<?>[0]));
+  }
+
+  /**
+   * Takes a connected client for a media server. If there is no idle client, a new one is
+   * connected in this thread.
+   */
+  public KurentoClient take(String url) {
+    KurentoClient client = poll(url);
+    return client != null ? client : connect(url);
+  }
+
+  /**
+   * Takes a connected client for a media server without blocking the calling thread.
+   *
+   * @see #take(String)
+   */
+  public CompletionStage<KurentoClient> takeAsync(final String url) {
+    KurentoClient client = poll(url);
+    if (client != null) {
+      return CompletableFuture.completedFuture(client);
+    }
+    return connectAsync(url);
+  }
+
+  /**
+   * @return the number of connected clients ready to be taken for a media server
+   */
+  public int getIdle(String url) {
+    Pool pool = pools.get(url);
+    return pool == null ? 0 : pool.idle.size();
+  }
+
+  private KurentoClient poll(String url) {
+
+    if (closed) {
+      throw new IllegalStateException("Pool is closed");
+    }
+
+    Pool pool = getPool(url);
+    try {
+      KurentoClient client;
+      while ((client = pool.idle.poll()) != null) {
+        pool.size.decrementAndGet();
+        if (!client.isClosed()) {
+          return client;
+        }
+        // The connection was lost while idle
+        client.destroy();
+      }
+      return null;
+    } finally {
+      refill(url, pool);
+    }
+  }
+
+  private Pool getPool(String url) {
+    Pool pool = pools.get(url);
+    if (pool == null) {
+      pool = new Pool();
+      Pool previous = pools.putIfAbsent(url, pool);
+      if (previous != null) {
+        pool = previous;
+      }
+    }
+    return pool;
+  }
+
+  private void refill(final String url, final Pool pool) {
+
+    while (!closed) {
+
+      int current = pool.size.get();
+      if (current >= size) {
+        break;
+      }
+
+      if (pool.size.compareAndSet(current, current + 1)) {
+        final CompletableFuture<KurentoClient> connection = connectIdle(url, pool);
+        pool.connecting.add(connection);
+        connection.whenComplete(new BiConsumer<KurentoClient, Throwable>() {
+          @Override
+          public void accept(KurentoClient client, Throwable error) {
+            pool.connecting.remove(connection);
+          }
+        });
+      }
+    }
+  }
+
+  /**
+   * Connects a client and adds it to the idle ones. The returned stage is completed once the
+   * client is idle.
+   */
+  private CompletableFuture<KurentoClient> connectIdle(final String url, final Pool pool) {
+    return connectAsync(url).whenComplete(new BiConsumer<KurentoClient, Throwable>() {
+      @Override
+      public void accept(KurentoClient client, Throwable error) {
+        if (error != null) {
+          // Not retried here, so an unavailable server is not polled in a loop
+          pool.size.decrementAndGet();
+          log.warn("Error connecting idle client to {}", url, error);
+        } else if (closed) {
+          pool.size.decrementAndGet();
+          client.destroy();
+        } else {
+          pool.idle.add(client);
+          if (closed && pool.idle.remove(client)) {
+            pool.size.decrementAndGet();
+            client.destroy();
+          }
+        }
+      }
+    });
+  }
+
+  private CompletableFuture<KurentoClient> connectAsync(final String url) {
+    return KurentoClient.supplyAsync(new Supplier<KurentoClient>() {
+      @Override
+      public KurentoClient get() {
+        return connect(url);
+      }
+    });
+  }
+
+  /**
+   * Connects a new client to a media server.
+   */
+  protected KurentoClient connect(String url) {
+    return KurentoClient.create(url);
+  }
+
+  /**
+   * Destroys the idle clients. Clients already taken are not affected.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    for (Pool pool : pools.values()) {
+      KurentoClient client;
+      while ((client = pool.idle.poll()) != null) {
+        pool.size.decrementAndGet();
+        client.destroy();
+      }
+    }
+  }
+
+}
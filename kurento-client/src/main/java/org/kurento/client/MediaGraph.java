@@ -0,0 +1,482 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.kurento.client.internal.TransactionImpl;
+import org.kurento.client.internal.client.RemoteObject;
+import org.kurento.client.internal.client.RemoteObjectInvocationHandler;
+import org.kurento.client.internal.client.RomManager;
+import org.kurento.client.internal.client.operation.MediaObjectCreationOperation;
+import org.kurento.client.internal.client.operation.Operation;
+import org.kurento.jsonrpc.Props;
+
+/**
+ * Declarative description of a set of media objects, their connections, initial properties and
+ * event listeners. The whole graph is created with a single {@code transaction} request when it
+ * is committed, instead of one request for each creation, connection and subscription.
+ *
+ * <p>
+ * Nodes can be used as constructor params or property values of other nodes. Nodes are created
+ * after the nodes they depend on, regardless of the order in which they were declared. Listeners
+ * of a node are subscribed just after its creation, so no event is lost, and connections are made
+ * when all the nodes have been created and configured.
+ *
+ * <pre>
+ * MediaGraph graph = new MediaGraph(kurentoClient);
+ * MediaGraph.Node&lt;MediaPipeline&gt; pipeline = graph.pipeline();
+ * MediaGraph.Node&lt;WebRtcEndpoint&gt; presenter =
+ *     graph.element(WebRtcEndpoint.class, pipeline).set("maxVideoRecvBandwidth", 1000)
+ *     .on(IceCandidateFoundEvent.class, candidateListener);
+ * MediaGraph.Node&lt;RecorderEndpoint&gt; recorder =
+ *     graph.element(RecorderEndpoint.class, pipeline).param("uri", "file:///tmp/presenter.webm");
+ * graph.connect(presenter, recorder);
+ * graph.commit();
+ *
+ * WebRtcEndpoint presenterEndpoint = presenter.get();
+ * </pre>
+ *
+ * <p>
+ * If the transaction fails, {@link #commit()} throws a {@link TransactionExecutionException}
+ * describing the failed operation. The media server executes the rest of the operations anyway, so
+ * the objects it has created are released with one more request, and the graph can be modified and
+ * committed again.
+ */
+public class MediaGraph {
+
+  private enum State {
+    DECLARING, COMMITTING, COMMITTED
+  }
+
+  /**
+   * A media object of the graph. It is created when the graph is committed.
+   */
+  public final class Node<T extends KurentoObject> {
+
+    private final Class<T> type;
+    private final Map<String, Object> params = new LinkedHashMap<>();
+    private final Map<String, Object> genericProperties = new LinkedHashMap<>();
+    private final Map<String, Object> propertyValues = new LinkedHashMap<>();
+    private final List<NodeListener<?>> listeners = new ArrayList<>();
+    private final List<ListenerSubscription> subscriptions = new ArrayList<>();
+
+    private final boolean existing;
+    private T object;
+    private boolean creating;
+
+    private Node(Class<T> type, T object) {
+      this.type = type;
+      this.object = object;
+      this.existing = object != null;
+    }
+
+    /**
+     * Adds a constructor param. The value can be other node of the graph.
+     */
+    public Node<T> param(String name, Object value) {
+      checkDeclaring();
+      params.put(name, value);
+      return this;
+    }
+
+    /**
+     * Adds a generic property sent with the creation of the object, as
+     * {@link AbstractBuilder#with(String, Object)}.
+     */
+    public Node<T> with(String name, Object value) {
+      checkDeclaring();
+      genericProperties.put(name, value);
+      return this;
+    }
+
+    /**
+     * Sets the initial value of a property, invoking its setter once the object is created. The
+     * value can be other node of the graph.
+     */
+    public Node<T> set(String property, Object value) {
+      checkDeclaring();
+      propertyValues.put(property, value);
+      return this;
+    }
+
+    /**
+     * Adds a listener of the event. The name of the event is the name of its class without the
+     * "Event" suffix.
+     */
+    public <E extends Event> Node<T> on(Class<E> eventClass, EventListener<E> listener) {
+      String eventName = eventClass.getSimpleName();
+      if (eventName.endsWith("Event")) {
+        eventName = eventName.substring(0, eventName.length() - "Event".length());
+      }
+      return on(eventName, eventClass, listener);
+    }
+
+    public <E extends Event> Node<T> on(String eventName, Class<E> eventClass,
+        EventListener<E> listener) {
+      checkDeclaring();
+      listeners.add(new NodeListener<>(eventName, eventClass, listener));
+      return this;
+    }
+
+    /**
+     * @return the media object of this node
+     * @throws IllegalStateException
+     *           if the graph has not been committed yet
+     */
+    public T get() {
+      if (state != State.COMMITTED) {
+        throw new IllegalStateException("Media graph is not committed");
+      }
+      return object;
+    }
+
+    /**
+     * @return the subscriptions of the listeners added to this node, in the same order. They are
+     *         available once the graph is committed
+     */
+    public List<ListenerSubscription> getListenerSubscriptions() {
+      return Collections.unmodifiableList(subscriptions);
+    }
+
+    @Override
+    public String toString() {
+      if (existing) {
+        return "[Node: object=" + object + "]";
+      }
+      // Nodes in params are printed by index, as they may refer back to this one
+      Map<String, Object> printedParams = new LinkedHashMap<>();
+      for (Map.Entry<String, Object> param : params.entrySet()) {
+        Object value = param.getValue();
+        printedParams.put(param.getKey(),
+            value instanceof Node ? ((Node<?>) value).describe() : value);
+      }
+      return "[Node: " + describe() + " params=" + printedParams + "]";
+    }
+
+    private String describe() {
+      return "#" + nodes.indexOf(this) + " type=" + type.getSimpleName();
+    }
+  }
+
+  private static class NodeListener<E extends Event> {
+
+    private final String eventName;
+    private final Class<E> eventClass;
+    private final EventListener<E> listener;
+
+    private NodeListener(String eventName, Class<E> eventClass, EventListener<E> listener) {
+      this.eventName = eventName;
+      this.eventClass = eventClass;
+      this.listener = listener;
+    }
+  }
+
+  private static class Connection {
+
+    private final Node<? extends MediaElement> source;
+    private final Node<? extends MediaElement> sink;
+    private final MediaType mediaType;
+
+    private Connection(Node<? extends MediaElement> source, Node<? extends MediaElement> sink,
+        MediaType mediaType) {
+      this.source = source;
+      this.sink = sink;
+      this.mediaType = mediaType;
+    }
+  }
+
+  private final RomManager manager;
+
+  private final List<Node<?>> nodes = new ArrayList<>();
+  private final List<Connection> connections = new ArrayList<>();
+
+  private volatile State state = State.DECLARING;
+
+  public MediaGraph(KurentoClient client) {
+    this(client.manager);
+  }
+
+  /**
+   * Creates a graph in the media server of an existing object.
+   */
+  public MediaGraph(KurentoObject kurentoObject) {
+    this(RemoteObjectInvocationHandler.getFor(kurentoObject).getRomManager());
+  }
+
+  public MediaGraph(RomManager manager) {
+    this.manager = manager;
+  }
+
+  /**
+   * Declares an object created when the graph is committed.
+   */
+  public <T extends KurentoObject> Node<T> create(Class<T> type) {
+    checkDeclaring();
+    Node<T> node = new Node<>(type, null);
+    nodes.add(node);
+    return node;
+  }
+
+  public Node<MediaPipeline> pipeline() {
+    return create(MediaPipeline.class);
+  }
+
+  /**
+   * Declares a media element of the pipeline.
+   */
+  public <T extends MediaElement> Node<T> element(Class<T> type, Node<MediaPipeline> pipeline) {
+    return create(type).param("mediaPipeline", pipeline);
+  }
+
+  /**
+   * Declares an already existing object, to use it in the graph (e.g. the pipeline of a room
+   * where new elements are added).
+   */
+  public <T extends KurentoObject> Node<T> existing(T object) {
+    checkDeclaring();
+
+    RemoteObjectInvocationHandler handler = RemoteObjectInvocationHandler.getFor(object);
+    if (handler == null || handler.getRomManager() != manager) {
+      throw new IllegalArgumentException(
+          "The object " + object + " doesn't belong to the media server of this graph");
+    }
+
+    Node<T> node = new Node<>(null, object);
+    nodes.add(node);
+    return node;
+  }
+
+  public void connect(Node<? extends MediaElement> source, Node<? extends MediaElement> sink) {
+    connect(source, sink, null);
+  }
+
+  public void connect(Node<? extends MediaElement> source, Node<? extends MediaElement> sink,
+      MediaType mediaType) {
+    checkDeclaring();
+    connections.add(new Connection(source, sink, mediaType));
+  }
+
+  /**
+   * Creates the graph in the media server with a single request.
+   *
+   * @throws TransactionExecutionException
+   *           if any of the operations fails. The objects of the graph created by the media server
+   *           are released before throwing it
+   */
+  public void commit() {
+    TransactionImpl tx = compile();
+    try {
+      tx.commit();
+    } catch (RuntimeException e) {
+      List<KurentoObject> executed = getExecutedObjects(tx);
+      reset();
+      if (!executed.isEmpty()) {
+        try {
+          manager.release(executed);
+        } catch (RuntimeException releaseException) {
+          e.addSuppressed(releaseException);
+        }
+      }
+      throw e;
+    }
+    state = State.COMMITTED;
+  }
+
+  /**
+   * Creates the graph in the media server with a single request, asynchronously. If it fails, the
+   * objects of the graph created by the media server are released before notifying the error.
+   */
+  public void commit(final Continuation<Void> continuation) {
+    final TransactionImpl tx = compile();
+    tx.commit(new Continuation<Void>() {
+      @Override
+      public void onSuccess(Void result) throws Exception {
+        state = State.COMMITTED;
+        continuation.onSuccess(null);
+      }
+
+      @Override
+      public void onError(final Throwable cause) throws Exception {
+        List<KurentoObject> executed = getExecutedObjects(tx);
+        reset();
+        if (executed.isEmpty()) {
+          continuation.onError(cause);
+          return;
+        }
+        manager.release(executed, new Continuation<Void>() {
+          @Override
+          public void onSuccess(Void result) throws Exception {
+            continuation.onError(cause);
+          }
+
+          @Override
+          public void onError(Throwable releaseCause) throws Exception {
+            cause.addSuppressed(releaseCause);
+            continuation.onError(cause);
+          }
+        });
+      }
+    });
+  }
+
+  private TransactionImpl compile() {
+
+    checkDeclaring();
+
+    for (Connection connection : connections) {
+      checkNode(connection.source);
+      checkNode(connection.sink);
+    }
+
+    state = State.COMMITTING;
+
+    TransactionImpl tx = new TransactionImpl(manager);
+
+    try {
+
+      for (Node<?> node : nodes) {
+        create(node, tx);
+      }
+
+      for (Connection connection : connections) {
+        if (connection.mediaType == null) {
+          connection.source.object.connect(tx, connection.sink.object);
+        } else {
+          connection.source.object.connect(tx, connection.sink.object, connection.mediaType);
+        }
+      }
+
+    } catch (RuntimeException e) {
+      reset();
+      throw e;
+    }
+
+    return tx;
+  }
+
+  /**
+   * Discards the objects of a failed commit, so the graph can be modified and committed again.
+   */
+  private void reset() {
+    for (Node<?> node : nodes) {
+      if (!node.existing) {
+        node.object = null;
+      }
+      node.creating = false;
+      node.subscriptions.clear();
+    }
+    state = State.DECLARING;
+  }
+
+  /**
+   * Gets the objects of the graph created by the media server in a transaction that failed.
+   */
+  private List<KurentoObject> getExecutedObjects(TransactionImpl tx) {
+
+    Map<RemoteObject, String> executedRefs = new IdentityHashMap<>();
+    for (Operation op : tx.getOperations()) {
+      if (op instanceof MediaObjectCreationOperation) {
+        MediaObjectCreationOperation creation = (MediaObjectCreationOperation) op;
+        if (creation.getExecutedObjectRef() != null) {
+          executedRefs.put(creation.getRemoteObject(), creation.getExecutedObjectRef());
+        }
+      }
+    }
+
+    List<KurentoObject> executed = new ArrayList<>();
+    for (Node<?> node : nodes) {
+      if (!node.existing && node.object != null) {
+        String objectRef = executedRefs
+            .get(RemoteObjectInvocationHandler.getFor(node.object).getRemoteObject());
+        if (objectRef != null) {
+          RemoteObject remoteObject =
+              new RemoteObject(objectRef, node.type.getSimpleName(), true, manager);
+          executed.add(RemoteObjectInvocationHandler.newProxy(remoteObject, manager, node.type));
+        }
+      }
+    }
+    return executed;
+  }
+
+  private <T extends KurentoObject> void create(Node<T> node, Transaction tx) {
+
+    if (node.object != null) {
+      return;
+    }
+
+    if (node.creating) {
+      throw new IllegalArgumentException("Cyclic dependency in media graph involving " + node);
+    }
+
+    node.creating = true;
+
+    AbstractBuilder<T> builder = new AbstractBuilder<>(node.type, manager);
+    for (Map.Entry<String, Object> param : node.params.entrySet()) {
+      builder.props.add(param.getKey(), resolve(param.getValue(), tx));
+    }
+    for (Map.Entry<String, Object> property : node.genericProperties.entrySet()) {
+      builder.with(property.getKey(), resolve(property.getValue(), tx));
+    }
+
+    node.object = builder.build(tx);
+    node.creating = false;
+
+    RemoteObjectInvocationHandler handler = RemoteObjectInvocationHandler.getFor(node.object);
+
+    for (NodeListener<?> listener : node.listeners) {
+      node.subscriptions.add((ListenerSubscription) handler.subscribeEventListener(
+          listener.listener, listener.eventClass, listener.eventName, null, tx));
+    }
+
+    for (Map.Entry<String, Object> property : node.propertyValues.entrySet()) {
+      String name = property.getKey();
+      String setter = "set" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+      handler.getRemoteObject().invoke(setter, new Props(name, resolve(property.getValue(), tx)),
+          void.class, tx);
+    }
+  }
+
+  private Object resolve(Object value, Transaction tx) {
+    if (value instanceof Node) {
+      Node<?> node = (Node<?>) value;
+      checkNode(node);
+      create(node, tx);
+      return node.object;
+    }
+    return value;
+  }
+
+  private void checkNode(Node<?> node) {
+    if (!nodes.contains(node)) {
+      throw new IllegalArgumentException("The node " + node + " doesn't belong to this graph");
+    }
+  }
+
+  private void checkDeclaring() {
+    if (state != State.DECLARING) {
+      throw new IllegalStateException("Media graph can't be modified once committed");
+    }
+  }
+
+}
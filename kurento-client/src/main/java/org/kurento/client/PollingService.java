@@ -0,0 +1,394 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.client;
+
+import java.io.Closeable;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.kurento.client.internal.TransactionImpl;
+import org.kurento.client.internal.client.RemoteObject;
+import org.kurento.client.internal.client.RemoteObjectInvocationHandler;
+import org.kurento.client.internal.client.RomManager;
+import org.kurento.commons.PropertiesManager;
+import org.kurento.commons.ThreadFactoryCreator;
+import org.kurento.commons.exception.KurentoException;
+import org.kurento.jsonrpc.Props;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.reflect.TypeToken;
+
+/**
+ * Periodically reads properties and stats of many remote objects and delivers the results of each
+ * round as a single {@link Snapshot}.
+ *
+ * <p>
+ * All the reads of a round addressed to the same media server are sent in one transaction, so
+ * monitoring hundreds of endpoints costs one request per round instead of one per object. If the
+ * transaction fails (for example, because one of the objects has been released), the reads of
+ * that round are repeated one by one, so a single failing object doesn't hide the values of the
+ * rest. The failure is reported in the snapshot with {@link Snapshot#getError(Read)}.
+ *
+ * <p>
+ * Rounds are separated by a configurable period plus a random jitter, to avoid all the services of
+ * a deployment hitting the media server at the same time. Defaults are taken from the properties
+ * {@code kurento.client.polling.period} and {@code kurento.client.polling.jitter} (in
+ * milliseconds).
+ *
+ * <pre>
+ * PollingService polling = new PollingService(new PollingService.Listener() {
+ *   public void onSnapshot(PollingService.Snapshot snapshot) {
+ *     Map&lt;String, Stats&gt; stats = snapshot.get(webRtcStats);
+ *     ...
+ *   }
+ * });
+ * webRtcStats = polling.addStats(webRtcEndpoint, MediaType.VIDEO);
+ * polling.start();
+ * </pre>
+ */
+public class PollingService implements Closeable {
+
+  private static final Logger log = LoggerFactory.getLogger(PollingService.class);
+
+  private static final long DEFAULT_PERIOD =
+      PropertiesManager.getProperty("kurento.client.polling.period", 1000L);
+
+  private static final long DEFAULT_JITTER =
+      PropertiesManager.getProperty("kurento.client.polling.jitter", 100L);
+
+  private static final Type STATS_MAP_TYPE = new TypeToken<Map<String, Stats>>() {
+  }.getType();
+
+  /**
+   * Handle of a read registered in the service. It is used to retrieve its value from each
+   * {@link Snapshot}.
+   */
+  public static final class Read<T> {
+
+    private final KurentoObject object;
+    private final String method;
+    private final Props params;
+    private final Type type;
+
+    private Read(KurentoObject object, String method, Props params, Type type) {
+      this.object = object;
+      this.method = method;
+      this.params = params;
+      this.type = type;
+    }
+
+    public KurentoObject getObject() {
+      return object;
+    }
+
+    public String getMethod() {
+      return method;
+    }
+
+    @Override
+    public String toString() {
+      return "[Read: object=" + object + " method=" + method + " params=" + params + "]";
+    }
+  }
+
+  /**
+   * Results of one polling round.
+   */
+  public static final class Snapshot {
+
+    private final long timestamp;
+    private final Map<Read<?>, Object> results;
+    private final Map<Read<?>, Throwable> errors;
+
+    private Snapshot(long timestamp, Map<Read<?>, Object> results,
+        Map<Read<?>, Throwable> errors) {
+      this.timestamp = timestamp;
+      this.results = Collections.unmodifiableMap(results);
+      this.errors = Collections.unmodifiableMap(errors);
+    }
+
+    /**
+     * @return time, in milliseconds since the epoch, when the round was started
+     */
+    public long getTimestamp() {
+      return timestamp;
+    }
+
+    /**
+     * @return the value obtained by the read in this round, or null if it failed or it was added
+     *         after the round was started
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Read<T> read) {
+      return (T) results.get(read);
+    }
+
+    /**
+     * @return the error produced by the read in this round, or null if it succeeded
+     */
+    public Throwable getError(Read<?> read) {
+      return errors.get(read);
+    }
+
+    public Map<Read<?>, Object> getResults() {
+      return results;
+    }
+
+    public Map<Read<?>, Throwable> getErrors() {
+      return errors;
+    }
+  }
+
+  public interface Listener {
+
+    /**
+     * Called from the polling thread when a round is finished. Rounds are not overlapped, so a
+     * slow listener delays the next one.
+     */
+    void onSnapshot(Snapshot snapshot);
+  }
+
+  private final Listener listener;
+  private final long period;
+  private final long jitter;
+
+  private final List<Read<?>> reads = new CopyOnWriteArrayList<>();
+
+  private ScheduledExecutorService scheduler;
+  private volatile boolean closed;
+
+  public PollingService(Listener listener) {
+    this(listener, DEFAULT_PERIOD, DEFAULT_JITTER);
+  }
+
+  /**
+   * @param listener
+   *          receives the snapshot of each round
+   * @param period
+   *          time between rounds, in milliseconds
+   * @param jitter
+   *          maximum random deviation of each period, in milliseconds
+   */
+  public PollingService(Listener listener, long period, long jitter) {
+    if (period <= 0 || jitter < 0 || jitter > period) {
+      throw new IllegalArgumentException(
+          "Invalid polling period " + period + " ms with jitter " + jitter + " ms");
+    }
+    this.listener = listener;
+    this.period = period;
+    this.jitter = jitter;
+  }
+
+  /**
+   * Adds a read of a remote method. The method must return a value.
+   *
+   * @param object
+   *          the remote object
+   * @param method
+   *          name of the method, as sent to the media server (e.g. "getMediaState")
+   * @param params
+   *          params of the method, or null if it has none
+   * @param type
+   *          type of the returned value
+   * @return the handle used to retrieve the value from the snapshots
+   */
+  public <T> Read<T> add(KurentoObject object, String method, Props params, Type type) {
+
+    if (type == void.class || type == Void.class) {
+      throw new IllegalArgumentException("Method " + method + " doesn't return any value");
+    }
+
+    if (RemoteObjectInvocationHandler.getFor(object) == null) {
+      throw new IllegalArgumentException("The object " + object + " is not a remote object");
+    }
+
+    Read<T> read = new Read<>(object, method, params, type);
+    reads.add(read);
+    return read;
+  }
+
+  public <T> Read<T> add(KurentoObject object, String method, Class<T> type) {
+    return add(object, method, null, type);
+  }
+
+  /**
+   * Adds a read of all the stats of an element.
+   */
+  public Read<Map<String, Stats>> addStats(MediaElement element) {
+    return add(element, "getStats", null, STATS_MAP_TYPE);
+  }
+
+  /**
+   * Adds a read of the stats of an element for the given media type.
+   */
+  public Read<Map<String, Stats>> addStats(MediaElement element, MediaType mediaType) {
+    return add(element, "getStats", new Props("mediaType", mediaType), STATS_MAP_TYPE);
+  }
+
+  public void remove(Read<?> read) {
+    reads.remove(read);
+  }
+
+  /**
+   * Starts polling. The first round is executed immediately.
+   */
+  public synchronized void start() {
+
+    if (closed) {
+      throw new IllegalStateException("Polling service is closed");
+    }
+
+    if (scheduler != null) {
+      throw new IllegalStateException("Polling service already started");
+    }
+
+    scheduler = Executors
+        .newSingleThreadScheduledExecutor(ThreadFactoryCreator.create("PollingService"));
+
+    schedule(0);
+  }
+
+  /**
+   * Executes a polling round in the calling thread. The snapshot is returned, but it is not
+   * delivered to the listener.
+   */
+  public Snapshot poll() {
+
+    long timestamp = System.currentTimeMillis();
+
+    Map<RomManager, List<Read<?>>> readsByManager = new LinkedHashMap<>();
+    for (Read<?> read : reads) {
+      RomManager manager = getRemoteObject(read).getRomManager();
+      List<Read<?>> managerReads = readsByManager.get(manager);
+      if (managerReads == null) {
+        managerReads = new ArrayList<>();
+        readsByManager.put(manager, managerReads);
+      }
+      managerReads.add(read);
+    }
+
+    Map<Read<?>, Object> results = new IdentityHashMap<>();
+    Map<Read<?>, Throwable> errors = new IdentityHashMap<>();
+
+    for (Map.Entry<RomManager, List<Read<?>>> e : readsByManager.entrySet()) {
+      try {
+        pollInTransaction(e.getKey(), e.getValue(), results);
+      } catch (KurentoException ex) {
+        log.debug("Polling transaction with {} reads failed. Reading them one by one",
+            e.getValue().size(), ex);
+        pollOneByOne(e.getValue(), results, errors);
+      }
+    }
+
+    return new Snapshot(timestamp, results, errors);
+  }
+
+  private void pollInTransaction(RomManager manager, List<Read<?>> managerReads,
+      Map<Read<?>, Object> results) {
+
+    TransactionImpl tx = new TransactionImpl(manager);
+
+    List<TFuture<Object>> futures = new ArrayList<>(managerReads.size());
+    for (Read<?> read : managerReads) {
+      futures.add(getRemoteObject(read).invoke(read.method, read.params, read.type, tx));
+    }
+
+    tx.commit();
+
+    for (int i = 0; i < managerReads.size(); i++) {
+      results.put(managerReads.get(i), futures.get(i).get());
+    }
+  }
+
+  private void pollOneByOne(List<Read<?>> managerReads, Map<Read<?>, Object> results,
+      Map<Read<?>, Throwable> errors) {
+
+    for (Read<?> read : managerReads) {
+      try {
+        results.put(read, getRemoteObject(read).invoke(read.method, read.params, read.type));
+      } catch (KurentoException e) {
+        errors.put(read, e);
+      }
+    }
+  }
+
+  private RemoteObject getRemoteObject(Read<?> read) {
+    return RemoteObjectInvocationHandler.getFor(read.object).getRemoteObject();
+  }
+
+  private synchronized void schedule(long delay) {
+
+    if (closed) {
+      return;
+    }
+
+    try {
+      scheduler.schedule(new Runnable() {
+        @Override
+        public void run() {
+          executeRound();
+        }
+      }, delay, TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      log.debug("Polling round not scheduled because the service is closed");
+    }
+  }
+
+  private void executeRound() {
+
+    try {
+      Snapshot snapshot = poll();
+      if (!closed) {
+        listener.onSnapshot(snapshot);
+      }
+    } catch (Exception e) {
+      log.warn("Exception in polling round", e);
+    }
+
+    long delay = period;
+    if (jitter > 0) {
+      delay += ThreadLocalRandom.current().nextLong(-jitter, jitter + 1);
+    }
+
+    schedule(delay);
+  }
+
+  /**
+   * Stops polling. The round in progress, if any, is not delivered.
+   */
+  @Override
+  public synchronized void close() {
+    closed = true;
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+  }
+
+}
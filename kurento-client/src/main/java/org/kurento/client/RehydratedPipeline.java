@@ -0,0 +1,146 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.kurento.client.internal.TransactionImpl;
+import org.kurento.client.internal.client.RomManager;
+
+/**
+ * Local view of a pipeline that already exists in the media server: its objects and the
+ * connections between its elements.
+ *
+ * <p>
+ * It is used to recover the objects of pipelines created by other clients (or by a previous run of
+ * the application) without fetching them one by one. The pipeline is explored level by level, and
+ * the children and sink connections of all the objects of a level are read in one transaction.
+ * A pipeline with hubs and hub ports is rebuilt in three requests, whatever its size, and
+ * {@link KurentoClient#rehydrateAll()} rebuilds all the pipelines of the server in the same
+ * number of requests plus one. The type of each object is given by its id, as returned by the
+ * media server.
+ */
+public class RehydratedPipeline {
+
+  private final MediaPipeline pipeline;
+  private final List<MediaObject> objects = new ArrayList<>();
+  private final List<ElementConnectionData> connections = new ArrayList<>();
+
+  private RehydratedPipeline(MediaPipeline pipeline) {
+    this.pipeline = pipeline;
+  }
+
+  public MediaPipeline getPipeline() {
+    return pipeline;
+  }
+
+  /**
+   * @return the objects of the pipeline (elements, hubs and hub ports), parents before children
+   */
+  public List<MediaObject> getObjects() {
+    return Collections.unmodifiableList(objects);
+  }
+
+  /**
+   * @return the objects of the pipeline of the given type
+   */
+  public <T extends MediaObject> List<T> getObjects(Class<T> type) {
+    List<T> result = new ArrayList<>();
+    for (MediaObject object : objects) {
+      if (type.isInstance(object)) {
+        result.add(type.cast(object));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the object of the pipeline with the given id, or null if there is none
+   */
+  public MediaObject getObject(String id) {
+    for (MediaObject object : objects) {
+      if (object.getId().equals(id)) {
+        return object;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return the connections between the elements of the pipeline, as returned by
+   *         {@link MediaElement#getSinkConnections()} of each element
+   */
+  public List<ElementConnectionData> getConnections() {
+    return Collections.unmodifiableList(connections);
+  }
+
+  static List<RehydratedPipeline> rehydrate(RomManager manager, List<MediaPipeline> pipelines) {
+
+    List<RehydratedPipeline> result = new ArrayList<>(pipelines.size());
+
+    // Objects of the level being explored, and the pipeline each one belongs to
+    List<MediaObject> level = new ArrayList<>();
+    List<RehydratedPipeline> owners = new ArrayList<>();
+
+    for (MediaPipeline pipeline : pipelines) {
+      RehydratedPipeline rehydrated = new RehydratedPipeline(pipeline);
+      result.add(rehydrated);
+      level.add(pipeline);
+      owners.add(rehydrated);
+    }
+
+    while (!level.isEmpty()) {
+
+      TransactionImpl tx = new TransactionImpl(manager);
+
+      List<TFuture<List<MediaObject>>> children = new ArrayList<>(level.size());
+      List<TFuture<List<ElementConnectionData>>> sinks = new ArrayList<>(level.size());
+
+      for (MediaObject object : level) {
+        children.add(object.getChildren(tx));
+        sinks.add(object instanceof MediaElement
+            ? ((MediaElement) object).getSinkConnections(tx) : null);
+      }
+
+      tx.commit();
+
+      List<MediaObject> nextLevel = new ArrayList<>();
+      List<RehydratedPipeline> nextOwners = new ArrayList<>();
+
+      for (int i = 0; i < level.size(); i++) {
+        RehydratedPipeline owner = owners.get(i);
+        if (sinks.get(i) != null) {
+          owner.connections.addAll(sinks.get(i).get());
+        }
+        for (MediaObject child : children.get(i).get()) {
+          owner.objects.add(child);
+          nextLevel.add(child);
+          nextOwners.add(owner);
+        }
+      }
+
+      level = nextLevel;
+      owners = nextOwners;
+    }
+
+    return result;
+  }
+
+}
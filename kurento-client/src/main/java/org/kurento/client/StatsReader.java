@@ -0,0 +1,121 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.client;
+
+import java.util.Map;
+
+import org.kurento.client.internal.client.RemoteObject;
+import org.kurento.client.internal.client.RemoteObjectInvocationHandler;
+import org.kurento.client.internal.client.RomManager;
+import org.kurento.client.internal.transport.serialization.JsonComplexTypeDecoder;
+import org.kurento.jsonrpc.Props;
+
+import com.google.common.reflect.TypeToken;
+import com.google.gson.JsonElement;
+
+/**
+ * Reads the stats of media elements, decoding the response directly from JSON into the concrete
+ * {@link Stats} classes. It is intended for monitoring applications that collect stats frequently:
+ * compared with {@link MediaElement#getStats()}, it avoids the intermediate representations of the
+ * generic decoding path and, optionally, skips the stats types that are not needed without
+ * decoding them.
+ *
+ * <pre>
+ * Map&lt;String, Stats&gt; stats =
+ *     StatsReader.getStats(webRtcEndpoint, MediaType.VIDEO, RTCInboundRTPStreamStats.class);
+ * </pre>
+ */
+public class StatsReader {
+
+  private static final java.lang.reflect.Type STATS_MAP_TYPE =
+      new TypeToken<Map<String, Stats>>() {
+      }.getType();
+
+  private StatsReader() {
+  }
+
+  /**
+   * Gets the stats of the element.
+   *
+   * @param element
+   *          the media element
+   * @param mediaType
+   *          media type of the stats, or null for all of them
+   * @param acceptedTypes
+   *          stats classes to decode (subclasses included). Other stats are skipped. If none is
+   *          given, all stats are returned
+   * @return the stats by id
+   */
+  public static Map<String, Stats> getStats(MediaElement element, MediaType mediaType,
+      Class<?>... acceptedTypes) {
+
+    RemoteObject remoteObject = getRemoteObject(element);
+    RomManager manager = remoteObject.getRomManager();
+
+    JsonElement result = (JsonElement) manager.invoke(remoteObject.getObjectRef(), "getStats",
+        createParams(mediaType), JsonElement.class);
+
+    return decode(result, manager, acceptedTypes);
+  }
+
+  /**
+   * Gets the stats of the element asynchronously.
+   *
+   * @see #getStats(MediaElement, MediaType, Class...)
+   */
+  public static void getStats(MediaElement element, MediaType mediaType,
+      final Continuation<Map<String, Stats>> cont, final Class<?>... acceptedTypes) {
+
+    RemoteObject remoteObject = getRemoteObject(element);
+    final RomManager manager = remoteObject.getRomManager();
+
+    manager.invoke(remoteObject.getObjectRef(), "getStats", createParams(mediaType),
+        JsonElement.class, new Continuation<JsonElement>() {
+          @Override
+          public void onSuccess(JsonElement result) throws Exception {
+            cont.onSuccess(decode(result, manager, acceptedTypes));
+          }
+
+          @Override
+          public void onError(Throwable cause) throws Exception {
+            cont.onError(cause);
+          }
+        });
+  }
+
+  private static RemoteObject getRemoteObject(MediaElement element) {
+
+    RemoteObjectInvocationHandler handler = RemoteObjectInvocationHandler.getFor(element);
+    if (handler == null) {
+      throw new IllegalArgumentException("The element " + element + " is not a remote object");
+    }
+    return handler.getRemoteObject();
+  }
+
+  private static Props createParams(MediaType mediaType) {
+    return mediaType == null ? null : new Props("mediaType", mediaType);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, Stats> decode(JsonElement result, RomManager manager,
+      Class<?>... acceptedTypes) {
+    return (Map<String, Stats>) new JsonComplexTypeDecoder(manager, acceptedTypes)
+        .decodeResult(result, STATS_MAP_TYPE);
+  }
+
+}
@@ -17,12 +17,20 @@
 
 package org.kurento.client;
 
+import java.util.concurrent.CompletionStage;
+
 public interface Transaction {
 
   public void commit();
 
   public void commit(Continuation<Void> continuation);
 
+  /**
+   * Commits the transaction asynchronously. The returned stage is completed in the completion
+   * executor of the client, if any, or in the thread that receives the response.
+   */
+  public CompletionStage<Void> commitAsync();
+
   public void rollback();
 
 }
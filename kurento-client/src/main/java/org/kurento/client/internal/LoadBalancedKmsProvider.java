@@ -0,0 +1,575 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.client.internal;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.kurento.client.Continuation;
+import org.kurento.client.KurentoClient;
+import org.kurento.client.ServerManager;
+import org.kurento.client.internal.client.RemoteObject;
+import org.kurento.client.internal.client.RemoteObjectInvocationHandler;
+import org.kurento.commons.PropertiesManager;
+import org.kurento.commons.ThreadFactoryCreator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.JsonElement;
+
+/**
+ * {@link KmsProvider} that spreads sessions among a pool of media servers according to their live
+ * load, without an external orchestrator. It is configured like any provider:
+ *
+ * <pre>
+ * kms.url.provider: org.kurento.client.internal.LoadBalancedKmsProvider
+ * </pre>
+ *
+ * <p>
+ * The servers are listed in property {@code kms.urls}, separated by commas. Every
+ * {@code kms.load.samplingPeriod} milliseconds, the load of each server is read through its
+ * {@link ServerManager}: used CPU, number of CPUs, used memory and number of pipelines. All servers
+ * are sampled in parallel, and those that can't be reached or don't answer within
+ * {@code kms.load.sampleTimeout} milliseconds are not chosen until they answer again. The first
+ * reservation waits for the first sample at most that time.
+ *
+ * <p>
+ * Servers are chosen with the power of two choices: two different servers are drawn at random,
+ * weighted by their number of CPUs, and the less loaded one is chosen. It balances almost as well
+ * as choosing the least loaded server, but sessions created between two samples don't all land on
+ * the same one. The load of a server is the fraction of CPU used, plus its pipelines divided by
+ * {@code kms.load.pipelinesPerCpu} pipelines for each CPU, plus the fraction of
+ * {@code kms.load.maxMemory} KiB used, if set. Sessions reserved since the last sample are added
+ * to it: {@code loadPoints} are taken as percentage points of CPU, and sessions without load
+ * points as one pipeline.
+ */
+public class LoadBalancedKmsProvider implements KmsProvider, Closeable {
+
+  private static final Logger log = LoggerFactory.getLogger(LoadBalancedKmsProvider.class);
+
+  public static final String KMS_URLS_PROPERTY = "kms.urls";
+
+  private static final long SAMPLING_PERIOD =
+      PropertiesManager.getProperty("kms.load.samplingPeriod", 5000L);
+
+  private static final int CPU_INTERVAL =
+      PropertiesManager.getProperty("kms.load.cpuInterval", 500);
+
+  private static final int PIPELINES_PER_CPU =
+      PropertiesManager.getProperty("kms.load.pipelinesPerCpu", 10);
+
+  private static final long MAX_MEMORY = PropertiesManager.getProperty("kms.load.maxMemory", 0L);
+
+  private static final long SAMPLE_TIMEOUT =
+      PropertiesManager.getProperty("kms.load.sampleTimeout", 3000L);
+
+  /**
+   * Load of a media server, as read in the last sample.
+   */
+  public static class ServerLoad {
+
+    private final String url;
+    private volatile boolean available;
+    private volatile int cpuCount;
+    private volatile float usedCpu;
+    private volatile long usedMemory;
+    private volatile int pipelines;
+
+    // Guarded by the provider
+    private double reserved;
+    private long samples;
+
+    private ServerLoad(String url) {
+      this.url = url;
+    }
+
+    public String getUrl() {
+      return url;
+    }
+
+    public boolean isAvailable() {
+      return available;
+    }
+
+    public int getCpuCount() {
+      return cpuCount;
+    }
+
+    /**
+     * @return percentage of CPU used, from 0 to 100
+     */
+    public float getUsedCpu() {
+      return usedCpu;
+    }
+
+    /**
+     * @return memory used, in KiB
+     */
+    public long getUsedMemory() {
+      return usedMemory;
+    }
+
+    public int getPipelines() {
+      return pipelines;
+    }
+
+    double getLoad() {
+      double load =
+          usedCpu / 100.0 + pipelines / (double) (Math.max(cpuCount, 1) * PIPELINES_PER_CPU);
+      if (MAX_MEMORY > 0) {
+        load += usedMemory / (double) MAX_MEMORY;
+      }
+      return load;
+    }
+
+    @Override
+    public String toString() {
+      return url + " [available=" + available + ", cpuCount=" + cpuCount + ", usedCpu=" + usedCpu
+          + ", usedMemory=" + usedMemory + ", pipelines=" + pipelines + "]";
+    }
+  }
+
+  private static class Reservation {
+
+    private final ServerLoad server;
+    private final double load;
+    private final long sample;
+
+    Reservation(ServerLoad server, double load, long sample) {
+      this.server = server;
+      this.load = load;
+      this.sample = sample;
+    }
+  }
+
+  private final List<ServerLoad> servers = new ArrayList<>();
+  private final Map<String, CompletableFuture<KurentoClient>> clients = new ConcurrentHashMap<>();
+  private final Map<String, Reservation> reservations = new HashMap<>();
+  private final Random random = new Random();
+  private final long samplingPeriod;
+  private final long sampleTimeout;
+
+  // Guards the scheduler and the first sample. Samples are taken out of the lock of the
+  // provider, so reservations don't wait for them
+  private final Object sampleLock = new Object();
+  private ScheduledExecutorService scheduler;
+  private CompletableFuture<Void> firstSample;
+  private volatile boolean closed;
+
+  /**
+   * Creates a provider for the servers listed in property {@value #KMS_URLS_PROPERTY}.
+   */
+  public LoadBalancedKmsProvider() {
+    this(parseUrls(PropertiesManager.getProperty(KMS_URLS_PROPERTY)), SAMPLING_PERIOD);
+  }
+
+  public LoadBalancedKmsProvider(List<String> urls, long samplingPeriod) {
+    this(urls, samplingPeriod, SAMPLE_TIMEOUT);
+  }
+
+  /**
+   * @param sampleTimeout
+   *          time, in milliseconds, to connect to a server and read its load. Servers that take
+   *          longer are not chosen until the next sample
+   */
+  public LoadBalancedKmsProvider(List<String> urls, long samplingPeriod, long sampleTimeout) {
+
+    if (urls.isEmpty()) {
+      throw new IllegalArgumentException("No media server configured in " + KMS_URLS_PROPERTY);
+    }
+
+    for (String url : urls) {
+      servers.add(new ServerLoad(url));
+    }
+    this.samplingPeriod = samplingPeriod;
+    this.sampleTimeout = sampleTimeout;
+  }
+
+  private static List<String> parseUrls(String urls) {
+    if (urls == null) {
+      return Collections.emptyList();
+    }
+    List<String> result = new ArrayList<>();
+    for (String url : Arrays.asList(urls.split(","))) {
+      if (!url.trim().isEmpty()) {
+        result.add(url.trim());
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the load of each server, as read in the last sample
+   */
+  public List<ServerLoad> getServerLoads() {
+    return Collections.unmodifiableList(servers);
+  }
+
+  @Override
+  public String reserveKms(String id, int loadPoints) throws NotEnoughResourcesException {
+    return reserve(id, loadPoints);
+  }
+
+  @Override
+  public String reserveKms(String id) throws NotEnoughResourcesException {
+    return reserve(id, -1);
+  }
+
+  @Override
+  public synchronized void releaseKms(String id) throws NotEnoughResourcesException {
+    Reservation reservation = reservations.remove(id);
+    if (reservation != null && reservation.sample == reservation.server.samples) {
+      // Not yet included in a sample
+      reservation.server.reserved -= reservation.load;
+    }
+  }
+
+  private String reserve(String id, int loadPoints) {
+
+    start();
+
+    synchronized (this) {
+
+      List<ServerLoad> candidates = new ArrayList<>();
+      for (ServerLoad server : servers) {
+        if (server.available) {
+          candidates.add(server);
+        }
+      }
+
+      if (candidates.isEmpty()) {
+        throw new NotEnoughResourcesException("No media server available among " + servers);
+      }
+
+      ServerLoad chosen = pickRandom(candidates, null);
+      if (candidates.size() > 1) {
+        ServerLoad other = pickRandom(candidates, chosen);
+        if (other.getLoad() + other.reserved < chosen.getLoad() + chosen.reserved) {
+          chosen = other;
+        }
+      }
+
+      double load = loadPoints >= 0 ? loadPoints / 100.0
+          : 1.0 / (Math.max(chosen.cpuCount, 1) * PIPELINES_PER_CPU);
+      chosen.reserved += load;
+      reservations.put(id, new Reservation(chosen, load, chosen.samples));
+
+      log.debug("Reserved media server {} for {} with load {}", chosen, id, load);
+
+      return chosen.url;
+    }
+  }
+
+  /**
+   * Draws a server at random, weighted by its number of CPUs.
+   */
+  private ServerLoad pickRandom(List<ServerLoad> candidates, ServerLoad excluded) {
+
+    int total = 0;
+    for (ServerLoad server : candidates) {
+      if (server != excluded) {
+        total += Math.max(server.cpuCount, 1);
+      }
+    }
+
+    int value = random.nextInt(total);
+    for (ServerLoad server : candidates) {
+      if (server != excluded) {
+        value -= Math.max(server.cpuCount, 1);
+        if (value < 0) {
+          return server;
+        }
+      }
+    }
+    throw new IllegalStateException("No server drawn");
+  }
+
+  /**
+   * Samples all servers the first time it is called, waiting at most the sample timeout so the
+   * first session already knows their load, and then schedules the periodic samples.
+   */
+  private void start() {
+
+    CompletableFuture<Void> first;
+    synchronized (sampleLock) {
+
+      if (closed) {
+        return;
+      }
+
+      if (firstSample == null) {
+        firstSample = sampleAsync();
+        firstSample.thenRun(new Runnable() {
+          @Override
+          public void run() {
+            scheduleSample();
+          }
+        });
+      }
+      first = firstSample;
+    }
+
+    await(first);
+  }
+
+  private void scheduleSample() {
+    try {
+      getScheduler().schedule(new Runnable() {
+        @Override
+        public void run() {
+          // The next sample is scheduled when this one ends, so slow servers don't pile them up
+          sampleAsync().thenRun(new Runnable() {
+            @Override
+            public void run() {
+              scheduleSample();
+            }
+          });
+        }
+      }, samplingPeriod, TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      // Closed
+    }
+  }
+
+  /**
+   * Reads the load of all servers, waiting at most the sample timeout.
+   */
+  public void sample() {
+    await(sampleAsync());
+  }
+
+  private void await(CompletableFuture<Void> sample) {
+    try {
+      // Samples end within the sample timeout by themselves, unless the provider is closed
+      sample.get(sampleTimeout * 2, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException | TimeoutException e) {
+      log.debug("Sample of media servers not completed", e);
+    }
+  }
+
+  /**
+   * Reads the load of all servers in parallel.
+   *
+   * @return the future completed when all servers have been sampled or have failed
+   */
+  private CompletableFuture<Void> sampleAsync() {
+    List<CompletableFuture<Void>> samples = new ArrayList<>(servers.size());
+    for (ServerLoad server : servers) {
+      samples.add(sample(server));
+    }
+    return CompletableFuture.allOf(samples.toArray(new CompletableFuture<?>[samples.size()]));
+  }
+
+  private CompletableFuture<Void> sample(final ServerLoad server) {
+
+    final CompletableFuture<Void> sample = new CompletableFuture<>();
+
+    if (closed) {
+      sample.complete(null);
+      return sample;
+    }
+
+    final ScheduledFuture<?> timeout;
+    try {
+      timeout = getScheduler().schedule(new Runnable() {
+        @Override
+        public void run() {
+          sample.completeExceptionally(new TimeoutException(
+              "Load not read in " + sampleTimeout + " ms"));
+        }
+      }, sampleTimeout, TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      sample.complete(null);
+      return sample;
+    }
+
+    getClient(server.url).thenCompose(new Function<KurentoClient, CompletionStage<Void>>() {
+      @Override
+      public CompletionStage<Void> apply(KurentoClient client) {
+        return readLoad(server, client.getServerManager());
+      }
+    }).whenComplete(new BiConsumer<Void, Throwable>() {
+      @Override
+      public void accept(Void result, Throwable cause) {
+        if (cause == null) {
+          sample.complete(null);
+        } else {
+          sample.completeExceptionally(cause);
+        }
+      }
+    });
+
+    return sample.handle(new BiFunction<Void, Throwable, Void>() {
+      @Override
+      public Void apply(Void result, Throwable cause) {
+        timeout.cancel(false);
+        if (cause == null) {
+          synchronized (LoadBalancedKmsProvider.this) {
+            // Sessions reserved until now are included in the sample
+            server.reserved = 0;
+            server.samples++;
+            server.available = true;
+          }
+          log.trace("Sampled load of media server {}", server);
+        } else {
+          markUnavailable(server, cause);
+        }
+        return null;
+      }
+    });
+  }
+
+  private CompletableFuture<Void> readLoad(final ServerLoad server, ServerManager serverManager) {
+
+    final CompletableFuture<Integer> cpuCount =
+        serverManager.getCpuCountAsync().toCompletableFuture();
+    final CompletableFuture<Float> usedCpu =
+        serverManager.getUsedCpuAsync(CPU_INTERVAL).toCompletableFuture();
+    final CompletableFuture<Long> usedMemory =
+        serverManager.getUsedMemoryAsync().toCompletableFuture();
+    final CompletableFuture<Integer> pipelines = countPipelines(serverManager);
+
+    return CompletableFuture.allOf(cpuCount, usedCpu, usedMemory, pipelines)
+        .thenRun(new Runnable() {
+          @Override
+          public void run() {
+            server.cpuCount = cpuCount.join();
+            server.usedCpu = usedCpu.join();
+            server.usedMemory = usedMemory.join();
+            server.pipelines = pipelines.join();
+          }
+        });
+  }
+
+  /**
+   * Counts the pipelines from the references returned by the server, without building a local
+   * object for each one.
+   */
+  private CompletableFuture<Integer> countPipelines(ServerManager serverManager) {
+
+    RemoteObject remoteObject =
+        RemoteObjectInvocationHandler.getFor(serverManager).getRemoteObject();
+    final CompletableFuture<Integer> count = new CompletableFuture<>();
+
+    remoteObject.getRomManager().invoke(remoteObject.getObjectRef(), "getPipelines", null,
+        JsonElement.class, new Continuation<JsonElement>() {
+          @Override
+          public void onSuccess(JsonElement result) {
+            JsonElement refs = result != null && result.isJsonObject()
+                ? result.getAsJsonObject().get("value") : result;
+            count.complete(refs != null && refs.isJsonArray() ? refs.getAsJsonArray().size() : 0);
+          }
+
+          @Override
+          public void onError(Throwable cause) {
+            count.completeExceptionally(cause);
+          }
+        });
+
+    return count;
+  }
+
+  private void markUnavailable(ServerLoad server, Throwable cause) {
+
+    log.warn("Error reading load of media server {}. It won't be chosen until it answers",
+        server.url, cause);
+
+    synchronized (this) {
+      server.available = false;
+    }
+
+    CompletableFuture<KurentoClient> client = clients.remove(server.url);
+    if (client != null) {
+      destroyWhenConnected(client);
+    }
+  }
+
+  private CompletableFuture<KurentoClient> getClient(final String url) {
+    CompletableFuture<KurentoClient> client = clients.get(url);
+    if (client == null) {
+      client = KurentoClient.createAsync(url).toCompletableFuture();
+      CompletableFuture<KurentoClient> previous = clients.putIfAbsent(url, client);
+      if (previous != null) {
+        destroyWhenConnected(client);
+        client = previous;
+      }
+    }
+    return client;
+  }
+
+  private void destroyWhenConnected(CompletableFuture<KurentoClient> client) {
+    client.thenAccept(new Consumer<KurentoClient>() {
+      @Override
+      public void accept(KurentoClient kurentoClient) {
+        kurentoClient.destroy();
+      }
+    });
+  }
+
+  private ScheduledExecutorService getScheduler() {
+    synchronized (sampleLock) {
+      if (scheduler == null) {
+        if (closed) {
+          throw new RejectedExecutionException("Provider closed");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+            ThreadFactoryCreator.create("LoadBalancedKmsProvider"));
+      }
+      return scheduler;
+    }
+  }
+
+  @Override
+  public void close() {
+
+    closed = true;
+
+    synchronized (sampleLock) {
+      if (scheduler != null) {
+        scheduler.shutdownNow();
+      }
+      for (CompletableFuture<KurentoClient> client : clients.values()) {
+        destroyWhenConnected(client);
+      }
+      clients.clear();
+    }
+  }
+
+}
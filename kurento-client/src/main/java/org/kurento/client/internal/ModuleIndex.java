@@ -0,0 +1,166 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.client.internal;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Classes of a module, generated with the module's client code. Types received from the media
+ * server are resolved with a table lookup in the indexes, instead of loading classes by name.
+ *
+ * <p>
+ * Indexes are found with {@link ServiceLoader}, so each module lists its index in
+ * {@code META-INF/services/org.kurento.client.internal.ModuleIndex}. They are loaded the first
+ * time a type is resolved. Several indexes can share a module name (core, elements and filters
+ * are all in module "kurento"). Types of modules without index are still resolved by name with
+ * their {@code ModuleInfo} class.
+ */
+public abstract class ModuleIndex {
+
+  private static final Logger log = LoggerFactory.getLogger(ModuleIndex.class);
+
+  private final String moduleName;
+  private final String packageName;
+  private final Map<String, Class<?>> types = new HashMap<>();
+  private final Map<Class<?>, Class<?>> stubs = new HashMap<>();
+
+  /**
+   * @param moduleName
+   *          name of the module in the protocol, as in the references to its objects
+   * @param packageName
+   *          package of the client classes of the module
+   */
+  protected ModuleIndex(String moduleName, String packageName) {
+    this.moduleName = moduleName;
+    this.packageName = packageName;
+  }
+
+  /**
+   * Adds a complex type or event class, whose name in the protocol is its simple name.
+   */
+  protected void addType(Class<?> clazz) {
+    types.put(clazz.getSimpleName(), clazz);
+  }
+
+  /**
+   * Adds a remote class with the stub that implements it, or null if it has none.
+   */
+  protected void addRemoteClass(Class<?> clazz, Class<?> stubClass) {
+    addType(clazz);
+    if (stubClass != null) {
+      stubs.put(clazz, stubClass);
+    }
+  }
+
+  public String getModuleName() {
+    return moduleName;
+  }
+
+  public String getPackageName() {
+    return packageName;
+  }
+
+  public Map<String, Class<?>> getTypes() {
+    return Collections.unmodifiableMap(types);
+  }
+
+  public Map<Class<?>, Class<?>> getStubs() {
+    return Collections.unmodifiableMap(stubs);
+  }
+
+  /**
+   * @return the class of a type, or null if its module has no index or the index doesn't contain it
+   */
+  public static Class<?> findClass(String moduleName, String typeName) {
+    Map<String, Class<?>> moduleTypes = Registry.TYPES.get(moduleName);
+    return moduleTypes == null ? null : moduleTypes.get(typeName);
+  }
+
+  /**
+   * @return the package of the client classes of a module, or null if it has no index
+   */
+  public static String findPackageName(String moduleName) {
+    return Registry.PACKAGES.get(moduleName);
+  }
+
+  /**
+   * @return the stub class of a remote class, or null if it is not indexed
+   */
+  public static Class<?> findStubClass(Class<?> remoteClass) {
+    return Registry.STUBS.get(remoteClass);
+  }
+
+  /**
+   * Loaded the first time it is used, so clients that never resolve a type don't pay for it.
+   */
+  private static final class Registry {
+
+    static final Map<String, Map<String, Class<?>>> TYPES = new HashMap<>();
+    static final Map<String, String> PACKAGES = new HashMap<>();
+    static final Map<Class<?>, Class<?>> STUBS = new HashMap<>();
+
+    static {
+
+      long start = System.nanoTime();
+
+      Iterator<ModuleIndex> it =
+          ServiceLoader.load(ModuleIndex.class, ModuleIndex.class.getClassLoader()).iterator();
+
+      while (hasNext(it)) {
+        ModuleIndex index;
+        try {
+          index = it.next();
+        } catch (ServiceConfigurationError e) {
+          // A module whose classes are missing doesn't prevent using the others
+          log.warn("Error loading module index", e);
+          continue;
+        }
+
+        Map<String, Class<?>> moduleTypes = TYPES.get(index.moduleName);
+        if (moduleTypes == null) {
+          moduleTypes = new HashMap<>();
+          TYPES.put(index.moduleName, moduleTypes);
+          PACKAGES.put(index.moduleName, index.packageName);
+        }
+        moduleTypes.putAll(index.types);
+        STUBS.putAll(index.stubs);
+      }
+
+      log.debug("Loaded indexes of modules {} in {} us", TYPES.keySet(),
+          (System.nanoTime() - start) / 1000);
+    }
+
+    private static boolean hasNext(Iterator<ModuleIndex> it) {
+      try {
+        return it.hasNext();
+      } catch (ServiceConfigurationError e) {
+        log.warn("Error reading module indexes", e);
+        return false;
+      }
+    }
+  }
+
+}
@@ -18,10 +18,13 @@
 package org.kurento.client.internal;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletionStage;
 
 import org.kurento.client.Continuation;
 import org.kurento.client.Transaction;
+import org.kurento.client.internal.client.CompletionContinuation;
 import org.kurento.client.internal.client.RomManager;
 import org.kurento.client.internal.client.operation.Operation;
 
@@ -49,6 +52,17 @@ public class TransactionImpl implements Transaction {
     manager.transaction(operations, continuation);
   }
 
+  @Override
+  public CompletionStage<Void> commitAsync() {
+    CompletionContinuation<Void> completion = manager.newCompletion();
+    commit(completion);
+    return completion;
+  }
+
+  public List<Operation> getOperations() {
+    return Collections.unmodifiableList(operations);
+  }
+
   public String nextObjectRef() {
     return "newref:" + objectRef++;
   }
@@ -0,0 +1,233 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.client.internal.client;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Type;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+
+import org.kurento.client.Continuation;
+import org.kurento.client.Event;
+import org.kurento.client.EventListener;
+import org.kurento.client.KurentoObject;
+import org.kurento.client.ListenerSubscription;
+import org.kurento.client.TFuture;
+import org.kurento.client.Transaction;
+import org.kurento.client.internal.ModuleIndex;
+import org.kurento.commons.exception.KurentoException;
+import org.kurento.jsonrpc.Props;
+
+/**
+ * Base class of the stubs generated for remote classes (template remoteClass_stub_java.ftl).
+ * Generated stubs implement each method of the remote interface calling {@link RemoteObject}
+ * directly, with param names and result types computed at generation time. This avoids the
+ * reflective dispatch of {@link RemoteObjectInvocationHandler}, which is still used for classes
+ * without stub (modules generated with older versions or
+ * {@link org.kurento.client.GenericMediaElement}).
+ *
+ * The stub of a remote class <code>a.b.Foo</code> is the class
+ * <code>a.b.internal.stub.FooStub</code>, with a constructor receiving the {@link RemoteObject}
+ * and the {@link RomManager}.
+ */
+public abstract class AbstractRemoteObjectStub implements KurentoObject {
+
+  private static final String STUB_PACKAGE = ".internal.stub.";
+  private static final String STUB_SUFFIX = "Stub";
+
+  private static final ClassValue<Constructor<?>> STUB_CONSTRUCTORS =
+      new ClassValue<Constructor<?>>() {
+        @Override
+        protected Constructor<?> computeValue(Class<?> type) {
+          return findStubConstructor(type);
+        }
+      };
+
+  protected final RemoteObject remoteObject;
+  private final RemoteObjectInvocationHandler handler;
+
+  protected AbstractRemoteObjectStub(RemoteObject remoteObject, RomManager manager) {
+    this.remoteObject = remoteObject;
+    this.handler = new RemoteObjectInvocationHandler(remoteObject, manager);
+  }
+
+  static KurentoObject newStub(RemoteObject remoteObject, RomManager manager, Class<?> clazz) {
+
+    Constructor<?> constructor = STUB_CONSTRUCTORS.get(clazz);
+    if (constructor == null) {
+      return null;
+    }
+
+    try {
+      return (KurentoObject) constructor.newInstance(remoteObject, manager);
+    } catch (Exception e) {
+      throw new KurentoException("Exception creating stub " + constructor.getDeclaringClass(), e);
+    }
+  }
+
+  private static Constructor<?> findStubConstructor(Class<?> clazz) {
+
+    if (!clazz.isInterface() || clazz.getPackage() == null) {
+      return null;
+    }
+
+    try {
+      Class<?> stubClass = ModuleIndex.findStubClass(clazz);
+      if (stubClass == null) {
+        String stubName = clazz.getPackage().getName() + STUB_PACKAGE + clazz.getSimpleName()
+            + STUB_SUFFIX;
+        stubClass = Class.forName(stubName, false, clazz.getClassLoader());
+      }
+      if (!clazz.isAssignableFrom(stubClass)
+          || !AbstractRemoteObjectStub.class.isAssignableFrom(stubClass)) {
+        return null;
+      }
+      return stubClass.getConstructor(RemoteObject.class, RomManager.class);
+    } catch (ClassNotFoundException | NoSuchMethodException e) {
+      return null;
+    }
+  }
+
+  RemoteObjectInvocationHandler getInvocationHandler() {
+    return handler;
+  }
+
+  public RemoteObject getRemoteObject() {
+    return remoteObject;
+  }
+
+  // ------------------ Helpers used by generated code ------------------
+
+  protected Object invokeSync(String method, Props params, Type returnType) {
+    return handler.invokeSync(method, params, returnType);
+  }
+
+  protected void invokeAsync(String method, Props params, Type returnType,
+      Continuation<?> cont) {
+    handler.invokeAsync(method, params, returnType, cont);
+  }
+
+  protected TFuture<Object> invokeTx(String method, Props params, Type returnType,
+      Transaction tx) {
+    return handler.invokeTx(method, params, returnType, tx);
+  }
+
+  protected <T> CompletionStage<T> invokeStage(String method, Props params, Type returnType) {
+    CompletionContinuation<T> completion = remoteObject.getRomManager().newCompletion();
+    handler.invokeAsync(method, params, returnType, completion);
+    return completion;
+  }
+
+  protected ListenerSubscription subscribe(Class<? extends Event> eventClass, String eventName,
+      EventListener<?> listener) {
+    return (ListenerSubscription) handler.subscribeEventListener(listener, eventClass, eventName,
+        null, null);
+  }
+
+  protected void subscribe(Class<? extends Event> eventClass, String eventName,
+      EventListener<?> listener, Continuation<ListenerSubscription> cont) {
+    handler.subscribeEventListener(listener, eventClass, eventName, cont, null);
+  }
+
+  protected void unsubscribe(ListenerSubscription listenerSubscription) {
+    handler.unsubscribeEventListener((ListenerSubscriptionImpl) listenerSubscription, null, null);
+  }
+
+  protected void unsubscribe(ListenerSubscription listenerSubscription, Continuation<Void> cont) {
+    handler.unsubscribeEventListener((ListenerSubscriptionImpl) listenerSubscription, cont, null);
+  }
+
+  // ------------------ KurentoObject ------------------
+
+  @Override
+  public boolean isCommited() {
+    return remoteObject.isCommited();
+  }
+
+  @Override
+  public void waitCommited() throws InterruptedException {
+    remoteObject.waitCommited();
+  }
+
+  @Override
+  public void whenCommited(Continuation<?> continuation) {
+    remoteObject.whenCommited(continuation);
+  }
+
+  @Override
+  public void whenCommited(Continuation<?> continuation, Executor executor) {
+    remoteObject.whenCommited(continuation, executor);
+  }
+
+  public Transaction beginTransaction() {
+    return remoteObject.beginTransaction();
+  }
+
+  @Override
+  public void release() {
+    handler.release(null, null);
+  }
+
+  @Override
+  public void release(Continuation<Void> continuation) {
+    handler.release(continuation, null);
+  }
+
+  @Override
+  public void release(Transaction tx) {
+    handler.release(null, tx);
+  }
+
+  @Override
+  public String getId() {
+    return (String) remoteObject.invoke("getId", null, String.class);
+  }
+
+  @Override
+  public Object invoke(String method, Props params, Type returnType) {
+    return remoteObject.invoke(method, params, returnType);
+  }
+
+  @Override
+  public <T extends Event> ListenerSubscription addEventListener(String type,
+      EventListener<T> listener, Class<T> eventType) {
+    return (ListenerSubscription) handler.genericSubscribeEventListener(type,
+        new Object[] { type, listener, eventType }, null, null);
+  }
+
+  @Override
+  public void removeEventListener(ListenerSubscription listener) {
+    unsubscribe(listener);
+  }
+
+  @Override
+  public int hashCode() {
+    return handler.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return handler.equals(obj);
+  }
+
+  @Override
+  public String toString() {
+    return handler.toString();
+  }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.client.internal.client;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.kurento.client.Continuation;
+
+/**
+ * Continuation that completes a {@link CompletableFuture}, used to implement the methods returning
+ * {@link java.util.concurrent.CompletionStage}.
+ *
+ * Dependent stages run in the thread that completes the future. Without executor, that is the
+ * thread of the JSON-RPC client that receives the response, so no thread hop is added. With an
+ * executor, the future is completed in one of its threads.
+ */
+public class CompletionContinuation<T> extends CompletableFuture<T> implements Continuation<T> {
+
+  private final Executor executor;
+
+  public CompletionContinuation(Executor executor) {
+    this.executor = executor;
+  }
+
+  @Override
+  public void onSuccess(final T result) {
+    if (executor == null) {
+      complete(result);
+      return;
+    }
+
+    try {
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          complete(result);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      completeExceptionally(e);
+    }
+  }
+
+  @Override
+  public void onError(final Throwable cause) {
+    if (executor == null) {
+      completeExceptionally(cause);
+      return;
+    }
+
+    try {
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          completeExceptionally(cause);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      completeExceptionally(cause);
+    }
+  }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.client.internal.client;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Type;
+
+import org.kurento.client.Event;
+import org.kurento.client.internal.transport.serialization.ParamsFlattener;
+import org.kurento.jsonrpc.Props;
+
+/**
+ * How to build an event of a given class from the params received from the server. Looking up the
+ * constructor and its param annotations and types copies arrays in each call, so it is done once
+ * per event class.
+ */
+final class EventPlan {
+
+  private static final ClassValue<EventPlan> PLANS = new ClassValue<EventPlan>() {
+    @Override
+    protected EventPlan computeValue(Class<?> type) {
+      return new EventPlan(type);
+    }
+  };
+
+  private final Constructor<?> constructor;
+  private final Annotation[][] paramAnnotations;
+  private final Type[] paramTypes;
+
+  static EventPlan get(Class<? extends Event> eventClass) {
+    return PLANS.get(eventClass);
+  }
+
+  private EventPlan(Class<?> eventClass) {
+    this.constructor = eventClass.getConstructors()[0];
+    this.paramAnnotations = constructor.getParameterAnnotations();
+    this.paramTypes = constructor.getGenericParameterTypes();
+  }
+
+  Event newEvent(Props data, RomManager manager) throws Exception {
+
+    Object[] params = ParamsFlattener.getInstance().unflattenParams(paramAnnotations, paramTypes,
+        data, manager);
+
+    return (Event) constructor.newInstance(params);
+  }
+
+}
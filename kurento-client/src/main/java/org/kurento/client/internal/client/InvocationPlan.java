@@ -0,0 +1,198 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.client.internal.client;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.kurento.client.Continuation;
+import org.kurento.client.Event;
+import org.kurento.client.Transaction;
+import org.kurento.client.internal.ParamAnnotationUtils;
+import org.kurento.client.internal.server.EventSubscription;
+
+/**
+ * Everything {@link RemoteObjectInvocationHandler} needs to know to dispatch a call to a proxied
+ * method. It only depends on the {@link Method}, so it is computed the first time the method is
+ * invoked and cached for the lifetime of its declaring class.
+ */
+final class InvocationPlan {
+
+  enum Kind {
+    REMOTE_OBJECT_METHOD, GENERIC_INVOKE, GENERIC_ADD_LISTENER, GENERIC_REMOVE_LISTENER, RELEASE,
+    SUBSCRIBE, UNSUBSCRIBE, INVOKE
+  }
+
+  private static final ClassValue<ConcurrentMap<Method, InvocationPlan>> PLANS =
+      new ClassValue<ConcurrentMap<Method, InvocationPlan>>() {
+        @Override
+        protected ConcurrentMap<Method, InvocationPlan> computeValue(Class<?> type) {
+          return new ConcurrentHashMap<>();
+        }
+      };
+
+  private static final String ASYNC_SUFFIX = "Async";
+
+  final Kind kind;
+  final String methodName;
+
+  /** Names of the params sent to the server, without continuation nor transaction. */
+  final List<String> paramNames;
+
+  /** True if the last param is a continuation, so the call is asynchronous. */
+  final boolean continuation;
+
+  /** True if the first param is a transaction. */
+  final boolean transaction;
+
+  /**
+   * True if the method returns a {@link CompletionStage}. The name of these methods is the name of
+   * the remote method with the "Async" suffix.
+   */
+  final boolean stage;
+
+  /** Type of the value returned by the server. */
+  final Type returnType;
+
+  final Class<? extends Event> eventClass;
+  final String eventName;
+
+  static InvocationPlan get(Method method) {
+
+    ConcurrentMap<Method, InvocationPlan> plans = PLANS.get(method.getDeclaringClass());
+
+    InvocationPlan plan = plans.get(method);
+    if (plan == null) {
+      plan = new InvocationPlan(method);
+      InvocationPlan previous = plans.putIfAbsent(method, plan);
+      if (previous != null) {
+        plan = previous;
+      }
+    }
+    return plan;
+  }
+
+  private InvocationPlan(Method method) {
+
+    this.stage = CompletionStage.class.isAssignableFrom(method.getReturnType());
+
+    String name = method.getName();
+    if (stage && name.endsWith(ASYNC_SUFFIX)) {
+      name = name.substring(0, name.length() - ASYNC_SUFFIX.length());
+    }
+    this.methodName = name;
+
+    Class<?>[] paramTypes = method.getParameterTypes();
+    int numParams = paramTypes.length;
+
+    this.continuation =
+        numParams > 0 && Continuation.class.isAssignableFrom(paramTypes[numParams - 1]);
+    this.transaction =
+        !continuation && numParams > 0 && Transaction.class.isAssignableFrom(paramTypes[0]);
+
+    List<String> names = Collections.emptyList();
+    if (numParams > 0) {
+      names = ParamAnnotationUtils.getParamNames(method);
+      if (continuation) {
+        names = names.subList(0, names.size() - 1);
+      } else if (transaction) {
+        names = names.subList(1, names.size());
+      }
+    }
+    this.paramNames = Collections.unmodifiableList(names);
+
+    EventSubscription eventSubscription = method.getAnnotation(EventSubscription.class);
+
+    if (stage) {
+      this.kind = Kind.INVOKE;
+    } else if (RemoteObjectInvocationHandler.REMOTE_OBJECT_METHODS.contains(methodName)) {
+      this.kind = Kind.REMOTE_OBJECT_METHOD;
+    } else if (methodName.equals("invoke")) {
+      this.kind = Kind.GENERIC_INVOKE;
+    } else if (methodName.equals("addEventListener")) {
+      this.kind = Kind.GENERIC_ADD_LISTENER;
+    } else if (methodName.equals("removeEventListener")) {
+      this.kind = Kind.GENERIC_REMOVE_LISTENER;
+    } else if (methodName.equals("release")) {
+      this.kind = Kind.RELEASE;
+    } else if (eventSubscription != null) {
+      if (methodName.startsWith("add")) {
+        this.kind = Kind.SUBSCRIBE;
+      } else if (methodName.startsWith("remove")) {
+        this.kind = Kind.UNSUBSCRIBE;
+      } else {
+        throw new IllegalStateException("Method " + methodName + " undefined for events");
+      }
+    } else {
+      this.kind = Kind.INVOKE;
+    }
+
+    if (eventSubscription != null) {
+      this.eventClass = eventSubscription.value();
+      String simpleName = eventClass.getSimpleName();
+      this.eventName = simpleName.substring(0, simpleName.length() - "Event".length());
+    } else {
+      this.eventClass = null;
+      this.eventName = null;
+    }
+
+    this.returnType = kind == Kind.INVOKE ? computeReturnType(method) : null;
+  }
+
+  private Type computeReturnType(Method method) {
+
+    if (stage) {
+
+      Type returnType = method.getGenericReturnType();
+
+      if (returnType instanceof ParameterizedType) {
+        ParameterizedType stageType = (ParameterizedType) returnType;
+        return stageType.getActualTypeArguments()[0];
+      } else {
+        return Object.class;
+      }
+
+    } else if (continuation) {
+
+      Type[] paramTypes = method.getGenericParameterTypes();
+      ParameterizedType contType = (ParameterizedType) paramTypes[paramTypes.length - 1];
+      return contType.getActualTypeArguments()[0];
+
+    } else if (transaction) {
+
+      Type returnType = method.getGenericReturnType();
+
+      if (returnType instanceof ParameterizedType) {
+        ParameterizedType futureType = (ParameterizedType) returnType;
+        return futureType.getActualTypeArguments()[0];
+      } else {
+        return Void.class;
+      }
+
+    } else {
+      return method.getGenericReturnType();
+    }
+  }
+
+}
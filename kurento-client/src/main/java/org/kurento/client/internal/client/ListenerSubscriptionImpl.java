@@ -21,7 +21,7 @@ import org.kurento.client.ListenerSubscription;
 
 public class ListenerSubscriptionImpl implements ListenerSubscription {
 
-  private String subscriptionId;
+  private volatile String subscriptionId;
   private String type;
   private RemoteObjectEventListener listener;
 
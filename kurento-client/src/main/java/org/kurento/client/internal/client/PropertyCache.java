@@ -0,0 +1,159 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.client.internal.client;
+
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.kurento.client.internal.Immutable;
+import org.kurento.commons.PropertiesManager;
+import org.kurento.jsonrpc.Props;
+
+/**
+ * Values of the immutable properties of a remote object, read from the media server only once.
+ *
+ * A property is immutable if its getter is annotated with {@link Immutable} (generated for the
+ * properties declared final in the KMD) or if it is listed in the property
+ * <code>kurento.client.immutableProperties</code>, as a comma separated list of property names
+ * (<code>name</code>) or property names qualified with the interface declaring them
+ * (<code>MediaObject.parent</code>). A configured property that is writable is invalidated when
+ * it is set through this client, but changes made by other clients are not seen.
+ */
+final class PropertyCache {
+
+  /**
+   * Value returned by {@link #get(String)} when the property is not cached.
+   */
+  static final Object MISSING = new Object();
+
+  private static final Object NULL = new Object();
+
+  private static final String GETTER_PREFIX = "get";
+  private static final String SETTER_PREFIX = "set";
+
+  private static final Set<String> CONFIGURED_PROPERTIES =
+      parseProperties(PropertiesManager.getProperty("kurento.client.immutableProperties",
+          "MediaObject.mediaPipeline,MediaObject.parent,MediaObject.creationTime,"
+              + "ServerManager.info"));
+
+  private static final ClassValue<Set<String>> IMMUTABLE_GETTERS = new ClassValue<Set<String>>() {
+    @Override
+    protected Set<String> computeValue(Class<?> type) {
+      return findImmutableGetters(type);
+    }
+  };
+
+  private final ConcurrentMap<String, Object> values = new ConcurrentHashMap<>();
+
+  /**
+   * @return true if the result of invoking the method in the given object can be cached
+   */
+  static boolean isCacheable(Object kurentoObject, String method, Props params) {
+    return kurentoObject != null && params == null
+        && IMMUTABLE_GETTERS.get(kurentoObject.getClass()).contains(method);
+  }
+
+  /**
+   * @return the name of the getter whose value is changed by the method, or null if the method is
+   *         not a setter
+   */
+  static String getterOf(String method) {
+    if (method.length() > SETTER_PREFIX.length() && method.startsWith(SETTER_PREFIX)) {
+      return GETTER_PREFIX + method.substring(SETTER_PREFIX.length());
+    }
+    return null;
+  }
+
+  Object get(String getter) {
+    Object value = values.get(getter);
+    if (value == null) {
+      return MISSING;
+    }
+    return value == NULL ? null : value;
+  }
+
+  void put(String getter, Object value) {
+    values.put(getter, value == null ? NULL : value);
+  }
+
+  void remove(String getter) {
+    values.remove(getter);
+  }
+
+  void clear() {
+    values.clear();
+  }
+
+  private static Set<String> parseProperties(String value) {
+    Set<String> properties = new HashSet<>();
+    for (String property : value.split(",")) {
+      property = property.trim();
+      if (!property.isEmpty()) {
+        properties.add(property);
+      }
+    }
+    return properties;
+  }
+
+  private static Set<String> findImmutableGetters(Class<?> type) {
+
+    Set<String> getters = new HashSet<>();
+
+    Set<Class<?>> visited = new HashSet<>();
+    Deque<Class<?>> pending = new ArrayDeque<>();
+    for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+      Collections.addAll(pending, c.getInterfaces());
+    }
+
+    while (!pending.isEmpty()) {
+
+      Class<?> iface = pending.poll();
+      if (!visited.add(iface)) {
+        continue;
+      }
+      Collections.addAll(pending, iface.getInterfaces());
+
+      for (Method method : iface.getDeclaredMethods()) {
+
+        String name = method.getName();
+        if (method.getParameterTypes().length != 0 || name.length() <= GETTER_PREFIX.length()
+            || !name.startsWith(GETTER_PREFIX)) {
+          continue;
+        }
+
+        String property = Character.toLowerCase(name.charAt(GETTER_PREFIX.length()))
+            + name.substring(GETTER_PREFIX.length() + 1);
+
+        if (method.isAnnotationPresent(Immutable.class)
+            || CONFIGURED_PROPERTIES.contains(property)
+            || CONFIGURED_PROPERTIES.contains(iface.getSimpleName() + "." + property)) {
+          getters.add(name);
+        }
+      }
+    }
+
+    return Collections.unmodifiableSet(getters);
+  }
+
+}
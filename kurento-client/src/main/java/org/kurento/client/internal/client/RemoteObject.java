@@ -19,11 +19,19 @@ package org.kurento.client.internal.client;
 
 import java.lang.reflect.Type;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 
 import org.kurento.client.Continuation;
+import org.kurento.client.Event;
 import org.kurento.client.KurentoObject;
 import org.kurento.client.TFuture;
 import org.kurento.client.Transaction;
@@ -36,13 +44,15 @@ import org.kurento.client.internal.client.operation.ReleaseOperation;
 import org.kurento.client.internal.client.operation.SubscriptionOperation;
 import org.kurento.client.internal.client.operation.UnsubscriptionOperation;
 import org.kurento.client.internal.transport.serialization.ParamsFlattener;
+import org.kurento.commons.exception.KurentoException;
 import org.kurento.jsonrpc.Props;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.Multimap;
-import com.google.common.collect.Multimaps;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 
 public class RemoteObject {
 
@@ -54,35 +64,71 @@ public class RemoteObject {
 
   private static ParamsFlattener FLATTENER = ParamsFlattener.getInstance();
 
-  private String objectRef;
+  /**
+   * State only needed while the object is being created in a transaction, or if it is rolled back.
+   * Objects created outside transactions never allocate it, and it is discarded once the object is
+   * committed.
+   */
+  private static class CommitState {
+
+    private final CountDownLatch readyLatch = new CountDownLatch(1);
+    private Continuation<Object> whenContinuation;
+    private Executor executor;
+    private TransactionExecutionException transactionException;
+  }
+
+  /**
+   * Server subscription to an event type, shared by all the local listeners of that type. It is
+   * requested when the first listener is added and released when the last one is removed, so the
+   * server sends each event once regardless of the number of listeners.
+   */
+  private static class EventSubscription {
+
+    private static final RemoteObjectEventListener[] NO_LISTENERS = {};
+
+    private final SettableFuture<String> id = SettableFuture.create();
+
+    /**
+     * Replaced, with the lock of the remote object, when listeners are added or removed. Arrays
+     * are never modified once published, so events are fired without locking nor copying.
+     */
+    private volatile RemoteObjectEventListener[] listeners = NO_LISTENERS;
+
+    private boolean requested;
+  }
+
+  private volatile String objectRef;
   private final String type;
-  private ObjectStatus objectStatus;
+  private volatile ObjectStatus objectStatus;
   private final RomManager manager;
 
   private KurentoObject kurentoObject;
 
-  private volatile CountDownLatch readyLatch;
-  private Continuation<Object> whenContinuation;
-  private Executor executor;
-
-  private final ArrayListMultimap<String, RemoteObjectEventListener> multi = ArrayListMultimap
-      .create();
-  private final Multimap<String, RemoteObjectEventListener> listeners = Multimaps
-      .synchronizedMultimap(multi);
+  private CommitState commitState;
 
-  private TransactionExecutionException transactionException;
+  /**
+   * Event subscriptions by event type, created when the first listener is added.
+   */
+  private volatile ConcurrentMap<String, EventSubscription> subscriptions;
 
   public RemoteObject(String objectRef, String type, RomManager manager) {
     this(objectRef, type, true, manager);
   }
 
   public RemoteObject(String objectRef, String type, boolean created, RomManager manager) {
+    this(objectRef, type, created, manager, true);
+  }
+
+  RemoteObject(String objectRef, String type, boolean created, RomManager manager,
+      boolean register) {
     this.objectRef = objectRef;
     this.manager = manager;
     this.type = type;
     this.objectStatus = created ? ObjectStatus.CREATED : ObjectStatus.NOT_COMMITED;
 
-    this.manager.registerObject(objectRef, this);
+    if (register) {
+      this.manager.registerObject(objectRef, this);
+    }
   }
 
   public boolean isCommited() {
@@ -90,18 +136,23 @@ public class RemoteObject {
   }
 
   public void waitCommited() throws InterruptedException {
-    createReadyLatchIfNecessary();
+
+    CountDownLatch readyLatch;
+    synchronized (this) {
+      if (isCommited()) {
+        return;
+      }
+      readyLatch = getCommitState().readyLatch;
+    }
+
     readyLatch.await();
   }
 
-  private void createReadyLatchIfNecessary() {
-    if (readyLatch == null) {
-      synchronized (this) {
-        if (readyLatch == null) {
-          readyLatch = new CountDownLatch(1);
-        }
-      }
+  private CommitState getCommitState() {
+    if (commitState == null) {
+      commitState = new CommitState();
     }
+    return commitState;
   }
 
   public synchronized void whenCommited(Continuation<?> continuation) {
@@ -110,14 +161,16 @@ public class RemoteObject {
 
   @SuppressWarnings("unchecked")
   public synchronized void whenCommited(Continuation<?> continuation, Executor executor) {
-    this.whenContinuation = (Continuation<Object>) continuation;
-    this.executor = executor;
     if (isCommited()) {
-      execWhenCommited();
+      execWhenCommited((Continuation<Object>) continuation, executor);
+    } else {
+      CommitState state = getCommitState();
+      state.whenContinuation = (Continuation<Object>) continuation;
+      state.executor = executor;
     }
   }
 
-  private void execWhenCommited() {
+  private void execWhenCommited(final Continuation<Object> whenContinuation, Executor executor) {
     if (executor == null) {
       // TODO Propagate error if object is not ready for error
       try {
@@ -249,11 +302,17 @@ public class RemoteObject {
 
     checkCreated();
 
-    String subscription = manager.subscribe(objectRef, eventType);
+    EventSubscription subscription = addListener(eventType, listener);
 
-    listeners.put(eventType, listener);
+    if (claimRequest(subscription)) {
+      try {
+        subscription.id.set(manager.subscribe(objectRef, eventType));
+      } catch (RuntimeException e) {
+        failSubscription(eventType, subscription, e);
+      }
+    }
 
-    return new ListenerSubscriptionImpl(subscription, eventType, listener);
+    return new ListenerSubscriptionImpl(awaitSubscriptionId(subscription), eventType, listener);
   }
 
   public ListenerSubscriptionImpl addEventListener(String eventType,
@@ -269,29 +328,162 @@ public class RemoteObject {
 
     checkCreated();
 
-    listeners.put(eventType, listener);
+    EventSubscription subscription = addListener(eventType, listener);
 
-    manager.subscribe(objectRef, eventType, new DefaultContinuation<String>(cont) {
-      @Override
-      public void onSuccess(String subscription) {
+    if (claimRequest(subscription)) {
+      requestSubscription(eventType, subscription);
+    }
 
+    Futures.addCallback(subscription.id, new FutureCallback<String>() {
+      @Override
+      public void onSuccess(String subscriptionId) {
         try {
-          cont.onSuccess(new ListenerSubscriptionImpl(subscription, eventType, listener));
+          cont.onSuccess(new ListenerSubscriptionImpl(subscriptionId, eventType, listener));
         } catch (Exception e) {
           log.warn("[Continuation] error invoking onSuccess implemented by client", e);
         }
       }
-    });
+
+      @Override
+      public void onFailure(Throwable cause) {
+        try {
+          cont.onError(cause);
+        } catch (Exception e) {
+          log.warn("[Continuation] error invoking onError implemented by client", e);
+        }
+      }
+    }, MoreExecutors.directExecutor());
+  }
+
+  /**
+   * Adds a listener subscribed in a transaction.
+   *
+   * @param listenerSubscription
+   *          the subscription returned to the user, updated with the id of the server subscription
+   * @param subscriptionId
+   *          the server subscription created by the transaction, or null if the transaction
+   *          reused the subscription of this object
+   */
+  public void addSubscribedListener(final ListenerSubscriptionImpl listenerSubscription,
+      String subscriptionId) {
+
+    String eventType = listenerSubscription.getType();
+    EventSubscription subscription = addListener(eventType, listenerSubscription.getListener());
+
+    if (claimRequest(subscription)) {
+      if (subscriptionId != null) {
+        subscription.id.set(subscriptionId);
+      } else {
+        // The subscription reused by the transaction has been released meanwhile
+        requestSubscription(eventType, subscription);
+      }
+    } else if (subscriptionId != null && !subscriptionId.equals(getDoneId(subscription))) {
+      // Other listener subscribed to the same event type meanwhile. The subscription of the
+      // transaction is released to receive each event only once
+      manager.unsubscribe(objectRef, subscriptionId,
+          new ErrorLogContinuation<Void>("Error releasing duplicated subscription"));
+    }
+
+    Futures.addCallback(subscription.id, new FutureCallback<String>() {
+      @Override
+      public void onSuccess(String id) {
+        listenerSubscription.setSubscription(id);
+      }
+
+      @Override
+      public void onFailure(Throwable cause) {
+        log.warn("Error subscribing to event {} in object {}", listenerSubscription.getType(),
+            objectRef, cause);
+      }
+    }, MoreExecutors.directExecutor());
+  }
+
+  /**
+   * @return the id of the server subscription to the event type, or null if the object is not
+   *         subscribed to it yet
+   */
+  public String getSubscriptionId(String eventType) {
+    ConcurrentMap<String, EventSubscription> subscriptions = this.subscriptions;
+    EventSubscription subscription = subscriptions != null ? subscriptions.get(eventType) : null;
+    return subscription != null ? getDoneId(subscription) : null;
+  }
+
+  /**
+   * @return the id of the server subscription the listener is receiving events from. It differs
+   *         from the id returned to the user if the subscription has been renewed
+   */
+  public String getSubscriptionId(ListenerSubscriptionImpl listenerSubscription) {
+    String subscriptionId = getSubscriptionId(listenerSubscription.getType());
+    return subscriptionId != null ? subscriptionId : listenerSubscription.getSubscriptionId();
+  }
+
+  /**
+   * @return the event types with established subscriptions, which have to be renewed if the
+   *         session with the media server is lost
+   */
+  public synchronized List<String> getSubscribedEventTypes() {
+    if (subscriptions == null) {
+      return Collections.emptyList();
+    }
+    List<String> eventTypes = new ArrayList<>();
+    for (Entry<String, EventSubscription> e : subscriptions.entrySet()) {
+      if (getDoneId(e.getValue()) != null) {
+        eventTypes.add(e.getKey());
+      }
+    }
+    return eventTypes;
   }
 
-  public void removeEventListener(ListenerSubscriptionImpl listenerSubscription) {
+  /**
+   * Replaces the server subscription of an event type, created again in a new session. The
+   * listeners are kept.
+   *
+   * @return false if the event type has no listeners anymore, so the new subscription is not used
+   */
+  public synchronized boolean renewSubscription(String eventType, String subscriptionId) {
 
-    checkCreated();
+    EventSubscription current = subscriptions != null ? subscriptions.get(eventType) : null;
+    if (current == null) {
+      return false;
+    }
+
+    EventSubscription renewed = new EventSubscription();
+    renewed.listeners = current.listeners;
+    renewed.requested = true;
+    renewed.id.set(subscriptionId);
+    subscriptions.put(eventType, renewed);
+    return true;
+  }
+
+  /**
+   * Discards the listeners of an object released in the server. Event subscriptions still pending
+   * fail, so threads waiting for them are not blocked until the request times out.
+   */
+  void dispose() {
+
+    ConcurrentMap<String, EventSubscription> disposed;
+    synchronized (this) {
+      disposed = subscriptions;
+      subscriptions = null;
+    }
+
+    if (disposed != null) {
+      for (EventSubscription subscription : disposed.values()) {
+        subscription.listeners = EventSubscription.NO_LISTENERS;
+        subscription.id.setException(new KurentoException("Object " + objectRef
+            + " has been released"));
+      }
+    }
+  }
 
-    listeners.remove(listenerSubscription.getType(), listenerSubscription.getListener());
+  public void removeEventListener(ListenerSubscriptionImpl listenerSubscription) {
 
-    manager.unsubscribe(objectRef, listenerSubscription.getSubscriptionId());
+    checkCreated();
 
+    String subscriptionId = getSubscriptionId(listenerSubscription);
+    if (removeListener(listenerSubscription)) {
+      manager.unsubscribe(objectRef, subscriptionId);
+    }
   }
 
   public void removeEventListener(ListenerSubscriptionImpl listenerSubscription, Transaction tx) {
@@ -306,46 +498,201 @@ public class RemoteObject {
 
     checkCreated();
 
-    listeners.remove(listenerSubscription.getType(), listenerSubscription);
+    String subscriptionId = getSubscriptionId(listenerSubscription);
+    if (!removeListener(listenerSubscription)) {
+      try {
+        cont.onSuccess(null);
+      } catch (Exception e) {
+        log.warn("[Continuation] error invoking onSuccess implemented by client", e);
+      }
+      return;
+    }
 
-    manager.unsubscribe(objectRef, listenerSubscription.getSubscriptionId(),
-        new DefaultContinuation<Void>(cont) {
-          @Override
-          public void onSuccess(Void result) {
+    manager.unsubscribe(objectRef, subscriptionId, new DefaultContinuation<Void>(cont) {
+      @Override
+      public void onSuccess(Void result) {
 
-            try {
-              cont.onSuccess(result);
-            } catch (Exception e) {
-              log.warn("[Continuation] error invoking onSuccess implemented by client", e);
-            }
-          }
+        try {
+          cont.onSuccess(result);
+        } catch (Exception e) {
+          log.warn("[Continuation] error invoking onSuccess implemented by client", e);
+        }
+      }
 
-        });
+    });
   }
 
-  public void fireEvent(String type, Props data) {
+  private synchronized EventSubscription addListener(String eventType,
+      RemoteObjectEventListener listener) {
 
-    Collection<RemoteObjectEventListener> typeListeners;
-    synchronized (this.listeners) {
-      typeListeners = new ArrayList<>(this.listeners.get(type));
-      log.debug("Listeners found in object {}:{} for event {}: {}", super.hashCode(),
-          this.getObjectRef(), type, typeListeners);
+    if (subscriptions == null) {
+      subscriptions = new ConcurrentHashMap<>(4);
     }
 
-    if (typeListeners.isEmpty()) {
+    EventSubscription subscription = subscriptions.get(eventType);
+    if (subscription == null) {
+      subscription = new EventSubscription();
+      subscriptions.put(eventType, subscription);
+    }
+
+    RemoteObjectEventListener[] current = subscription.listeners;
+    RemoteObjectEventListener[] updated = Arrays.copyOf(current, current.length + 1);
+    updated[current.length] = listener;
+    subscription.listeners = updated;
+
+    return subscription;
+  }
+
+  /**
+   * Removes the listener of the subscription. If it was the last listener of its event type, the
+   * subscription is discarded and it must be released in the server by the caller.
+   *
+   * @return true if the server subscription must be released
+   */
+  public synchronized boolean removeListener(ListenerSubscriptionImpl listenerSubscription) {
+
+    if (subscriptions == null) {
+      return false;
+    }
+
+    String eventType = listenerSubscription.getType();
+    EventSubscription subscription = subscriptions.get(eventType);
+    if (subscription == null) {
+      return false;
+    }
+
+    RemoteObjectEventListener[] current = subscription.listeners;
+
+    int index = -1;
+    for (int i = 0; i < current.length; i++) {
+      if (current[i].equals(listenerSubscription.getListener())) {
+        index = i;
+        break;
+      }
+    }
+
+    if (index == -1) {
+      return false;
+    }
+
+    if (current.length == 1) {
+      subscriptions.remove(eventType);
+      subscription.listeners = EventSubscription.NO_LISTENERS;
+      return true;
+    }
+
+    RemoteObjectEventListener[] updated = new RemoteObjectEventListener[current.length - 1];
+    System.arraycopy(current, 0, updated, 0, index);
+    System.arraycopy(current, index + 1, updated, index, updated.length - index);
+    subscription.listeners = updated;
+    return false;
+  }
+
+  private synchronized boolean claimRequest(EventSubscription subscription) {
+    if (subscription.requested) {
+      return false;
+    }
+    subscription.requested = true;
+    return true;
+  }
+
+  private void requestSubscription(final String eventType, final EventSubscription subscription) {
+
+    manager.subscribe(objectRef, eventType, new Continuation<String>() {
+      @Override
+      public void onSuccess(String subscriptionId) {
+        subscription.id.set(subscriptionId);
+      }
+
+      @Override
+      public void onError(Throwable cause) {
+        failSubscription(eventType, subscription, cause);
+      }
+    });
+  }
+
+  private void failSubscription(String eventType, EventSubscription subscription,
+      Throwable cause) {
+
+    synchronized (this) {
+      subscriptions.remove(eventType, subscription);
+    }
+
+    subscription.id.setException(cause);
+  }
+
+  private static String awaitSubscriptionId(EventSubscription subscription) {
+    try {
+      return subscription.id.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new KurentoException("Interrupted while waiting for event subscription", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new KurentoException(e.getCause());
+    }
+  }
+
+  private static String getDoneId(EventSubscription subscription) {
+    if (!subscription.id.isDone()) {
+      return null;
+    }
+    try {
+      return Futures.getDone(subscription.id);
+    } catch (ExecutionException | CancellationException e) {
+      return null;
+    }
+  }
+
+  public void fireEvent(String type, Props data) {
+
+    ConcurrentMap<String, EventSubscription> subscriptions = this.subscriptions;
+    EventSubscription subscription = subscriptions != null ? subscriptions.get(type) : null;
+    RemoteObjectEventListener[] typeListeners =
+        subscription != null ? subscription.listeners : EventSubscription.NO_LISTENERS;
+
+    if (typeListeners.length == 0) {
 
       log.warn(
           "Received event with data {} in object {} but there is no listener registered for it",
           data, this.getObjectRef());
+      return;
+    }
 
-    } else {
+    if (log.isDebugEnabled()) {
+      log.debug("Listeners found in object {}:{} for event {}: {}", super.hashCode(),
+          this.getObjectRef(), type, Arrays.toString(typeListeners));
+    }
 
-      for (RemoteObjectEventListener eventListener : typeListeners) {
-        try {
+    data.add("source", objectRef);
+
+    // The event is built once and shared by all the listeners of the same event class (usually
+    // all of them)
+    Class<? extends Event> eventClass = null;
+    Event event = null;
+
+    for (RemoteObjectEventListener eventListener : typeListeners) {
+      try {
+        if (eventListener instanceof TypedEventListener) {
+
+          TypedEventListener typedListener = (TypedEventListener) eventListener;
+
+          if (typedListener.getEventClass() != eventClass) {
+            eventClass = typedListener.getEventClass();
+            event = typedListener.createEvent(data);
+          }
+
+          if (event != null) {
+            typedListener.onEvent(event);
+          }
+
+        } else {
           eventListener.onEvent(type, data);
-        } catch (Exception e) {
-          log.error("Exception executing event listener", e);
         }
+      } catch (Exception e) {
+        log.error("Exception executing event listener", e);
       }
     }
   }
@@ -354,11 +701,15 @@ public class RemoteObject {
     return new TransactionImpl(manager);
   }
 
+  private synchronized TransactionExecutionException getTransactionException() {
+    return commitState != null ? commitState.transactionException : null;
+  }
+
   private void checkCreated() {
     if (objectStatus == ObjectStatus.NOT_COMMITED) {
       throw new TransactionNotCommitedException();
     } else if (objectStatus == ObjectStatus.ROLLBACK) {
-      throw new TransactionRollbackException(transactionException);
+      throw new TransactionRollbackException(getTransactionException());
     }
   }
 
@@ -393,17 +744,26 @@ public class RemoteObject {
   }
 
   public void setCreatedObjectRef(String objectRef) {
-    this.objectRef = objectRef;
-    this.objectStatus = ObjectStatus.CREATED;
-    createReadyLatchIfNecessary();
-    readyLatch.countDown();
-    if (whenContinuation != null) {
-      execWhenCommited();
+
+    CommitState state;
+    synchronized (this) {
+      this.objectRef = objectRef;
+      this.objectStatus = ObjectStatus.CREATED;
+      state = commitState;
+      commitState = null;
+    }
+
+    if (state != null) {
+      state.readyLatch.countDown();
+      if (state.whenContinuation != null) {
+        execWhenCommited(state.whenContinuation, state.executor);
+      }
     }
   }
 
-  public void rollbackTransaction(TransactionExecutionException transactionException) {
+  public synchronized void rollbackTransaction(
+      TransactionExecutionException transactionException) {
     this.objectStatus = ObjectStatus.ROLLBACK;
-    this.transactionException = transactionException;
+    getCommitState().transactionException = transactionException;
   }
 }
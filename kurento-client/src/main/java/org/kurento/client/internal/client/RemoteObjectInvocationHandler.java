@@ -17,14 +17,10 @@
 
 package org.kurento.client.internal.client;
 
-import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
-import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Proxy;
 import java.lang.reflect.Type;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
 import java.util.Set;
 
 import org.kurento.client.Continuation;
@@ -33,10 +29,9 @@ import org.kurento.client.EventListener;
 import org.kurento.client.GenericMediaElement;
 import org.kurento.client.GenericMediaEvent;
 import org.kurento.client.KurentoObject;
+import org.kurento.client.TFuture;
 import org.kurento.client.Transaction;
 import org.kurento.client.internal.ParamAnnotationUtils;
-import org.kurento.client.internal.server.EventSubscription;
-import org.kurento.client.internal.transport.serialization.ParamsFlattener;
 import org.kurento.jsonrpc.Props;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -48,20 +43,34 @@ public class RemoteObjectInvocationHandler extends DefaultInvocationHandler {
 
   private static final Logger log = LoggerFactory.getLogger(RemoteObjectInvocationHandler.class);
 
-  private static final Set<String> REMOTE_OBJECT_METHODS = ImmutableSet.of("isCommited",
+  static final Set<String> REMOTE_OBJECT_METHODS = ImmutableSet.of("isCommited",
       "waitCommited", "whenCommited", "beginTransaction");
 
   private RemoteObject remoteObject;
   private final RomManager manager;
 
+  /**
+   * Values of the immutable properties already read, created when the first one is read.
+   */
+  private volatile PropertyCache propertyCache;
+
+  /**
+   * Creates the client object for a remote object. If the module of the class provides a generated
+   * stub, it is used. Otherwise, a dynamic proxy dispatched by this handler is created.
+   */
   @SuppressWarnings("unchecked")
   public static <E> E newProxy(RemoteObject remoteObject, RomManager manager, Class<E> clazz) {
 
-    RemoteObjectInvocationHandler handler = new RemoteObjectInvocationHandler(remoteObject,
-        manager);
+    KurentoObject kurentoObject = AbstractRemoteObjectStub.newStub(remoteObject, manager, clazz);
+
+    if (kurentoObject == null) {
 
-    KurentoObject kurentoObject = (KurentoObject) Proxy.newProxyInstance(clazz.getClassLoader(),
-        new Class[] { clazz }, handler);
+      RemoteObjectInvocationHandler handler = new RemoteObjectInvocationHandler(remoteObject,
+          manager);
+
+      kurentoObject = (KurentoObject) Proxy.newProxyInstance(clazz.getClassLoader(),
+          new Class[] { clazz }, handler);
+    }
 
     remoteObject.setKurentoObject(kurentoObject);
 
@@ -69,10 +78,16 @@ public class RemoteObjectInvocationHandler extends DefaultInvocationHandler {
   }
 
   public static RemoteObjectInvocationHandler getFor(Object object) {
+    if (object instanceof AbstractRemoteObjectStub) {
+      return ((AbstractRemoteObjectStub) object).getInvocationHandler();
+    }
+    if (object == null || !Proxy.isProxyClass(object.getClass())) {
+      return null;
+    }
     return (RemoteObjectInvocationHandler) Proxy.getInvocationHandler(object);
   }
 
-  private RemoteObjectInvocationHandler(RemoteObject remoteObject, RomManager manager) {
+  RemoteObjectInvocationHandler(RemoteObject remoteObject, RomManager manager) {
     this.remoteObject = remoteObject;
     this.manager = manager;
   }
@@ -80,64 +95,45 @@ public class RemoteObjectInvocationHandler extends DefaultInvocationHandler {
   @Override
   public Object internalInvoke(final Object proxy, Method method, Object[] args) throws Throwable {
 
-    String methodName = method.getName();
-    if (REMOTE_OBJECT_METHODS.contains(methodName)) {
-      Method remoteObjectMethod = findMethod(remoteObject, methodName, args);
-      return remoteObjectMethod.invoke(remoteObject, args);
-    }
-
-    Continuation<?> cont = null;
-    Transaction tx = null;
-    List<String> paramNames = Collections.emptyList();
+    InvocationPlan plan = InvocationPlan.get(method);
 
-    switch (method.getName()) {
-    case "invoke":
+    switch (plan.kind) {
+      case REMOTE_OBJECT_METHOD:
+        Method remoteObjectMethod = findMethod(remoteObject, plan.methodName, args);
+        return remoteObjectMethod.invoke(remoteObject, args);
+      case GENERIC_INVOKE:
         return genericMediaElementInvoke(args);
-    case "addEventListener":
-        return genericSubscribeEventListener((String) args[0], proxy, args, cont, tx);
-    case "removeEventListener":
-        return unsubscribeEventListener(null, args, null, null, cont, tx);
-    default:
-        log.trace("Invoking method {} on object {}", method, proxy);
-
-        if (args != null && args.length > 0) {
-
-            paramNames = ParamAnnotationUtils.getParamNames(method);
-
-            if (args[args.length - 1] instanceof Continuation) {
-
-                cont = (Continuation<?>) args[args.length - 1];
-                args = Arrays.copyOf(args, args.length - 1);
-                paramNames = paramNames.subList(0, paramNames.size() - 1);
-
-            } else if (args != null && args.length > 0 && args[0] instanceof Transaction) {
-
-                tx = (Transaction) args[0];
-                args = Arrays.copyOfRange(args, 1, args.length);
-                paramNames = paramNames.subList(1, paramNames.size());
-            }
-        }
-
-        if (methodName.equals("release")) {
-
-            return release(cont, tx);
-
-        } else if (method.getAnnotation(EventSubscription.class) != null) {
+      case GENERIC_ADD_LISTENER:
+        return genericSubscribeEventListener((String) args[0], args, null, null);
+      case GENERIC_REMOVE_LISTENER:
+        return unsubscribeEventListener((ListenerSubscriptionImpl) args[0], null, null);
+      default:
+        break;
+    }
 
-            EventSubscription eventSubscription = method.getAnnotation(EventSubscription.class);
+    log.trace("Invoking method {} on object {}", method, proxy);
 
-            if (methodName.startsWith("add")) {
-                return subscribeEventListener(proxy, args, methodName, eventSubscription.value(), cont, tx);
-            } else if (methodName.startsWith("remove")) {
-                return unsubscribeEventListener(proxy, args, methodName, eventSubscription.value(), cont, tx);
-            } else {
-                throw new IllegalStateException("Method " + methodName + " undefined for events");
-            }
+    Continuation<?> cont = null;
+    Transaction tx = null;
 
-        } else {
+    if (plan.continuation) {
+      cont = (Continuation<?>) args[args.length - 1];
+      args = Arrays.copyOf(args, args.length - 1);
+    } else if (plan.transaction) {
+      tx = (Transaction) args[0];
+      args = Arrays.copyOfRange(args, 1, args.length);
+    }
 
-            return invoke(method, paramNames, args, cont, tx);
-        }
+    switch (plan.kind) {
+      case RELEASE:
+        return release(cont, tx);
+      case SUBSCRIBE:
+        return subscribeEventListener((EventListener<?>) args[0], plan.eventClass,
+            plan.eventName, cont, tx);
+      case UNSUBSCRIBE:
+        return unsubscribeEventListener((ListenerSubscriptionImpl) args[0], cont, tx);
+      default:
+        return invoke(plan, args, cont, tx);
     }
   }
 
@@ -157,39 +153,126 @@ public class RemoteObjectInvocationHandler extends DefaultInvocationHandler {
     return remoteObject.invoke(methodName, props, type);
   }
 
-  private Object invoke(Method method, List<String> paramNames, Object[] args, Continuation<?> cont,
+  private Object invoke(InvocationPlan plan, Object[] args, Continuation<?> cont,
       Transaction tx) {
 
-    Props props = ParamAnnotationUtils.extractProps(paramNames, args);
+    Props props = ParamAnnotationUtils.extractProps(plan.paramNames, args);
 
-    if (cont != null) {
-
-      Type[] paramTypes = method.getGenericParameterTypes();
-      ParameterizedType contType = (ParameterizedType) paramTypes[paramTypes.length - 1];
-      Type returnType = contType.getActualTypeArguments()[0];
-      remoteObject.invoke(method.getName(), props, returnType, cont);
+    if (plan.stage) {
+      CompletionContinuation<Object> completion = manager.newCompletion();
+      invokeAsync(plan.methodName, props, plan.returnType, completion);
+      return completion;
+    } else if (cont != null) {
+      invokeAsync(plan.methodName, props, plan.returnType, cont);
       return null;
-
     } else if (tx != null) {
+      return invokeTx(plan.methodName, props, plan.returnType, tx);
+    } else {
+      return invokeSync(plan.methodName, props, plan.returnType);
+    }
+  }
+
+  /**
+   * Invokes a method synchronously. Getters of immutable properties are answered from the cache
+   * after the first invocation.
+   */
+  Object invokeSync(String method, Props params, Type returnType) {
+
+    if (!PropertyCache.isCacheable(remoteObject.getKurentoObject(), method, params)) {
+      invalidateProperty(method);
+      return remoteObject.invoke(method, params, returnType);
+    }
 
-      Type returnType = method.getGenericReturnType();
+    PropertyCache cache = getPropertyCache();
+    Object value = cache.get(method);
+    if (value == PropertyCache.MISSING) {
+      value = remoteObject.invoke(method, params, returnType);
+      cache.put(method, value);
+    }
+    return value;
+  }
 
-      if (returnType instanceof ParameterizedType) {
-        ParameterizedType futureType = (ParameterizedType) returnType;
-        Type methodReturnType = futureType.getActualTypeArguments()[0];
-        return remoteObject.invoke(method.getName(), props, methodReturnType, tx);
-      } else {
-        return remoteObject.invoke(method.getName(), props, Void.class, tx);
+  /**
+   * Invokes a method asynchronously. If the value of an immutable property is cached, the
+   * continuation is called in this thread.
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  void invokeAsync(final String method, Props params, Type returnType, final Continuation cont) {
+
+    if (!PropertyCache.isCacheable(remoteObject.getKurentoObject(), method, params)) {
+      invalidateProperty(method);
+      remoteObject.invoke(method, params, returnType, cont);
+      return;
+    }
+
+    final PropertyCache cache = getPropertyCache();
+    Object value = cache.get(method);
+    if (value != PropertyCache.MISSING) {
+      try {
+        cont.onSuccess(value);
+      } catch (Exception e) {
+        log.warn("[Continuation] error invoking onSuccess implemented by client", e);
       }
+      return;
+    }
 
-    } else {
+    remoteObject.invoke(method, params, returnType, new Continuation<Object>() {
+      @Override
+      public void onSuccess(Object result) throws Exception {
+        cache.put(method, result);
+        cont.onSuccess(result);
+      }
+
+      @Override
+      public void onError(Throwable cause) throws Exception {
+        cont.onError(cause);
+      }
+    });
+  }
+
+  TFuture<Object> invokeTx(String method, Props params, Type returnType, Transaction tx) {
+    invalidateProperty(method);
+    return remoteObject.invoke(method, params, returnType, tx);
+  }
+
+  private PropertyCache getPropertyCache() {
+    PropertyCache cache = propertyCache;
+    if (cache == null) {
+      synchronized (this) {
+        cache = propertyCache;
+        if (cache == null) {
+          cache = new PropertyCache();
+          propertyCache = cache;
+        }
+      }
+    }
+    return cache;
+  }
 
-      return remoteObject.invoke(method.getName(), props, method.getGenericReturnType());
+  private void invalidateProperty(String method) {
+    PropertyCache cache = propertyCache;
+    if (cache != null) {
+      String getter = PropertyCache.getterOf(method);
+      if (getter != null) {
+        cache.remove(getter);
+      }
+    }
+  }
+
+  /**
+   * Discards the cached values of immutable properties, so they are read again from the media
+   * server. Used when the object is released or the client connects to a different server.
+   */
+  public void clearPropertyCache() {
+    PropertyCache cache = propertyCache;
+    if (cache != null) {
+      cache.clear();
     }
   }
 
   @SuppressWarnings("unchecked")
-  private Object release(Continuation<?> cont, Transaction tx) {
+  Object release(Continuation<?> cont, Transaction tx) {
+    clearPropertyCache();
     if (cont != null) {
       remoteObject.release((Continuation<Void>) cont);
     } else if (tx != null) {
@@ -201,18 +284,12 @@ public class RemoteObjectInvocationHandler extends DefaultInvocationHandler {
   }
 
   @SuppressWarnings("unchecked")
-  private Object subscribeEventListener(final Object proxy, final Object[] args, String methodName,
-      final Class<? extends Event> eventClass, Continuation<?> cont, Transaction tx) {
-
-    String eventName = eventClass.getSimpleName().substring(0,
-        eventClass.getSimpleName().length() - "Event".length());
+  public Object subscribeEventListener(EventListener<?> eventListener,
+      Class<? extends Event> eventClass, String eventName, Continuation<?> cont,
+      Transaction tx) {
 
-    RemoteObjectEventListener listener = new RemoteObjectEventListener() {
-      @Override
-      public void onEvent(String eventType, Props data) {
-        propagateEventTo(proxy, eventClass, data, (EventListener<?>) args[0]);
-      }
-    };
+    RemoteObjectEventListener listener = new TypedEventListener(eventClass, eventListener,
+        manager);
 
     if (cont != null) {
       remoteObject.addEventListener(eventName, listener,
@@ -224,38 +301,23 @@ public class RemoteObjectInvocationHandler extends DefaultInvocationHandler {
       return remoteObject.addEventListener(eventName, listener);
     }
   }
-  
-  	@SuppressWarnings("unchecked")
-	private Object genericSubscribeEventListener(String eventName, final Object proxy, final Object[] args,
-			Continuation<?> cont, Transaction tx) {
-	
-		RemoteObjectEventListener listener = new RemoteObjectEventListener() {
-			@Override
-			public void onEvent(String eventType, Props data) {
-				Class<? extends Event> realEventType = GenericMediaEvent.class;
-				if (args.length > 1) {
-					realEventType = (Class<Event>) args[2];
-				}
-				propagateEventTo(proxy, realEventType, data, (EventListener<?>) args[1]);
-			}
-		};
-	
-		if (cont != null) {
-			remoteObject.addEventListener(eventName, listener, (Continuation<ListenerSubscriptionImpl>) cont);
-			return null;
-		} else if (tx != null) {
-			return remoteObject.addEventListener(eventName, listener, tx);
-		} else {
-			return remoteObject.addEventListener(eventName, listener);
-		}
-	}
 
   @SuppressWarnings("unchecked")
-  private Object unsubscribeEventListener(final Object proxy, final Object[] args,
-      String methodName, final Class<? extends Event> eventClass, Continuation<?> cont,
+  Object genericSubscribeEventListener(String eventName, Object[] args, Continuation<?> cont,
       Transaction tx) {
 
-    ListenerSubscriptionImpl listenerSubscription = (ListenerSubscriptionImpl) args[0];
+    Class<? extends Event> eventClass = GenericMediaEvent.class;
+    if (args.length > 2 && args[2] != null) {
+      eventClass = (Class<? extends Event>) args[2];
+    }
+
+    return subscribeEventListener((EventListener<?>) args[1], eventClass, eventName, cont, tx);
+  }
+
+  @SuppressWarnings("unchecked")
+  Object unsubscribeEventListener(ListenerSubscriptionImpl listenerSubscription,
+      Continuation<?> cont, Transaction tx) {
+
     if (cont != null) {
       remoteObject.removeEventListener(listenerSubscription, (Continuation<Void>) cont);
     } else if (tx != null) {
@@ -267,40 +329,13 @@ public class RemoteObjectInvocationHandler extends DefaultInvocationHandler {
     return null;
   }
 
-  @SuppressWarnings({ "unchecked", "rawtypes" })
-  protected void propagateEventTo(Object object, Class<? extends Event> eventClass, Props data,
-      EventListener<?> listener) {
-
-    // TODO Optimize this to create only one event for all listeners
-
-    try {
-
-      log.debug("Event class '" + eventClass.getSimpleName() + " Data: " + data);
-
-      Constructor<?> constructor = eventClass.getConstructors()[0];
-
-      data.add("source", ((KurentoObject) object).getId());
-
-      Object[] params = ParamsFlattener.getInstance().unflattenParams(
-          constructor.getParameterAnnotations(), constructor.getGenericParameterTypes(), data,
-          manager);
-
-      Event event = (Event) constructor.newInstance(params);
-
-      ((EventListener) listener).onEvent(event);
-
-    } catch (Exception e) {
-      log.error("Exception while processing event '" + eventClass.getSimpleName()
-          + "' with params '" + data + "'", e);
-    }
-  }
-
   public RemoteObject getRemoteObject() {
     return remoteObject;
   }
 
   public void setRemoteObject(RemoteObject remoteObject) {
     this.remoteObject = remoteObject;
+    clearPropertyCache();
   }
 
   public RomManager getRomManager() {
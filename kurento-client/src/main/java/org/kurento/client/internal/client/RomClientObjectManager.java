@@ -17,6 +17,13 @@
 
 package org.kurento.client.internal.client;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
 
 import org.kurento.client.internal.transport.serialization.ObjectRefsManager;
@@ -30,6 +37,8 @@ public class RomClientObjectManager implements RomEventHandler, ObjectRefsManage
 
   private static final Logger log = LoggerFactory.getLogger(RomClientObjectManager.class);
 
+  private static final char CONTAINER_SEPARATOR = '/';
+
   private final ConcurrentMap<String, RemoteObject> objects = new MapMaker().weakValues().makeMap();
 
   private final RomClient client;
@@ -62,8 +71,89 @@ public class RomClientObjectManager implements RomEventHandler, ObjectRefsManage
     this.objects.put(objectRef, remoteObject);
   }
 
+  /**
+   * Registers the object unless there is already an object registered with the same reference.
+   *
+   * @return the object previously registered, or null if the given object has been registered
+   */
+  public RemoteObject registerObjectIfAbsent(String objectRef, RemoteObject remoteObject) {
+    return this.objects.putIfAbsent(objectRef, remoteObject);
+  }
+
   public void releaseObject(String objectRef) {
-    this.objects.remove(objectRef);
+    releaseObjects(Collections.singleton(objectRef));
+  }
+
+  /**
+   * Drops objects released in the server, and the objects released with them (the elements of a
+   * released pipeline). Their listeners and pending event subscriptions are discarded now instead
+   * of waiting for the objects to be collected.
+   */
+  public void releaseObjects(Collection<String> objectRefs) {
+
+    boolean containers = false;
+    for (String objectRef : objectRefs) {
+      dispose(objects.remove(objectRef));
+      containers |= getContainerRef(objectRef) == null;
+    }
+
+    if (!containers) {
+      return;
+    }
+
+    Set<String> released = objectRefs instanceof Set ? (Set<String>) objectRefs
+        : new HashSet<>(objectRefs);
+
+    for (Entry<String, RemoteObject> entry : objects.entrySet()) {
+      String containerRef = getContainerRef(entry.getKey());
+      if (containerRef != null && released.contains(containerRef)
+          && objects.remove(entry.getKey(), entry.getValue())) {
+        dispose(entry.getValue());
+      }
+    }
+  }
+
+  /**
+   * Returns the reference of the object containing the given one. The media server builds the
+   * reference of each element prefixing it with the reference of its pipeline and a slash.
+   *
+   * @return the reference of the container, or null if the object is not contained in other
+   */
+  public static String getContainerRef(String objectRef) {
+    int index = objectRef.indexOf(CONTAINER_SEPARATOR);
+    return index > 0 ? objectRef.substring(0, index) : null;
+  }
+
+  private static void dispose(RemoteObject object) {
+    if (object == null) {
+      return;
+    }
+    object.dispose();
+    RemoteObjectInvocationHandler handler =
+        RemoteObjectInvocationHandler.getFor(object.getKurentoObject());
+    if (handler != null) {
+      handler.clearPropertyCache();
+    }
+  }
+
+  /**
+   * Discards the cached properties of all the objects.
+   */
+  public void clearPropertyCaches() {
+    for (RemoteObject object : objects.values()) {
+      RemoteObjectInvocationHandler handler =
+          RemoteObjectInvocationHandler.getFor(object.getKurentoObject());
+      if (handler != null) {
+        handler.clearPropertyCache();
+      }
+    }
+  }
+
+  /**
+   * @return a copy of the objects registered now
+   */
+  public List<RemoteObject> getRemoteObjects() {
+    return new ArrayList<>(objects.values());
   }
 
   public RemoteObject getRemoteObject(String objectRef) {
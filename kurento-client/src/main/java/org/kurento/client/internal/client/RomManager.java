@@ -18,13 +18,21 @@
 package org.kurento.client.internal.client;
 
 import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
 import org.kurento.client.Continuation;
+import org.kurento.client.KurentoObject;
 import org.kurento.client.Transaction;
 import org.kurento.client.internal.TransactionImpl;
 import org.kurento.client.internal.client.operation.MediaObjectCreationOperation;
 import org.kurento.client.internal.client.operation.Operation;
+import org.kurento.client.internal.client.operation.ReleaseOperation;
+import org.kurento.client.internal.client.operation.RenewSubscriptionOperation;
 import org.kurento.client.internal.transport.serialization.ObjectRefsManager;
 import org.kurento.client.internal.transport.serialization.ParamsFlattener;
 import org.kurento.jsonrpc.Props;
@@ -40,6 +48,8 @@ public class RomManager implements ObjectRefsManager {
   private final RomClientObjectManager manager;
   private final RomClient client;
 
+  private volatile Executor completionExecutor;
+
   public RomManager(RomClient client) {
     this.client = client;
     this.manager = new RomClientObjectManager(client);
@@ -48,8 +58,7 @@ public class RomManager implements ObjectRefsManager {
     }
   }
 
-  // FIXME: Improve concurrency
-  public synchronized RemoteObject create(String remoteClassName, Props constructorParams,
+  public RemoteObject create(String remoteClassName, Props constructorParams,
       Props genericProps) {
 	  
 	if(remoteClassName.equals("GenericMediaElement")) {
@@ -61,7 +70,7 @@ public class RomManager implements ObjectRefsManager {
     return new RemoteObject(objectRef, remoteClassName, this);
   }
 
-  public synchronized RemoteObject create(String remoteClassName, Props constructorParams,
+  public RemoteObject create(String remoteClassName, Props constructorParams,
       Props genericProps, Transaction tx) {
 
     TransactionImpl txImpl = (TransactionImpl) tx;
@@ -78,11 +87,11 @@ public class RomManager implements ObjectRefsManager {
 
   }
 
-  public synchronized RemoteObject create(String remoteClassName) {
+  public RemoteObject create(String remoteClassName) {
     return create(remoteClassName, (Props) null, null);
   }
 
-  public synchronized void create(final String remoteClassName, final Props constructorParams,
+  public void create(final String remoteClassName, final Props constructorParams,
       Props genericProps, final Continuation<RemoteObject> cont) {
 
     client.create(remoteClassName, constructorParams, genericProps, new Continuation<String>() {
@@ -106,27 +115,35 @@ public class RomManager implements ObjectRefsManager {
     });
   }
 
-  public synchronized void create(String remoteClassName, Continuation<RemoteObject> cont) {
+  public void create(String remoteClassName, Continuation<RemoteObject> cont) {
     create(remoteClassName, null, null, cont);
   }
 
   @Override
-  public synchronized Object getObject(String objectRef) {
+  public Object getObject(String objectRef) {
     return manager.getObject(objectRef);
   }
 
   @SuppressWarnings("unchecked")
-  public synchronized <T> T getById(String objectRef, Class<T> clazz) {
+  public <T> T getById(String objectRef, Class<T> clazz) {
 
-    RemoteObject remoteObject = (RemoteObject) this.getObject(objectRef);
+    RemoteObject remoteObject = manager.getRemoteObject(objectRef);
 
     if (remoteObject == null) {
 
       clazz = obtainConcreteClass(objectRef, clazz);
 
-      remoteObject = new RemoteObject(objectRef, clazz.getSimpleName(), this);
+      // The object is published only when its proxy is ready. If another thread has published
+      // the same reference meanwhile, its object is used and this one is discarded.
+      RemoteObject newRemoteObject =
+          new RemoteObject(objectRef, clazz.getSimpleName(), true, this, false);
+
+      RemoteObjectInvocationHandler.newProxy(newRemoteObject, this, clazz);
 
-      RemoteObjectInvocationHandler.newProxy(remoteObject, this, clazz);
+      remoteObject = manager.registerObjectIfAbsent(objectRef, newRemoteObject);
+      if (remoteObject == null) {
+        remoteObject = newRemoteObject;
+      }
     }
 
     return (T) remoteObject.getKurentoObject();
@@ -145,7 +162,7 @@ public class RomManager implements ObjectRefsManager {
     }
   }
 
-  public synchronized void registerObject(String objectRef, RemoteObject remoteObject) {
+  public void registerObject(String objectRef, RemoteObject remoteObject) {
     this.manager.registerObject(objectRef, remoteObject);
   }
 
@@ -186,6 +203,88 @@ public class RomManager implements ObjectRefsManager {
     });
   }
 
+  /**
+   * Releases several objects with one request. Objects contained in other objects of the set (the
+   * elements of a released pipeline) are released by the server with their container, so no
+   * request is sent for them. Local objects contained in released ones are dropped too.
+   */
+  public void release(Collection<? extends KurentoObject> objects) {
+    Set<String> objectRefs = new HashSet<>();
+    List<Operation> operations = createReleaseOperations(objects, objectRefs);
+    if (!operations.isEmpty()) {
+      transaction(operations);
+    }
+    manager.releaseObjects(objectRefs);
+  }
+
+  public void release(Collection<? extends KurentoObject> objects,
+      final Continuation<Void> cont) {
+
+    final Set<String> objectRefs = new HashSet<>();
+    List<Operation> operations = createReleaseOperations(objects, objectRefs);
+    for (Operation op : operations) {
+      op.setManager(this);
+    }
+
+    client.transaction(operations, new DefaultContinuation<Void>(cont) {
+      @Override
+      public void onSuccess(Void result) {
+        manager.releaseObjects(objectRefs);
+        try {
+          cont.onSuccess(null);
+        } catch (Exception e) {
+          log.warn("[Continuation] error invoking onSuccess implemented by client", e);
+        }
+      }
+    });
+  }
+
+  private List<Operation> createReleaseOperations(Collection<? extends KurentoObject> objects,
+      Set<String> objectRefs) {
+
+    for (KurentoObject object : objects) {
+      objectRefs.add(RemoteObjectInvocationHandler.getFor(object).getRemoteObject().getObjectRef());
+    }
+
+    List<Operation> operations = new ArrayList<>(objects.size());
+    for (KurentoObject object : objects) {
+      String objectRef =
+          RemoteObjectInvocationHandler.getFor(object).getRemoteObject().getObjectRef();
+      String containerRef = RomClientObjectManager.getContainerRef(objectRef);
+      if (containerRef == null || !objectRefs.contains(containerRef)) {
+        operations.add(new ReleaseOperation(object, false));
+      }
+    }
+    return operations;
+  }
+
+  /**
+   * Subscribes again, in one transaction, to the events listened to by local objects. It is used
+   * when the client reconnects with a new session, which has lost the subscriptions of the old
+   * one. Listeners are kept, and they receive events from the new subscriptions.
+   */
+  public void renewSubscriptions() {
+
+    List<Operation> operations = new ArrayList<>();
+    for (RemoteObject object : manager.getRemoteObjects()) {
+      for (String eventType : object.getSubscribedEventTypes()) {
+        operations.add(new RenewSubscriptionOperation(object, eventType));
+      }
+    }
+
+    if (operations.isEmpty()) {
+      return;
+    }
+
+    log.debug("Renewing {} event subscriptions", operations.size());
+
+    for (Operation op : operations) {
+      op.setManager(this);
+    }
+    client.transaction(operations,
+        new ErrorLogContinuation<Void>("Error renewing event subscriptions"));
+  }
+
   public String subscribe(String objectRef, String eventType) {
     return client.subscribe(objectRef, eventType);
   }
@@ -231,7 +330,7 @@ public class RomManager implements ObjectRefsManager {
 
       @Override
       public void onError(Throwable cause) throws Exception {
-        transaction(operations, continuation);
+        continuation.onError(cause);
       }
     });
   }
@@ -240,7 +339,31 @@ public class RomManager implements ObjectRefsManager {
     return client;
   }
 
-  public synchronized RemoteObject createWithKurentoObject(Class<?> clazz, Props props,
+  /**
+   * Discards the cached immutable properties of all objects, so they are read again from the media
+   * server. Called when the client is connected to a different media server.
+   */
+  public void clearPropertyCaches() {
+    manager.clearPropertyCaches();
+  }
+
+  public Executor getCompletionExecutor() {
+    return completionExecutor;
+  }
+
+  /**
+   * Sets the executor where the stages returned by asynchronous methods are completed. If null,
+   * they are completed in the thread that receives the response.
+   */
+  public void setCompletionExecutor(Executor completionExecutor) {
+    this.completionExecutor = completionExecutor;
+  }
+
+  public <T> CompletionContinuation<T> newCompletion() {
+    return new CompletionContinuation<>(completionExecutor);
+  }
+
+  public RemoteObject createWithKurentoObject(Class<?> clazz, Props props,
       Props genericProps, Transaction transaction) {
 
     RemoteObject remoteObject = this.create(clazz.getSimpleName(), props, genericProps,
@@ -251,7 +374,7 @@ public class RomManager implements ObjectRefsManager {
     return remoteObject;
   }
 
-  public synchronized RemoteObject createWithKurentoObject(Class<?> clazz, Props props,
+  public RemoteObject createWithKurentoObject(Class<?> clazz, Props props,
       Props genericProps) {
 
     RemoteObject remoteObject = this.create(clazz.getSimpleName(), props, genericProps);
@@ -0,0 +1,78 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.client.internal.client;
+
+import org.kurento.client.Event;
+import org.kurento.client.EventListener;
+import org.kurento.jsonrpc.Props;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Listener registered in a {@link RemoteObject} on behalf of a user {@link EventListener}. The
+ * event is built from the raw params by {@link RemoteObject#fireEvent(String, Props)}, that shares
+ * it among all the listeners of the same event class.
+ */
+class TypedEventListener implements RemoteObjectEventListener {
+
+  private static final Logger log = LoggerFactory.getLogger(TypedEventListener.class);
+
+  private final Class<? extends Event> eventClass;
+  private final EventListener<?> listener;
+  private final RomManager manager;
+
+  TypedEventListener(Class<? extends Event> eventClass, EventListener<?> listener,
+      RomManager manager) {
+    this.eventClass = eventClass;
+    this.listener = listener;
+    this.manager = manager;
+  }
+
+  Class<? extends Event> getEventClass() {
+    return eventClass;
+  }
+
+  Event createEvent(Props data) {
+    try {
+      return EventPlan.get(eventClass).newEvent(data, manager);
+    } catch (Exception e) {
+      log.error("Exception while processing event '" + eventClass.getSimpleName()
+          + "' with params '" + data + "'", e);
+      return null;
+    }
+  }
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  void onEvent(Event event) {
+    ((EventListener) listener).onEvent(event);
+  }
+
+  @Override
+  public void onEvent(String eventType, Props data) {
+    Event event = createEvent(data);
+    if (event != null) {
+      onEvent(event);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "[" + eventClass.getSimpleName() + " listener: " + listener + "]";
+  }
+
+}
@@ -29,6 +29,7 @@ public class MediaObjectCreationOperation extends Operation {
   public Props constructorParams;
   private Props genericProps;
   private RemoteObject remoteObject;
+  private volatile String executedObjectRef;
 
   public MediaObjectCreationOperation(String className, Props constructorParams, Props genericProps,
       RemoteObject remoteObject) {
@@ -59,4 +60,23 @@ public class MediaObjectCreationOperation extends Operation {
     super.rollback(ex);
     remoteObject.rollbackTransaction(ex);
   }
+
+  @Override
+  public void rollbackExecuted(TransactionExecutionException ex, Object response) {
+    rollback(ex);
+    executedObjectRef = (String) response;
+  }
+
+  public RemoteObject getRemoteObject() {
+    return remoteObject;
+  }
+
+  /**
+   * @return the reference of the object created by the media server although the transaction
+   *         failed, or null. The local object is rolled back, so the server one has to be released
+   *         by the creator of the transaction
+   */
+  public String getExecutedObjectRef() {
+    return executedObjectRef;
+  }
 }
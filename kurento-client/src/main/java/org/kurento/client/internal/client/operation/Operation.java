@@ -29,7 +29,15 @@ public abstract class Operation {
 
   protected RomManager manager;
   protected TFutureImpl<Object> future;
+  private volatile boolean executed;
 
+  /**
+   * Creates the request of this operation in the transaction. It is called when the transaction
+   * is committed.
+   *
+   * @return the request, or null if the operation is resolved locally. In that case,
+   *         {@link #processResponse(Object)} is called with null when the transaction succeeds
+   */
   public abstract RequestAndResponseType createRequest(
       RomClientJsonRpcClient romClientJsonRpcClient);
 
@@ -37,6 +45,18 @@ public abstract class Operation {
     this.manager = manager;
   }
 
+  public void setExecuted(boolean executed) {
+    this.executed = executed;
+  }
+
+  /**
+   * @return true if the media server has answered this operation without error, even if its
+   *         transaction has failed because of other operation
+   */
+  public boolean isExecuted() {
+    return executed;
+  }
+
   public TFutureImpl<Object> getFuture() {
     if (future == null) {
       future = new TFutureImpl<>(this);
@@ -62,6 +82,19 @@ public abstract class Operation {
     }
   }
 
+  /**
+   * Called instead of {@link #rollback(TransactionExecutionException)} when other operation of the
+   * transaction fails but the media server executed this one. The operation is rolled back in the
+   * client by default, although its effects remain in the server.
+   *
+   * @param response
+   *          the result of this operation, as it would be passed to
+   *          {@link #processResponse(Object)}
+   */
+  public void rollbackExecuted(TransactionExecutionException ex, Object response) {
+    rollback(ex);
+  }
+
   public abstract String getDescription();
 
   public abstract void processResponse(Object response);
@@ -24,9 +24,19 @@ import org.kurento.client.internal.transport.jsonrpc.RomClientJsonRpcClient.Requ
 public class ReleaseOperation extends Operation {
 
   private KurentoObject kurentoObject;
+  private final boolean dropLocally;
 
   public ReleaseOperation(KurentoObject mediaObject) {
+    this(mediaObject, true);
+  }
+
+  /**
+   * @param dropLocally
+   *          false if the local object is dropped by the caller when the transaction succeeds
+   */
+  public ReleaseOperation(KurentoObject mediaObject, boolean dropLocally) {
     this.kurentoObject = mediaObject;
+    this.dropLocally = dropLocally;
   }
 
   @Override
@@ -37,7 +47,10 @@ public class ReleaseOperation extends Operation {
 
   @Override
   public void processResponse(Object response) {
-    manager.release(getObjectRef(kurentoObject));
+    // The object has already been released in the server by this operation
+    if (dropLocally) {
+      manager.getObjectManager().releaseObject(getObjectRef(kurentoObject));
+    }
   }
 
   @Override
@@ -0,0 +1,94 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.client.internal.client.operation;
+
+import org.kurento.client.Continuation;
+import org.kurento.client.TransactionExecutionException;
+import org.kurento.client.internal.client.ErrorLogContinuation;
+import org.kurento.client.internal.client.RemoteObject;
+import org.kurento.client.internal.transport.jsonrpc.RomClientJsonRpcClient;
+import org.kurento.client.internal.transport.jsonrpc.RomClientJsonRpcClient.RequestAndResponseType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Subscribes again to an event type whose listeners are kept in the client, after the session
+ * holding the original subscription has been lost.
+ */
+public class RenewSubscriptionOperation extends Operation {
+
+  private static final Logger log = LoggerFactory.getLogger(RenewSubscriptionOperation.class);
+
+  private final RemoteObject remoteObject;
+  private final String eventType;
+
+  public RenewSubscriptionOperation(RemoteObject remoteObject, String eventType) {
+    this.remoteObject = remoteObject;
+    this.eventType = eventType;
+  }
+
+  @Override
+  public RequestAndResponseType createRequest(RomClientJsonRpcClient romClientJsonRpcClient) {
+    return romClientJsonRpcClient.createSubscribeRequest(remoteObject.getObjectRef(), eventType);
+  }
+
+  @Override
+  public void processResponse(Object response) {
+    renew((String) response);
+  }
+
+  @Override
+  public void rollbackExecuted(TransactionExecutionException ex, Object response) {
+    // Other operation of the transaction has failed, but this subscription has been created
+    super.rollback(ex);
+    renew((String) response);
+  }
+
+  @Override
+  public void rollback(TransactionExecutionException ex) {
+    super.rollback(ex);
+
+    // This subscription has failed, so it is retried on its own
+    manager.subscribe(remoteObject.getObjectRef(), eventType, new Continuation<String>() {
+      @Override
+      public void onSuccess(String subscriptionId) {
+        renew(subscriptionId);
+      }
+
+      @Override
+      public void onError(Throwable cause) {
+        log.warn("Error renewing subscription to event {} in object {}", eventType,
+            remoteObject.getObjectRef(), cause);
+      }
+    });
+  }
+
+  private void renew(String subscriptionId) {
+    if (!remoteObject.renewSubscription(eventType, subscriptionId)) {
+      manager.unsubscribe(remoteObject.getObjectRef(), subscriptionId,
+          new ErrorLogContinuation<Void>("Error releasing unused subscription"));
+    }
+  }
+
+  @Override
+  public String getDescription() {
+    return "Renewal of event subscription of type " + eventType + " in object '"
+        + remoteObject.getObjectRef() + "'";
+  }
+
+}
@@ -27,14 +27,18 @@ public class SubscriptionOperation extends Operation {
 
   private KurentoObject kurentoObject;
   private String eventType;
-  private RemoteObjectEventListener listener;
   private ListenerSubscriptionImpl listenerSubscription;
 
+  /**
+   * True if the object was already subscribed to the event type when the transaction was
+   * committed. The listener is added to that subscription without any request.
+   */
+  private Boolean shared;
+
   public SubscriptionOperation(KurentoObject object, String eventType,
       RemoteObjectEventListener listener) {
     this.kurentoObject = object;
     this.eventType = eventType;
-    this.listener = listener;
     this.listenerSubscription = new ListenerSubscriptionImpl(eventType, listener);
   }
 
@@ -45,14 +49,20 @@ public class SubscriptionOperation extends Operation {
   @Override
   public RequestAndResponseType createRequest(RomClientJsonRpcClient romClientJsonRpcClient) {
 
+    if (shared == null) {
+      shared = getRemoteObject(kurentoObject).getSubscriptionId(eventType) != null;
+    }
+
+    if (shared) {
+      return null;
+    }
+
     return romClientJsonRpcClient.createSubscribeRequest(getObjectRef(kurentoObject), eventType);
   }
 
   @Override
   public void processResponse(Object response) {
-
-    listenerSubscription.setSubscription((String) response);
-    getRemoteObject(kurentoObject).addEventListener(eventType, listener);
+    getRemoteObject(kurentoObject).addSubscribedListener(listenerSubscription, (String) response);
   }
 
   @Override
@@ -18,7 +18,9 @@
 package org.kurento.client.internal.client.operation;
 
 import org.kurento.client.KurentoObject;
+import org.kurento.client.TransactionExecutionException;
 import org.kurento.client.internal.client.ListenerSubscriptionImpl;
+import org.kurento.client.internal.client.RemoteObject;
 import org.kurento.client.internal.transport.jsonrpc.RomClientJsonRpcClient;
 import org.kurento.client.internal.transport.jsonrpc.RomClientJsonRpcClient.RequestAndResponseType;
 
@@ -27,6 +29,17 @@ public class UnsubscriptionOperation extends Operation {
   private KurentoObject kurentoObject;
   private ListenerSubscriptionImpl listenerSubscription;
 
+  /**
+   * True if the listener was the last one of its event type when the transaction was committed,
+   * so the server subscription has to be released.
+   */
+  private Boolean last;
+
+  /**
+   * Server subscription the listener was receiving events from.
+   */
+  private String subscriptionId;
+
   public UnsubscriptionOperation(KurentoObject kurentoObject,
       ListenerSubscriptionImpl listenerSubscription) {
     this.listenerSubscription = listenerSubscription;
@@ -44,8 +57,26 @@ public class UnsubscriptionOperation extends Operation {
   @Override
   public RequestAndResponseType createRequest(RomClientJsonRpcClient romClientJsonRpcClient) {
 
+    if (last == null) {
+      RemoteObject remoteObject = getRemoteObject(kurentoObject);
+      subscriptionId = remoteObject.getSubscriptionId(listenerSubscription);
+      last = remoteObject.removeListener(listenerSubscription);
+    }
+
+    if (!last) {
+      return null;
+    }
+
     return romClientJsonRpcClient.createUnsubscribeRequest(getObjectRef(kurentoObject),
-        listenerSubscription.getSubscriptionId());
+        subscriptionId);
+  }
+
+  @Override
+  public void rollback(TransactionExecutionException ex) {
+    super.rollback(ex);
+    if (last != null) {
+      getRemoteObject(kurentoObject).addSubscribedListener(listenerSubscription, subscriptionId);
+    }
   }
 
   @Override
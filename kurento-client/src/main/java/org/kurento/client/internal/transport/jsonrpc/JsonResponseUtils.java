@@ -33,12 +33,18 @@ import com.google.gson.JsonPrimitive;
 
 public class JsonResponseUtils {
 
+  @SuppressWarnings("unchecked")
   public static <E> E convertFromResult(JsonElement result, Type type) {
 
     if (type == Void.class || type == void.class) {
       return null;
     }
 
+    if (type == JsonElement.class) {
+      // Raw result, decoded by the caller
+      return (E) result;
+    }
+
     JsonElement extractResult = extractValueFromResponse(result, type);
 
     return JsonUtils.fromJson(extractResult, type);
@@ -43,8 +43,12 @@ import static org.kurento.client.internal.transport.jsonrpc.RomJsonRpcConstants.
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.kurento.client.AdaptiveConcurrencyLimiter;
 import org.kurento.client.Continuation;
 import org.kurento.client.TransactionExecutionException;
 import org.kurento.client.internal.client.DefaultContinuation;
@@ -54,6 +58,7 @@ import org.kurento.client.internal.client.operation.Operation;
 import org.kurento.client.internal.server.KurentoServerException;
 import org.kurento.client.internal.server.KurentoServerTransportException;
 import org.kurento.client.internal.transport.serialization.ParamsFlattener;
+import org.kurento.commons.exception.KurentoException;
 import org.kurento.jsonrpc.DefaultJsonRpcHandler;
 import org.kurento.jsonrpc.JsonRpcErrorException;
 import org.kurento.jsonrpc.JsonUtils;
@@ -87,9 +92,23 @@ public class RomClientJsonRpcClient implements RomClient {
   private static final Logger log = LoggerFactory.getLogger(RomClientJsonRpcClient.class);
 
   private final JsonRpcClient client;
+  private final AdaptiveConcurrencyLimiter limiter;
 
   public RomClientJsonRpcClient(JsonRpcClient client) {
+    this(client, null);
+  }
+
+  /**
+   * @param limiter
+   *          limits the requests in flight to the server. If null, requests are not limited
+   */
+  public RomClientJsonRpcClient(JsonRpcClient client, AdaptiveConcurrencyLimiter limiter) {
     this.client = client;
+    this.limiter = limiter;
+  }
+
+  public AdaptiveConcurrencyLimiter getConcurrencyLimiter() {
+    return limiter;
   }
 
   // Operations
@@ -216,18 +235,83 @@ public class RomClientJsonRpcClient implements RomClient {
     }
   }
 
-  @SuppressWarnings("unchecked")
-  private <P, R> R sendRequest(Request<JsonObject> request, final Type responseType,
+  private <P, R> R sendRequest(final Request<JsonObject> request, final Type responseType,
       final Function<P, R> processor, final Continuation<R> cont) {
 
-    try {
+    if (cont == null) {
 
-      if (cont == null) {
+      if (limiter == null) {
+        return processReqResult(responseType, processor, sendSyncRequest(request));
+      }
 
-        return processReqResult(responseType, processor,
-            client.sendRequest(request.getMethod(), request.getParams(), JsonElement.class));
+      JsonElement reqResult;
+      long start = limiter.acquire();
+      boolean dropped = true;
+      try {
+        reqResult = sendSyncRequest(request);
+        dropped = false;
+      } catch (KurentoServerException e) {
+        dropped = false;
+        throw e;
+      } finally {
+        limiter.release(start, dropped);
+      }
+      return processReqResult(responseType, processor, reqResult);
+    }
+
+    if (limiter == null) {
+      sendAsyncRequest(request, responseType, processor, cont, -1);
+      return null;
+    }
 
+    Runnable queued = new Runnable() {
+      @Override
+      public void run() {
+        try {
+          sendAsyncRequest(request, responseType, processor, cont, System.nanoTime());
+        } catch (KurentoException e) {
+          try {
+            cont.onError(e);
+          } catch (Exception ex) {
+            log.warn("[Continuation] error invoking onError implemented by client", ex);
+          }
+        }
       }
+    };
+
+    if (limiter.tryAcquire(queued)) {
+      sendAsyncRequest(request, responseType, processor, cont, System.nanoTime());
+    }
+
+    return null;
+  }
+
+  private JsonElement sendSyncRequest(Request<JsonObject> request) {
+    try {
+      return client.sendRequest(request.getMethod(), request.getParams(), JsonElement.class);
+    } catch (IOException e) {
+      String messageError = "Error connecting with server";
+      log.error(messageError, e);
+      throw new KurentoServerTransportException(messageError, e);
+    } catch (JsonRpcErrorException e) {
+      throw new KurentoServerException(e.getError());
+    }
+  }
+
+  /**
+   * Sends an asynchronous request. If the request has taken a slot of the limiter, it is released
+   * when the request finishes.
+   *
+   * @param start
+   *          the time the slot was taken, or -1 if the request is not limited
+   */
+  private <P, R> void sendAsyncRequest(Request<JsonObject> request, final Type responseType,
+      final Function<P, R> processor, final Continuation<R> cont, final long start) {
+
+    // The continuation may be called in this thread, before an exception is thrown
+    final AtomicBoolean released = new AtomicBoolean(start == -1);
+
+    try {
 
       client.sendRequest(request.getMethod(), request.getParams(),
           new org.kurento.jsonrpc.client.Continuation<JsonElement>() {
@@ -236,6 +320,8 @@ public class RomClientJsonRpcClient implements RomClient {
             @Override
             public void onSuccess(JsonElement reqResult) {
 
+              releaseSlot(released, start, false);
+
               R methodResult = processReqResult(responseType, processor, reqResult);
               try {
                 ((Continuation) cont).onSuccess(methodResult);
@@ -246,6 +332,9 @@ public class RomClientJsonRpcClient implements RomClient {
 
             @Override
             public void onError(Throwable cause) {
+
+              releaseSlot(released, start, !(cause instanceof JsonRpcErrorException));
+
               try {
                 cont.onError(cause);
               } catch (Exception e) {
@@ -254,14 +343,18 @@ public class RomClientJsonRpcClient implements RomClient {
             }
           });
 
-      return null;
-
-    } catch (IOException e) {
-      String messageError = "Error connecting with server";
-      log.error(messageError, e);
-      throw new KurentoServerTransportException(messageError, e);
     } catch (JsonRpcErrorException e) {
+      releaseSlot(released, start, false);
       throw new KurentoServerException(e.getError());
+    } catch (RuntimeException e) {
+      releaseSlot(released, start, true);
+      throw e;
+    }
+  }
+
+  private void releaseSlot(AtomicBoolean released, long start, boolean dropped) {
+    if (released.compareAndSet(false, true)) {
+      limiter.release(start, dropped);
     }
   }
 
@@ -288,10 +381,8 @@ public class RomClientJsonRpcClient implements RomClient {
     params.addProperty(INVOKE_OPERATION_NAME, operationName);
 
     if (operationParams != null) {
-
-      Props flatParams = ParamsFlattener.getInstance().flattenParams(operationParams, inTx);
-
-      params.add(INVOKE_OPERATION_PARAMS, JsonUtils.toJsonObject(flatParams));
+      params.add(INVOKE_OPERATION_PARAMS,
+          ParamsFlattener.getInstance().flattenParamsAsJson(operationParams, inTx));
     }
 
     return new RequestAndResponseType(new Request<>(INVOKE_METHOD, params), type);
@@ -299,7 +390,8 @@ public class RomClientJsonRpcClient implements RomClient {
 
   public RequestAndResponseType createReleaseRequest(String objectRef) {
 
-    JsonObject params = JsonUtils.toJsonObject(new Props(RELEASE_OBJECT, objectRef));
+    JsonObject params = new JsonObject();
+    params.addProperty(RELEASE_OBJECT, objectRef);
 
     return new RequestAndResponseType(new Request<>(RELEASE_METHOD, params), Void.class);
   }
@@ -311,16 +403,13 @@ public class RomClientJsonRpcClient implements RomClient {
     params.addProperty(CREATE_TYPE, remoteClassName);
 
     if (constructorParams != null) {
-      Props flatParams = ParamsFlattener.getInstance().flattenParams(constructorParams, inTx);
-
-      params.add(CREATE_CONSTRUCTOR_PARAMS, JsonUtils.toJsonObject(flatParams));
+      params.add(CREATE_CONSTRUCTOR_PARAMS,
+          ParamsFlattener.getInstance().flattenParamsAsJson(constructorParams, inTx));
     }
 
     if (genericProps != null) {
-
-      Props flatProperties = ParamsFlattener.getInstance().flattenParams(genericProps, inTx);
-
-      params.add(CREATE_PROPERTIES, JsonUtils.toJsonObject(flatProperties));
+      params.add(CREATE_PROPERTIES,
+          ParamsFlattener.getInstance().flattenParamsAsJson(genericProps, inTx));
     }
 
     return new RequestAndResponseType(new Request<>(CREATE_METHOD, params), String.class);
@@ -328,8 +417,9 @@ public class RomClientJsonRpcClient implements RomClient {
 
   public RequestAndResponseType createSubscribeRequest(String objectRef, String eventType) {
 
-    JsonObject params = JsonUtils
-        .toJsonObject(new Props(SUBSCRIBE_OBJECT, objectRef).add(SUBSCRIBE_TYPE, eventType));
+    JsonObject params = new JsonObject();
+    params.addProperty(SUBSCRIBE_OBJECT, objectRef);
+    params.addProperty(SUBSCRIBE_TYPE, eventType);
 
     return new RequestAndResponseType(new Request<>(SUBSCRIBE_METHOD, params), String.class);
   }
@@ -337,8 +427,9 @@ public class RomClientJsonRpcClient implements RomClient {
   public RequestAndResponseType createUnsubscribeRequest(String objectRef,
       String listenerSubscription) {
 
-    JsonObject params = JsonUtils.toJsonObject(
-        new Props(UNSUBSCRIBE_OBJECT, objectRef).add(UNSUBSCRIBE_LISTENER, listenerSubscription));
+    JsonObject params = new JsonObject();
+    params.addProperty(UNSUBSCRIBE_OBJECT, objectRef);
+    params.addProperty(UNSUBSCRIBE_LISTENER, listenerSubscription);
 
     return new RequestAndResponseType(new Request<>(UNSUBSCRIBE_METHOD, params), Void.class);
   }
@@ -355,13 +446,30 @@ public class RomClientJsonRpcClient implements RomClient {
     JsonArray opJsons = new JsonArray();
     final List<RequestAndResponseType> opReqres = new ArrayList<>();
 
-    int numReq = 0;
+    // Request ids are the positions of the operations, as they are used to reference the objects
+    // created in the transaction. Operations resolved locally have no request.
+    int numOp = 0;
     for (Operation op : operations) {
       RequestAndResponseType reqres = op.createRequest(this);
       opReqres.add(reqres);
-      reqres.request.setId(numReq);
-      opJsons.add(JsonUtils.toJsonElement(reqres.request));
-      numReq++;
+      if (reqres != null) {
+        reqres.request.setId(numOp);
+        opJsons.add(JsonUtils.toJsonElement(reqres.request));
+      }
+      numOp++;
+    }
+
+    if (opJsons.size() == 0) {
+      processTransactionResponse(operations, opReqres,
+          Collections.<Response<JsonElement>> emptyList());
+      if (continuation != null) {
+        try {
+          continuation.onSuccess(null);
+        } catch (Exception e) {
+          log.warn("[Continuation] error invoking OnSuccess implemented by client", e);
+        }
+      }
+      return;
     }
 
     JsonObject params = new JsonObject();
@@ -373,7 +481,12 @@ public class RomClientJsonRpcClient implements RomClient {
       wrappedContinuation = new DefaultContinuation<List<Response<JsonElement>>>(continuation) {
         @Override
         public void onSuccess(List<Response<JsonElement>> responses) throws Exception {
-          processTransactionResponse(operations, opReqres, responses);
+          try {
+            processTransactionResponse(operations, opReqres, responses);
+          } catch (TransactionExecutionException e) {
+            onError(e);
+            return;
+          }
           continuation.onSuccess(null);
         }
       };
@@ -393,20 +506,31 @@ public class RomClientJsonRpcClient implements RomClient {
 
     TransactionExecutionException ex = null;
 
+    // Responses only include the operations with request
+    List<Response<JsonElement>> opResponses = new ArrayList<>(operations.size());
+    Iterator<Response<JsonElement>> it = responses.iterator();
     for (int i = 0; i < operations.size(); i++) {
-      Operation op = operations.get(i);
-      Response<JsonElement> response = responses.get(i);
-      if (response.isError()) {
-        ex = new TransactionExecutionException(op, response.getError());
-        break;
+      Response<JsonElement> response = opReqres.get(i) != null && it.hasNext() ? it.next() : null;
+      opResponses.add(response);
+      operations.get(i).setExecuted(response != null && !response.isError());
+      if (ex == null && response != null && response.isError()) {
+        ex = new TransactionExecutionException(operations.get(i), response.getError());
       }
     }
 
     if (ex != null) {
 
+      // Operations answered without error have been executed by the media server anyway
       for (int i = 0; i < operations.size(); i++) {
         Operation op = operations.get(i);
-        op.rollback(ex);
+        Response<JsonElement> response = opResponses.get(i);
+        if (response == null || response.isError()) {
+          op.rollback(ex);
+        } else {
+          RequestAndResponseType reqres = opReqres.get(i);
+          op.rollbackExecuted(ex,
+              processReqResult(reqres.responseType, null, response.getResult()));
+        }
       }
 
       throw ex;
@@ -415,9 +539,13 @@ public class RomClientJsonRpcClient implements RomClient {
 
       for (int i = 0; i < operations.size(); i++) {
         Operation op = operations.get(i);
-        Response<JsonElement> response = responses.get(i);
-        RequestAndResponseType reqres = opReqres.get(i);
-        op.processResponse(processReqResult(reqres.responseType, null, response.getResult()));
+        Response<JsonElement> response = opResponses.get(i);
+        if (response == null) {
+          op.processResponse(null);
+        } else {
+          RequestAndResponseType reqres = opReqres.get(i);
+          op.processResponse(processReqResult(reqres.responseType, null, response.getResult()));
+        }
       }
     }
   }
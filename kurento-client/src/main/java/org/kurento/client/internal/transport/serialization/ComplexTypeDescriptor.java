@@ -0,0 +1,134 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.client.internal.transport.serialization;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.kurento.client.internal.ModuleName;
+import org.kurento.client.internal.ParamAnnotationUtils;
+
+/**
+ * Reflective information used by {@link ParamsFlattener} to flatten and unflatten instances of a
+ * complex type: bean getters, the annotated constructor and the names and types of its params. It
+ * only depends on the class, so it is computed once and cached with the class.
+ */
+final class ComplexTypeDescriptor {
+
+  private static final ClassValue<ComplexTypeDescriptor> DESCRIPTORS =
+      new ClassValue<ComplexTypeDescriptor>() {
+        @Override
+        protected ComplexTypeDescriptor computeValue(Class<?> type) {
+          return new ComplexTypeDescriptor(type);
+        }
+      };
+
+  final String typeName;
+  final String moduleName;
+
+  /** Getters of the bean properties, in the same order as {@link #propNames}. */
+  final Method[] getters;
+  final String[] propNames;
+
+  private final Class<?> clazz;
+  private volatile ConstructorInfo constructorInfo;
+
+  static final class ConstructorInfo {
+
+    final Constructor<?> constructor;
+    final String[] paramNames;
+
+    /** Param types, keeping generic types to know the type of list and map elements. */
+    final Type[] paramTypes;
+
+    private ConstructorInfo(Class<?> clazz) {
+
+      this.constructor = clazz.getConstructors()[0];
+
+      Class<?>[] rawTypes = constructor.getParameterTypes();
+      Type[] genericTypes = constructor.getGenericParameterTypes();
+      this.paramTypes = new Type[rawTypes.length];
+      for (int i = 0; i < paramTypes.length; i++) {
+        paramTypes[i] =
+            genericTypes[i] instanceof ParameterizedType ? genericTypes[i] : rawTypes[i];
+      }
+
+      List<String> names = ParamAnnotationUtils.getParamNames(constructor);
+      this.paramNames = names.toArray(new String[names.size()]);
+    }
+  }
+
+  static ComplexTypeDescriptor get(Class<?> clazz) {
+    return DESCRIPTORS.get(clazz);
+  }
+
+  private ComplexTypeDescriptor(Class<?> clazz) {
+
+    this.clazz = clazz;
+    this.typeName = clazz.getSimpleName();
+
+    ModuleName name = clazz.getAnnotation(ModuleName.class);
+    this.moduleName = name != null ? name.value() : null;
+
+    List<Method> getterList = new ArrayList<>();
+    List<String> propNameList = new ArrayList<>();
+
+    for (Method method : clazz.getMethods()) {
+
+      if (method.getParameterTypes().length != 0 || Modifier.isStatic(method.getModifiers())) {
+        continue;
+      }
+
+      String propName = null;
+
+      String methodName = method.getName();
+      if (methodName.startsWith("is")) {
+        propName = methodName.substring(2, methodName.length());
+      } else if (methodName.startsWith("get") && !methodName.equals("getClass")) {
+        propName = methodName.substring(3, methodName.length());
+      }
+
+      if (propName != null && !propName.isEmpty()) {
+        getterList.add(method);
+        propNameList.add(Character.toLowerCase(propName.charAt(0)) + propName.substring(1));
+      }
+    }
+
+    this.getters = getterList.toArray(new Method[getterList.size()]);
+    this.propNames = propNameList.toArray(new String[propNameList.size()]);
+  }
+
+  /**
+   * Constructor info is only needed when unflattening, and not all flattened classes (i.e. server
+   * side results) have an annotated constructor, so it is computed lazily.
+   */
+  ConstructorInfo getConstructorInfo() {
+    ConstructorInfo info = constructorInfo;
+    if (info == null) {
+      info = new ConstructorInfo(clazz);
+      constructorInfo = info;
+    }
+    return info;
+  }
+
+}
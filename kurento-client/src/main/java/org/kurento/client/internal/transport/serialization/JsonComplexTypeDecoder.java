@@ -0,0 +1,269 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.client.internal.transport.serialization;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.kurento.client.internal.server.ProtocolException;
+import org.kurento.client.internal.transport.serialization.ComplexTypeDescriptor.ConstructorInfo;
+import org.kurento.jsonrpc.JsonUtils;
+import org.kurento.jsonrpc.Props;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * Decodes values received from the server directly from their JSON representation, without
+ * converting them to {@link Props} first. Complex values are created with the class indicated by
+ * their <code>__module__</code> and <code>__type__</code> properties, so polymorphic values (as
+ * the ones returned by getStats) get their concrete class.
+ *
+ * The decoder can be restricted to some complex types. Map entries and list elements whose type is
+ * not accepted are skipped before decoding any of their properties. Instances are cheap and not
+ * thread safe, so a new one is used for each result.
+ */
+public class JsonComplexTypeDecoder {
+
+  private static final String VALUE_PROPERTY = "value";
+
+  private static final ClassValue<Map<String, Object>> ENUM_CONSTANTS =
+      new ClassValue<Map<String, Object>>() {
+        @Override
+        protected Map<String, Object> computeValue(Class<?> type) {
+          Map<String, Object> constants = new HashMap<>();
+          for (Object constant : type.getEnumConstants()) {
+            constants.put(constant.toString(), constant);
+          }
+          return constants;
+        }
+      };
+
+  private final ParamsFlattener flattener = ParamsFlattener.getInstance();
+  private final ObjectRefsManager manager;
+  private final Class<?>[] acceptedTypes;
+  private final Map<Class<?>, Boolean> acceptedCache = new IdentityHashMap<>();
+
+  /**
+   * @param manager
+   *          used to resolve references to remote objects
+   * @param acceptedTypes
+   *          complex types to decode (subclasses included). If empty, all types are decoded
+   */
+  public JsonComplexTypeDecoder(ObjectRefsManager manager, Class<?>... acceptedTypes) {
+    this.manager = manager;
+    this.acceptedTypes = acceptedTypes;
+  }
+
+  /**
+   * Decodes a value returned by the server. Values wrapped in an object with a
+   * <code>value</code> property are unwrapped.
+   */
+  public Object decodeResult(JsonElement result, Type type) {
+
+    if (result != null && result.isJsonObject()) {
+      JsonObject object = result.getAsJsonObject();
+      if (object.size() == 1 && object.has(VALUE_PROPERTY)) {
+        result = object.get(VALUE_PROPERTY);
+      }
+    }
+
+    return decode("return", result, type);
+  }
+
+  public Object decode(String name, JsonElement json, Type type) {
+
+    if (json == null || json.isJsonNull()) {
+      return defaultValue(type);
+    }
+
+    if (type instanceof Class) {
+
+      Class<?> clazz = (Class<?>) type;
+
+      if (json.isJsonPrimitive()) {
+        return decodePrimitive(name, json.getAsJsonPrimitive(), clazz);
+      } else if (json.isJsonObject() && isComplexClass(clazz)) {
+        return decodeComplexType(name, json.getAsJsonObject(), clazz);
+      }
+
+    } else if (type instanceof ParameterizedType) {
+
+      ParameterizedType paramType = (ParameterizedType) type;
+      Class<?> rawType = (Class<?>) paramType.getRawType();
+
+      if (rawType.isAssignableFrom(List.class) && json.isJsonArray()) {
+        return decodeList(name, json.getAsJsonArray(), paramType.getActualTypeArguments()[0]);
+      } else if (rawType.isAssignableFrom(Map.class) && json.isJsonObject()) {
+        return decodeMap(name, json.getAsJsonObject(), paramType.getActualTypeArguments()[1]);
+      }
+    }
+
+    // Other shapes are decoded by the generic Props based path
+    JsonObject wrapper = new JsonObject();
+    wrapper.add(VALUE_PROPERTY, json);
+    Object value = JsonUtils.fromJson(wrapper, Props.class).getProp(VALUE_PROPERTY);
+    return flattener.unflattenValue(name, type, value, manager);
+  }
+
+  private boolean isComplexClass(Class<?> clazz) {
+    return !clazz.isPrimitive() && !clazz.isEnum() && clazz != Object.class
+        && clazz != String.class && clazz != Boolean.class && !Number.class.isAssignableFrom(clazz)
+        && !Props.class.isAssignableFrom(clazz) && !Map.class.isAssignableFrom(clazz)
+        && !List.class.isAssignableFrom(clazz) && !flattener.isRemoteClass(clazz);
+  }
+
+  private Object decodePrimitive(String name, JsonPrimitive json, Class<?> clazz) {
+
+    if (clazz == String.class) {
+      return json.getAsString();
+    } else if (clazz == Integer.class || clazz == int.class) {
+      return json.getAsInt();
+    } else if (clazz == Long.class || clazz == long.class) {
+      return json.getAsLong();
+    } else if (clazz == Float.class || clazz == float.class) {
+      return json.getAsFloat();
+    } else if (clazz == Double.class || clazz == double.class) {
+      return json.getAsDouble();
+    } else if (clazz == Boolean.class || clazz == boolean.class) {
+      return json.getAsBoolean();
+    } else if (clazz == Number.class) {
+      return json.getAsNumber();
+    } else if (clazz.isEnum()) {
+      Object constant = ENUM_CONSTANTS.get(clazz).get(json.getAsString());
+      if (constant == null) {
+        throw new ProtocolException(
+            "Enum '" + json.getAsString() + "' not found in enumType '" + clazz + "'");
+      }
+      return constant;
+    } else {
+      // Reference to a remote object
+      return flattener.unflattenValue(name, clazz, json.getAsString(), manager);
+    }
+  }
+
+  private Object decodeComplexType(String name, JsonObject json, Class<?> clazz) {
+
+    Class<?> concreteClass = getConcreteClass(json, clazz);
+
+    ConstructorInfo info = ComplexTypeDescriptor.get(concreteClass).getConstructorInfo();
+
+    Object[] params = new Object[info.paramTypes.length];
+    for (int i = 0; i < params.length; i++) {
+      String paramName = info.paramNames[i];
+      params[i] = decode(paramName, json.get(paramName), info.paramTypes[i]);
+    }
+
+    try {
+      return info.constructor.newInstance(params);
+    } catch (Exception e) {
+      throw new ProtocolException("Exception while creating an object for the class '"
+          + concreteClass.getSimpleName() + "' in param '" + name + "'", e);
+    }
+  }
+
+  private List<Object> decodeList(String name, JsonArray json, Type elementType) {
+
+    List<Object> list = new ArrayList<>(json.size());
+    for (JsonElement element : json) {
+      if (isAccepted(element, elementType)) {
+        list.add(decode(name, element, elementType));
+      }
+    }
+    return list;
+  }
+
+  private Map<String, Object> decodeMap(String name, JsonObject json, Type valueType) {
+
+    Map<String, Object> map = new HashMap<>();
+    for (Entry<String, JsonElement> e : json.entrySet()) {
+      if (isAccepted(e.getValue(), valueType)) {
+        map.put(e.getKey(), decode(e.getKey(), e.getValue(), valueType));
+      }
+    }
+    return map;
+  }
+
+  private Class<?> getConcreteClass(JsonObject json, Class<?> declaredClass) {
+
+    JsonElement module = json.get(ParamsFlattener.MODULE_PROPERTY);
+    JsonElement type = json.get(ParamsFlattener.TYPE_PROPERTY);
+
+    if (module != null && type != null) {
+      return flattener.getClassFor(module.getAsString(), type.getAsString());
+    }
+
+    return declaredClass;
+  }
+
+  private boolean isAccepted(JsonElement json, Type declaredType) {
+
+    if (acceptedTypes.length == 0 || !(declaredType instanceof Class) || !json.isJsonObject()) {
+      return true;
+    }
+
+    Class<?> clazz = getConcreteClass(json.getAsJsonObject(), (Class<?>) declaredType);
+
+    Boolean accepted = acceptedCache.get(clazz);
+    if (accepted == null) {
+      accepted = false;
+      for (Class<?> acceptedType : acceptedTypes) {
+        if (acceptedType.isAssignableFrom(clazz)) {
+          accepted = true;
+          break;
+        }
+      }
+      acceptedCache.put(clazz, accepted);
+    }
+
+    return accepted;
+  }
+
+  private Object defaultValue(Type type) {
+
+    if (type == int.class) {
+      return 0;
+    } else if (type == long.class) {
+      return 0L;
+    } else if (type == float.class) {
+      return 0f;
+    } else if (type == double.class) {
+      return 0d;
+    } else if (type == boolean.class) {
+      return false;
+    } else if (type instanceof ParameterizedType) {
+      Class<?> rawType = (Class<?>) ((ParameterizedType) type).getRawType();
+      if (rawType.isAssignableFrom(List.class)) {
+        return new ArrayList<>();
+      } else if (rawType.isAssignableFrom(Map.class)) {
+        return new HashMap<>();
+      }
+    }
+
+    return null;
+  }
+
+}
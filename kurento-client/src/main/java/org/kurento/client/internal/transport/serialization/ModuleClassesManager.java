@@ -22,12 +22,19 @@ import java.lang.reflect.Method;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.kurento.client.internal.ModuleIndex;
 import org.kurento.client.internal.server.ProtocolException;
 
+/**
+ * Resolves the classes of the types received from the media server. Types of modules with a
+ * {@link ModuleIndex} are found in the index, and the rest are loaded by name from the package
+ * given by the {@code ModuleInfo} class of their module.
+ */
 public class ModuleClassesManager {
 
   private final ConcurrentHashMap<String, String> pkgNamesByModuleName = new ConcurrentHashMap<>();
-  private final ConcurrentHashMap<String, Class<?>> classesByClassName = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, ConcurrentHashMap<String, Class<?>>> classesByModule =
+      new ConcurrentHashMap<>();
 
   public Class<?> getClassFor(String fullyTypeName) {
     String[] parts = fullyTypeName.split("\\.");
@@ -39,25 +46,44 @@ public class ModuleClassesManager {
     Objects.requireNonNull(typeName, "typeName must not be null");
     Objects.requireNonNull(moduleName, "moduleName must not be null");
 
+    Class<?> indexed = ModuleIndex.findClass(moduleName, typeName);
+    if (indexed != null) {
+      return indexed;
+    }
+
+    ConcurrentHashMap<String, Class<?>> moduleClasses = classesByModule.get(moduleName);
+    if (moduleClasses != null) {
+      Class<?> clazz = moduleClasses.get(typeName);
+      if (clazz != null) {
+        return clazz;
+      }
+    }
+
     try {
 
       String packageName = pkgNamesByModuleName.get(moduleName);
 
       if (packageName == null) {
 
-        packageName = getPackageNameWithModuleInfoClass(moduleName);
+        packageName = ModuleIndex.findPackageName(moduleName);
+        if (packageName == null) {
+          packageName = getPackageNameWithModuleInfoClass(moduleName);
+        }
 
         pkgNamesByModuleName.put(moduleName, packageName);
       }
 
-      String className = packageName + "." + typeName;
-
-      Class<?> clazz = classesByClassName.get(className);
+      Class<?> clazz = Class.forName(packageName + "." + typeName);
 
-      if (clazz == null) {
-        clazz = Class.forName(className);
-        classesByClassName.put(className, clazz);
+      if (moduleClasses == null) {
+        moduleClasses = new ConcurrentHashMap<>();
+        ConcurrentHashMap<String, Class<?>> previous =
+            classesByModule.putIfAbsent(moduleName, moduleClasses);
+        if (previous != null) {
+          moduleClasses = previous;
+        }
       }
+      moduleClasses.put(typeName, clazz);
 
       return clazz;
 
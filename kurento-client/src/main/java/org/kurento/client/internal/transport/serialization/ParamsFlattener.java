@@ -18,9 +18,7 @@
 package org.kurento.client.internal.transport.serialization;
 
 import java.lang.annotation.Annotation;
-import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Proxy;
 import java.lang.reflect.Type;
@@ -31,23 +29,30 @@ import java.util.Map;
 import java.util.Map.Entry;
 
 import org.kurento.client.TransactionNotCommitedException;
-import org.kurento.client.internal.ModuleName;
 import org.kurento.client.internal.ParamAnnotationUtils;
 import org.kurento.client.internal.RemoteClass;
+import org.kurento.client.internal.client.AbstractRemoteObjectStub;
 import org.kurento.client.internal.client.RemoteObject;
 import org.kurento.client.internal.client.RemoteObjectInvocationHandler;
 import org.kurento.client.internal.client.RomManager;
 import org.kurento.client.internal.server.ProtocolException;
 import org.kurento.client.internal.server.RemoteObjectManager;
+import org.kurento.client.internal.transport.serialization.ComplexTypeDescriptor.ConstructorInfo;
 import org.kurento.jsonrpc.Prop;
 import org.kurento.jsonrpc.Props;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
 public class ParamsFlattener {
 
-  private static final String MODULE_PROPERTY = "__module__";
-  private static final String TYPE_PROPERTY = "__type__";
+  static final String MODULE_PROPERTY = "__module__";
+  static final String TYPE_PROPERTY = "__type__";
 
   private static final Logger log = LoggerFactory.getLogger(ParamsFlattener.class);
 
@@ -168,23 +173,10 @@ public class ParamsFlattener {
     }
 
     Object processedParam;
-    if (param instanceof RemoteObject) {
+    RemoteObject remoteObject = asRemoteObject(param);
+    if (remoteObject != null) {
 
-      processedParam = flattenRemoteObject((RemoteObject) param, inTx);
-
-    } else if (param instanceof Proxy) {
-
-      InvocationHandler handler = Proxy.getInvocationHandler(param);
-      if (handler instanceof RemoteObjectInvocationHandler) {
-
-        RemoteObjectInvocationHandler roHandler = (RemoteObjectInvocationHandler) handler;
-        processedParam = flattenRemoteObject(roHandler.getRemoteObject(), inTx);
-
-      } else {
-        throw new ProtocolException(
-            "Only proxies from remote objects are allowed, but found one with InvocationHandler "
-                + handler);
-      }
+      processedParam = flattenRemoteObject(remoteObject, inTx);
 
     } else if (param instanceof Enum<?>) {
       processedParam = param.toString();
@@ -202,6 +194,35 @@ public class ParamsFlattener {
     return processedParam;
   }
 
+  /**
+   * Returns the remote object referenced by a client object (a stub, a proxy or the remote object
+   * itself), or null if the param is not a client object.
+   */
+  private RemoteObject asRemoteObject(Object param) {
+
+    if (param instanceof RemoteObject) {
+
+      return (RemoteObject) param;
+
+    } else if (param instanceof AbstractRemoteObjectStub) {
+
+      return ((AbstractRemoteObjectStub) param).getRemoteObject();
+
+    } else if (param instanceof Proxy) {
+
+      InvocationHandler handler = Proxy.getInvocationHandler(param);
+      if (handler instanceof RemoteObjectInvocationHandler) {
+        return ((RemoteObjectInvocationHandler) handler).getRemoteObject();
+      } else {
+        throw new ProtocolException(
+            "Only proxies from remote objects are allowed, but found one with InvocationHandler "
+                + handler);
+      }
+    }
+
+    return null;
+  }
+
   private Object flattenRemoteObject(RemoteObject remoteObject, boolean inTx) {
     Object processedParam;
     if (!remoteObject.isCommited() && !inTx) {
@@ -213,6 +234,100 @@ public class ParamsFlattener {
     return processedParam;
   }
 
+  /**
+   * Flatten the parameter list following the same rules than {@link #flattenParams(Props, boolean)}
+   * but writing the values directly in a JSON object, ready to be sent to the server. This avoids
+   * creating an intermediate {@link Props} and converting it to JSON afterwards. As in the JSON
+   * serialization of Props, null properties are omitted.
+   *
+   * @param params
+   *          parameters
+   * @param inTx
+   *          if it is inside a transaction
+   * @return JSON object holding flattened params
+   */
+  public JsonObject flattenParamsAsJson(Props params, boolean inTx) {
+
+    if (params == null) {
+      return null;
+    }
+
+    JsonObject json = new JsonObject();
+    for (Prop prop : params) {
+      if (prop.getValue() != null) {
+        json.add(prop.getName(), flattenParamAsJson(prop.getValue(), inTx));
+      }
+    }
+    return json;
+  }
+
+  @SuppressWarnings("unchecked")
+  private JsonElement flattenParamAsJson(Object param, boolean inTx) {
+
+    if (param == null) {
+      return JsonNull.INSTANCE;
+    }
+
+    RemoteObject remoteObject = asRemoteObject(param);
+    if (remoteObject != null) {
+      return new JsonPrimitive((String) flattenRemoteObject(remoteObject, inTx));
+    } else if (param instanceof String) {
+      return new JsonPrimitive((String) param);
+    } else if (param instanceof Enum<?>) {
+      return new JsonPrimitive(param.toString());
+    } else if (param instanceof Boolean) {
+      return new JsonPrimitive((Boolean) param);
+    } else if (isPrimitive(param)) {
+      return new JsonPrimitive((Number) param);
+    } else if (param instanceof List<?>) {
+
+      List<?> list = (List<?>) param;
+      JsonArray array = new JsonArray();
+      for (Object element : list) {
+        array.add(flattenParamAsJson(element, inTx));
+      }
+      return array;
+
+    } else if (param instanceof Map<?, ?>) {
+
+      JsonObject json = new JsonObject();
+      for (Entry<String, ?> e : ((Map<String, ?>) param).entrySet()) {
+        if (e.getValue() != null) {
+          json.add(e.getKey(), flattenParamAsJson(e.getValue(), inTx));
+        }
+      }
+      return json;
+
+    } else if (param instanceof Props) {
+      return flattenParamsAsJson((Props) param, inTx);
+    } else {
+      return extractParamAsJson(param, inTx);
+    }
+  }
+
+  private JsonObject extractParamAsJson(Object param, boolean inTx) {
+
+    ComplexTypeDescriptor descriptor = ComplexTypeDescriptor.get(param.getClass());
+
+    JsonObject json = new JsonObject();
+    for (int i = 0; i < descriptor.getters.length; i++) {
+      String propName = descriptor.propNames[i];
+      try {
+        Object value = descriptor.getters[i].invoke(param);
+        if (value != null) {
+          json.add(propName, flattenParamAsJson(value, inTx));
+        }
+      } catch (Exception e) {
+        log.warn("Exception while accessing prop '{}' in param object: {}", propName, param, e);
+      }
+    }
+    json.addProperty(TYPE_PROPERTY, descriptor.typeName);
+    if (descriptor.moduleName != null) {
+      json.addProperty(MODULE_PROPERTY, descriptor.moduleName);
+    }
+    return json;
+  }
+
   // TODO Refactor this method because there are other method very similar to
   // this but with params instead result
   @SuppressWarnings("unchecked")
@@ -245,33 +360,22 @@ public class ParamsFlattener {
   // this but with params instead result
   private Object extractResultAsProps(Object result, RemoteObjectManager manager) {
 
-    Map<String, Object> propsMap = new HashMap<>();
-    for (Method method : result.getClass().getMethods()) {
-
-      String propName = null;
-
-      String methodName = method.getName();
-      if (methodName.startsWith("is")) {
-        propName = methodName.substring(2, methodName.length());
-      } else if (methodName.startsWith("get") && !methodName.equals("getClass")) {
-        propName = methodName.substring(3, methodName.length());
-      }
-
-      if (propName != null) {
-        try {
-          propName = Character.toLowerCase(propName.charAt(0)) + propName.substring(1);
-          Object value = flattenResult(method.invoke(result), manager);
-          propsMap.put(propName, value);
+    ComplexTypeDescriptor descriptor = ComplexTypeDescriptor.get(result.getClass());
 
-        } catch (Exception e) {
-          log.warn("Exception while accessing prop '{}' in param object: {}", propName, result, e);
-        }
+    Map<String, Object> propsMap = new HashMap<>();
+    for (int i = 0; i < descriptor.getters.length; i++) {
+      String propName = descriptor.propNames[i];
+      try {
+        Object value = flattenResult(descriptor.getters[i].invoke(result), manager);
+        propsMap.put(propName, value);
+
+      } catch (Exception e) {
+        log.warn("Exception while accessing prop '{}' in param object: {}", propName, result, e);
       }
     }
 
-    propsMap.put(TYPE_PROPERTY, result.getClass().getSimpleName());
-    ModuleName name = result.getClass().getAnnotation(ModuleName.class);
-    propsMap.put(MODULE_PROPERTY, name.value());
+    propsMap.put(TYPE_PROPERTY, descriptor.typeName);
+    propsMap.put(MODULE_PROPERTY, descriptor.moduleName);
 
     return new Props(propsMap);
   }
@@ -297,32 +401,21 @@ public class ParamsFlattener {
    */
   private Object extractParamAsProps(Object param, boolean inTx) {
 
-    Map<String, Object> propsMap = new HashMap<>();
-    for (Method method : param.getClass().getMethods()) {
-
-      String propName = null;
-
-      String methodName = method.getName();
-      if (methodName.startsWith("is")) {
-        propName = methodName.substring(2, methodName.length());
-      } else if (methodName.startsWith("get") && !methodName.equals("getClass")) {
-        propName = methodName.substring(3, methodName.length());
-      }
-
-      if (propName != null) {
-        try {
-          propName = Character.toLowerCase(propName.charAt(0)) + propName.substring(1);
-          Object value = flattenParam(method.invoke(param), inTx);
-          propsMap.put(propName, value);
+    ComplexTypeDescriptor descriptor = ComplexTypeDescriptor.get(param.getClass());
 
-        } catch (Exception e) {
-          log.warn("Exception while accessing prop '{}' in param object: {}", propName, param, e);
-        }
+    Map<String, Object> propsMap = new HashMap<>();
+    for (int i = 0; i < descriptor.getters.length; i++) {
+      String propName = descriptor.propNames[i];
+      try {
+        Object value = flattenParam(descriptor.getters[i].invoke(param), inTx);
+        propsMap.put(propName, value);
+
+      } catch (Exception e) {
+        log.warn("Exception while accessing prop '{}' in param object: {}", propName, param, e);
       }
     }
-    propsMap.put(TYPE_PROPERTY, param.getClass().getSimpleName());
-    ModuleName name = param.getClass().getAnnotation(ModuleName.class);
-    propsMap.put(MODULE_PROPERTY, name.value());
+    propsMap.put(TYPE_PROPERTY, descriptor.typeName);
+    propsMap.put(MODULE_PROPERTY, descriptor.moduleName);
     return new Props(propsMap);
   }
 
@@ -367,6 +460,10 @@ public class ParamsFlattener {
     return moduleClassesManager.getClassFor(fullyClassName);
   }
 
+  public Class<?> getClassFor(String moduleName, String typeName) {
+    return moduleClassesManager.getClassFor(moduleName, typeName);
+  }
+
   public Object unflattenValue(String paramName, Type type, Object value,
       ObjectRefsManager manager) {
 
@@ -442,32 +539,18 @@ public class ParamsFlattener {
 
   private Object unflattedComplexType(Class<?> clazz, Props props, ObjectRefsManager manager) {
 
-    Constructor<?> constructor = clazz.getConstructors()[0];
-    
-    List<Type> constClasses = new ArrayList<>();
-    Class<?>[] parameterTypes = constructor.getParameterTypes();
-    Type[] parameterGenericTypes = constructor.getGenericParameterTypes();
-    for (int i = 0; i < parameterGenericTypes.length; i++) {
-    	if (parameterGenericTypes[i] instanceof java.lang.reflect.ParameterizedType) {
-    		// This is a class with a generic type
-    		// (for example, a java.util.List<java.lang.String>)
-    		constClasses.add(parameterGenericTypes[i]);
-    	} else {
-    		constClasses.add(parameterTypes[i]);
-    	}
-    }
-    
-    Object[] constParams = new Object[parameterTypes.length];
-    List<String> paramNames = ParamAnnotationUtils.getParamNames(constructor);
+    ConstructorInfo info = ComplexTypeDescriptor.get(clazz).getConstructorInfo();
+
+    Object[] constParams = new Object[info.paramTypes.length];
 
     for (int i = 0; i < constParams.length; i++) {
-      String paramName = paramNames.get(i);
-      constParams[i] = unflattenValue(paramName, constClasses.get(i), props.getProp(paramName),
+      String paramName = info.paramNames[i];
+      constParams[i] = unflattenValue(paramName, info.paramTypes[i], props.getProp(paramName),
           manager);
     }
 
     try {
-      return constructor.newInstance(constParams);
+      return info.constructor.newInstance(constParams);
     } catch (Exception e) {
       throw new ProtocolException(
           "Exception while creating an object for the class '" + clazz.getSimpleName() + "'", e);
@@ -0,0 +1,27 @@
+${packageToFolder("org.kurento.module")}/${module.name?cap_first}ModuleIndex.java
+/**
+ * This file is generated with Kurento-maven-plugin.
+ * Please don't edit.
+ */
+package org.kurento.module;
+
+/**
+ * Classes of module ${module.name}, resolved by the client without loading them by name. It is
+ * found with java.util.ServiceLoader, so it has to be listed in
+ * META-INF/services/org.kurento.client.internal.ModuleIndex.
+ */
+public class ${module.name?cap_first}ModuleIndex extends org.kurento.client.internal.ModuleIndex {
+
+  public ${module.name?cap_first}ModuleIndex() {
+    super(<#if module.name=="core" || module.name=="elements" || module.name=="filters">"kurento"<#else>"${module.name}"</#if>, "${module.code.api.java.packageName}");
+    <#list module.remoteClasses as remoteClass>
+    addRemoteClass(${module.code.api.java.packageName}.${remoteClass.name}.class, ${module.code.api.java.packageName}.internal.stub.${remoteClass.name}Stub.class);
+    </#list>
+    <#list module.events as event>
+    addType(${module.code.api.java.packageName}.${event.name}Event.class);
+    </#list>
+    <#list module.complexTypes as complexType>
+    addType(${module.code.api.java.packageName}.${complexType.name}.class);
+    </#list>
+  }
+}
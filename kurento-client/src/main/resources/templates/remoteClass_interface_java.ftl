@@ -16,6 +16,9 @@ public interface ${remoteClass.name} extends <#if remoteClass.extends??>${remote
 
    <#list remoteClass.properties as property>
      <@comment_set_get property.doc "Get"/>
+     <#if property.final>
+     @org.kurento.client.internal.Immutable
+     </#if>
      ${getJavaObjectType(property.type,false)} get${property.name?cap_first}();
 
      <@comment_set_get property.doc "Get"/>
@@ -24,6 +27,9 @@ public interface ${remoteClass.name} extends <#if remoteClass.extends??>${remote
      <@comment_set_get property.doc "Get"/>
      TFuture<${getJavaObjectType(property.type,true)}> get${property.name?cap_first}(Transaction tx);
 
+     <@comment_set_get property.doc "Get"/>
+     java.util.concurrent.CompletionStage<${getJavaObjectType(property.type,true)}> get${property.name?cap_first}Async();
+
      <#if !property.readOnly && !property.final>
      <@comment_set_get property.doc "Set"/>
      void set${property.name?cap_first}(@org.kurento.client.internal.server.Param("${property.name}") ${getJavaObjectType(property.type,false)} ${property.name});
@@ -33,6 +39,9 @@ public interface ${remoteClass.name} extends <#if remoteClass.extends??>${remote
 
      <@comment_set_get property.doc "Set"/>
      void set${property.name?cap_first}(@org.kurento.client.internal.server.Param("${property.name}") ${getJavaObjectType(property.type,false)} ${property.name}, Transaction tx);
+
+     <@comment_set_get property.doc "Set"/>
+     java.util.concurrent.CompletionStage<Void> set${property.name?cap_first}Async(@org.kurento.client.internal.server.Param("${property.name}") ${getJavaObjectType(property.type,false)} ${property.name});
      </#if>
    </#list>
 
@@ -58,6 +67,16 @@ done. If an error occurs, {@link Continuation#onError} is called.
     <#if type == "Void">void<#else>TFuture<${type}></#if> ${method.name}(Transaction tx<#rt>
     <#lt><#list method.params as param>, @org.kurento.client.internal.server.Param("${param.name}") ${getJavaObjectType(param.type,false)} ${param.name}</#list>);
 
+  <#assign doc>
+Asynchronous version of ${method.name}. The returned stage is completed when the action is
+done, in the completion executor of the client if it has one.
+
+@see ${remoteClass.name}#${method.name}
+    </#assign>
+    <@comment doc method.params />
+    java.util.concurrent.CompletionStage<${type}> ${method.name}Async(<#rt>
+    <#lt><#list method.params as param>@org.kurento.client.internal.server.Param("${param.name}") ${getJavaObjectType(param.type,false)} ${param.name}<#if param_has_next>, </#if></#list>);
+
     </#list>
   <#list remoteClass.events as event>
     /**
@@ -0,0 +1,134 @@
+${packageToFolder(module.code.api.java.packageName + ".internal.stub")}/${remoteClass.name}Stub.java
+<#include "macros.ftm" >
+<#macro typeOf javaType><#if javaType?contains("<")>new com.google.gson.reflect.TypeToken<${javaType}>(){}.getType()<#else>${javaType}.class</#if></#macro>
+<#macro props params><#if params?size == 0>null<#else>new org.kurento.jsonrpc.Props()<#list params as param>.add("${param.name}", ${param.name})</#list></#if></#macro>
+/**
+ * This file is generated with Kurento-maven-plugin.
+ * Please don't edit.
+ */
+package ${module.code.api.java.packageName}.internal.stub;
+
+import org.kurento.client.*;
+import org.kurento.client.internal.client.AbstractRemoteObjectStub;
+import org.kurento.client.internal.client.RemoteObject;
+import org.kurento.client.internal.client.RomManager;
+<#if module.code.api.java.packageName != "org.kurento.client">
+import org.kurento.client.internal.stub.*;
+import ${module.code.api.java.packageName}.*;
+</#if>
+
+/**
+ * Client stub of {@link ${remoteClass.name}}. Calls are sent to the remote object without
+ * reflection.
+ */
+@SuppressWarnings({ "unchecked", "rawtypes", "deprecation" })
+public class ${remoteClass.name}Stub extends <#if remoteClass.extends??>${remoteClass.extends.name}Stub<#else>AbstractRemoteObjectStub</#if> implements ${remoteClass.name} {
+
+  <#list remoteClass.properties as property>
+  private static final java.lang.reflect.Type ${property.name}_PROPERTY_TYPE = <@typeOf getJavaObjectType(property.type,false) />;
+  private static final java.lang.reflect.Type ${property.name}_PROPERTY_ASYNC_TYPE = <@typeOf getJavaObjectType(property.type,true) />;
+  </#list>
+  <#list remoteClass.methods as method>
+  private static final java.lang.reflect.Type ${method.name}_${method_index}_RETURN_TYPE = <@typeOf getJavaObjectType(method.return,false) />;
+  private static final java.lang.reflect.Type ${method.name}_${method_index}_ASYNC_TYPE = <@typeOf getJavaObjectType(method.return,true) />;
+  </#list>
+
+  public ${remoteClass.name}Stub(RemoteObject remoteObject, RomManager manager) {
+    super(remoteObject, manager);
+  }
+
+  <#list remoteClass.properties as property>
+  <#assign type = getJavaObjectType(property.type,false)>
+  <#assign boxedType = getJavaObjectType(property.type,true)>
+  <#assign getter = "get" + property.name?cap_first>
+  <#assign setter = "set" + property.name?cap_first>
+  @Override
+  public ${type} ${getter}() {
+    return (${type}) invokeSync("${getter}", null, ${property.name}_PROPERTY_TYPE);
+  }
+
+  @Override
+  public void ${getter}(Continuation<${boxedType}> cont) {
+    invokeAsync("${getter}", null, ${property.name}_PROPERTY_ASYNC_TYPE, cont);
+  }
+
+  @Override
+  public TFuture<${boxedType}> ${getter}(Transaction tx) {
+    return (TFuture) invokeTx("${getter}", null, ${property.name}_PROPERTY_ASYNC_TYPE, tx);
+  }
+
+  @Override
+  public java.util.concurrent.CompletionStage<${boxedType}> ${getter}Async() {
+    return invokeStage("${getter}", null, ${property.name}_PROPERTY_ASYNC_TYPE);
+  }
+
+  <#if !property.readOnly && !property.final>
+  @Override
+  public void ${setter}(${type} ${property.name}) {
+    invokeSync("${setter}", new org.kurento.jsonrpc.Props("${property.name}", ${property.name}), void.class);
+  }
+
+  @Override
+  public void ${setter}(${type} ${property.name}, Continuation<Void> cont) {
+    invokeAsync("${setter}", new org.kurento.jsonrpc.Props("${property.name}", ${property.name}), Void.class, cont);
+  }
+
+  @Override
+  public void ${setter}(${type} ${property.name}, Transaction tx) {
+    invokeTx("${setter}", new org.kurento.jsonrpc.Props("${property.name}", ${property.name}), Void.class, tx);
+  }
+
+  @Override
+  public java.util.concurrent.CompletionStage<Void> ${setter}Async(${type} ${property.name}) {
+    return invokeStage("${setter}", new org.kurento.jsonrpc.Props("${property.name}", ${property.name}), Void.class);
+  }
+
+  </#if>
+  </#list>
+  <#list remoteClass.methods as method>
+  <#assign type = getJavaObjectType(method.return,false)>
+  <#assign boxedType = getJavaObjectType(method.return,true)>
+  @Override
+  public ${type} ${method.name}(<#list method.params as param>${getJavaObjectType(param.type,false)} ${param.name}<#if param_has_next>, </#if></#list>) {
+    <#if type != "void">return (${type}) </#if>invokeSync("${method.name}", <@props method.params />, ${method.name}_${method_index}_RETURN_TYPE);
+  }
+
+  @Override
+  public void ${method.name}(<#list method.params as param>${getJavaObjectType(param.type,false)} ${param.name}, </#list>Continuation<${boxedType}> cont) {
+    invokeAsync("${method.name}", <@props method.params />, ${method.name}_${method_index}_ASYNC_TYPE, cont);
+  }
+
+  @Override
+  public <#if boxedType == "Void">void<#else>TFuture<${boxedType}></#if> ${method.name}(Transaction tx<#list method.params as param>, ${getJavaObjectType(param.type,false)} ${param.name}</#list>) {
+    <#if boxedType != "Void">return (TFuture) </#if>invokeTx("${method.name}", <@props method.params />, ${method.name}_${method_index}_ASYNC_TYPE, tx);
+  }
+
+  @Override
+  public java.util.concurrent.CompletionStage<${boxedType}> ${method.name}Async(<#list method.params as param>${getJavaObjectType(param.type,false)} ${param.name}<#if param_has_next>, </#if></#list>) {
+    return invokeStage("${method.name}", <@props method.params />, ${method.name}_${method_index}_ASYNC_TYPE);
+  }
+
+  </#list>
+  <#list remoteClass.events as event>
+  @Override
+  public ListenerSubscription add${event.name}Listener(EventListener<${event.name}Event> listener) {
+    return subscribe(${event.name}Event.class, "${event.name}", listener);
+  }
+
+  @Override
+  public void add${event.name}Listener(EventListener<${event.name}Event> listener, Continuation<ListenerSubscription> cont) {
+    subscribe(${event.name}Event.class, "${event.name}", listener, cont);
+  }
+
+  @Override
+  public void remove${event.name}Listener(ListenerSubscription listenerSubscription) {
+    unsubscribe(listenerSubscription);
+  }
+
+  @Override
+  public void remove${event.name}Listener(ListenerSubscription listenerSubscription, Continuation<Void> cont) {
+    unsubscribe(listenerSubscription, cont);
+  }
+
+  </#list>
+}
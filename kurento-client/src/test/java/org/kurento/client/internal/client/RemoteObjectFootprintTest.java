@@ -0,0 +1,108 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.client.internal.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.kurento.client.Continuation;
+import org.kurento.client.internal.client.RemoteObject.ObjectStatus;
+import org.kurento.jsonrpc.Props;
+import org.openjdk.jol.info.ClassLayout;
+import org.openjdk.jol.info.GraphLayout;
+import org.openjdk.jol.vm.VM;
+
+/**
+ * Checks the heap used by each {@link RemoteObject}. Clients with tens of thousands of live
+ * objects pay this size for each of them, so state used only by some objects (listeners, commit
+ * waiters, rollback errors) must not be allocated until needed.
+ */
+public class RemoteObjectFootprintTest {
+
+  /**
+   * Reference fields allowed in a remote object.
+   */
+  private static final int MAX_REFERENCE_FIELDS = 7;
+
+  @Test
+  public void instanceSizeIsBounded() {
+
+    long instanceSize = ClassLayout.parseClass(RemoteObject.class).instanceSize();
+
+    long refSize = VM.current().sizeOfField("java.lang.Object");
+    long maxSize = align(VM.current().objectHeaderSize() + MAX_REFERENCE_FIELDS * refSize);
+
+    assertTrue("RemoteObject instance size is " + instanceSize + " bytes, expected at most "
+        + maxSize + "\n" + ClassLayout.parseClass(RemoteObject.class).toPrintable(),
+        instanceSize <= maxSize);
+  }
+
+  @Test
+  public void createdObjectAllocatesNothingElse() throws InterruptedException {
+
+    String objectRef = "footprint_Sample";
+    String type = "Sample";
+
+    RemoteObject remoteObject = new RemoteObject(objectRef, type, true, null, false);
+    remoteObject.waitCommited();
+
+    assertEquals(ClassLayout.parseClass(RemoteObject.class).instanceSize(),
+        ownSize(remoteObject, objectRef, type));
+  }
+
+  @Test
+  public void commitStateIsDiscardedWhenCommitted() {
+
+    String type = "Sample";
+
+    RemoteObject remoteObject = new RemoteObject("newref:0", type, false, null, false);
+    remoteObject.whenCommited(new Continuation<Object>() {
+      @Override
+      public void onSuccess(Object result) {
+      }
+
+      @Override
+      public void onError(Throwable cause) {
+      }
+    });
+
+    String objectRef = "committed_Sample";
+    remoteObject.setCreatedObjectRef(objectRef);
+
+    assertEquals(ClassLayout.parseClass(RemoteObject.class).instanceSize(),
+        ownSize(remoteObject, objectRef, type));
+  }
+
+  @Test
+  public void objectWithoutListenersAcceptsEvents() {
+    RemoteObject remoteObject = new RemoteObject("events_Sample", "Sample", true, null, false);
+    remoteObject.fireEvent("SampleEvent", new Props());
+  }
+
+  private static long ownSize(RemoteObject remoteObject, String objectRef, String type) {
+    return GraphLayout.parseInstance(remoteObject)
+        .subtract(GraphLayout.parseInstance(objectRef, type, ObjectStatus.CREATED)).totalSize();
+  }
+
+  private static long align(long size) {
+    int alignment = VM.current().objectAlignment();
+    return (size + alignment - 1) / alignment * alignment;
+  }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.client.internal.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.kurento.client.AdaptiveConcurrencyLimiter;
+import org.kurento.client.ConcurrencyLimitExceededException;
+import org.kurento.client.internal.client.RomManager;
+import org.kurento.client.internal.test.model.Sample2;
+import org.kurento.client.internal.transport.jsonrpc.RomClientJsonRpcClient;
+import org.kurento.client.internal.transport.jsonrpc.RomServerJsonRpcHandler;
+import org.kurento.jsonrpc.client.JsonRpcClientLocal;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+  private static final Runnable NOOP = new Runnable() {
+    @Override
+    public void run() {
+    }
+  };
+
+  private static long startedAgo(long millis) {
+    return System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(millis);
+  }
+
+  @Test
+  public void syncRequestsWaitForAFreeSlot() {
+
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, 2, 0.5, 10, 50);
+
+    limiter.acquire();
+    limiter.acquire();
+    assertEquals(2, limiter.getInFlight());
+
+    long start = System.nanoTime();
+    try {
+      limiter.acquire();
+      fail("ConcurrencyLimitExceededException should be thrown");
+    } catch (ConcurrencyLimitExceededException e) {
+      assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+    }
+    assertEquals(2, limiter.getInFlight());
+  }
+
+  @Test
+  public void asyncRequestsAreQueued() {
+
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 10, 2, 0.5, 1, 50);
+
+    final AtomicInteger run = new AtomicInteger();
+    Runnable request = new Runnable() {
+      @Override
+      public void run() {
+        run.incrementAndGet();
+      }
+    };
+
+    long start = System.nanoTime();
+    assertTrue(limiter.tryAcquire(request));
+    assertFalse(limiter.tryAcquire(request));
+    assertEquals(1, limiter.getQueued());
+
+    try {
+      limiter.tryAcquire(request);
+      fail("ConcurrencyLimitExceededException should be thrown");
+    } catch (ConcurrencyLimitExceededException e) {
+      // Expected
+    }
+
+    // The slot is handed over to the queued request
+    limiter.release(start, false);
+    assertEquals(1, run.get());
+    assertEquals(0, limiter.getQueued());
+    assertEquals(1, limiter.getInFlight());
+  }
+
+  @Test
+  public void limitFollowsLatency() {
+
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 8, 2, 0.5, 10, 50);
+
+    // Fast responses with the limit in use make it grow up to the maximum. Latencies are large
+    // enough for scheduling delays not to be taken as slow responses
+    for (int i = 0; i < 100; i++) {
+      for (int j = 0; j < limiter.getLimit(); j++) {
+        limiter.tryAcquire(NOOP);
+      }
+      while (limiter.getInFlight() > 0) {
+        limiter.release(startedAgo(20), false);
+      }
+    }
+    assertEquals(8, limiter.getLimit());
+    assertTrue(limiter.getMinLatency() >= 20);
+
+    // A slow response halves it
+    limiter.tryAcquire(NOOP);
+    limiter.release(startedAgo(1000), false);
+    assertEquals(4, limiter.getLimit());
+
+    // And so does a request without response, but not before a round trip has passed
+    limiter.tryAcquire(NOOP);
+    limiter.release(System.nanoTime(), true);
+    assertEquals(4, limiter.getLimit());
+  }
+
+  @Test
+  public void requestsReleaseTheirSlots() {
+
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, 2, 0.5, 10, 50);
+
+    RomManager manager = new RomManager(new RomClientJsonRpcClient(
+        new JsonRpcClientLocal(
+            new RomServerJsonRpcHandler("org.kurento.client.internal.test.model", "Impl")),
+        limiter));
+
+    for (int i = 0; i < 10; i++) {
+      Sample2 obj = new Sample2.Builder("A", i, manager).withAtt3(0.5f).att4().build();
+      assertEquals("A", obj.getAtt1());
+    }
+
+    assertEquals(0, limiter.getInFlight());
+    assertTrue(limiter.getMinLatency() >= 0);
+  }
+
+}
@@ -0,0 +1,147 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.client.internal.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.kurento.client.internal.client.RemoteObject;
+import org.kurento.client.internal.client.RemoteObjectEventListener;
+import org.kurento.client.internal.client.RemoteObjectInvocationHandler;
+import org.kurento.client.internal.client.RomManager;
+import org.kurento.client.internal.test.model.Sample2;
+import org.kurento.client.internal.transport.jsonrpc.RomClientJsonRpcClient;
+import org.kurento.client.internal.transport.jsonrpc.RomJsonRpcConstants;
+import org.kurento.jsonrpc.DefaultJsonRpcHandler;
+import org.kurento.jsonrpc.Props;
+import org.kurento.jsonrpc.Transaction;
+import org.kurento.jsonrpc.client.JsonRpcClientLocal;
+import org.kurento.jsonrpc.message.Request;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * Releases several objects with one request and checks that they, and the elements of released
+ * pipelines, are dropped from the client.
+ */
+public class BulkReleaseTest {
+
+  private final List<String> requests = new ArrayList<>();
+  private final List<String> releasedRefs = new ArrayList<>();
+
+  private RomManager manager;
+
+  @Before
+  public void initFactory() {
+
+    DefaultJsonRpcHandler<JsonObject> handler = new DefaultJsonRpcHandler<JsonObject>() {
+      @Override
+      public void handleRequest(Transaction transaction, Request<JsonObject> request)
+          throws Exception {
+
+        synchronized (requests) {
+          requests.add(request.getMethod());
+        }
+
+        switch (request.getMethod()) {
+          case RomJsonRpcConstants.SUBSCRIBE_METHOD:
+            transaction.sendResponse(new JsonPrimitive("subscription"));
+            break;
+          case RomJsonRpcConstants.TRANSACTION_METHOD:
+            JsonArray responses = new JsonArray();
+            for (JsonElement op : request.getParams()
+                .getAsJsonArray(RomJsonRpcConstants.TRANSACTION_OPERATIONS)) {
+              JsonObject opJson = op.getAsJsonObject();
+              synchronized (requests) {
+                releasedRefs.add(opJson.getAsJsonObject("params")
+                    .get(RomJsonRpcConstants.RELEASE_OBJECT).getAsString());
+              }
+              JsonObject response = new JsonObject();
+              response.addProperty("jsonrpc", "2.0");
+              response.add("id", opJson.get("id"));
+              response.add("result", new JsonObject());
+              responses.add(response);
+            }
+            transaction.sendResponse(responses);
+            break;
+          default:
+            transaction.sendResponse(new JsonObject());
+        }
+      }
+    };
+
+    manager = new RomManager(new RomClientJsonRpcClient(new JsonRpcClientLocal(handler)));
+  }
+
+  @Test
+  public void releasesWithOneRequest() {
+
+    Sample2 pipeline1 = manager.getById("p1_Sample2", Sample2.class);
+    Sample2 element1 = manager.getById("p1_Sample2/e1_Sample2", Sample2.class);
+    manager.getById("p1_Sample2/e2_Sample2", Sample2.class);
+    Sample2 pipeline2 = manager.getById("p2_Sample2", Sample2.class);
+    Sample2 element3 = manager.getById("p2_Sample2/e3_Sample2", Sample2.class);
+
+    RemoteObject remoteElement1 = RemoteObjectInvocationHandler.getFor(element1).getRemoteObject();
+    remoteElement1.addEventListener("Sample", new RemoteObjectEventListener() {
+      @Override
+      public void onEvent(String eventType, Props data) {
+      }
+    });
+    assertEquals("subscription", remoteElement1.getSubscriptionId("Sample"));
+    requests.clear();
+
+    manager.release(Arrays.asList(pipeline1, element1, element3));
+
+    // element1 is released by the server with its pipeline
+    assertEquals(Arrays.asList(RomJsonRpcConstants.TRANSACTION_METHOD), requests);
+    assertEquals(Arrays.asList("p1_Sample2", "p2_Sample2/e3_Sample2"), releasedRefs);
+
+    assertNull(manager.getObjectManager().getRemoteObject("p1_Sample2"));
+    assertNull(manager.getObjectManager().getRemoteObject("p1_Sample2/e1_Sample2"));
+    assertNull(manager.getObjectManager().getRemoteObject("p1_Sample2/e2_Sample2"));
+    assertNull(manager.getObjectManager().getRemoteObject("p2_Sample2/e3_Sample2"));
+    assertNotNull(manager.getObjectManager().getRemoteObject(pipeline2.getId()));
+    assertNull(remoteElement1.getSubscriptionId("Sample"));
+  }
+
+  @Test
+  public void releasingPipelineDropsItsElements() {
+
+    Sample2 pipeline = manager.getById("p3_Sample2", Sample2.class);
+    manager.getById("p3_Sample2/e4_Sample2", Sample2.class);
+    Sample2 element5 = manager.getById("p4_Sample2/e5_Sample2", Sample2.class);
+
+    pipeline.release();
+
+    assertEquals(Arrays.asList(RomJsonRpcConstants.RELEASE_METHOD), requests);
+    assertNull(manager.getObjectManager().getRemoteObject("p3_Sample2/e4_Sample2"));
+    assertNotNull(manager.getObjectManager().getRemoteObject(element5.getId()));
+  }
+
+}
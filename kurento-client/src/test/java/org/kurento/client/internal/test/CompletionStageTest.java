@@ -0,0 +1,174 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.client.internal.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kurento.client.TransactionExecutionException;
+import org.kurento.client.internal.TransactionImpl;
+import org.kurento.client.internal.client.RomManager;
+import org.kurento.client.internal.test.model.Sample2;
+import org.kurento.client.internal.test.model.SampleRemoteClass;
+import org.kurento.client.internal.transport.jsonrpc.RomClientJsonRpcClient;
+import org.kurento.client.internal.transport.jsonrpc.RomJsonRpcConstants;
+import org.kurento.client.internal.transport.jsonrpc.RomServerJsonRpcHandler;
+import org.kurento.jsonrpc.DefaultJsonRpcHandler;
+import org.kurento.jsonrpc.Transaction;
+import org.kurento.jsonrpc.client.JsonRpcClientLocal;
+import org.kurento.jsonrpc.message.Request;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+public class CompletionStageTest {
+
+  private static final String EXECUTOR_THREAD = "completion-test";
+
+  private RomManager manager;
+  private ExecutorService executor;
+
+  @Before
+  public void initFactory() {
+    manager = new RomManager(new RomClientJsonRpcClient(new JsonRpcClientLocal(
+        new RomServerJsonRpcHandler("org.kurento.client.internal.test.model", "Impl"))));
+    executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        return new Thread(r, EXECUTOR_THREAD);
+      }
+    });
+  }
+
+  @After
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void buildAndInvokeAsync() throws Exception {
+
+    Sample2 obj = new Sample2.Builder("XXX", 33, manager).withAtt3(0.5f).att4().buildAsync()
+        .toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+    assertTrue(obj.isCommited());
+    assertEquals("XXX", obj.getAtt1Async().toCompletableFuture().get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void proxyInvokeAsync() throws Exception {
+
+    SampleRemoteClass obj = new SampleRemoteClass.Builder(manager).build();
+
+    assertEquals("XXXX",
+        obj.methodParamStringAsync("XXXX").toCompletableFuture().get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void stagesCompleteInCompletionExecutor() throws Exception {
+
+    manager.setCompletionExecutor(executor);
+
+    Sample2 obj = new Sample2.Builder("XXX", 33, manager).withAtt3(0.5f).att4().build();
+
+    // Holds the executor so the stage is still pending when the callback is attached
+    final CountDownLatch hold = new CountDownLatch(1);
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          hold.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+
+    final AtomicReference<String> thread = new AtomicReference<>();
+
+    CompletableFuture<String> result = obj.getAtt1Async()
+        .thenApply(new Function<String, String>() {
+          @Override
+          public String apply(String value) {
+            thread.set(Thread.currentThread().getName());
+            return value;
+          }
+        }).toCompletableFuture();
+
+    hold.countDown();
+    String att1 = result.get(5, TimeUnit.SECONDS);
+
+    assertEquals("XXX", att1);
+    assertEquals(EXECUTOR_THREAD, thread.get());
+  }
+
+  @Test
+  public void failedCommitCompletesExceptionally() throws Exception {
+
+    // Every operation of the transaction fails
+    RomManager failingManager = new RomManager(new RomClientJsonRpcClient(new JsonRpcClientLocal(
+        new DefaultJsonRpcHandler<JsonObject>() {
+          @Override
+          public void handleRequest(Transaction transaction, Request<JsonObject> request)
+              throws Exception {
+
+            JsonArray responses = new JsonArray();
+            for (JsonElement op : request.getParams()
+                .getAsJsonArray(RomJsonRpcConstants.TRANSACTION_OPERATIONS)) {
+
+              JsonObject error = new JsonObject();
+              error.addProperty("code", 40000);
+              error.addProperty("message", "Operation failed");
+
+              JsonObject response = new JsonObject();
+              response.addProperty("jsonrpc", "2.0");
+              response.add("id", op.getAsJsonObject().get("id"));
+              response.add("error", error);
+              responses.add(response);
+            }
+            transaction.sendResponse(responses);
+          }
+        })));
+
+    TransactionImpl tx = new TransactionImpl(failingManager);
+    new Sample2.Builder("XXX", 33, failingManager).withAtt3(0.5f).att4().build(tx);
+
+    try {
+      tx.commitAsync().toCompletableFuture().get(5, TimeUnit.SECONDS);
+      fail("Commit of a failed transaction should complete exceptionally");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof TransactionExecutionException);
+    }
+  }
+
+}
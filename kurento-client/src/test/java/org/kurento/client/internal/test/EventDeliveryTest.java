@@ -0,0 +1,114 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.client.internal.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.kurento.client.EventListener;
+import org.kurento.client.ListenerSubscription;
+import org.kurento.client.internal.client.RemoteObject;
+import org.kurento.client.internal.client.RemoteObjectInvocationHandler;
+import org.kurento.client.internal.client.RomManager;
+import org.kurento.client.internal.test.model.Sample2;
+import org.kurento.client.internal.test.model.client.events.SampleEvent;
+import org.kurento.client.internal.transport.jsonrpc.RomClientJsonRpcClient;
+import org.kurento.client.internal.transport.jsonrpc.RomJsonRpcConstants;
+import org.kurento.client.internal.transport.jsonrpc.RomServerJsonRpcHandler;
+import org.kurento.jsonrpc.Props;
+import org.kurento.jsonrpc.Transaction;
+import org.kurento.jsonrpc.client.JsonRpcClientLocal;
+import org.kurento.jsonrpc.message.Request;
+
+import com.google.gson.JsonObject;
+
+public class EventDeliveryTest {
+
+  private static RomManager manager;
+
+  @BeforeClass
+  public static void initFactory() {
+
+    final AtomicInteger subscriptions = new AtomicInteger();
+
+    RomServerJsonRpcHandler handler =
+        new RomServerJsonRpcHandler("org.kurento.client.internal.test.model", "Impl") {
+          @Override
+          public void handleRequest(Transaction transaction, Request<JsonObject> request)
+              throws Exception {
+            if (RomJsonRpcConstants.SUBSCRIBE_METHOD.equals(request.getMethod())) {
+              transaction.sendResponse("subscription" + subscriptions.incrementAndGet());
+            } else if (RomJsonRpcConstants.UNSUBSCRIBE_METHOD.equals(request.getMethod())) {
+              transaction.sendResponse(null);
+            } else {
+              super.handleRequest(transaction, request);
+            }
+          }
+        };
+
+    manager = new RomManager(new RomClientJsonRpcClient(new JsonRpcClientLocal(handler)));
+  }
+
+  @Test
+  public void eventIsBuiltOnceForAllListeners() {
+
+    Sample2 obj = new Sample2.Builder("XXX", 33, manager).withAtt3(0.5f).att4().build();
+    RemoteObject remoteObject = RemoteObjectInvocationHandler.getFor(obj).getRemoteObject();
+
+    final List<SampleEvent> received1 = new ArrayList<>();
+    final List<SampleEvent> received2 = new ArrayList<>();
+
+    ListenerSubscription subscription1 =
+        obj.addEventListener("Sample", new EventListener<SampleEvent>() {
+          @Override
+          public void onEvent(SampleEvent event) {
+            received1.add(event);
+          }
+        }, SampleEvent.class);
+
+    obj.addEventListener("Sample", new EventListener<SampleEvent>() {
+      @Override
+      public void onEvent(SampleEvent event) {
+        received2.add(event);
+      }
+    }, SampleEvent.class);
+
+    remoteObject.fireEvent("Sample", new Props("prop1", "value1").add("prop2", "value2"));
+
+    assertEquals(1, received1.size());
+    assertEquals(1, received2.size());
+    assertSame(received1.get(0), received2.get(0));
+    assertEquals("value1", received1.get(0).getProp1());
+    assertEquals("value2", received1.get(0).getProp2());
+
+    obj.removeEventListener(subscription1);
+
+    remoteObject.fireEvent("Sample", new Props("prop1", "value3").add("prop2", "value4"));
+
+    assertEquals(1, received1.size());
+    assertEquals(2, received2.size());
+    assertEquals("value3", received2.get(1).getProp1());
+  }
+
+}
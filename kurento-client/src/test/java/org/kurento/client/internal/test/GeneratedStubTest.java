@@ -0,0 +1,125 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.client.internal.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.kurento.client.ElementConnectionData;
+import org.kurento.client.MediaType;
+import org.kurento.client.WebRtcEndpoint;
+import org.kurento.client.internal.client.RomManager;
+import org.kurento.client.internal.stub.MediaElementStub;
+import org.kurento.client.internal.stub.WebRtcEndpointStub;
+import org.kurento.client.internal.transport.jsonrpc.RomClientJsonRpcClient;
+import org.kurento.client.internal.transport.jsonrpc.RomJsonRpcConstants;
+import org.kurento.jsonrpc.DefaultJsonRpcHandler;
+import org.kurento.jsonrpc.Transaction;
+import org.kurento.jsonrpc.client.JsonRpcClientLocal;
+import org.kurento.jsonrpc.message.Request;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+/**
+ * Uses the stubs generated from remoteClass_stub_java.ftl for the Kurento modules, so the
+ * template is compiled and its overloaded methods are checked against a fake server.
+ */
+public class GeneratedStubTest {
+
+  private static final String ENDPOINT = "p1/e1_kurento.WebRtcEndpoint";
+  private static final String SINK = "p1/e2_kurento.WebRtcEndpoint";
+
+  private final List<JsonObject> invocations = new ArrayList<>();
+
+  private RomManager manager;
+
+  @Before
+  public void initFactory() {
+
+    DefaultJsonRpcHandler<JsonObject> handler = new DefaultJsonRpcHandler<JsonObject>() {
+      @Override
+      public void handleRequest(Transaction transaction, Request<JsonObject> request)
+          throws Exception {
+
+        JsonObject params = request.getParams();
+        invocations.add(params);
+
+        JsonObject result = new JsonObject();
+        if (RomJsonRpcConstants.INVOKE_METHOD.equals(request.getMethod()) && "getSinkConnections"
+            .equals(params.get(RomJsonRpcConstants.INVOKE_OPERATION_NAME).getAsString())) {
+          JsonObject connection = new JsonObject();
+          connection.addProperty("__module__", "kurento");
+          connection.addProperty("__type__", "ElementConnectionData");
+          connection.addProperty("source", ENDPOINT);
+          connection.addProperty("sink", SINK);
+          connection.addProperty("type", "VIDEO");
+          connection.addProperty("sourceDescription", "default");
+          connection.addProperty("sinkDescription", "default");
+          JsonArray value = new JsonArray();
+          value.add(connection);
+          result.add("value", value);
+        }
+        transaction.sendResponse(result);
+      }
+    };
+
+    manager = new RomManager(new RomClientJsonRpcClient(new JsonRpcClientLocal(handler)));
+  }
+
+  @Test
+  public void generatedStubIsUsed() {
+
+    WebRtcEndpoint endpoint = manager.getById(ENDPOINT, WebRtcEndpoint.class);
+
+    assertTrue(endpoint instanceof WebRtcEndpointStub);
+    assertTrue(endpoint instanceof MediaElementStub);
+  }
+
+  @Test
+  public void overloadedMethodsSendTheirOwnParams() {
+
+    WebRtcEndpoint endpoint = manager.getById(ENDPOINT, WebRtcEndpoint.class);
+    WebRtcEndpoint sink = manager.getById(SINK, WebRtcEndpoint.class);
+
+    endpoint.connect(sink);
+    endpoint.connect(sink, MediaType.AUDIO);
+
+    JsonObject params1 = invocations.get(0)
+        .getAsJsonObject(RomJsonRpcConstants.INVOKE_OPERATION_PARAMS);
+    JsonObject params2 = invocations.get(1)
+        .getAsJsonObject(RomJsonRpcConstants.INVOKE_OPERATION_PARAMS);
+
+    assertEquals(SINK, params1.get("sink").getAsString());
+    assertFalse(params1.has("mediaType"));
+    assertEquals(SINK, params2.get("sink").getAsString());
+    assertEquals("AUDIO", params2.get("mediaType").getAsString());
+
+    List<ElementConnectionData> connections = endpoint.getSinkConnections(MediaType.VIDEO);
+    assertEquals(1, connections.size());
+    assertEquals(MediaType.VIDEO, connections.get(0).getType());
+    assertEquals(sink, connections.get(0).getSink());
+  }
+
+}
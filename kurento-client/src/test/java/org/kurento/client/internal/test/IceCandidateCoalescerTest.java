@@ -0,0 +1,244 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.client.internal.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kurento.client.Continuation;
+import org.kurento.client.IceCandidate;
+import org.kurento.client.IceCandidateCoalescer;
+import org.kurento.client.IceCandidateCoalescer.CandidatesListener;
+import org.kurento.client.IceCandidateFoundEvent;
+import org.kurento.client.WebRtcEndpoint;
+import org.kurento.client.internal.client.RemoteObject;
+import org.kurento.client.internal.client.RemoteObjectInvocationHandler;
+import org.kurento.client.internal.client.RomManager;
+import org.kurento.client.internal.transport.jsonrpc.RomClientJsonRpcClient;
+import org.kurento.client.internal.transport.jsonrpc.RomJsonRpcConstants;
+import org.kurento.jsonrpc.DefaultJsonRpcHandler;
+import org.kurento.jsonrpc.Props;
+import org.kurento.jsonrpc.Transaction;
+import org.kurento.jsonrpc.client.JsonRpcClientLocal;
+import org.kurento.jsonrpc.message.Request;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * Candidates are sent in transactions and candidate events are delivered in batches. Objects
+ * whose reference starts with "bad" fail in the fake server.
+ */
+public class IceCandidateCoalescerTest {
+
+  private final AtomicInteger transactions = new AtomicInteger();
+  private final AtomicInteger invocations = new AtomicInteger();
+
+  private RomManager manager;
+  private IceCandidateCoalescer coalescer;
+
+  @Before
+  public void initFactory() {
+
+    DefaultJsonRpcHandler<JsonObject> handler = new DefaultJsonRpcHandler<JsonObject>() {
+      @Override
+      public void handleRequest(Transaction transaction, Request<JsonObject> request)
+          throws Exception {
+
+        switch (request.getMethod()) {
+          case RomJsonRpcConstants.SUBSCRIBE_METHOD:
+            transaction.sendResponse(new JsonPrimitive("subscription"));
+            break;
+          case RomJsonRpcConstants.INVOKE_METHOD:
+            invocations.incrementAndGet();
+            if (isBad(request.getParams())) {
+              transaction.sendError(1, "ERROR", "Bad object", null);
+            } else {
+              transaction.sendResponse(new JsonObject());
+            }
+            break;
+          case RomJsonRpcConstants.TRANSACTION_METHOD:
+            transactions.incrementAndGet();
+            JsonArray responses = new JsonArray();
+            for (JsonElement op : request.getParams()
+                .getAsJsonArray(RomJsonRpcConstants.TRANSACTION_OPERATIONS)) {
+              JsonObject opJson = op.getAsJsonObject();
+              JsonObject response = new JsonObject();
+              response.addProperty("jsonrpc", "2.0");
+              response.add("id", opJson.get("id"));
+              if (isBad(opJson.getAsJsonObject("params"))) {
+                JsonObject error = new JsonObject();
+                error.addProperty("code", 1);
+                error.addProperty("message", "Bad object");
+                response.add("error", error);
+              } else {
+                response.add("result", new JsonObject());
+              }
+              responses.add(response);
+            }
+            transaction.sendResponse(responses);
+            break;
+          default:
+            transaction.sendResponse(new JsonObject());
+        }
+      }
+    };
+
+    manager = new RomManager(new RomClientJsonRpcClient(new JsonRpcClientLocal(handler)));
+  }
+
+  private static boolean isBad(JsonObject params) {
+    return params.get(RomJsonRpcConstants.INVOKE_OBJECT).getAsString().startsWith("bad");
+  }
+
+  @After
+  public void closeCoalescer() {
+    if (coalescer != null) {
+      coalescer.close();
+    }
+  }
+
+  @Test
+  public void candidatesAreSentInOneTransaction() throws InterruptedException {
+
+    coalescer = new IceCandidateCoalescer(50, 64);
+    WebRtcEndpoint endpoint1 = manager.getById("e1_kurento.WebRtcEndpoint", WebRtcEndpoint.class);
+    WebRtcEndpoint endpoint2 = manager.getById("e2_kurento.WebRtcEndpoint", WebRtcEndpoint.class);
+
+    CountingContinuation cont = new CountingContinuation(20);
+    for (int i = 0; i < 10; i++) {
+      coalescer.addIceCandidate(endpoint1, candidate(i), cont);
+      coalescer.addIceCandidate(endpoint2, candidate(i), cont);
+    }
+
+    assertTrue(cont.latch.await(5, TimeUnit.SECONDS));
+    assertEquals(20, cont.successes.get());
+    assertEquals(1, transactions.get());
+    assertEquals(0, invocations.get());
+  }
+
+  @Test
+  public void fullBatchIsSentWithoutWaiting() throws InterruptedException {
+
+    coalescer = new IceCandidateCoalescer(TimeUnit.MINUTES.toMillis(1), 5);
+    WebRtcEndpoint endpoint = manager.getById("e3_kurento.WebRtcEndpoint", WebRtcEndpoint.class);
+
+    CountingContinuation cont = new CountingContinuation(5);
+    for (int i = 0; i < 5; i++) {
+      coalescer.addIceCandidate(endpoint, candidate(i), cont);
+    }
+
+    assertTrue(cont.latch.await(5, TimeUnit.SECONDS));
+    assertEquals(1, transactions.get());
+  }
+
+  @Test
+  public void onlyFailedCandidatesAreSentAgain() throws InterruptedException {
+
+    coalescer = new IceCandidateCoalescer(50, 64);
+    WebRtcEndpoint good = manager.getById("good_kurento.WebRtcEndpoint", WebRtcEndpoint.class);
+    WebRtcEndpoint bad = manager.getById("bad_kurento.WebRtcEndpoint", WebRtcEndpoint.class);
+
+    CountingContinuation cont = new CountingContinuation(4);
+    for (int i = 0; i < 2; i++) {
+      coalescer.addIceCandidate(good, candidate(i), cont);
+      coalescer.addIceCandidate(bad, candidate(i), cont);
+    }
+
+    assertTrue(cont.latch.await(5, TimeUnit.SECONDS));
+    // Candidates added by the transaction are not sent again
+    assertEquals(2, cont.successes.get());
+    assertEquals(1, transactions.get());
+    assertEquals(2, invocations.get());
+  }
+
+  @Test
+  public void foundCandidatesAreDeliveredInBatches() throws InterruptedException {
+
+    coalescer = new IceCandidateCoalescer(50, 64);
+    WebRtcEndpoint endpoint = manager.getById("e4_kurento.WebRtcEndpoint", WebRtcEndpoint.class);
+
+    final List<List<IceCandidateFoundEvent>> batches =
+        Collections.synchronizedList(new ArrayList<List<IceCandidateFoundEvent>>());
+    final CountDownLatch delivered = new CountDownLatch(1);
+
+    coalescer.addIceCandidateFoundListener(endpoint, new CandidatesListener() {
+      @Override
+      public void onIceCandidates(WebRtcEndpoint source, List<IceCandidateFoundEvent> events) {
+        batches.add(events);
+        delivered.countDown();
+      }
+    });
+
+    RemoteObject remoteObject = RemoteObjectInvocationHandler.getFor(endpoint).getRemoteObject();
+    for (int i = 0; i < 3; i++) {
+      remoteObject.fireEvent("IceCandidateFound", foundEvent(i));
+    }
+
+    assertTrue(delivered.await(5, TimeUnit.SECONDS));
+    assertEquals(1, batches.size());
+    assertEquals(3, batches.get(0).size());
+    assertEquals("candidate:2", batches.get(0).get(2).getCandidate().getCandidate());
+  }
+
+  private static IceCandidate candidate(int i) {
+    return new IceCandidate("candidate:" + i, "0", 0);
+  }
+
+  private static Props foundEvent(int i) {
+    Props candidate = new Props().add("__module__", "kurento").add("__type__", "IceCandidate")
+        .add("candidate", "candidate:" + i).add("sdpMid", "0").add("sdpMLineIndex", 0);
+    return new Props().add("type", "IceCandidateFound").add("timestamp", "0")
+        .add("timestampMillis", "0").add("tags", new ArrayList<Object>())
+        .add("candidate", candidate);
+  }
+
+  private static class CountingContinuation implements Continuation<Void> {
+
+    private final CountDownLatch latch;
+    private final AtomicInteger successes = new AtomicInteger();
+
+    private CountingContinuation(int count) {
+      this.latch = new CountDownLatch(count);
+    }
+
+    @Override
+    public void onSuccess(Void result) {
+      successes.incrementAndGet();
+      latch.countDown();
+    }
+
+    @Override
+    public void onError(Throwable cause) {
+      latch.countDown();
+    }
+  }
+
+}
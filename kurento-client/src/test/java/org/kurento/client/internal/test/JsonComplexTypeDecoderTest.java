@@ -0,0 +1,90 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.client.internal.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.kurento.client.internal.test.model.client.ComplexParam;
+import org.kurento.client.internal.test.model.client.SampleEnum;
+import org.kurento.client.internal.transport.serialization.JsonComplexTypeDecoder;
+import org.kurento.jsonrpc.JsonUtils;
+
+import com.google.gson.JsonElement;
+import com.google.gson.reflect.TypeToken;
+
+public class JsonComplexTypeDecoderTest {
+
+  private static final String COMPLEX_PARAMS = "{'value':{"
+      + "'a':{'__module__':'complexParam','__type__':'ComplexParam','prop1':'A','prop2':1},"
+      + "'b':{'__module__':'complexParam','__type__':'ComplexParam','prop1':'B','prop2':2}}}";
+
+  @Test
+  public void decodeMapOfComplexTypes() {
+
+    Type type = new TypeToken<Map<String, ComplexParam>>() {
+    }.getType();
+
+    @SuppressWarnings("unchecked")
+    Map<String, ComplexParam> result = (Map<String, ComplexParam>) new JsonComplexTypeDecoder(null)
+        .decodeResult(JsonUtils.fromJson(COMPLEX_PARAMS, JsonElement.class), type);
+
+    assertEquals(2, result.size());
+    assertEquals("A", result.get("a").getProp1());
+    assertEquals(1, result.get("a").getProp2());
+    assertEquals("B", result.get("b").getProp1());
+    assertEquals(2, result.get("b").getProp2());
+  }
+
+  @Test
+  public void skipNotAcceptedTypes() {
+
+    Type type = new TypeToken<Map<String, Object>>() {
+    }.getType();
+
+    @SuppressWarnings("unchecked")
+    Map<String, Object> result = (Map<String, Object>) new JsonComplexTypeDecoder(null,
+        String.class).decodeResult(JsonUtils.fromJson(COMPLEX_PARAMS, JsonElement.class), type);
+
+    assertTrue(result.isEmpty());
+  }
+
+  @Test
+  public void decodeListOfEnums() {
+
+    Type type = new TypeToken<List<SampleEnum>>() {
+    }.getType();
+
+    SampleEnum[] values = SampleEnum.values();
+    String json = JsonUtils.toJson(new String[] { values[0].toString(), values[1].toString() });
+
+    @SuppressWarnings("unchecked")
+    List<SampleEnum> result = (List<SampleEnum>) new JsonComplexTypeDecoder(null)
+        .decodeResult(JsonUtils.fromJson(json, JsonElement.class), type);
+
+    assertEquals(2, result.size());
+    assertEquals(values[0], result.get(0));
+    assertEquals(values[1], result.get(1));
+  }
+
+}
@@ -0,0 +1,157 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.client.internal.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+import org.kurento.client.KurentoClient;
+import org.kurento.client.KurentoClientPool;
+import org.kurento.client.internal.transport.jsonrpc.RomServerJsonRpcHandler;
+import org.kurento.jsonrpc.client.JsonRpcClientLocal;
+import org.kurento.jsonrpc.server.NettyJsonRpcServer;
+
+/**
+ * Clients of the pool are connected to a local handler. Each connection takes
+ * {@value #CONNECT_LATENCY} ms, so the test can tell whether connections are made in parallel
+ * and in the background.
+ */
+public class KurentoClientPoolTest {
+
+  private static final String URL = "ws://fake:8888/kurento";
+  private static final long CONNECT_LATENCY = 200;
+  private static final int SIZE = 4;
+
+  private final AtomicInteger connections = new AtomicInteger();
+
+  private final KurentoClientPool pool = new KurentoClientPool(SIZE) {
+    @Override
+    protected KurentoClient connect(String url) {
+      connections.incrementAndGet();
+      try {
+        Thread.sleep(CONNECT_LATENCY);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return KurentoClient.createFromJsonRpcClient(new JsonRpcClientLocal(
+          new RomServerJsonRpcHandler("org.kurento.client.internal.test.model", "Impl")));
+    }
+  };
+
+  @After
+  public void closePool() {
+    pool.close();
+  }
+
+  @Test
+  public void warmUpConnectsInParallel() throws Exception {
+
+    long start = System.nanoTime();
+    pool.warmUp(URL).toCompletableFuture().get(5, TimeUnit.SECONDS);
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    assertEquals(SIZE, pool.getIdle(URL));
+    assertEquals(SIZE, connections.get());
+    assertTrue("Warm up took " + elapsed + " ms", elapsed < CONNECT_LATENCY * SIZE / 2);
+  }
+
+  @Test
+  public void warmUpWaitsForConnectionsInProgress() throws Exception {
+
+    pool.warmUp(URL);
+
+    // The pool is already full of clients being connected
+    pool.warmUp(URL).toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+    assertEquals(SIZE, pool.getIdle(URL));
+    assertEquals(SIZE, connections.get());
+  }
+
+  @Test
+  public void takenClientsAreReplaced() throws Exception {
+
+    pool.warmUp(URL).toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+    long start = System.nanoTime();
+    KurentoClient client = pool.take(URL);
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    assertFalse(client.isClosed());
+    assertTrue("Take took " + elapsed + " ms", elapsed < CONNECT_LATENCY / 2);
+
+    long deadline = System.currentTimeMillis() + 5000;
+    while (pool.getIdle(URL) < SIZE && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(SIZE, pool.getIdle(URL));
+    assertEquals(SIZE + 1, connections.get());
+
+    client.destroy();
+  }
+
+  @Test
+  public void closedPoolReleasesIdleClients() throws Exception {
+
+    pool.warmUp(URL).toCompletableFuture().get(5, TimeUnit.SECONDS);
+    pool.close();
+
+    assertEquals(0, pool.getIdle(URL));
+    try {
+      pool.take(URL);
+      fail("IllegalStateException should be thrown");
+    } catch (IllegalStateException e) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void clientsAreCreatedInBackground() throws Exception {
+
+    try (NettyJsonRpcServer server = new NettyJsonRpcServer(0)) {
+
+      server.addHandler(
+          new RomServerJsonRpcHandler("org.kurento.client.internal.test.model", "Impl"),
+          "/kurento");
+      server.start();
+
+      String url = "ws://localhost:" + server.getPort() + "/kurento";
+
+      List<CompletionStage<KurentoClient>> stages = new ArrayList<>();
+      for (int i = 0; i < SIZE; i++) {
+        stages.add(KurentoClient.createAsync(url));
+      }
+
+      for (CompletionStage<KurentoClient> stage : stages) {
+        KurentoClient client = stage.toCompletableFuture().get(10, TimeUnit.SECONDS);
+        assertFalse(client.isClosed());
+        client.destroy();
+      }
+    }
+  }
+
+}
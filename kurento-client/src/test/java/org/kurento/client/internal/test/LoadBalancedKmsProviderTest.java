@@ -0,0 +1,230 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.client.internal.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kurento.client.internal.LoadBalancedKmsProvider;
+import org.kurento.client.internal.LoadBalancedKmsProvider.ServerLoad;
+import org.kurento.client.internal.NotEnoughResourcesException;
+import org.kurento.client.internal.transport.jsonrpc.RomJsonRpcConstants;
+import org.kurento.client.internal.transport.jsonrpc.RomServerJsonRpcHandler;
+import org.kurento.jsonrpc.Transaction;
+import org.kurento.jsonrpc.message.Request;
+import org.kurento.jsonrpc.server.NettyJsonRpcServer;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * Sessions are spread among three fake media servers whose load is set by the test. The
+ * provider reads their load through the ServerManager, as with real servers.
+ */
+public class LoadBalancedKmsProviderTest {
+
+  private static final String SERVER_MANAGER = "manager_ServerManager";
+
+  private static class FakeKms extends RomServerJsonRpcHandler {
+
+    private volatile int cpuCount;
+    private volatile float usedCpu;
+    private volatile int pipelines;
+    private volatile boolean failing;
+    private volatile boolean silent;
+
+    FakeKms(int cpuCount, float usedCpu, int pipelines) {
+      super("org.kurento.client.internal.test.model", "Impl");
+      setLoad(cpuCount, usedCpu, pipelines);
+    }
+
+    void setLoad(int cpuCount, float usedCpu, int pipelines) {
+      this.cpuCount = cpuCount;
+      this.usedCpu = usedCpu;
+      this.pipelines = pipelines;
+    }
+
+    @Override
+    public void handleRequest(Transaction transaction, Request<JsonObject> request)
+        throws Exception {
+
+      JsonObject params = request.getParams();
+      if (!RomJsonRpcConstants.INVOKE_METHOD.equals(request.getMethod())
+          || !SERVER_MANAGER.equals(params.get(RomJsonRpcConstants.INVOKE_OBJECT).getAsString())) {
+        super.handleRequest(transaction, request);
+        return;
+      }
+
+      if (silent) {
+        return;
+      }
+
+      if (failing) {
+        transaction.sendError(1, "ERROR", "Server failing", null);
+        return;
+      }
+
+      JsonObject result = new JsonObject();
+      switch (params.get(RomJsonRpcConstants.INVOKE_OPERATION_NAME).getAsString()) {
+        case "getCpuCount":
+          result.addProperty("value", cpuCount);
+          break;
+        case "getUsedCpu":
+          result.addProperty("value", usedCpu);
+          break;
+        case "getUsedMemory":
+          result.addProperty("value", 1024L);
+          break;
+        case "getPipelines":
+          JsonArray refs = new JsonArray();
+          for (int i = 0; i < pipelines; i++) {
+            refs.add(new JsonPrimitive("p" + i + "_kurento.MediaPipeline"));
+          }
+          result.add("value", refs);
+          break;
+        default:
+          transaction.sendError(1, "ERROR", "Unknown method", null);
+          return;
+      }
+      transaction.sendResponse(result);
+    }
+  }
+
+  private final List<NettyJsonRpcServer> servers = new ArrayList<>();
+  private final List<String> urls = new ArrayList<>();
+
+  private FakeKms loaded;
+  private FakeKms idle;
+  private FakeKms busy;
+  private LoadBalancedKmsProvider provider;
+
+  @Before
+  public void startServers() throws Exception {
+
+    loaded = new FakeKms(4, 90, 30);
+    idle = new FakeKms(4, 10, 2);
+    busy = new FakeKms(4, 50, 10);
+
+    for (FakeKms kms : new FakeKms[] { loaded, idle, busy }) {
+      NettyJsonRpcServer server = new NettyJsonRpcServer(0);
+      server.addHandler(kms, "/kurento");
+      server.start();
+      servers.add(server);
+      urls.add("ws://localhost:" + server.getPort() + "/kurento");
+    }
+
+    // Only the samples taken by the test are used
+    provider = new LoadBalancedKmsProvider(urls, 3600000);
+  }
+
+  @After
+  public void stopServers() {
+    provider.close();
+    for (NettyJsonRpcServer server : servers) {
+      server.close();
+    }
+  }
+
+  private Map<String, Integer> reserve(String prefix, int sessions) {
+    Map<String, Integer> counts = new HashMap<>();
+    for (String url : urls) {
+      counts.put(url, 0);
+    }
+    for (int i = 0; i < sessions; i++) {
+      String url = provider.reserveKms(prefix + i);
+      counts.put(url, counts.get(url) + 1);
+    }
+    return counts;
+  }
+
+  @Test
+  public void sessionsLandOnLessLoadedServers() {
+
+    Map<String, Integer> counts = reserve("session", 30);
+
+    List<ServerLoad> loads = provider.getServerLoads();
+    assertEquals(4, loads.get(0).getCpuCount());
+    assertEquals(90, loads.get(0).getUsedCpu(), 0.01);
+    assertEquals(30, loads.get(0).getPipelines());
+
+    // The loaded server is never the less loaded of two, even with the sessions reserved since
+    assertEquals(0, (int) counts.get(urls.get(0)));
+    assertTrue(counts.toString(), counts.get(urls.get(1)) > 0);
+
+    // Once the idle server gets loaded, new sessions go to the others
+    idle.setLoad(4, 95, 80);
+    provider.sample();
+
+    counts = reserve("later", 10);
+    assertEquals(counts.toString(), 0, (int) counts.get(urls.get(1)));
+  }
+
+  @Test
+  public void failingServersAreNotChosen() {
+
+    provider.sample();
+    busy.failing = true;
+    idle.failing = true;
+    provider.sample();
+
+    assertFalse(provider.getServerLoads().get(1).isAvailable());
+    assertEquals(10, (int) reserve("session", 10).get(urls.get(0)));
+
+    loaded.failing = true;
+    provider.sample();
+    try {
+      provider.reserveKms("none");
+      fail("NotEnoughResourcesException should be thrown");
+    } catch (NotEnoughResourcesException e) {
+      // Expected
+    }
+
+    // Servers are chosen again when they answer
+    idle.failing = false;
+    provider.sample();
+    assertEquals(urls.get(1), provider.reserveKms("again"));
+  }
+
+  @Test
+  public void silentServersDontDelayReservations() {
+
+    provider.close();
+    provider = new LoadBalancedKmsProvider(urls, 3600000, 500);
+    idle.silent = true;
+
+    long start = System.nanoTime();
+    Map<String, Integer> counts = reserve("session", 10);
+
+    assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2000);
+    assertFalse(provider.getServerLoads().get(1).isAvailable());
+    assertEquals(0, (int) counts.get(urls.get(1)));
+  }
+
+}
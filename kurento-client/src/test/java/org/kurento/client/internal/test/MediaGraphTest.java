@@ -0,0 +1,215 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.client.internal.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.kurento.client.MediaGraph;
+import org.kurento.client.TransactionExecutionException;
+import org.kurento.client.internal.client.RomManager;
+import org.kurento.client.internal.server.RomServer;
+import org.kurento.client.internal.test.model.Sample2;
+import org.kurento.client.internal.transport.jsonrpc.RomClientJsonRpcClient;
+import org.kurento.client.internal.transport.jsonrpc.RomJsonRpcConstants;
+import org.kurento.jsonrpc.DefaultJsonRpcHandler;
+import org.kurento.jsonrpc.JsonUtils;
+import org.kurento.jsonrpc.Props;
+import org.kurento.jsonrpc.Transaction;
+import org.kurento.jsonrpc.client.JsonRpcClientLocal;
+import org.kurento.jsonrpc.message.Request;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * The fake server executes transactions operation by operation, resolving the references to the
+ * objects created in the same transaction.
+ */
+public class MediaGraphTest {
+
+  private static final AtomicInteger requests = new AtomicInteger();
+  private static final List<String> releasedRefs = new CopyOnWriteArrayList<>();
+
+  private static RomManager manager;
+
+  @BeforeClass
+  public static void initFactory() {
+
+    final RomServer server = new RomServer("org.kurento.client.internal.test.model", "Impl");
+
+    DefaultJsonRpcHandler<JsonObject> handler = new DefaultJsonRpcHandler<JsonObject>() {
+      @Override
+      public void handleRequest(Transaction transaction, Request<JsonObject> request)
+          throws Exception {
+
+        requests.incrementAndGet();
+
+        if (RomJsonRpcConstants.TRANSACTION_METHOD.equals(request.getMethod())) {
+
+          List<String> createdRefs = new ArrayList<>();
+          JsonArray responses = new JsonArray();
+
+          for (JsonElement op : request.getParams()
+              .getAsJsonArray(RomJsonRpcConstants.TRANSACTION_OPERATIONS)) {
+
+            JsonObject opJson = op.getAsJsonObject();
+            JsonObject response = new JsonObject();
+            response.addProperty("jsonrpc", "2.0");
+            response.add("id", opJson.get("id"));
+            try {
+              response.add("result", JsonUtils.toJsonElement(execute(server,
+                  opJson.get("method").getAsString(), opJson.getAsJsonObject("params"),
+                  createdRefs)));
+            } catch (RuntimeException e) {
+              JsonObject error = new JsonObject();
+              error.addProperty("code", 40000);
+              error.addProperty("message", e.getMessage());
+              response.add("error", error);
+            }
+            responses.add(response);
+          }
+
+          transaction.sendResponse(responses);
+
+        } else {
+          transaction.sendResponse(
+              execute(server, request.getMethod(), request.getParams(), null));
+        }
+      }
+    };
+
+    manager = new RomManager(new RomClientJsonRpcClient(new JsonRpcClientLocal(handler)));
+  }
+
+  private static Object execute(RomServer server, String method, JsonObject params,
+      List<String> createdRefs) {
+
+    switch (method) {
+      case RomJsonRpcConstants.CREATE_METHOD:
+        String objectRef = server.create(params.get(RomJsonRpcConstants.CREATE_TYPE).getAsString(),
+            toProps(params.getAsJsonObject(RomJsonRpcConstants.CREATE_CONSTRUCTOR_PARAMS)));
+        createdRefs.add(objectRef);
+        return objectRef;
+      case RomJsonRpcConstants.INVOKE_METHOD:
+        String target = params.get(RomJsonRpcConstants.INVOKE_OBJECT).getAsString();
+        if (target.startsWith("newref:")) {
+          target = createdRefs.get(Integer.parseInt(target.substring("newref:".length())));
+        }
+        return server.invoke(target,
+            params.get(RomJsonRpcConstants.INVOKE_OPERATION_NAME).getAsString(),
+            toProps(params.getAsJsonObject(RomJsonRpcConstants.INVOKE_OPERATION_PARAMS)),
+            Object.class);
+      case RomJsonRpcConstants.RELEASE_METHOD:
+        String released = params.get(RomJsonRpcConstants.RELEASE_OBJECT).getAsString();
+        server.release(released);
+        releasedRefs.add(released);
+        return null;
+      default:
+        throw new IllegalArgumentException("Unexpected method " + method);
+    }
+  }
+
+  private static Props toProps(JsonObject json) {
+    return JsonUtils.fromJson(json, Props.class);
+  }
+
+  @Before
+  public void resetCounters() {
+    requests.set(0);
+    releasedRefs.clear();
+  }
+
+  @Test
+  public void graphIsCreatedWithOneRequest() {
+
+    MediaGraph graph = new MediaGraph(manager);
+    MediaGraph.Node<Sample2> node1 =
+        graph.create(Sample2.class).param("att1", "first").param("att2", 1)
+        .param("att3", 0.5f).param("att4", true);
+    MediaGraph.Node<Sample2> node2 =
+        graph.create(Sample2.class).param("att1", "second").param("att2", 2)
+        .param("att3", 0.5f).param("att4", true);
+
+    graph.commit();
+
+    assertEquals(1, requests.get());
+    assertTrue(node1.get().isCommited());
+    assertTrue(node2.get().isCommited());
+
+    assertEquals("first", node1.get().getAtt1());
+    assertEquals(2, node2.get().getAtt2());
+  }
+
+  @Test
+  public void cyclicDependenciesAreRejected() {
+
+    MediaGraph graph = new MediaGraph(manager);
+    MediaGraph.Node<Sample2> node1 = graph.create(Sample2.class);
+    MediaGraph.Node<Sample2> node2 = graph.create(Sample2.class).param("other", node1);
+    node1.param("other", node2);
+
+    try {
+      graph.commit();
+      fail("Cyclic dependency not detected");
+    } catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("other=#1 type=Sample2"));
+    }
+
+    assertEquals(0, requests.get());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void nodesAreNotAvailableBeforeCommit() {
+
+    MediaGraph graph = new MediaGraph(manager);
+    graph.create(Sample2.class).param("att1", "first").param("att2", 1).get();
+  }
+
+  @Test
+  public void objectsOfFailedCommitAreReleased() {
+
+    MediaGraph graph = new MediaGraph(manager);
+    graph.create(Sample2.class).param("att1", "first").param("att2", 1)
+        .param("att3", 0.5f).param("att4", true);
+    graph.create(Sample2.class).param("att1", "second").param("att2", 2).param("att3", 0.5f)
+        .param("att4", true).set("att1", "other");
+
+    try {
+      graph.commit();
+      fail("Setting a property without setter should fail");
+    } catch (TransactionExecutionException e) {
+      // Expected
+    }
+
+    // Both objects are created before the setter fails, and they are released with one request
+    assertEquals(2, requests.get());
+    assertEquals(2, releasedRefs.size());
+  }
+
+}
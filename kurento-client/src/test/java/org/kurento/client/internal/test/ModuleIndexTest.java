@@ -0,0 +1,71 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.client.internal.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.kurento.client.KurentoObject;
+import org.kurento.client.internal.ModuleIndex;
+import org.kurento.client.internal.client.RomManager;
+import org.kurento.client.internal.test.model.Sample2;
+import org.kurento.client.internal.test.model.SampleRemoteClass;
+import org.kurento.client.internal.test.model.client.ComplexParam;
+import org.kurento.client.internal.test.model.internal.stub.Sample2Stub;
+import org.kurento.client.internal.transport.jsonrpc.RomClientJsonRpcClient;
+import org.kurento.client.internal.transport.jsonrpc.RomServerJsonRpcHandler;
+import org.kurento.client.internal.transport.serialization.ParamsFlattener;
+import org.kurento.jsonrpc.client.JsonRpcClientLocal;
+
+/**
+ * Module "sample" is only known through its index, registered in the test resources.
+ */
+public class ModuleIndexTest {
+
+  @Test
+  public void typesAreResolvedWithTheIndex() {
+
+    assertSame(Sample2.class, ModuleIndex.findClass("sample", "Sample2"));
+    assertSame(SampleRemoteClass.class, ModuleIndex.findClass("sample", "SampleRemoteClass"));
+    assertSame(ComplexParam.class, ModuleIndex.findClass("sample", "ComplexParam"));
+    assertEquals("org.kurento.client.internal.test.model", ModuleIndex.findPackageName("sample"));
+
+    assertNull(ModuleIndex.findClass("sample", "Unknown"));
+    assertNull(ModuleIndex.findClass("unknown", "Sample2"));
+
+    assertSame(Sample2.class, ParamsFlattener.getInstance().getClassFor("sample.Sample2"));
+
+    assertSame(Sample2Stub.class, ModuleIndex.findStubClass(Sample2.class));
+    assertNull(ModuleIndex.findStubClass(SampleRemoteClass.class));
+  }
+
+  @Test
+  public void objectsAreCreatedWithTheIndexedStub() {
+
+    RomManager manager = new RomManager(new RomClientJsonRpcClient(new JsonRpcClientLocal(
+        new RomServerJsonRpcHandler("org.kurento.client.internal.test.model", "Impl"))));
+
+    KurentoObject obj = manager.getById("obj1_sample.Sample2", KurentoObject.class);
+
+    assertTrue(obj instanceof Sample2Stub);
+  }
+
+}
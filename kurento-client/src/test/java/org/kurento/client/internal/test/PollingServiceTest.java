@@ -0,0 +1,186 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.client.internal.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.kurento.client.PollingService;
+import org.kurento.client.PollingService.Read;
+import org.kurento.client.PollingService.Snapshot;
+import org.kurento.client.internal.client.RomManager;
+import org.kurento.client.internal.test.model.Sample2;
+import org.kurento.client.internal.transport.jsonrpc.RomClientJsonRpcClient;
+import org.kurento.client.internal.transport.jsonrpc.RomJsonRpcConstants;
+import org.kurento.jsonrpc.DefaultJsonRpcHandler;
+import org.kurento.jsonrpc.Transaction;
+import org.kurento.jsonrpc.client.JsonRpcClientLocal;
+import org.kurento.jsonrpc.message.Request;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * The fake server answers the reads with "objectRef.operation", and fails them for the objects
+ * whose reference starts with "bad".
+ */
+public class PollingServiceTest {
+
+  private static final AtomicInteger transactions = new AtomicInteger();
+  private static final AtomicInteger invocations = new AtomicInteger();
+
+  private static RomManager manager;
+
+  @BeforeClass
+  public static void initFactory() {
+
+    DefaultJsonRpcHandler<JsonObject> handler = new DefaultJsonRpcHandler<JsonObject>() {
+      @Override
+      public void handleRequest(Transaction transaction, Request<JsonObject> request)
+          throws Exception {
+
+        if (RomJsonRpcConstants.TRANSACTION_METHOD.equals(request.getMethod())) {
+
+          transactions.incrementAndGet();
+
+          JsonArray responses = new JsonArray();
+          for (JsonElement op : request.getParams()
+              .getAsJsonArray(RomJsonRpcConstants.TRANSACTION_OPERATIONS)) {
+
+            JsonObject opJson = op.getAsJsonObject();
+            JsonObject response = new JsonObject();
+            response.addProperty("jsonrpc", "2.0");
+            response.add("id", opJson.get("id"));
+
+            JsonElement result = answer(opJson.getAsJsonObject("params"));
+            if (result != null) {
+              response.add("result", result);
+            } else {
+              JsonObject error = new JsonObject();
+              error.addProperty("code", 40101);
+              error.addProperty("message", "Object not found");
+              response.add("error", error);
+            }
+            responses.add(response);
+          }
+          transaction.sendResponse(responses);
+
+        } else if (RomJsonRpcConstants.INVOKE_METHOD.equals(request.getMethod())) {
+
+          invocations.incrementAndGet();
+
+          JsonElement result = answer(request.getParams());
+          if (result != null) {
+            transaction.sendResponse(result);
+          } else {
+            transaction.sendError(40101, "MEDIA_OBJECT_NOT_FOUND", "Object not found", null);
+          }
+        }
+      }
+    };
+
+    manager = new RomManager(new RomClientJsonRpcClient(new JsonRpcClientLocal(handler)));
+  }
+
+  private static JsonElement answer(JsonObject invokeParams) {
+    String objectRef = invokeParams.get(RomJsonRpcConstants.INVOKE_OBJECT).getAsString();
+    if (objectRef.startsWith("bad")) {
+      return null;
+    }
+    String operation = invokeParams.get(RomJsonRpcConstants.INVOKE_OPERATION_NAME).getAsString();
+    return new JsonPrimitive(objectRef + "." + operation);
+  }
+
+  @Before
+  public void resetCounters() {
+    transactions.set(0);
+    invocations.set(0);
+  }
+
+  @Test
+  public void readsAreMergedInOneTransaction() {
+
+    PollingService polling = new PollingService(null);
+    Read<String> read1 =
+        polling.add(manager.getById("obj1_Sample2", Sample2.class), "getAtt1", String.class);
+    Read<String> read2 =
+        polling.add(manager.getById("obj2_Sample2", Sample2.class), "getAtt1", String.class);
+
+    Snapshot snapshot = polling.poll();
+
+    assertEquals("obj1_Sample2.getAtt1", snapshot.get(read1));
+    assertEquals("obj2_Sample2.getAtt1", snapshot.get(read2));
+    assertTrue(snapshot.getErrors().isEmpty());
+    assertEquals(1, transactions.get());
+    assertEquals(0, invocations.get());
+  }
+
+  @Test
+  public void failingReadDoesNotHideTheOthers() {
+
+    PollingService polling = new PollingService(null);
+    Read<String> good =
+        polling.add(manager.getById("obj3_Sample2", Sample2.class), "getAtt1", String.class);
+    Read<String> bad =
+        polling.add(manager.getById("bad1_Sample2", Sample2.class), "getAtt1", String.class);
+
+    Snapshot snapshot = polling.poll();
+
+    assertEquals("obj3_Sample2.getAtt1", snapshot.get(good));
+    assertNull(snapshot.getError(good));
+    assertNull(snapshot.get(bad));
+    assertNotNull(snapshot.getError(bad));
+    assertEquals(1, transactions.get());
+    assertEquals(2, invocations.get());
+  }
+
+  @Test
+  public void snapshotsAreDeliveredPeriodically() throws InterruptedException {
+
+    final CountDownLatch snapshots = new CountDownLatch(3);
+
+    PollingService polling = new PollingService(new PollingService.Listener() {
+      @Override
+      public void onSnapshot(Snapshot snapshot) {
+        snapshots.countDown();
+      }
+    }, 50, 10);
+    polling.add(manager.getById("obj4_Sample2", Sample2.class), "getAtt1", String.class);
+
+    polling.start();
+    try {
+      assertTrue("Snapshots not delivered", snapshots.await(5, TimeUnit.SECONDS));
+    } finally {
+      polling.close();
+    }
+
+    assertTrue(transactions.get() >= 3);
+  }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.client.internal.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.kurento.client.internal.client.RomManager;
+import org.kurento.client.internal.test.model.Sample2;
+import org.kurento.client.internal.transport.jsonrpc.RomClientJsonRpcClient;
+import org.kurento.client.internal.transport.jsonrpc.RomServerJsonRpcHandler;
+import org.kurento.jsonrpc.Transaction;
+import org.kurento.jsonrpc.client.JsonRpcClientLocal;
+import org.kurento.jsonrpc.message.Request;
+
+import com.google.gson.JsonObject;
+
+/**
+ * Checks that getters of immutable properties ({@code Sample2.getAtt1}) are only sent once to the
+ * server.
+ */
+public class PropertyCacheTest {
+
+  private final ConcurrentMap<String, AtomicInteger> invocations = new ConcurrentHashMap<>();
+
+  private RomManager manager;
+  private Sample2 obj;
+
+  @Before
+  public void initObject() {
+
+    RomServerJsonRpcHandler handler =
+        new RomServerJsonRpcHandler("org.kurento.client.internal.test.model", "Impl") {
+          @Override
+          public void handleRequest(Transaction transaction, Request<JsonObject> request)
+              throws Exception {
+            if ("invoke".equals(request.getMethod())) {
+              String operation = request.getParams().get("operation").getAsString();
+              invocations.putIfAbsent(operation, new AtomicInteger());
+              invocations.get(operation).incrementAndGet();
+            }
+            super.handleRequest(transaction, request);
+          }
+        };
+
+    manager = new RomManager(new RomClientJsonRpcClient(new JsonRpcClientLocal(handler)));
+    obj = new Sample2.Builder("XXX", 33, manager).withAtt3(0.5f).att4().build();
+  }
+
+  @Test
+  public void immutablePropertyIsReadOnce() throws Exception {
+
+    for (int i = 0; i < 3; i++) {
+      assertEquals("XXX", obj.getAtt1());
+      assertEquals(33, obj.getAtt2());
+    }
+
+    assertEquals("XXX", obj.getAtt1Async().toCompletableFuture().get(5, TimeUnit.SECONDS));
+
+    assertEquals(1, invocations("getAtt1"));
+    assertEquals(3, invocations("getAtt2"));
+  }
+
+  @Test
+  public void asyncReadFillsCache() throws Exception {
+
+    assertEquals("XXX", obj.getAtt1Async().toCompletableFuture().get(5, TimeUnit.SECONDS));
+    assertEquals("XXX", obj.getAtt1());
+
+    assertEquals(1, invocations("getAtt1"));
+  }
+
+  @Test
+  public void clearedCacheIsReadAgain() {
+
+    obj.getAtt1();
+    manager.clearPropertyCaches();
+    obj.getAtt1();
+
+    assertEquals(2, invocations("getAtt1"));
+  }
+
+  private int invocations(String operation) {
+    AtomicInteger count = invocations.get(operation);
+    return count == null ? 0 : count.get();
+  }
+
+}
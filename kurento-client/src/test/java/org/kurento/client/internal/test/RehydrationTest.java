@@ -0,0 +1,257 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.client.internal.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.kurento.client.Composite;
+import org.kurento.client.ElementConnectionData;
+import org.kurento.client.EventListener;
+import org.kurento.client.HubPort;
+import org.kurento.client.IceCandidateFoundEvent;
+import org.kurento.client.KurentoClient;
+import org.kurento.client.MediaObject;
+import org.kurento.client.RehydratedPipeline;
+import org.kurento.client.WebRtcEndpoint;
+import org.kurento.client.internal.client.ListenerSubscriptionImpl;
+import org.kurento.client.internal.client.RemoteObject;
+import org.kurento.client.internal.client.RemoteObjectInvocationHandler;
+import org.kurento.client.internal.client.RomManager;
+import org.kurento.client.internal.transport.jsonrpc.RomClientJsonRpcClient;
+import org.kurento.client.internal.transport.jsonrpc.RomJsonRpcConstants;
+import org.kurento.jsonrpc.DefaultJsonRpcHandler;
+import org.kurento.jsonrpc.Transaction;
+import org.kurento.jsonrpc.client.JsonRpcClientLocal;
+import org.kurento.jsonrpc.message.Request;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * The fake server holds a pipeline with a WebRTC endpoint connected to the port of a composite.
+ * Every transaction is counted, so the test checks that objects are read level by level.
+ */
+public class RehydrationTest {
+
+  private static final String PIPELINE = "p1_kurento.MediaPipeline";
+  private static final String ENDPOINT = "p1/e1_kurento.WebRtcEndpoint";
+  private static final String COMPOSITE = "p1/c1_kurento.Composite";
+  private static final String PORT = "p1/hp1_kurento.HubPort";
+
+  private final AtomicInteger transactions = new AtomicInteger();
+  private final AtomicInteger subscriptions = new AtomicInteger();
+
+  private volatile String failingSubscriptionObject;
+
+  private DefaultJsonRpcHandler<JsonObject> handler;
+
+  @Before
+  public void initHandler() {
+
+    handler = new DefaultJsonRpcHandler<JsonObject>() {
+      @Override
+      public void handleRequest(Transaction transaction, Request<JsonObject> request)
+          throws Exception {
+
+        switch (request.getMethod()) {
+          case RomJsonRpcConstants.SUBSCRIBE_METHOD:
+            transaction.sendResponse(
+                new JsonPrimitive("subscription" + subscriptions.incrementAndGet()));
+            break;
+          case RomJsonRpcConstants.TRANSACTION_METHOD:
+            transactions.incrementAndGet();
+            JsonArray responses = new JsonArray();
+            for (JsonElement op : request.getParams()
+                .getAsJsonArray(RomJsonRpcConstants.TRANSACTION_OPERATIONS)) {
+              JsonObject opJson = op.getAsJsonObject();
+              JsonObject response = new JsonObject();
+              response.addProperty("jsonrpc", "2.0");
+              response.add("id", opJson.get("id"));
+              if (isFailingSubscription(opJson)) {
+                JsonObject error = new JsonObject();
+                error.addProperty("code", 40101);
+                error.addProperty("message", "Object not found");
+                response.add("error", error);
+              } else {
+                response.add("result", result(opJson));
+              }
+              responses.add(response);
+            }
+            transaction.sendResponse(responses);
+            break;
+          default:
+            transaction.sendResponse(new JsonObject());
+        }
+      }
+    };
+  }
+
+  private boolean isFailingSubscription(JsonObject op) {
+    return RomJsonRpcConstants.SUBSCRIBE_METHOD.equals(op.get("method").getAsString())
+        && op.getAsJsonObject("params").get(RomJsonRpcConstants.SUBSCRIBE_OBJECT).getAsString()
+            .equals(failingSubscriptionObject);
+  }
+
+  private JsonElement result(JsonObject op) {
+
+    if (RomJsonRpcConstants.SUBSCRIBE_METHOD.equals(op.get("method").getAsString())) {
+      return new JsonPrimitive("subscription" + subscriptions.incrementAndGet());
+    }
+
+    JsonObject params = op.getAsJsonObject("params");
+    String object = params.get(RomJsonRpcConstants.INVOKE_OBJECT).getAsString();
+    String operation = params.get(RomJsonRpcConstants.INVOKE_OPERATION_NAME).getAsString();
+
+    JsonArray value = new JsonArray();
+    if ("getChildren".equals(operation)) {
+      if (PIPELINE.equals(object)) {
+        value.add(new JsonPrimitive(ENDPOINT));
+        value.add(new JsonPrimitive(COMPOSITE));
+      } else if (COMPOSITE.equals(object)) {
+        value.add(new JsonPrimitive(PORT));
+      }
+    } else if ("getSinkConnections".equals(operation) && ENDPOINT.equals(object)) {
+      JsonObject connection = new JsonObject();
+      connection.addProperty("__module__", "kurento");
+      connection.addProperty("__type__", "ElementConnectionData");
+      connection.addProperty("source", ENDPOINT);
+      connection.addProperty("sink", PORT);
+      connection.addProperty("type", "VIDEO");
+      connection.addProperty("sourceDescription", "default");
+      connection.addProperty("sinkDescription", "default");
+      value.add(connection);
+    }
+
+    JsonObject result = new JsonObject();
+    result.add("value", value);
+    return result;
+  }
+
+  @Test
+  public void pipelineIsRehydratedLevelByLevel() {
+
+    KurentoClient kurentoClient =
+        KurentoClient.createFromJsonRpcClient(new JsonRpcClientLocal(handler));
+
+    RehydratedPipeline rehydrated = kurentoClient.rehydrate(PIPELINE);
+
+    // Pipeline, its elements and the port of the composite
+    assertEquals(3, transactions.get());
+    assertEquals(PIPELINE, rehydrated.getPipeline().getId());
+
+    List<MediaObject> objects = rehydrated.getObjects();
+    assertEquals(3, objects.size());
+    assertEquals(1, rehydrated.getObjects(WebRtcEndpoint.class).size());
+    assertEquals(1, rehydrated.getObjects(Composite.class).size());
+    assertEquals(1, rehydrated.getObjects(HubPort.class).size());
+
+    WebRtcEndpoint endpoint = (WebRtcEndpoint) rehydrated.getObject(ENDPOINT);
+    HubPort port = (HubPort) rehydrated.getObject(PORT);
+    assertNotNull(endpoint);
+    assertNotNull(port);
+
+    List<ElementConnectionData> connections = rehydrated.getConnections();
+    assertEquals(1, connections.size());
+    assertSame(endpoint, connections.get(0).getSource());
+    assertSame(port, connections.get(0).getSink());
+
+    kurentoClient.destroy();
+  }
+
+  @Test
+  public void subscriptionsAreRenewedInOneTransaction() {
+
+    RomManager manager =
+        new RomManager(new RomClientJsonRpcClient(new JsonRpcClientLocal(handler)));
+
+    WebRtcEndpoint endpoint = manager.getById(ENDPOINT, WebRtcEndpoint.class);
+    WebRtcEndpoint other = manager.getById("p1/e2_kurento.WebRtcEndpoint", WebRtcEndpoint.class);
+
+    EventListener<IceCandidateFoundEvent> listener = new EventListener<IceCandidateFoundEvent>() {
+      @Override
+      public void onEvent(IceCandidateFoundEvent event) {
+      }
+    };
+
+    ListenerSubscriptionImpl subscription1 =
+        (ListenerSubscriptionImpl) endpoint.addIceCandidateFoundListener(listener);
+    ListenerSubscriptionImpl subscription2 =
+        (ListenerSubscriptionImpl) other.addIceCandidateFoundListener(listener);
+
+    RemoteObject remoteObject1 = RemoteObjectInvocationHandler.getFor(endpoint).getRemoteObject();
+    RemoteObject remoteObject2 = RemoteObjectInvocationHandler.getFor(other).getRemoteObject();
+
+    String before1 = remoteObject1.getSubscriptionId(subscription1);
+    String before2 = remoteObject2.getSubscriptionId(subscription2);
+
+    manager.renewSubscriptions();
+
+    assertEquals(1, transactions.get());
+    assertEquals(4, subscriptions.get());
+
+    String after1 = remoteObject1.getSubscriptionId(subscription1);
+    String after2 = remoteObject2.getSubscriptionId(subscription2);
+    assertTrue(!before1.equals(after1) && !before2.equals(after2));
+    assertTrue(after1.equals("subscription3") || after1.equals("subscription4"));
+  }
+
+  @Test
+  public void onlyFailedSubscriptionsAreRenewedAgain() {
+
+    RomManager manager =
+        new RomManager(new RomClientJsonRpcClient(new JsonRpcClientLocal(handler)));
+
+    WebRtcEndpoint endpoint = manager.getById(ENDPOINT, WebRtcEndpoint.class);
+    WebRtcEndpoint other = manager.getById("p1/e2_kurento.WebRtcEndpoint", WebRtcEndpoint.class);
+
+    EventListener<IceCandidateFoundEvent> listener = new EventListener<IceCandidateFoundEvent>() {
+      @Override
+      public void onEvent(IceCandidateFoundEvent event) {
+      }
+    };
+
+    ListenerSubscriptionImpl subscription1 =
+        (ListenerSubscriptionImpl) endpoint.addIceCandidateFoundListener(listener);
+    ListenerSubscriptionImpl subscription2 =
+        (ListenerSubscriptionImpl) other.addIceCandidateFoundListener(listener);
+
+    failingSubscriptionObject = other.getId();
+
+    manager.renewSubscriptions();
+
+    // The subscription created in the transaction is kept, and only the failed one is retried
+    assertEquals(1, transactions.get());
+    assertEquals(4, subscriptions.get());
+
+    RemoteObject remoteObject1 = RemoteObjectInvocationHandler.getFor(endpoint).getRemoteObject();
+    RemoteObject remoteObject2 = RemoteObjectInvocationHandler.getFor(other).getRemoteObject();
+    assertEquals("subscription3", remoteObject1.getSubscriptionId(subscription1));
+    assertEquals("subscription4", remoteObject2.getSubscriptionId(subscription2));
+  }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.client.internal.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.kurento.client.internal.client.RemoteObject;
+import org.kurento.client.internal.client.RemoteObjectInvocationHandler;
+import org.kurento.client.internal.client.RomManager;
+import org.kurento.client.internal.test.model.Sample2;
+import org.kurento.client.internal.test.model.internal.stub.Sample2Stub;
+import org.kurento.client.internal.transport.jsonrpc.RomClientJsonRpcClient;
+import org.kurento.client.internal.transport.jsonrpc.RomServerJsonRpcHandler;
+import org.kurento.jsonrpc.client.JsonRpcClientLocal;
+
+public class RemoteObjectStubTest {
+
+  protected static RomManager manager;
+
+  @BeforeClass
+  public static void initFactory() {
+    manager = new RomManager(new RomClientJsonRpcClient(new JsonRpcClientLocal(
+        new RomServerJsonRpcHandler("org.kurento.client.internal.test.model", "Impl"))));
+  }
+
+  @Test
+  public void stubIsUsedWhenAvailable() {
+
+    Sample2 obj = new Sample2.Builder("XXX", 33, manager).withAtt3(0.5f).att4().build();
+
+    assertTrue(obj instanceof Sample2Stub);
+
+    assertEquals("XXX", obj.getAtt1());
+    assertEquals(33, obj.getAtt2());
+    assertEquals(0.5f, obj.getAtt3(), 0.01);
+    assertEquals(true, obj.getAtt4());
+
+    RemoteObject remoteObject = RemoteObjectInvocationHandler.getFor(obj).getRemoteObject();
+    Sample2 sameObj = manager.getById(remoteObject.getObjectRef(), Sample2.class);
+    assertSame(obj, sameObj);
+    assertEquals(obj.hashCode(), sameObj.hashCode());
+    assertNull(RemoteObjectInvocationHandler.getFor(new Object()));
+  }
+
+}
@@ -20,10 +20,13 @@ package org.kurento.client.internal.test;
 import static org.junit.Assert.assertEquals;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.Test;
 import org.kurento.client.internal.test.model.client.ComplexParam;
+import org.kurento.client.internal.transport.serialization.ParamsFlattener;
 import org.kurento.jsonrpc.JsonUtils;
 import org.kurento.jsonrpc.Props;
 
@@ -310,4 +313,32 @@ public class RomJsonConverterTest {
     assertEquals(jsonObject.get("prop4").getAsFloat(), 5.5f, 0.01);
 
   }
+
+  @Test
+  public void flattenParamsAsJsonMatchesPropsConversion() {
+
+    ComplexParam complexParam = new ComplexParam("XXX", 33);
+    complexParam.setProp4(0.5f);
+
+    Map<String, Object> map = new HashMap<>();
+    map.put("key1", EnumType.CONST2);
+    map.put("key2", null);
+
+    List<Object> list = new ArrayList<>();
+    list.add(complexParam);
+    list.add(7L);
+
+    Props params = new Props("param", complexParam).add("map", map).add("list", list)
+        .add("enum", EnumType.CONST3).add("bool", true).add("null", null);
+
+    ParamsFlattener flattener = ParamsFlattener.getInstance();
+
+    JsonObject expected =
+        JsonUtils.fromJson(JsonUtils.toJson(flattener.flattenParams(params)), JsonObject.class);
+    JsonObject direct =
+        JsonUtils.fromJson(flattener.flattenParamsAsJson(params, false).toString(),
+            JsonObject.class);
+
+    assertEquals(expected, direct);
+  }
 }
@@ -0,0 +1,157 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.client.internal.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.kurento.client.internal.client.RomManager;
+import org.kurento.client.internal.test.model.Sample2;
+import org.kurento.client.internal.transport.jsonrpc.RomClientJsonRpcClient;
+import org.kurento.client.internal.transport.jsonrpc.RomServerJsonRpcHandler;
+import org.kurento.jsonrpc.Transaction;
+import org.kurento.jsonrpc.client.JsonRpcClientLocal;
+import org.kurento.jsonrpc.message.Request;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.JsonObject;
+
+/**
+ * Creates objects from several threads through the same {@link RomManager}. The fake server adds
+ * a fixed latency to each creation, so if creations were serialized the test would take, at least,
+ * the sum of all latencies.
+ */
+public class RomManagerConcurrencyTest {
+
+  private static final Logger log = LoggerFactory.getLogger(RomManagerConcurrencyTest.class);
+
+  private static final int NUM_THREADS = 8;
+  private static final int OBJECTS_PER_THREAD = 5;
+  private static final long CREATE_LATENCY = 50;
+
+  private static RomManager manager;
+  private static ExecutorService executor;
+
+  @BeforeClass
+  public static void initFactory() {
+
+    RomServerJsonRpcHandler handler =
+        new RomServerJsonRpcHandler("org.kurento.client.internal.test.model", "Impl") {
+          @Override
+          public void handleRequest(Transaction transaction, Request<JsonObject> request)
+              throws Exception {
+            if ("create".equals(request.getMethod())) {
+              Thread.sleep(CREATE_LATENCY);
+            }
+            super.handleRequest(transaction, request);
+          }
+        };
+
+    manager = new RomManager(new RomClientJsonRpcClient(new JsonRpcClientLocal(handler)));
+    executor = Executors.newFixedThreadPool(NUM_THREADS);
+  }
+
+  @AfterClass
+  public static void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void concurrentCreationIsNotSerialized() throws Exception {
+
+    List<Callable<List<Sample2>>> tasks = new ArrayList<>();
+    for (int i = 0; i < NUM_THREADS; i++) {
+      final int thread = i;
+      tasks.add(new Callable<List<Sample2>>() {
+        @Override
+        public List<Sample2> call() throws Exception {
+          List<Sample2> created = new ArrayList<>();
+          for (int j = 0; j < OBJECTS_PER_THREAD; j++) {
+            created.add(
+                new Sample2.Builder("T" + thread, j, manager).withAtt3(0.5f).att4().build());
+          }
+          return created;
+        }
+      });
+    }
+
+    long start = System.nanoTime();
+    List<Future<List<Sample2>>> results = executor.invokeAll(tasks);
+    long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+    Set<String> ids = new HashSet<>();
+    for (int i = 0; i < NUM_THREADS; i++) {
+      List<Sample2> created = results.get(i).get();
+      for (int j = 0; j < OBJECTS_PER_THREAD; j++) {
+        Sample2 obj = created.get(j);
+        assertEquals("T" + i, obj.getAtt1());
+        assertEquals(j, obj.getAtt2());
+        ids.add(obj.getId());
+      }
+    }
+
+    int numObjects = NUM_THREADS * OBJECTS_PER_THREAD;
+    long serializedMillis = numObjects * CREATE_LATENCY;
+
+    log.info("Created {} objects from {} threads in {} ms ({} objects/s)", numObjects,
+        NUM_THREADS, elapsedMillis, numObjects * 1000 / Math.max(elapsedMillis, 1));
+
+    assertEquals(numObjects, ids.size());
+    assertTrue("Creation took " + elapsedMillis + " ms, expected less than "
+        + serializedMillis / 2 + " ms", elapsedMillis < serializedMillis / 2);
+  }
+
+  @Test
+  public void concurrentGetByIdReturnsSameObject() throws Exception {
+
+    final String objectRef = "concurrent_Sample2";
+
+    List<Callable<Sample2>> tasks = new ArrayList<>();
+    for (int i = 0; i < NUM_THREADS; i++) {
+      tasks.add(new Callable<Sample2>() {
+        @Override
+        public Sample2 call() throws Exception {
+          return manager.getById(objectRef, Sample2.class);
+        }
+      });
+    }
+
+    List<Future<Sample2>> results = executor.invokeAll(tasks);
+
+    Sample2 first = results.get(0).get();
+    for (Future<Sample2> result : results) {
+      assertSame(first, result.get());
+    }
+    assertSame(first, manager.getById(objectRef, Sample2.class));
+  }
+
+}
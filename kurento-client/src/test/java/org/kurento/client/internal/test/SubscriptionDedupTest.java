@@ -0,0 +1,209 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.client.internal.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.kurento.client.internal.TransactionImpl;
+import org.kurento.client.internal.client.ListenerSubscriptionImpl;
+import org.kurento.client.internal.client.RemoteObject;
+import org.kurento.client.internal.client.RemoteObjectEventListener;
+import org.kurento.client.internal.client.RemoteObjectInvocationHandler;
+import org.kurento.client.internal.client.RomManager;
+import org.kurento.client.internal.test.model.Sample2;
+import org.kurento.client.internal.transport.jsonrpc.RomClientJsonRpcClient;
+import org.kurento.client.internal.transport.jsonrpc.RomJsonRpcConstants;
+import org.kurento.client.internal.transport.jsonrpc.RomServerJsonRpcHandler;
+import org.kurento.jsonrpc.Props;
+import org.kurento.jsonrpc.Transaction;
+import org.kurento.jsonrpc.client.JsonRpcClientLocal;
+import org.kurento.jsonrpc.message.Request;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * Listeners of the same object and event type share one server subscription.
+ */
+public class SubscriptionDedupTest {
+
+  private static final AtomicInteger subscriptions = new AtomicInteger();
+  private static final AtomicInteger unsubscriptions = new AtomicInteger();
+  private static final AtomicInteger transactions = new AtomicInteger();
+
+  private static RomManager manager;
+
+  @BeforeClass
+  public static void initFactory() {
+
+    RomServerJsonRpcHandler handler =
+        new RomServerJsonRpcHandler("org.kurento.client.internal.test.model", "Impl") {
+          @Override
+          public void handleRequest(Transaction transaction, Request<JsonObject> request)
+              throws Exception {
+            switch (request.getMethod()) {
+              case RomJsonRpcConstants.SUBSCRIBE_METHOD:
+              case RomJsonRpcConstants.UNSUBSCRIBE_METHOD:
+                transaction.sendResponse(answer(request.getMethod()));
+                break;
+              case RomJsonRpcConstants.TRANSACTION_METHOD:
+                transactions.incrementAndGet();
+                JsonArray responses = new JsonArray();
+                for (JsonElement op : request.getParams()
+                    .getAsJsonArray(RomJsonRpcConstants.TRANSACTION_OPERATIONS)) {
+                  JsonObject response = new JsonObject();
+                  response.addProperty("jsonrpc", "2.0");
+                  response.add("id", op.getAsJsonObject().get("id"));
+                  response.add("result",
+                      answer(op.getAsJsonObject().get("method").getAsString()));
+                  responses.add(response);
+                }
+                transaction.sendResponse(responses);
+                break;
+              default:
+                super.handleRequest(transaction, request);
+            }
+          }
+        };
+
+    manager = new RomManager(new RomClientJsonRpcClient(new JsonRpcClientLocal(handler)));
+  }
+
+  private static JsonElement answer(String method) {
+    if (RomJsonRpcConstants.SUBSCRIBE_METHOD.equals(method)) {
+      return new JsonPrimitive("subscription" + subscriptions.incrementAndGet());
+    }
+    unsubscriptions.incrementAndGet();
+    return new JsonObject();
+  }
+
+  @Before
+  public void resetCounters() {
+    subscriptions.set(0);
+    unsubscriptions.set(0);
+    transactions.set(0);
+  }
+
+  @Test
+  public void listenersShareOneSubscription() {
+
+    RemoteObject remoteObject = getRemoteObject("dedup1_Sample2");
+    CountingListener listener1 = new CountingListener();
+    CountingListener listener2 = new CountingListener();
+
+    ListenerSubscriptionImpl subscription1 = remoteObject.addEventListener("Sample", listener1);
+    ListenerSubscriptionImpl subscription2 = remoteObject.addEventListener("Sample", listener2);
+
+    assertEquals(1, subscriptions.get());
+    assertEquals(subscription1.getSubscriptionId(), subscription2.getSubscriptionId());
+
+    remoteObject.fireEvent("Sample", new Props("prop1", "value1"));
+
+    assertEquals(1, listener1.events.get());
+    assertEquals(1, listener2.events.get());
+
+    remoteObject.removeEventListener(subscription1);
+    assertEquals(0, unsubscriptions.get());
+
+    remoteObject.removeEventListener(subscription2);
+    assertEquals(1, unsubscriptions.get());
+
+    remoteObject.addEventListener("Sample", listener1);
+    assertEquals(2, subscriptions.get());
+  }
+
+  @Test
+  public void transactionsReuseSubscription() {
+
+    RemoteObject remoteObject = getRemoteObject("dedup2_Sample2");
+    CountingListener listener1 = new CountingListener();
+    CountingListener listener2 = new CountingListener();
+
+    ListenerSubscriptionImpl subscription1 = remoteObject.addEventListener("Sample", listener1);
+
+    TransactionImpl tx = new TransactionImpl(manager);
+    ListenerSubscriptionImpl subscription2 =
+        remoteObject.addEventListener("Sample", listener2, tx);
+    tx.commit();
+
+    assertEquals(1, subscriptions.get());
+    assertEquals(0, transactions.get());
+    assertEquals(subscription1.getSubscriptionId(), subscription2.getSubscriptionId());
+
+    remoteObject.fireEvent("Sample", new Props("prop1", "value1"));
+
+    assertEquals(1, listener1.events.get());
+    assertEquals(1, listener2.events.get());
+
+    tx = new TransactionImpl(manager);
+    remoteObject.removeEventListener(subscription2, tx);
+    tx.commit();
+
+    assertEquals(0, transactions.get());
+    assertEquals(0, unsubscriptions.get());
+
+    tx = new TransactionImpl(manager);
+    remoteObject.removeEventListener(subscription1, tx);
+    tx.commit();
+
+    assertEquals(1, transactions.get());
+    assertEquals(1, unsubscriptions.get());
+  }
+
+  @Test
+  public void transactionSubscribesFirstListener() {
+
+    RemoteObject remoteObject = getRemoteObject("dedup3_Sample2");
+    CountingListener listener = new CountingListener();
+
+    TransactionImpl tx = new TransactionImpl(manager);
+    ListenerSubscriptionImpl subscription = remoteObject.addEventListener("Sample", listener, tx);
+    tx.commit();
+
+    assertEquals(1, transactions.get());
+    assertEquals(1, subscriptions.get());
+    assertEquals("subscription1", subscription.getSubscriptionId());
+    assertEquals("subscription1", remoteObject.getSubscriptionId("Sample"));
+
+    remoteObject.fireEvent("Sample", new Props("prop1", "value1"));
+    assertEquals(1, listener.events.get());
+  }
+
+  private static RemoteObject getRemoteObject(String objectRef) {
+    Sample2 obj = manager.getById(objectRef, Sample2.class);
+    return RemoteObjectInvocationHandler.getFor(obj).getRemoteObject();
+  }
+
+  private static class CountingListener implements RemoteObjectEventListener {
+
+    private final AtomicInteger events = new AtomicInteger();
+
+    @Override
+    public void onEvent(String eventType, Props data) {
+      events.incrementAndGet();
+    }
+  }
+
+}
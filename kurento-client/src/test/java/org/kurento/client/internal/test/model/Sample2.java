@@ -17,12 +17,16 @@
 
 package org.kurento.client.internal.test.model;
 
+import java.util.concurrent.CompletionStage;
+
 import org.kurento.client.AbstractBuilder;
 import org.kurento.client.KurentoObject;
+import org.kurento.client.internal.Immutable;
 import org.kurento.client.internal.client.RomManager;
 
 public interface Sample2 extends KurentoObject {
 
+  @Immutable
   public String getAtt1();
 
   public int getAtt2();
@@ -31,6 +35,8 @@ public interface Sample2 extends KurentoObject {
 
   public boolean getAtt4();
 
+  public CompletionStage<String> getAtt1Async();
+
   public static class Builder extends AbstractBuilder<Sample2> {
 
     public Builder(String att1, int att2, RomManager manager) {
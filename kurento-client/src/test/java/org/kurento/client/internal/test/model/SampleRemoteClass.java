@@ -18,6 +18,7 @@
 package org.kurento.client.internal.test.model;
 
 import java.util.List;
+import java.util.concurrent.CompletionStage;
 
 import org.kurento.client.AbstractBuilder;
 import org.kurento.client.KurentoObject;
@@ -54,6 +55,8 @@ public interface SampleRemoteClass extends KurentoObject {
 
   public int methodParamInt(@Param("param") int param);
 
+  public CompletionStage<String> methodParamStringAsync(@Param("param") String param);
+
   public static class Builder extends AbstractBuilder<SampleRemoteClass> {
 
     public Builder(RomManager manager) {
@@ -0,0 +1,38 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.client.internal.test.model.internal;
+
+import org.kurento.client.internal.ModuleIndex;
+import org.kurento.client.internal.test.model.Sample2;
+import org.kurento.client.internal.test.model.SampleRemoteClass;
+import org.kurento.client.internal.test.model.client.ComplexParam;
+import org.kurento.client.internal.test.model.internal.stub.Sample2Stub;
+
+/**
+ * Index of the test model, as generated for modules by kurento-maven-plugin. There is no
+ * ModuleInfo class for module "sample", so its types can only be resolved with the index.
+ */
+public class SampleModuleIndex extends ModuleIndex {
+
+  public SampleModuleIndex() {
+    super("sample", "org.kurento.client.internal.test.model");
+    addRemoteClass(Sample2.class, Sample2Stub.class);
+    addRemoteClass(SampleRemoteClass.class, null);
+    addType(ComplexParam.class);
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.client.internal.test.model.internal.stub;
+
+import java.util.concurrent.CompletionStage;
+
+import org.kurento.client.internal.client.AbstractRemoteObjectStub;
+import org.kurento.client.internal.client.RemoteObject;
+import org.kurento.client.internal.client.RomManager;
+import org.kurento.client.internal.test.model.Sample2;
+
+/**
+ * Stub of {@link Sample2} written as remoteClass_stub_java.ftl would generate it.
+ */
+public class Sample2Stub extends AbstractRemoteObjectStub implements Sample2 {
+
+  public Sample2Stub(RemoteObject remoteObject, RomManager manager) {
+    super(remoteObject, manager);
+  }
+
+  @Override
+  public String getAtt1() {
+    return (String) invokeSync("getAtt1", null, String.class);
+  }
+
+  @Override
+  public int getAtt2() {
+    return (int) invokeSync("getAtt2", null, int.class);
+  }
+
+  @Override
+  public float getAtt3() {
+    return (float) invokeSync("getAtt3", null, float.class);
+  }
+
+  @Override
+  public boolean getAtt4() {
+    return (boolean) invokeSync("getAtt4", null, boolean.class);
+  }
+
+  @Override
+  public CompletionStage<String> getAtt1Async() {
+    return invokeStage("getAtt1", null, String.class);
+  }
+
+}
@@ -0,0 +1,42 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.test.benchmark.flattener;
+
+import org.kurento.client.internal.ModuleName;
+import org.kurento.client.internal.server.Param;
+
+@ModuleName("flattenerBenchmark")
+public class LatencySample {
+
+  private String name;
+  private double avg;
+
+  public LatencySample(@Param("name") String name, @Param("avg") double avg) {
+    this.name = name;
+    this.avg = avg;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public double getAvg() {
+    return avg;
+  }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.test.benchmark.flattener;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.kurento.client.internal.transport.serialization.ParamsFlattener;
+import org.kurento.jsonrpc.Props;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * Measures {@link ParamsFlattener} with stats-like payloads: a map of complex values, each one
+ * with a nested list of complex values, as returned by getStats. It doesn't need a media server.
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *   -Dexec.mainClass=org.kurento.test.benchmark.flattener.ParamsFlattenerBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ParamsFlattenerBenchmark {
+
+  private static final Type STATS_TYPE = new TypeToken<Map<String, StatsSample>>() {
+  }.getType();
+
+  @org.openjdk.jmh.annotations.Param({ "4", "64" })
+  public int numStats;
+
+  private final ParamsFlattener flattener = ParamsFlattener.getInstance();
+
+  private Props params;
+  private Object flattenedStats;
+
+  @Setup
+  public void setup() {
+
+    Map<String, StatsSample> stats = new HashMap<>();
+    for (int i = 0; i < numStats; i++) {
+
+      List<LatencySample> latencies = new ArrayList<>();
+      latencies.add(new LatencySample("audio", 12.5));
+      latencies.add(new LatencySample("video", 33.3));
+
+      String id = "stats" + i;
+      stats.put(id, new StatsSample(id, 1500000000.5 + i, 1500000000500L + i, "ssrc" + i,
+          "codec" + i, i, 1000L * i, 0.01f * i, 0.5 * i, 300000L, latencies));
+    }
+
+    params = new Props("stats", stats);
+    flattenedStats = flattener.flattenParams(params).getProp("stats");
+  }
+
+  @Benchmark
+  public Props flatten() {
+    return flattener.flattenParams(params);
+  }
+
+  @Benchmark
+  public Object unflatten() {
+    return flattener.unflattenValue("stats", STATS_TYPE, flattenedStats, null);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(
+        new OptionsBuilder().include(ParamsFlattenerBenchmark.class.getSimpleName()).build())
+            .run();
+  }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.test.benchmark.flattener;
+
+import java.util.List;
+
+import org.kurento.client.internal.ModuleName;
+import org.kurento.client.internal.server.Param;
+
+/**
+ * Complex type with the shape of the RTP stats returned by getStats: several numeric fields and a
+ * nested list of complex values.
+ */
+@ModuleName("flattenerBenchmark")
+public class StatsSample {
+
+  private String id;
+  private double timestamp;
+  private long timestampMillis;
+  private String ssrc;
+  private String codecId;
+  private long packetsLost;
+  private long bytesReceived;
+  private float fractionLost;
+  private double jitter;
+  private long remb;
+  private List<LatencySample> inputLatency;
+
+  public StatsSample(@Param("id") String id, @Param("timestamp") double timestamp,
+      @Param("timestampMillis") long timestampMillis, @Param("ssrc") String ssrc,
+      @Param("codecId") String codecId, @Param("packetsLost") long packetsLost,
+      @Param("bytesReceived") long bytesReceived, @Param("fractionLost") float fractionLost,
+      @Param("jitter") double jitter, @Param("remb") long remb,
+      @Param("inputLatency") List<LatencySample> inputLatency) {
+    this.id = id;
+    this.timestamp = timestamp;
+    this.timestampMillis = timestampMillis;
+    this.ssrc = ssrc;
+    this.codecId = codecId;
+    this.packetsLost = packetsLost;
+    this.bytesReceived = bytesReceived;
+    this.fractionLost = fractionLost;
+    this.jitter = jitter;
+    this.remb = remb;
+    this.inputLatency = inputLatency;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public double getTimestamp() {
+    return timestamp;
+  }
+
+  public long getTimestampMillis() {
+    return timestampMillis;
+  }
+
+  public String getSsrc() {
+    return ssrc;
+  }
+
+  public String getCodecId() {
+    return codecId;
+  }
+
+  public long getPacketsLost() {
+    return packetsLost;
+  }
+
+  public long getBytesReceived() {
+    return bytesReceived;
+  }
+
+  public float getFractionLost() {
+    return fractionLost;
+  }
+
+  public double getJitter() {
+    return jitter;
+  }
+
+  public long getRemb() {
+    return remb;
+  }
+
+  public List<LatencySample> getInputLatency() {
+    return inputLatency;
+  }
+
+}
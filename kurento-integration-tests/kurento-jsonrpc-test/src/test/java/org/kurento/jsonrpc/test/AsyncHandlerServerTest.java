@@ -0,0 +1,82 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.jsonrpc.test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.kurento.jsonrpc.AsyncJsonRpcHandler;
+import org.kurento.jsonrpc.JsonRpcErrorException;
+import org.kurento.jsonrpc.Session;
+import org.kurento.jsonrpc.client.JsonRpcClient;
+import org.kurento.jsonrpc.message.Request;
+import org.kurento.jsonrpc.test.base.JsonRpcConnectorBaseTest;
+
+public class AsyncHandlerServerTest extends JsonRpcConnectorBaseTest {
+
+  public static class Handler extends AsyncJsonRpcHandler<String> {
+
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+
+    @Override
+    public CompletionStage<?> handleRequestAsync(Session session, final Request<String> request)
+        throws Exception {
+
+      final CompletableFuture<String> result = new CompletableFuture<>();
+
+      scheduler.schedule(new Runnable() {
+        @Override
+        public void run() {
+          if ("fail".equals(request.getMethod())) {
+            result.completeExceptionally(new IllegalStateException("AsyncFailure"));
+          } else {
+            result.complete("AsyncHello " + request.getParams());
+          }
+        }
+      }, 500, TimeUnit.MILLISECONDS);
+
+      return result;
+    }
+  }
+
+  @Test
+  public void test() throws IOException, InterruptedException {
+
+    JsonRpcClient client = createJsonRpcClient("/async_stage_handler");
+
+    String response = client.sendRequest("hello", "world", String.class);
+
+    Assert.assertEquals("AsyncHello world", response);
+
+    try {
+      client.sendRequest("fail", "world", String.class);
+      Assert.fail("JsonRpcErrorException should be thrown");
+    } catch (JsonRpcErrorException e) {
+      Assert.assertTrue(e.getMessage().contains("AsyncFailure"));
+    }
+
+    client.close();
+  }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.jsonrpc.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kurento.jsonrpc.DefaultJsonRpcHandler;
+import org.kurento.jsonrpc.Transaction;
+import org.kurento.jsonrpc.client.JsonRpcClient;
+import org.kurento.jsonrpc.client.JsonRpcClientNettyWebSocket;
+import org.kurento.jsonrpc.message.Request;
+import org.kurento.jsonrpc.server.NettyJsonRpcServer;
+
+import com.google.gson.JsonObject;
+
+/**
+ * Checks the Netty server backend without any Spring context. The whole connector suite can also
+ * be run against this backend with -Djsonrpcconnector-server-type=netty.
+ */
+public class NettyServerTest {
+
+  public static class Handler extends DefaultJsonRpcHandler<JsonObject> {
+
+    @Override
+    public void handleRequest(Transaction transaction, Request<JsonObject> request)
+        throws Exception {
+
+      if ("reverse".equals(request.getMethod())) {
+        transaction.sendResponse(
+            transaction.getSession().sendRequest("echo", request.getParams(), JsonObject.class));
+      } else {
+        transaction.sendResponse(request.getParams());
+      }
+    }
+  }
+
+  private NettyJsonRpcServer server;
+
+  @Before
+  public void startServer() throws Exception {
+    server = new NettyJsonRpcServer(0);
+    server.addHandler(new Handler(), "/netty");
+    server.start();
+  }
+
+  @After
+  public void stopServer() {
+    server.close();
+  }
+
+  @Test
+  public void testEcho() throws IOException {
+
+    try (JsonRpcClient client =
+        new JsonRpcClientNettyWebSocket("ws://localhost:" + server.getPort() + "/netty")) {
+
+      JsonObject params = new JsonObject();
+      params.addProperty("param1", "Value1");
+
+      for (int i = 0; i < 10; i++) {
+        JsonObject result = client.sendRequest("echo", params, JsonObject.class);
+        assertEquals("Value1", result.get("param1").getAsString());
+      }
+    }
+  }
+
+  @Test
+  public void testRequestFromServer() throws IOException {
+
+    try (JsonRpcClient client =
+        new JsonRpcClientNettyWebSocket("ws://localhost:" + server.getPort() + "/netty")) {
+
+      client.setServerRequestHandler(new DefaultJsonRpcHandler<JsonObject>() {
+        @Override
+        public void handleRequest(Transaction transaction, Request<JsonObject> request)
+            throws Exception {
+          transaction.sendResponse(request.getParams());
+        }
+      });
+
+      JsonObject params = new JsonObject();
+      params.addProperty("param1", "Value1");
+
+      JsonObject result = client.sendRequest("reverse", params, JsonObject.class);
+      assertEquals("Value1", result.get("param1").getAsString());
+    }
+  }
+
+}
@@ -182,7 +182,7 @@ public class ReconnectionTest extends JsonRpcConnectorBaseTest {
 
       log.debug("--------> Client connected to server");
 
-      server.close();
+      stopServer();
 
       log.debug("--------> Server closed");
 
@@ -243,7 +243,7 @@ public class ReconnectionTest extends JsonRpcConnectorBaseTest {
 
       log.debug("--------> Client connected to server");
 
-      server.close();
+      stopServer();
 
       log.debug("--------> Server closed");
 
@@ -334,7 +334,7 @@ public class ReconnectionTest extends JsonRpcConnectorBaseTest {
 
       log.debug("--------> Client connected to server");
 
-      server.close();
+      stopServer();
 
       log.debug("--------> Server closed");
 
@@ -20,6 +20,7 @@ package org.kurento.jsonrpc.test.base;
 import org.kurento.jsonrpc.JsonRpcHandler;
 import org.kurento.jsonrpc.server.JsonRpcConfigurer;
 import org.kurento.jsonrpc.server.JsonRpcHandlerRegistry;
+import org.kurento.jsonrpc.test.AsyncHandlerServerTest;
 import org.kurento.jsonrpc.test.AsyncServerTest;
 import org.kurento.jsonrpc.test.BidirectionalMultiTest;
 import org.kurento.jsonrpc.test.BidirectionalTest;
@@ -62,6 +63,8 @@ public class BootTestApplication implements JsonRpcConfigurer {
 
     registry.addHandler(new AsyncServerTest.Handler(), "/async_handler");
 
+    registry.addHandler(new AsyncHandlerServerTest.Handler(), "/async_stage_handler");
+
     registry.addHandler(new ErrorServerTest.Handler(), "/error_handler");
 
     registry.addPerSessionHandler(MultipleSessionsTest.Handler.class, "/jsonrpc_multiple");
@@ -23,16 +23,21 @@ import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.experimental.categories.Category;
 import org.kurento.commons.testing.JsonRpcConnectorTests;
+import org.kurento.jsonrpc.JsonRpcHandler;
 import org.kurento.jsonrpc.client.AbstractJsonRpcClientWebSocket;
 import org.kurento.jsonrpc.client.JsonRpcClient;
 import org.kurento.jsonrpc.client.JsonRpcClientHttp;
 import org.kurento.jsonrpc.client.JsonRpcClientNettyWebSocket;
 import org.kurento.jsonrpc.client.JsonRpcClientWebSocket;
 import org.kurento.jsonrpc.client.JsonRpcWSConnectionListener;
+import org.kurento.jsonrpc.server.JsonRpcHandlerRegistration;
+import org.kurento.jsonrpc.server.JsonRpcHandlerRegistry;
+import org.kurento.jsonrpc.server.NettyJsonRpcServer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.SpringApplication;
 import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 
 @Category(JsonRpcConnectorTests.class)
 public class JsonRpcConnectorBaseTest {
@@ -40,10 +45,16 @@ public class JsonRpcConnectorBaseTest {
 
   protected static final int MAX_WS_CONNECTIONS = 50;
   protected static ConfigurableApplicationContext server;
+  protected static NettyJsonRpcServer nettyServer;
 
   @BeforeClass
   public static void startServer() throws Exception {
 
+    if ("netty".equals(getServerType())) {
+      startNettyServer();
+      return;
+    }
+
     if (server == null || !server.isActive()) {
 
       System.setProperty("ws.maxSessions", Integer.toString(MAX_WS_CONNECTIONS));
@@ -63,6 +74,46 @@ public class JsonRpcConnectorBaseTest {
     }
   }
 
+  private static void startNettyServer() throws Exception {
+
+    if (nettyServer == null || !nettyServer.isStarted()) {
+
+      System.setProperty("ws.maxSessions", Integer.toString(MAX_WS_CONNECTIONS));
+
+      nettyServer = new NettyJsonRpcServer(Integer.parseInt(getPort()));
+
+      // Handlers are not created by Spring in this backend, so only their dependencies are
+      // injected. Per-session handlers are not supported by the Netty server and are skipped.
+      final AnnotationConfigApplicationContext beans =
+          new AnnotationConfigApplicationContext(DemoBean.class);
+
+      new BootTestApplication().registerJsonRpcHandlers(new JsonRpcHandlerRegistry() {
+        @Override
+        public JsonRpcHandlerRegistration addHandler(JsonRpcHandler<?> jsonRpcHandler,
+            String... paths) {
+          beans.getAutowireCapableBeanFactory().autowireBean(jsonRpcHandler);
+          return nettyServer.addHandler(jsonRpcHandler, paths);
+        }
+
+        @Override
+        public JsonRpcHandlerRegistration addPerSessionHandler(
+            Class<? extends JsonRpcHandler<?>> handlerClass, String... paths) {
+          log.debug("Per-session handler {} not published in netty server", handlerClass);
+          return null;
+        }
+
+        @Override
+        public JsonRpcHandlerRegistration addPerSessionHandler(String beanName,
+            String... paths) {
+          log.debug("Per-session handler {} not published in netty server", beanName);
+          return null;
+        }
+      });
+
+      nettyServer.start();
+    }
+  }
+
   @AfterClass
   public static void stopServer() {
 
@@ -70,6 +121,19 @@ public class JsonRpcConnectorBaseTest {
       server.close();
       server = null;
     }
+
+    if (nettyServer != null) {
+      nettyServer.stop();
+      nettyServer = null;
+    }
+  }
+
+  protected static String getServerType() {
+    String serverType = System.getProperty("jsonrpcconnector-server-type");
+    if (serverType == null) {
+      serverType = "spring";
+    }
+    return serverType;
   }
 
   protected static String getPort() {
@@ -101,6 +165,8 @@ public class JsonRpcConnectorBaseTest {
           new JsonRpcClientNettyWebSocket("ws://localhost:" + getPort() + servicePath, listener);
     } else if ("http".equals(clientType)) {
       client = new JsonRpcClientHttp("http://localhost:" + getPort() + servicePath);
+    } else if ("http-stream".equals(clientType)) {
+      client = new JsonRpcClientHttp("http://localhost:" + getPort() + servicePath, true);
     } else {
       throw new RuntimeException(
           "Unrecognized property value jsonrpcconnector-client-type=" + clientType);
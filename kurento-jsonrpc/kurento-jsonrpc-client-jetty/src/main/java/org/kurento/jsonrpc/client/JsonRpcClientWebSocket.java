@@ -17,20 +17,26 @@
 package org.kurento.jsonrpc.client;
 
 import java.io.IOException;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.UpgradeException;
 import org.eclipse.jetty.websocket.api.WebSocketPolicy;
+import org.eclipse.jetty.websocket.api.WriteCallback;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketClose;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketConnect;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketMessage;
 import org.eclipse.jetty.websocket.api.annotations.WebSocket;
 import org.eclipse.jetty.websocket.client.ClientUpgradeRequest;
 import org.eclipse.jetty.websocket.client.WebSocketClient;
+import org.kurento.commons.PropertiesManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,6 +44,90 @@ public class JsonRpcClientWebSocket extends AbstractJsonRpcClientWebSocket {
 
   private static Logger log = LoggerFactory.getLogger(JsonRpcClientWebSocket.class);
 
+  private static final int MAX_PENDING_SENDS =
+      PropertiesManager.getProperty("jsonRpcClientWebSocket.maxPendingSends", 1000);
+
+  private static final long SEND_QUEUE_TIMEOUT =
+      PropertiesManager.getProperty("jsonRpcClientWebSocket.sendQueueTimeout", 10000);
+
+  private static final SslContextFactory DEFAULT_SSL_CONTEXT_FACTORY = new SslContextFactory();
+
+  /**
+   * Jetty clients shared by all instances that use the same {@link SslContextFactory}. A client
+   * is started when the first instance connects and stopped when the last one is closed, so no
+   * threads are left behind. The connection timeout of each instance is set in its own upgrade
+   * requests, as the shared client can't hold it.
+   */
+  private static final Map<SslContextFactory, SharedClient> sharedClients =
+      new IdentityHashMap<>();
+
+  private static class SharedClient {
+
+    private final WebSocketClient client;
+    private int references;
+
+    private SharedClient(WebSocketClient client) {
+      this.client = client;
+    }
+  }
+
+  static WebSocketClient acquireSharedClient(SslContextFactory sslContextFactory)
+      throws Exception {
+
+    synchronized (sharedClients) {
+
+      SharedClient sharedClient = sharedClients.get(sslContextFactory);
+
+      if (sharedClient == null) {
+
+        log.debug("Starting shared JettyWS client");
+
+        QueuedThreadPool executor = new QueuedThreadPool();
+        executor.setName("JsonRpcClientWebSocket");
+        executor.setDaemon(true);
+
+        WebSocketClient client = new WebSocketClient(sslContextFactory, executor);
+        client.setDaemon(true);
+        WebSocketPolicy policy = client.getPolicy();
+        policy.setMaxBinaryMessageBufferSize(maxPacketSize);
+        policy.setMaxTextMessageBufferSize(maxPacketSize);
+        policy.setMaxBinaryMessageSize(maxPacketSize);
+        policy.setMaxTextMessageSize(maxPacketSize);
+
+        client.start();
+
+        sharedClient = new SharedClient(client);
+        sharedClients.put(sslContextFactory, sharedClient);
+      }
+
+      sharedClient.references++;
+      return sharedClient.client;
+    }
+  }
+
+  static void releaseSharedClient(SslContextFactory sslContextFactory) {
+
+    WebSocketClient clientToStop = null;
+
+    synchronized (sharedClients) {
+      SharedClient sharedClient = sharedClients.get(sslContextFactory);
+      if (sharedClient != null && --sharedClient.references == 0) {
+        sharedClients.remove(sslContextFactory);
+        clientToStop = sharedClient.client;
+      }
+    }
+
+    if (clientToStop != null) {
+      log.debug("Stopping shared JettyWS client");
+      try {
+        clientToStop.stop();
+        clientToStop.destroy();
+      } catch (Exception e) {
+        log.warn("Could not properly stop shared websocket client", e);
+      }
+    }
+  }
+
   @WebSocket
   public class WebSocketClientSocket {
 
@@ -62,8 +152,23 @@ public class JsonRpcClientWebSocket extends AbstractJsonRpcClientWebSocket {
   protected volatile Session jettyWsSession;
   protected volatile WebSocketClient jettyClient;
 
+  private final Semaphore pendingSends = new Semaphore(MAX_PENDING_SENDS);
+
+  private final WriteCallback sendCallback = new WriteCallback() {
+    @Override
+    public void writeSuccess() {
+      pendingSends.release();
+    }
+
+    @Override
+    public void writeFailed(Throwable cause) {
+      pendingSends.release();
+      log.warn("{} Exception sending message to WebSocket server at '{}'", label, uri, cause);
+    }
+  };
+
   public JsonRpcClientWebSocket(String url) {
-    this(url, null, new SslContextFactory());
+    this(url, null, DEFAULT_SSL_CONTEXT_FACTORY);
   }
 
   public JsonRpcClientWebSocket(String url, SslContextFactory sslContextFactory) {
@@ -71,7 +176,7 @@ public class JsonRpcClientWebSocket extends AbstractJsonRpcClientWebSocket {
   }
 
   public JsonRpcClientWebSocket(String url, JsonRpcWSConnectionListener connectionListener) {
-    this(url, connectionListener, new SslContextFactory());
+    this(url, connectionListener, DEFAULT_SSL_CONTEXT_FACTORY);
   }
 
   public JsonRpcClientWebSocket(String url, JsonRpcWSConnectionListener connectionListener,
@@ -80,16 +185,37 @@ public class JsonRpcClientWebSocket extends AbstractJsonRpcClientWebSocket {
     this.sslContextFactory = sslContextFactory;
   }
 
+  /**
+   * Sends the message asynchronously. Jetty queues the frames of concurrent senders, so no lock
+   * is held while writing to the network. The number of messages waiting to be written is bounded:
+   * when the limit is reached, senders wait for room in the queue.
+   */
   @Override
   protected void sendTextMessage(String jsonMessage) throws IOException {
 
-    if (jettyWsSession == null) {
+    Session wsSession = jettyWsSession;
+
+    if (wsSession == null) {
       throw new IllegalStateException(
           label + " JsonRpcClient is disconnected from WebSocket server at '" + this.uri + "'");
     }
 
-    synchronized (jettyWsSession) {
-      jettyWsSession.getRemote().sendString(jsonMessage);
+    try {
+      if (!pendingSends.tryAcquire(SEND_QUEUE_TIMEOUT, TimeUnit.MILLISECONDS)) {
+        throw new IOException(label + " Timeout of " + SEND_QUEUE_TIMEOUT
+            + " millis waiting for room in the outbound queue of WebSocket server at '" + this.uri
+            + "'");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(label + " Interrupted while waiting to send a message", e);
+    }
+
+    try {
+      wsSession.getRemote().sendString(jsonMessage, sendCallback);
+    } catch (RuntimeException e) {
+      pendingSends.release();
+      throw e;
     }
   }
 
@@ -101,21 +227,8 @@ public class JsonRpcClientWebSocket extends AbstractJsonRpcClientWebSocket {
   @Override
   protected void connectNativeClient() throws TimeoutException, Exception {
 
-    if (jettyClient == null || jettyClient.isStopped() || jettyClient.isStopping()) {
-
-      log.debug("Connecting JettyWS client with connectionTimeout={} millis",
-          this.connectionTimeout);
-
-      jettyClient = new WebSocketClient(sslContextFactory);
-      jettyClient.setConnectTimeout((long)this.connectionTimeout);
-      WebSocketPolicy policy = jettyClient.getPolicy();
-      policy.setMaxBinaryMessageBufferSize(maxPacketSize);
-      policy.setMaxTextMessageBufferSize(maxPacketSize);
-      policy.setMaxBinaryMessageSize(maxPacketSize);
-      policy.setMaxTextMessageSize(maxPacketSize);
-
-      jettyClient.start();
-
+    if (jettyClient == null) {
+      jettyClient = acquireSharedClient(sslContextFactory);
     }
 
     int numRetries = 0;
@@ -124,9 +237,11 @@ public class JsonRpcClientWebSocket extends AbstractJsonRpcClientWebSocket {
 
       try {
 
-        jettyWsSession =
-            jettyClient.connect(new WebSocketClientSocket(), uri, new ClientUpgradeRequest())
-                .get(this.connectionTimeout, TimeUnit.MILLISECONDS);
+        ClientUpgradeRequest request = new ClientUpgradeRequest();
+        request.setTimeout(this.connectionTimeout, TimeUnit.MILLISECONDS);
+
+        jettyWsSession = jettyClient.connect(new WebSocketClientSocket(), uri, request)
+            .get(this.connectionTimeout, TimeUnit.MILLISECONDS);
 
         jettyWsSession.setIdleTimeout(this.idleTimeout);
 
@@ -149,23 +264,18 @@ public class JsonRpcClientWebSocket extends AbstractJsonRpcClientWebSocket {
 
   @Override
   public void closeNativeClient() {
-    if (jettyClient != null) {
-      log.debug("{} Closing client", label);
-      try {
-        jettyClient.stop();
-        jettyClient.destroy();
-      } catch (Exception e) {
-        log.warn("{} Could not properly close websocket client.", label, e);
-      }
-      jettyClient = null;
-    }
-
     if (jettyWsSession != null) {
+      log.debug("{} Closing client", label);
       jettyWsSession.close();
       jettyWsSession = null;
     } else {
       log.warn("{} Trying to close a JsonRpcClientWebSocket with jettyWsSession=null", label);
     }
+
+    if (jettyClient != null) {
+      jettyClient = null;
+      releaseSharedClient(sslContextFactory);
+    }
   }
 
 }
@@ -0,0 +1,105 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package org.kurento.jsonrpc.client;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.eclipse.jetty.websocket.client.WebSocketClient;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class JsonRpcClientWebSocketTest {
+
+  static {
+    // Read when JsonRpcClientWebSocket is initialized, which happens after this block
+    System.setProperty("jsonRpcClientWebSocket.maxPendingSends", "2");
+    System.setProperty("jsonRpcClientWebSocket.sendQueueTimeout", "200");
+  }
+
+  @Test
+  public void sharedClientIsStoppedWhenLastInstanceReleasesIt() throws Exception {
+
+    SslContextFactory sslContextFactory = new SslContextFactory();
+
+    WebSocketClient first = JsonRpcClientWebSocket.acquireSharedClient(sslContextFactory);
+    WebSocketClient second = JsonRpcClientWebSocket.acquireSharedClient(sslContextFactory);
+
+    assertSame(first, second);
+    assertTrue(first.isRunning());
+
+    JsonRpcClientWebSocket.releaseSharedClient(sslContextFactory);
+    assertTrue(first.isRunning());
+
+    JsonRpcClientWebSocket.releaseSharedClient(sslContextFactory);
+    assertTrue(first.isStopped());
+
+    WebSocketClient third = JsonRpcClientWebSocket.acquireSharedClient(sslContextFactory);
+    try {
+      assertNotSame(first, third);
+      assertTrue(third.isRunning());
+    } finally {
+      JsonRpcClientWebSocket.releaseSharedClient(sslContextFactory);
+    }
+  }
+
+  @Test
+  public void sendsWaitForRoomInTheOutboundQueue() throws Exception {
+
+    RemoteEndpoint remote = mock(RemoteEndpoint.class);
+    Session session = mock(Session.class);
+    when(session.getRemote()).thenReturn(remote);
+
+    JsonRpcClientWebSocket client = new JsonRpcClientWebSocket("ws://localhost:8888/kurento");
+    client.jettyWsSession = session;
+
+    // Writes are never completed, so the queue gets full
+    client.sendTextMessage("first");
+    client.sendTextMessage("second");
+
+    try {
+      client.sendTextMessage("third");
+      fail("Send should time out while the outbound queue is full");
+    } catch (IOException e) {
+      // Expected
+    }
+
+    ArgumentCaptor<WriteCallback> callback = ArgumentCaptor.forClass(WriteCallback.class);
+    verify(remote, times(2)).sendString(anyString(), callback.capture());
+
+    callback.getValue().writeSuccess();
+    client.sendTextMessage("third");
+
+    verify(remote, times(3)).sendString(anyString(), callback.capture());
+  }
+
+}
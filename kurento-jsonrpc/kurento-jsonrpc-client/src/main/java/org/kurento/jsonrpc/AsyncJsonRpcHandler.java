@@ -0,0 +1,182 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.jsonrpc;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BiConsumer;
+
+import org.kurento.jsonrpc.message.Request;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Handler whose requests are processed asynchronously. Instead of writing the response in the
+ * {@link Transaction}, {@link #handleRequestAsync(Session, Request)} returns a
+ * {@link CompletionStage} and the response is sent when it completes, from the thread that
+ * completes it. The session thread is released as soon as the stage is returned.
+ *
+ * By default, requests from the same session can be processed concurrently. When ordered
+ * processing is enabled with {@link #withOrderedProcessing(boolean)}, each request is started
+ * when the stage of the previous request of the same session is completed, without blocking any
+ * thread meanwhile.
+ *
+ * @param <P>
+ *          type of the request params
+ */
+public abstract class AsyncJsonRpcHandler<P> extends DefaultJsonRpcHandler<P> {
+
+  private static final Logger log = LoggerFactory.getLogger(AsyncJsonRpcHandler.class);
+
+  private static final String LAST_REQUEST_ATTRIBUTE =
+      AsyncJsonRpcHandler.class.getName() + ".lastRequest";
+
+  private boolean orderedProcessing = false;
+
+  /**
+   * Invoked when a new JsonRpc request arrives.
+   *
+   * @param session
+   *          the session of the request
+   * @param request
+   *          the request
+   * @return a stage that completes with the result of the request, or null if the response has no
+   *         result
+   * @throws Exception
+   *           this method can propagate exceptions. They are sent to the client as errors
+   */
+  public abstract CompletionStage<?> handleRequestAsync(Session session, Request<P> request)
+      throws Exception;
+
+  @Override
+  public final void handleRequest(final Transaction transaction, final Request<P> request)
+      throws Exception {
+
+    transaction.startAsync();
+
+    if (!orderedProcessing) {
+      processRequest(transaction, request, null);
+      return;
+    }
+
+    final CompletableFuture<Void> processed = new CompletableFuture<>();
+
+    CompletionStage<?> previous = (CompletionStage<?>) transaction.getSession().getAttributes()
+        .put(LAST_REQUEST_ATTRIBUTE, processed);
+
+    if (previous == null) {
+      processRequest(transaction, request, processed);
+    } else {
+      previous.whenComplete(new BiConsumer<Object, Throwable>() {
+        @Override
+        public void accept(Object result, Throwable error) {
+          processRequest(transaction, request, processed);
+        }
+      });
+    }
+  }
+
+  private void processRequest(final Transaction transaction, final Request<P> request,
+      final CompletableFuture<Void> processed) {
+
+    CompletionStage<?> stage;
+    try {
+      stage = handleRequestAsync(transaction.getSession(), request);
+    } catch (Exception e) {
+      sendResult(transaction, request, null, e);
+      completeProcessed(transaction, processed);
+      return;
+    }
+
+    if (stage == null) {
+      sendResult(transaction, request, null, null);
+      completeProcessed(transaction, processed);
+      return;
+    }
+
+    stage.whenComplete(new BiConsumer<Object, Throwable>() {
+      @Override
+      public void accept(Object result, Throwable error) {
+        sendResult(transaction, request, result, error);
+        completeProcessed(transaction, processed);
+      }
+    });
+  }
+
+  private void completeProcessed(Transaction transaction, CompletableFuture<Void> processed) {
+    if (processed != null) {
+      // Remove the marker only if no other request has been queued after this one
+      transaction.getSession().getAttributes().remove(LAST_REQUEST_ATTRIBUTE, processed);
+      processed.complete(null);
+    }
+  }
+
+  private void sendResult(Transaction transaction, Request<P> request, Object result,
+      Throwable error) {
+
+    if (transaction.isNotification()) {
+      if (error != null) {
+        log.warn("Exception processing notification {}", request, unwrap(error));
+      }
+      return;
+    }
+
+    try {
+      if (error == null) {
+        transaction.sendResponse(result);
+      } else {
+        Throwable cause = unwrap(error);
+        if (cause instanceof JsonRpcErrorException) {
+          transaction.sendError(((JsonRpcErrorException) cause).getError());
+        } else {
+          log.error("Exception processing request {}", request, cause);
+          transaction.sendError(cause);
+        }
+      }
+    } catch (Exception e) {
+      log.error("Exception sending response to request {}", request, e);
+    }
+  }
+
+  private Throwable unwrap(Throwable error) {
+    if ((error instanceof CompletionException || error instanceof ExecutionException)
+        && error.getCause() != null) {
+      return error.getCause();
+    }
+    return error;
+  }
+
+  /**
+   * Configures if requests from the same session are processed in order. When enabled, a request
+   * is not started until the stage returned for the previous one is completed.
+   *
+   * By default, orderedProcessing is false.
+   *
+   * @param orderedProcessing
+   */
+  public AsyncJsonRpcHandler<P> withOrderedProcessing(boolean orderedProcessing) {
+    this.orderedProcessing = orderedProcessing;
+    return this;
+  }
+
+  public boolean isOrderedProcessing() {
+    return orderedProcessing;
+  }
+}
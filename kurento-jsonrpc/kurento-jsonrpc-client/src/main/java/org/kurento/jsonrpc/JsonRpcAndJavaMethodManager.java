@@ -25,6 +25,9 @@ import java.lang.reflect.Type;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.function.BiConsumer;
 
 import org.kurento.jsonrpc.message.Request;
 import org.kurento.jsonrpc.message.Response;
@@ -46,36 +49,41 @@ public class JsonRpcAndJavaMethodManager {
 
   private Paranamer paranamer = new AnnotationParanamer();
 
-  public void executeMethod(Method m, Object object, Transaction transaction,
-      Request<JsonObject> request) throws IOException {
+  public void executeMethod(Method m, Object object, final Transaction transaction,
+      final Request<JsonObject> request) throws IOException {
 
     try {
 
-      Response<JsonElement> response =
-          execJavaMethod(transaction.getSession(), object, m, transaction, request);
+      Object result = execJavaMethod(transaction.getSession(), object, m, transaction, request);
+
+      if (result instanceof CompletionStage) {
+
+        transaction.startAsync();
+
+        ((CompletionStage<?>) result).whenComplete(new BiConsumer<Object, Throwable>() {
+          @Override
+          public void accept(Object asyncResult, Throwable error) {
+            try {
+              if (error == null) {
+                sendResult(transaction, request, asyncResult);
+              } else if (error instanceof CompletionException && error.getCause() != null) {
+                sendError(transaction, request, error.getCause());
+              } else {
+                sendError(transaction, request, error);
+              }
+            } catch (IOException e) {
+              log.error("Exception sending response to request " + request, e);
+            }
+          }
+        });
 
-      if (response != null) {
-        response.setId(request.getId());
-        transaction.sendResponseObject(response);
       } else {
-        transaction.sendVoidResponse();
+        sendResult(transaction, request, result);
       }
 
     } catch (InvocationTargetException e) {
 
-      if (e.getCause() instanceof JsonRpcErrorException) {
-
-        JsonRpcErrorException ex = (JsonRpcErrorException) e.getCause();
-
-        transaction.sendError(ex.getError());
-
-      } else {
-
-        log.error(
-            "Exception executing request " + request + ": " + e.getCause().getLocalizedMessage(),
-            e.getCause());
-        transaction.sendError(e.getCause());
-      }
+      sendError(transaction, request, e.getCause());
 
     } catch (Exception e) {
       log.error("Exception processing request " + request, e);
@@ -84,21 +92,44 @@ public class JsonRpcAndJavaMethodManager {
 
   }
 
-  private Response<JsonElement> execJavaMethod(Session session, Object object, Method m,
-      Transaction transaction, Request<JsonObject> request)
-          throws IllegalAccessException, IllegalArgumentException, InvocationTargetException {
+  private void sendResult(Transaction transaction, Request<JsonObject> request, Object result)
+      throws IOException {
 
-    Object[] values = calculateParamValues(session, m, request);
+    if (result != null) {
+      Response<JsonElement> response = new Response<>(null, gson.toJsonTree(result));
+      response.setId(request.getId());
+      transaction.sendResponseObject(response);
+    } else {
+      transaction.sendVoidResponse();
+    }
+  }
 
-    Object result = m.invoke(object, values);
+  private void sendError(Transaction transaction, Request<JsonObject> request, Throwable cause)
+      throws IOException {
+
+    if (cause instanceof JsonRpcErrorException) {
+
+      JsonRpcErrorException ex = (JsonRpcErrorException) cause;
+
+      transaction.sendError(ex.getError());
 
-    if (result == null) {
-      return null;
     } else {
-      return new Response<>(null, gson.toJsonTree(result));
+
+      log.error("Exception executing request " + request + ": " + cause.getLocalizedMessage(),
+          cause);
+      transaction.sendError(cause);
     }
   }
 
+  private Object execJavaMethod(Session session, Object object, Method m,
+      Transaction transaction, Request<JsonObject> request)
+          throws IllegalAccessException, IllegalArgumentException, InvocationTargetException {
+
+    Object[] values = calculateParamValues(session, m, request);
+
+    return m.invoke(object, values);
+  }
+
   private Object[] calculateParamValues(Session session, Method m, Request<JsonObject> request) {
 
     JsonObject params = request.getParams();
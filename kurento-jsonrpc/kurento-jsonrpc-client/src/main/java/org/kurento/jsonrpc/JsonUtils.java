@@ -18,6 +18,7 @@
 package org.kurento.jsonrpc;
 
 import static org.kurento.jsonrpc.internal.JsonRpcConstants.DATA_PROPERTY;
+import static org.kurento.jsonrpc.internal.JsonRpcConstants.DEADLINE_PROPERTY;
 import static org.kurento.jsonrpc.internal.JsonRpcConstants.ERROR_PROPERTY;
 import static org.kurento.jsonrpc.internal.JsonRpcConstants.ID_PROPERTY;
 import static org.kurento.jsonrpc.internal.JsonRpcConstants.JSON_RPC_PROPERTY;
@@ -83,8 +84,12 @@ public class JsonUtils {
   }
 
   public static JsonObject toJsonObject(Object obj) {
-    // TODO Optimise this implementation if possible
-    return fromJson(getGson().toJson(obj), JsonObject.class);
+    // The tree is built directly, without writing and parsing JSON text. Null properties are
+    // omitted as they would be in the text.
+    if (obj == null) {
+      return null;
+    }
+    return getGson().toJsonTree(obj).getAsJsonObject();
   }
 
   public static Message fromJsonMessage(String message) {
@@ -573,8 +578,21 @@ class JsonRpcRequestDeserializer implements JsonDeserializer<Request<?>> {
 
     ParameterizedType parameterizedType = (ParameterizedType) typeOfT;
 
-    return new Request<>(id, jObject.get(METHOD_PROPERTY).getAsString(), context
-        .deserialize(jObject.get(PARAMS_PROPERTY), parameterizedType.getActualTypeArguments()[0]));
+    Request<Object> request = new Request<>(id, jObject.get(METHOD_PROPERTY).getAsString(),
+        context.deserialize(jObject.get(PARAMS_PROPERTY),
+            parameterizedType.getActualTypeArguments()[0]));
+
+    JsonElement deadline = jObject.get(DEADLINE_PROPERTY);
+    if (deadline != null && !deadline.isJsonNull()) {
+      try {
+        request.setDeadline(Long.valueOf(deadline.getAsLong()));
+      } catch (Exception e) {
+        throw new JsonParseException(
+            "Invalid format in '" + DEADLINE_PROPERTY + "' field in request " + json);
+      }
+    }
+
+    return request;
 
   }
 }
@@ -26,6 +26,8 @@ import static org.kurento.jsonrpc.internal.JsonRpcConstants.METHOD_PING;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -71,6 +73,9 @@ public abstract class AbstractJsonRpcClientWebSocket extends JsonRpcClient {
   private long requestTimeout =
       PropertiesManager.getProperty("jsonRpcClientWebSocket.timeout", 60000);
 
+  private boolean propagateDeadline =
+      PropertiesManager.getProperty("jsonRpcClientWebSocket.propagateDeadline", false);
+
   protected static final int maxPacketSize =
       PropertiesManager.getProperty("jsonRpcClientWebSocket.packetSize", 1000000);
 
@@ -88,6 +93,7 @@ public abstract class AbstractJsonRpcClientWebSocket extends JsonRpcClient {
   private Handler disconnectedHandler;
   private Handler reconnectingHandler;
   private ReconnectedHandler reconnectedHandler;
+  private final List<ReconnectedHandler> reconnectedListeners = new CopyOnWriteArrayList<>();
 
   private volatile boolean reconnecting;
 
@@ -142,6 +148,7 @@ public abstract class AbstractJsonRpcClientWebSocket extends JsonRpcClient {
       }
     };
 
+    updateRequestDeadline();
   }
 
   /**
@@ -151,12 +158,35 @@ public abstract class AbstractJsonRpcClientWebSocket extends JsonRpcClient {
   @Override
   public void setRequestTimeout(long timeout) {
     this.requestTimeout = timeout;
+    updateRequestDeadline();
   }
 
   public long getRequestTimeout() {
     return requestTimeout;
   }
 
+  /**
+   * Configures if this client should send the request timeout as deadline in every request. Servers
+   * based on kurento-jsonrpc-server discard requests whose deadline has passed while they were
+   * waiting to be processed, because this client is not waiting for the response anymore.
+   *
+   * By default propagateDeadline is false.
+   *
+   * @param propagateDeadline
+   */
+  public void setPropagateDeadline(boolean propagateDeadline) {
+    this.propagateDeadline = propagateDeadline;
+    updateRequestDeadline();
+  }
+
+  public boolean isPropagateDeadline() {
+    return propagateDeadline;
+  }
+
+  private void updateRequestDeadline() {
+    rsHelper.setRequestDeadline(propagateDeadline ? requestTimeout : 0);
+  }
+
   /**
    * Configures if this client should send a close message to server when close() method is invoked.
    * This close message is used to inform the server that client explicitly closed the connection.
@@ -207,6 +237,8 @@ public abstract class AbstractJsonRpcClientWebSocket extends JsonRpcClient {
   }
 
   protected void fireReconnectedNewServer() {
+    runReconnectedListeners(false);
+
     if (connectionListener != null) {
       fireEvent(new Runnable() {
         @Override
@@ -227,6 +259,8 @@ public abstract class AbstractJsonRpcClientWebSocket extends JsonRpcClient {
   }
 
   protected void fireReconnectedSameServer() {
+    runReconnectedListeners(true);
+
     if (connectionListener != null) {
       fireEvent(new Runnable() {
         @Override
@@ -246,6 +280,16 @@ public abstract class AbstractJsonRpcClientWebSocket extends JsonRpcClient {
     }
   }
 
+  private void runReconnectedListeners(boolean sameServer) {
+    for (ReconnectedHandler listener : reconnectedListeners) {
+      try {
+        listener.run(sameServer);
+      } catch (Exception e) {
+        log.warn("{} Exception executing reconnected listener {}", label, listener, e);
+      }
+    }
+  }
+
   protected void fireConnectionFailed() {
     if (connectionListener != null) {
       fireEvent(new Runnable() {
@@ -879,6 +923,16 @@ public abstract class AbstractJsonRpcClientWebSocket extends JsonRpcClient {
     this.reconnectedHandler = reconnectedHandler;
   }
 
+  /**
+   * Adds a listener executed in the reconnection thread when the client is reconnected, before
+   * notifying the connection listener and the handler set with
+   * {@link #onReconnected(ReconnectedHandler)}. It allows libraries built on this client to update
+   * their state before the application is notified.
+   */
+  public void addReconnectedListener(ReconnectedHandler listener) {
+    reconnectedListeners.add(listener);
+  }
+
   public void setTryReconnectingMaxTime(long tryReconnectingMaxTime) {
     this.tryReconnectingForever = false;
     this.tryReconnectingMaxTime = tryReconnectingMaxTime;
@@ -18,18 +18,27 @@
 package org.kurento.jsonrpc.client;
 
 import static org.kurento.jsonrpc.JsonUtils.fromJsonResponse;
-import static org.kurento.jsonrpc.JsonUtils.toJson;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.lang.reflect.Type;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import org.apache.http.client.ClientProtocolException;
 import org.apache.http.entity.ContentType;
+import org.kurento.commons.PropertiesManager;
 import org.kurento.jsonrpc.JsonUtils;
 import org.kurento.jsonrpc.internal.HttpResponseSender;
+import org.kurento.jsonrpc.internal.JsonRpcConstants;
 import org.kurento.jsonrpc.internal.JsonRpcRequestSenderHelper;
 import org.kurento.jsonrpc.internal.client.ClientSession;
+import org.kurento.jsonrpc.internal.client.TransactionImpl.ResponseSender;
+import org.kurento.jsonrpc.message.Message;
 import org.kurento.jsonrpc.message.Request;
 import org.kurento.jsonrpc.message.Response;
 import org.kurento.jsonrpc.message.ResponseError;
@@ -41,6 +50,11 @@ import com.google.gson.reflect.TypeToken;
 
 public class JsonRpcClientHttp extends JsonRpcClient {
 
+  private static final String EVENT_STREAM_CONTENT_TYPE = "text/event-stream";
+
+  private static final long STREAM_RECONNECTION_DELAY =
+      PropertiesManager.getProperty("jsonRpcClientHttp.streamReconnectionDelay", 1000);
+
   private final Logger log = LoggerFactory.getLogger(JsonRpcClient.class);
 
   private Thread longPoolingThread;
@@ -48,8 +62,41 @@ public class JsonRpcClientHttp extends JsonRpcClient {
 
   private HttpResponseSender rs;
 
+  private final boolean streaming;
+
+  private volatile HttpURLConnection streamConnection;
+
+  private final ResponseSender streamResponseSender = new ResponseSender() {
+    @Override
+    public void sendResponse(Message message) throws IOException {
+      org.apache.http.client.fluent.Request.Post(url)
+          .bodyString(message.toString(), ContentType.APPLICATION_JSON).execute().discardContent();
+    }
+
+    @Override
+    public void sendPingResponse(Message message) throws IOException {
+      sendResponse(message);
+    }
+  };
+
   public JsonRpcClientHttp(String url) {
+    this(url, PropertiesManager.getProperty("jsonRpcClientHttp.streaming", false));
+  }
+
+  /**
+   * Creates a client that sends requests with HTTP POST. Requests from server to client are
+   * received using long polling or, if streaming is true, through a server-sent events stream
+   * that is kept open with the server. With streaming, messages pushed by the server are received
+   * as soon as they are sent, without a polling round trip.
+   *
+   * @param url
+   *          the url of the server
+   * @param streaming
+   *          if a server-sent events stream has to be used instead of long polling
+   */
+  public JsonRpcClientHttp(String url, boolean streaming) {
     this.url = url;
+    this.streaming = streaming;
     this.rs = new HttpResponseSender();
     this.rsHelper = new JsonRpcRequestSenderHelper() {
       @Override
@@ -77,7 +124,106 @@ public class JsonRpcClientHttp extends JsonRpcClient {
 
       handlerManager.afterConnectionEstablished(session);
 
-      startPooling();
+      if (streaming) {
+        startStreaming();
+      } else {
+        startPooling();
+      }
+    }
+  }
+
+  public boolean isStreaming() {
+    return streaming;
+  }
+
+  private void startStreaming() {
+    this.longPoolingThread = new Thread("JsonRpcClientHttp-eventStream") {
+      @Override
+      public void run() {
+        streaming();
+      }
+    };
+
+    this.longPoolingThread.setDaemon(true);
+    this.longPoolingThread.start();
+  }
+
+  private void streaming() {
+
+    while (!Thread.currentThread().isInterrupted()) {
+
+      try {
+
+        readEventStream();
+
+      } catch (IOException e) {
+        if (Thread.currentThread().isInterrupted()) {
+          break;
+        }
+        log.warn("Exception reading server event stream. Reconnecting in {} ms",
+            STREAM_RECONNECTION_DELAY, e);
+      }
+
+      try {
+        Thread.sleep(STREAM_RECONNECTION_DELAY);
+      } catch (InterruptedException e) {
+        log.debug("Event stream thread interrupted");
+        break;
+      }
+    }
+  }
+
+  private void readEventStream() throws IOException {
+
+    String sessionId = rsHelper.getSessionId();
+    String streamUrl = url + (url.contains("?") ? "&" : "?")
+        + JsonRpcConstants.SESSION_ID_PROPERTY + "="
+        + URLEncoder.encode(sessionId, StandardCharsets.UTF_8.name());
+
+    HttpURLConnection connection = (HttpURLConnection) new URL(streamUrl).openConnection();
+    connection.setRequestProperty("Accept", EVENT_STREAM_CONTENT_TYPE);
+    connection.setConnectTimeout(connectionTimeout);
+    connection.setReadTimeout(0);
+    streamConnection = connection;
+
+    try (BufferedReader reader = new BufferedReader(
+        new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+
+      log.debug("Event stream opened with server {}", url);
+
+      StringBuilder data = new StringBuilder();
+      String line;
+      while ((line = reader.readLine()) != null) {
+
+        if (line.isEmpty()) {
+          if (data.length() > 0) {
+            processServerMessage(data.toString());
+            data.setLength(0);
+          }
+        } else if (line.startsWith("data:")) {
+          if (data.length() > 0) {
+            data.append('\n');
+          }
+          data.append(line.substring(line.startsWith("data: ") ? 6 : 5));
+        }
+        // Comments (lines starting with ':') and other fields are ignored
+      }
+
+    } finally {
+      streamConnection = null;
+      connection.disconnect();
+    }
+  }
+
+  private void processServerMessage(String message) {
+
+    log.debug("Event from stream: {}", message);
+
+    try {
+      Request<JsonElement> request = JsonUtils.fromJsonRequest(message, JsonElement.class);
+      handlerManager.handleRequest(session, request, streamResponseSender);
+    } catch (Exception e) {
+      log.error("Exception processing message {} from event stream", message, e);
     }
   }
 
@@ -139,7 +285,7 @@ public class JsonRpcClientHttp extends JsonRpcClient {
       throws IOException {
 
     String resultJson = org.apache.http.client.fluent.Request.Post(url)
-        .bodyString(toJson(request), ContentType.APPLICATION_JSON).execute().returnContent()
+        .bodyString(request.toString(), ContentType.APPLICATION_JSON).execute().returnContent()
         .asString();
 
     if (resultJson == null || resultJson.trim().isEmpty()) {
@@ -160,6 +306,10 @@ public class JsonRpcClientHttp extends JsonRpcClient {
       log.debug("Interrupted!!!");
       this.longPoolingThread.interrupt();
     }
+    HttpURLConnection connection = streamConnection;
+    if (connection != null) {
+      connection.disconnect();
+    }
     handlerManager.afterConnectionClosed(session, "Client closed connection");
     session = null;
     try {
@@ -45,6 +45,8 @@ public class JsonRpcConstants {
 
   public static final String SESSION_ID_PROPERTY = "sessionId";
 
+  public static final String DEADLINE_PROPERTY = "deadline";
+
   public static final String METHOD_START = "start";
 
   public static final String METHOD_TERMINATE = "terminate";
@@ -71,6 +73,8 @@ public class JsonRpcConstants {
 
   public static final String RECONNECTION_SUCCESSFUL = "reconnection successful";
 
+  public static final String DEADLINE_EXPIRED = "deadline expired";
+
   public static final int ERROR_NO_ERROR = 0;
 
   public static final int ERROR_APPLICATION_TERMINATION = 1;
@@ -87,4 +91,6 @@ public class JsonRpcConstants {
 
   public static final int ERROR_SERVER_ERROR = -32000;
 
+  public static final int ERROR_DEADLINE_EXPIRED = -32001;
+
 }
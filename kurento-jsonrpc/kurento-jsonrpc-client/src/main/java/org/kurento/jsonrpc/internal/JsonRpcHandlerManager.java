@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 
+import org.kurento.jsonrpc.AsyncJsonRpcHandler;
 import org.kurento.jsonrpc.DefaultJsonRpcHandler;
 import org.kurento.jsonrpc.JsonRpcException;
 import org.kurento.jsonrpc.JsonRpcHandler;
@@ -193,7 +194,8 @@ public class JsonRpcHandlerManager {
 
       ParameterizedType paramClass = (ParameterizedType) genericSuperclass;
 
-      if (paramClass.getRawType() == DefaultJsonRpcHandler.class) {
+      if (paramClass.getRawType() == DefaultJsonRpcHandler.class
+          || paramClass.getRawType() == AsyncJsonRpcHandler.class) {
         return (Class<?>) paramClass.getActualTypeArguments()[0];
       }
 
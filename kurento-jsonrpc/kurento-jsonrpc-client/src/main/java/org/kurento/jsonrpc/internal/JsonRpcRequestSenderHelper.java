@@ -34,6 +34,7 @@ public abstract class JsonRpcRequestSenderHelper implements JsonRpcRequestSender
 
   protected AtomicInteger id = new AtomicInteger();
   protected String sessionId;
+  protected volatile long requestDeadline;
 
   public JsonRpcRequestSenderHelper() {
   }
@@ -50,6 +51,22 @@ public abstract class JsonRpcRequestSenderHelper implements JsonRpcRequestSender
     this.sessionId = sessionId;
   }
 
+  public long getRequestDeadline() {
+    return requestDeadline;
+  }
+
+  /**
+   * Configures the deadline (in millis) included in every request sent through this helper. The
+   * receiver can use it to discard requests that are still waiting to be processed after the
+   * sender has given up waiting for the response. A value of 0 disables deadline propagation.
+   *
+   * @param requestDeadline
+   *          the deadline in milliseconds
+   */
+  public void setRequestDeadline(long requestDeadline) {
+    this.requestDeadline = requestDeadline;
+  }
+
   @Override
   public <R> R sendRequest(String method, Class<R> resultClass) throws IOException {
     return sendRequest(method, null, resultClass);
@@ -72,6 +89,8 @@ public abstract class JsonRpcRequestSenderHelper implements JsonRpcRequestSender
   public <P, R> R sendRequest(Request<P> request, Class<R> resultClass)
       throws JsonRpcErrorException, IOException {
 
+    setDeadlineIfNecessary(request);
+
     Response<R> response = internalSendRequest(request, resultClass);
 
     if (response == null) {
@@ -110,6 +129,8 @@ public abstract class JsonRpcRequestSenderHelper implements JsonRpcRequestSender
       request.setSessionId(sessionId);
     }
 
+    setDeadlineIfNecessary(request);
+
     internalSendRequest(request, JsonElement.class, new Continuation<Response<JsonElement>>() {
 
       @Override
@@ -167,6 +188,7 @@ public abstract class JsonRpcRequestSenderHelper implements JsonRpcRequestSender
   public Response<JsonElement> sendRequest(Request<JsonObject> request) throws IOException {
 
     setIdIfNecessary(request);
+    setDeadlineIfNecessary(request);
     return internalSendRequest(request, JsonElement.class);
   }
 
@@ -176,22 +198,31 @@ public abstract class JsonRpcRequestSenderHelper implements JsonRpcRequestSender
     }
   }
 
+  private void setDeadlineIfNecessary(Request<? extends Object> request) {
+    if (requestDeadline > 0 && request.getId() != null && request.getDeadline() == null) {
+      request.setDeadline(Long.valueOf(requestDeadline));
+    }
+  }
+
   @Override
   public void sendRequest(Request<JsonObject> request,
       Continuation<Response<JsonElement>> continuation) {
 
     setIdIfNecessary(request);
+    setDeadlineIfNecessary(request);
     internalSendRequest(request, JsonElement.class, continuation);
   }
 
   @Override
   public Response<JsonElement> sendRequestHonorId(Request<JsonObject> request) throws IOException {
+    setDeadlineIfNecessary(request);
     return internalSendRequest(request, JsonElement.class);
   }
 
   @Override
   public void sendRequestHonorId(Request<JsonObject> request,
       Continuation<Response<JsonElement>> continuation) throws IOException {
+    setDeadlineIfNecessary(request);
     internalSendRequest(request, JsonElement.class, continuation);
   }
 
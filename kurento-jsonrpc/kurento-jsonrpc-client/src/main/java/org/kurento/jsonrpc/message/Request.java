@@ -48,6 +48,12 @@ public class Request<P> extends Message {
    */
   protected P params;
 
+  /**
+   * Time in milliseconds the sender is willing to wait for the response, counted from the moment
+   * the request is received. Optional: if null, the request never expires.
+   */
+  private Long deadline;
+
   /**
    * Default constructor.
    */
@@ -115,6 +121,14 @@ public class Request<P> extends Message {
     this.id = id;
   }
 
+  public Long getDeadline() {
+    return deadline;
+  }
+
+  public void setDeadline(Long deadline) {
+    this.deadline = deadline;
+  }
+
   public boolean isNotification() {
     return id == null;
   }
@@ -0,0 +1,73 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.jsonrpc.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.kurento.jsonrpc.JsonUtils;
+import org.kurento.jsonrpc.internal.JsonRpcConstants;
+import org.kurento.jsonrpc.message.Request;
+import org.kurento.jsonrpc.message.Response;
+import org.kurento.jsonrpc.message.ResponseError;
+
+import com.google.gson.JsonObject;
+
+public class DeadlineMessageTest {
+
+  @Test
+  public void requestWithDeadlineTest() {
+
+    Request<JsonObject> request = new Request<JsonObject>(1, "method", null);
+    request.setDeadline(Long.valueOf(10000));
+
+    String requestJson = request.toString();
+    Assert.assertEquals("{\"id\":1,\"method\":\"method\",\"deadline\":10000,\"jsonrpc\":\"2.0\"}",
+        requestJson);
+
+    Request<JsonObject> newRequest = JsonUtils.fromJsonRequest(requestJson, JsonObject.class);
+
+    Assert.assertEquals(Long.valueOf(10000), newRequest.getDeadline());
+  }
+
+  @Test
+  public void requestWithoutDeadlineTest() {
+
+    Request<JsonObject> request = new Request<JsonObject>(1, "method", null);
+
+    String requestJson = request.toString();
+    Assert.assertEquals("{\"id\":1,\"method\":\"method\",\"jsonrpc\":\"2.0\"}", requestJson);
+
+    Request<JsonObject> newRequest = JsonUtils.fromJsonRequest(requestJson, JsonObject.class);
+
+    Assert.assertNull(newRequest.getDeadline());
+  }
+
+  @Test
+  public void deadlineExpiredResponseTest() {
+
+    Response<JsonObject> response = new Response<>(1, new ResponseError(
+        JsonRpcConstants.ERROR_DEADLINE_EXPIRED, JsonRpcConstants.DEADLINE_EXPIRED));
+
+    Response<JsonObject> newResponse = JsonUtils.fromJsonResponse(response.toString(),
+        JsonObject.class);
+
+    Assert.assertEquals(Integer.valueOf(1), newResponse.getId());
+    Assert.assertEquals(JsonRpcConstants.ERROR_DEADLINE_EXPIRED, newResponse.getError().getCode());
+  }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.jsonrpc.internal.http;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import javax.servlet.AsyncContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Server-sent events channel used to push messages from server to an HTTP client. It is backed by
+ * an asynchronous servlet response, so no thread is held while the stream is idle.
+ *
+ * Each message is written as a single <code>data</code> line (JSON text never contains raw line
+ * breaks) followed by an empty line.
+ */
+public class HttpEventStream {
+
+  public static final String EVENT_STREAM_CONTENT_TYPE = "text/event-stream";
+
+  private static final Logger log = LoggerFactory.getLogger(HttpEventStream.class);
+
+  private final AsyncContext asyncContext;
+  private final PrintWriter writer;
+  private boolean closed;
+
+  public HttpEventStream(AsyncContext asyncContext) throws IOException {
+    this.asyncContext = asyncContext;
+    this.writer = asyncContext.getResponse().getWriter();
+  }
+
+  public synchronized void sendMessage(String message) throws IOException {
+
+    if (closed) {
+      throw new IOException("Event stream is closed");
+    }
+
+    writer.write("data: ");
+    writer.write(message);
+    writer.write("\n\n");
+    writer.flush();
+
+    if (writer.checkError()) {
+      close();
+      throw new IOException("Exception writing message in event stream");
+    }
+  }
+
+  public synchronized boolean isClosed() {
+    return closed;
+  }
+
+  /**
+   * Marks the stream as closed. Used when the container has already finished the underlying
+   * response (client disconnection, timeout or error).
+   */
+  synchronized void markClosed() {
+    closed = true;
+  }
+
+  public synchronized void close() {
+    if (!closed) {
+      closed = true;
+      try {
+        asyncContext.complete();
+      } catch (Exception e) {
+        log.debug("Exception completing event stream: {}", e.getMessage());
+      }
+    }
+  }
+}
@@ -17,13 +17,28 @@
 
 package org.kurento.jsonrpc.internal.http;
 
+import static org.kurento.jsonrpc.internal.JsonRpcConstants.ID_PROPERTY;
+import static org.kurento.jsonrpc.internal.JsonRpcConstants.METHOD_PROPERTY;
+import static org.kurento.jsonrpc.internal.JsonRpcConstants.SESSION_ID_PROPERTY;
+
 import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
+import org.kurento.commons.PropertiesManager;
+import org.kurento.jsonrpc.JsonRpcException;
+import org.kurento.jsonrpc.JsonUtils;
+import org.kurento.jsonrpc.TransportException;
 import org.kurento.jsonrpc.client.Continuation;
 import org.kurento.jsonrpc.internal.JsonRpcRequestSenderHelper;
 import org.kurento.jsonrpc.internal.client.TransactionImpl.ResponseSender;
@@ -31,18 +46,39 @@ import org.kurento.jsonrpc.internal.server.ProtocolManager;
 import org.kurento.jsonrpc.internal.server.ProtocolManager.ServerSessionFactory;
 import org.kurento.jsonrpc.internal.server.ServerSession;
 import org.kurento.jsonrpc.internal.server.SessionsManager;
+import org.kurento.jsonrpc.internal.ws.PendingRequests;
 import org.kurento.jsonrpc.message.Message;
+import org.kurento.jsonrpc.message.MessageUtils;
 import org.kurento.jsonrpc.message.Request;
 import org.kurento.jsonrpc.message.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.web.HttpRequestHandler;
 
 import com.google.common.io.CharStreams;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 
 public class JsonRpcHttpRequestHandler implements HttpRequestHandler {
 
+  private static final Logger log = LoggerFactory.getLogger(JsonRpcHttpRequestHandler.class);
+
+  private static final long TIMEOUT =
+      PropertiesManager.getProperty("jsonRpcServerHttp.timeout", 10000);
+
+  private static final long REQUEST_ASYNC_TIMEOUT =
+      PropertiesManager.getProperty("jsonRpcServerHttp.requestTimeout", 60000);
+
   private final class HttpRequestServerSession extends ServerSession {
 
+    private final PendingRequests pendingRequests = new PendingRequests();
+
+    private volatile HttpEventStream eventStream;
+
     private HttpRequestServerSession(String sessionId, Object registerInfo,
         SessionsManager sessionsManager, String internalSessionId) {
 
@@ -53,26 +89,150 @@ public class JsonRpcHttpRequestHandler implements HttpRequestHandler {
         @Override
         protected <P, R> Response<R> internalSendRequest(Request<P> request, Class<R> resultClass)
             throws IOException {
-          // TODO Poner aquí la cola de mensajes que devolver al
-          // cliente cuando haga pooling
-          return new Response<>();
+          return sendRequestHttp(request, resultClass);
         }
 
         @Override
         protected void internalSendRequest(Request<? extends Object> request,
-            Class<JsonElement> class1, Continuation<Response<JsonElement>> continuation) {
-          throw new UnsupportedOperationException("Async client is unavailable");
+            Class<JsonElement> resultClass, Continuation<Response<JsonElement>> continuation) {
+          sendRequestHttp(request, resultClass, continuation);
         }
       });
     }
 
+    private <P, R> Response<R> sendRequestHttp(Request<P> request, Class<R> resultClass)
+        throws IOException {
+
+      HttpEventStream stream = eventStream;
+
+      if (stream == null) {
+        // TODO Poner aquí la cola de mensajes que devolver al
+        // cliente cuando haga pooling
+        log.debug("No event stream opened in session {}. Request {} is not sent", getSessionId(),
+            request);
+        return new Response<>();
+      }
+
+      ListenableFuture<Response<JsonElement>> responseFuture = null;
+
+      if (request.getId() != null) {
+        responseFuture = pendingRequests.prepareResponse(request.getId());
+      }
+
+      log.debug("Req-> {}", request);
+
+      stream.sendMessage(JsonUtils.toJson(request));
+
+      if (responseFuture == null) {
+        return null;
+      }
+
+      Response<JsonElement> responseJson;
+      try {
+        responseJson = responseFuture.get(TIMEOUT, TimeUnit.MILLISECONDS);
+
+        log.debug("<-Res {}", responseJson);
+
+      } catch (InterruptedException e) {
+        throw new JsonRpcException("Interrupted while waiting for a response", e);
+      } catch (ExecutionException e) {
+        throw new JsonRpcException("This exception shouldn't be thrown", e);
+      } catch (TimeoutException e) {
+        throw new TransportException("Timeout of " + TIMEOUT
+            + " milliseconds waiting from response to request with id:" + request.getId()
+            + ". Request: " + request, e);
+      }
+
+      return MessageUtils.convertResponse(responseJson, resultClass);
+    }
+
+    private void sendRequestHttp(Request<? extends Object> request,
+        final Class<JsonElement> resultClass,
+        final Continuation<Response<JsonElement>> continuation) {
+
+      HttpEventStream stream = eventStream;
+
+      if (stream == null) {
+        continuation.onError(new TransportException(
+            "No event stream opened in session " + getSessionId() + " to send request " + request));
+        return;
+      }
+
+      try {
+
+        ListenableFuture<Response<JsonElement>> responseFuture = null;
+
+        if (request.getId() != null) {
+          responseFuture = pendingRequests.prepareResponse(request.getId());
+        }
+
+        log.debug("Req-> {}", request);
+
+        stream.sendMessage(JsonUtils.toJson(request));
+
+        if (responseFuture == null) {
+          continuation.onSuccess(null);
+          return;
+        }
+
+        Futures.addCallback(responseFuture, new FutureCallback<Response<JsonElement>>() {
+          @Override
+          public void onSuccess(Response<JsonElement> responseJson) {
+            try {
+              continuation.onSuccess(MessageUtils.convertResponse(responseJson, resultClass));
+            } catch (Exception e) {
+              log.error("Exception while processing response", e);
+            }
+          }
+
+          @Override
+          public void onFailure(Throwable thrown) {
+            continuation.onError(thrown);
+          }
+        }, MoreExecutors.directExecutor());
+
+      } catch (Exception e) {
+        continuation.onError(e);
+      }
+    }
+
+    private void setEventStream(HttpEventStream eventStream) {
+      HttpEventStream oldStream = this.eventStream;
+      this.eventStream = eventStream;
+      if (oldStream != null && oldStream != eventStream) {
+        oldStream.close();
+      }
+    }
+
+    private void removeEventStream(HttpEventStream eventStream) {
+      if (this.eventStream == eventStream) {
+        this.eventStream = null;
+      }
+    }
+
     @Override
     public void handleResponse(Response<JsonElement> response) {
+      pendingRequests.handleResponse(response);
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        HttpEventStream stream = eventStream;
+        if (stream != null) {
+          stream.close();
+        }
+      } finally {
+        super.close();
+      }
     }
 
     @Override
     public void closeNativeSession(String reason) {
-      throw new UnsupportedOperationException();
+      HttpEventStream stream = eventStream;
+      if (stream != null) {
+        stream.close();
+      }
     }
   }
 
@@ -86,6 +246,11 @@ public class JsonRpcHttpRequestHandler implements HttpRequestHandler {
   public void handleRequest(HttpServletRequest servletRequest,
       final HttpServletResponse servletResponse) throws ServletException, IOException {
 
+    if (isEventStreamRequest(servletRequest)) {
+      handleEventStreamRequest(servletRequest, servletResponse);
+      return;
+    }
+
     String messageJson = getBodyAsString(servletRequest);
 
     ServerSessionFactory factory = new ServerSessionFactory() {
@@ -102,10 +267,22 @@ public class JsonRpcHttpRequestHandler implements HttpRequestHandler {
       }
     };
 
+    // The response is written when the request is processed in the session thread, so the
+    // servlet thread is released while the handler is executed
+    final AsyncContext asyncContext = servletRequest.startAsync();
+    asyncContext.setTimeout(REQUEST_ASYNC_TIMEOUT);
+    final AtomicBoolean completed = new AtomicBoolean(false);
+
     ResponseSender responseSender = new ResponseSender() {
       @Override
       public void sendResponse(Message message) throws IOException {
-        servletResponse.getWriter().println(message);
+        if (completed.compareAndSet(false, true)) {
+          try {
+            servletResponse.getWriter().println(message);
+          } finally {
+            asyncContext.complete();
+          }
+        }
       }
 
       @Override
@@ -121,7 +298,85 @@ public class JsonRpcHttpRequestHandler implements HttpRequestHandler {
       internalSessionId = session.getId();
     }
 
-    protocolManager.processMessage(messageJson, factory, responseSender, internalSessionId);
+    boolean responseExpected = false;
+    try {
+
+      JsonObject message = JsonUtils.fromJson(messageJson, JsonObject.class);
+
+      responseExpected = message != null && message.has(METHOD_PROPERTY)
+          && message.has(ID_PROPERTY);
+
+      protocolManager.processMessage(message, factory, responseSender, internalSessionId);
+
+    } catch (RuntimeException | IOException e) {
+      responseExpected = false;
+      throw e;
+    } finally {
+      if (!responseExpected && completed.compareAndSet(false, true)) {
+        asyncContext.complete();
+      }
+    }
+  }
+
+  private boolean isEventStreamRequest(HttpServletRequest servletRequest) {
+    String accept = servletRequest.getHeader("Accept");
+    return "GET".equalsIgnoreCase(servletRequest.getMethod()) && accept != null
+        && accept.contains(HttpEventStream.EVENT_STREAM_CONTENT_TYPE);
+  }
+
+  private void handleEventStreamRequest(HttpServletRequest servletRequest,
+      HttpServletResponse servletResponse) throws IOException {
+
+    String sessionId = servletRequest.getParameter(SESSION_ID_PROPERTY);
+
+    ServerSession serverSession = sessionId != null ? protocolManager.getSession(sessionId) : null;
+
+    if (!(serverSession instanceof HttpRequestServerSession)) {
+      servletResponse.sendError(HttpServletResponse.SC_NOT_FOUND,
+          "There is no HTTP session with id '" + sessionId + "'");
+      return;
+    }
+
+    final HttpRequestServerSession httpSession = (HttpRequestServerSession) serverSession;
+
+    servletResponse.setContentType(HttpEventStream.EVENT_STREAM_CONTENT_TYPE);
+    servletResponse.setCharacterEncoding("UTF-8");
+    servletResponse.setHeader("Cache-Control", "no-cache");
+
+    AsyncContext asyncContext = servletRequest.startAsync();
+    asyncContext.setTimeout(0);
+
+    final HttpEventStream eventStream = new HttpEventStream(asyncContext);
+
+    asyncContext.addListener(new AsyncListener() {
+      @Override
+      public void onComplete(AsyncEvent event) throws IOException {
+        eventStream.markClosed();
+        httpSession.removeEventStream(eventStream);
+      }
+
+      @Override
+      public void onTimeout(AsyncEvent event) throws IOException {
+        eventStream.close();
+        httpSession.removeEventStream(eventStream);
+      }
+
+      @Override
+      public void onError(AsyncEvent event) throws IOException {
+        eventStream.close();
+        httpSession.removeEventStream(eventStream);
+      }
+
+      @Override
+      public void onStartAsync(AsyncEvent event) throws IOException {
+      }
+    });
+
+    servletResponse.flushBuffer();
+
+    log.debug("Event stream opened for session {}", sessionId);
+
+    httpSession.setEventStream(eventStream);
   }
 
   /**
@@ -0,0 +1,338 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.jsonrpc.internal.netty;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.kurento.jsonrpc.internal.client.TransactionImpl.ResponseSender;
+import org.kurento.jsonrpc.internal.server.ProtocolManager;
+import org.kurento.jsonrpc.internal.server.ProtocolManager.ServerSessionFactory;
+import org.kurento.jsonrpc.internal.server.ServerSession;
+import org.kurento.jsonrpc.internal.server.SessionsManager;
+import org.kurento.jsonrpc.internal.ws.CloseStatusHelper;
+import org.kurento.jsonrpc.message.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import io.netty.handler.codec.http.websocketx.CloseWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.PingWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.PongWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrameAggregator;
+import io.netty.handler.codec.http.websocketx.WebSocketServerHandshaker;
+import io.netty.handler.codec.http.websocketx.WebSocketServerHandshakerFactory;
+import io.netty.util.CharsetUtil;
+
+/**
+ * Netty counterpart of {@link org.kurento.jsonrpc.internal.ws.JsonRpcWebSocketHandler}. One
+ * instance is created per channel: it performs the WebSocket handshake on the path of one of the
+ * registered endpoints and then feeds every text message to the {@link ProtocolManager} of that
+ * endpoint.
+ */
+public class JsonRpcNettyServerHandler extends SimpleChannelInboundHandler<Object> {
+
+  /**
+   * Configuration of a path where a JsonRpcHandler is published.
+   */
+  public static class Endpoint {
+
+    private final ProtocolManager protocolManager;
+    private final List<String> allowedOrigins;
+    private final String label;
+
+    public Endpoint(ProtocolManager protocolManager, List<String> allowedOrigins, String label) {
+      this.protocolManager = protocolManager;
+      this.allowedOrigins = allowedOrigins;
+      this.label = label == null ? "" : "[" + label + "] ";
+    }
+  }
+
+  private static final Logger log = LoggerFactory.getLogger(JsonRpcNettyServerHandler.class);
+
+  private static final int NO_CLOSE_FRAME_STATUS = 1006;
+
+  private final Map<String, Endpoint> endpoints;
+  private final AtomicLong numConnections;
+  private final long maxConnections;
+  private final int maxMessageSize;
+
+  private WebSocketServerHandshaker handshaker;
+  private Endpoint endpoint;
+  private String transportId;
+  private boolean connectionCounted;
+  private int closeStatusCode = NO_CLOSE_FRAME_STATUS;
+  private String closeReason;
+
+  public JsonRpcNettyServerHandler(Map<String, Endpoint> endpoints, AtomicLong numConnections,
+      long maxConnections, int maxMessageSize) {
+    this.endpoints = endpoints;
+    this.numConnections = numConnections;
+    this.maxConnections = maxConnections;
+    this.maxMessageSize = maxMessageSize;
+  }
+
+  @Override
+  protected void channelRead0(ChannelHandlerContext ctx, Object msg) throws Exception {
+    if (msg instanceof FullHttpRequest) {
+      handleHttpRequest(ctx, (FullHttpRequest) msg);
+    } else if (msg instanceof WebSocketFrame) {
+      handleWebSocketFrame(ctx, (WebSocketFrame) msg);
+    }
+  }
+
+  private void handleHttpRequest(ChannelHandlerContext ctx, FullHttpRequest request) {
+
+    if (!request.decoderResult().isSuccess()) {
+      sendHttpError(ctx, request, HttpResponseStatus.BAD_REQUEST);
+      return;
+    }
+
+    String path = new QueryStringDecoder(request.uri()).path();
+    Endpoint requestedEndpoint = endpoints.get(path);
+
+    if (requestedEndpoint == null) {
+      sendHttpError(ctx, request, HttpResponseStatus.NOT_FOUND);
+      return;
+    }
+
+    if (!HttpHeaderValues.WEBSOCKET.contentEqualsIgnoreCase(
+        request.headers().get(HttpHeaderNames.UPGRADE, ""))) {
+      // Only the WebSocket transport is published by this backend
+      sendHttpError(ctx, request, HttpResponseStatus.METHOD_NOT_ALLOWED);
+      return;
+    }
+
+    String origin = request.headers().get(HttpHeaderNames.ORIGIN);
+    if (!isOriginAllowed(requestedEndpoint, origin)) {
+      log.warn("{} Rejected WS connection from origin {}", requestedEndpoint.label, origin);
+      sendHttpError(ctx, request, HttpResponseStatus.FORBIDDEN);
+      return;
+    }
+
+    String wsUrl = "ws://" + request.headers().get(HttpHeaderNames.HOST) + path;
+    WebSocketServerHandshakerFactory factory =
+        new WebSocketServerHandshakerFactory(wsUrl, null, true, maxMessageSize);
+
+    handshaker = factory.newHandshaker(request);
+    if (handshaker == null) {
+      WebSocketServerHandshakerFactory.sendUnsupportedVersionResponse(ctx.channel());
+      return;
+    }
+
+    endpoint = requestedEndpoint;
+    transportId = ctx.channel().id().asLongText();
+
+    handshaker.handshake(ctx.channel(), request);
+    ctx.pipeline().addBefore(ctx.name(), "wsAggregator",
+        new WebSocketFrameAggregator(maxMessageSize));
+
+    if (!incNumConnectionsIfAllowed()) {
+      log.warn("Closed a WS connection because MAX_WS_CONNECTIONS={} limit reached",
+          maxConnections);
+      ctx.channel().close();
+      return;
+    }
+
+    log.debug("{} Client connection established from {} uri={} headers={}", endpoint.label,
+        ctx.channel().remoteAddress(), request.uri(), request.headers());
+  }
+
+  private boolean isOriginAllowed(Endpoint requestedEndpoint, String origin) {
+    List<String> allowedOrigins = requestedEndpoint.allowedOrigins;
+    return origin == null || allowedOrigins.isEmpty() || allowedOrigins.contains("*")
+        || allowedOrigins.contains(origin);
+  }
+
+  private boolean incNumConnectionsIfAllowed() {
+
+    while (true) {
+
+      long curNumConn = numConnections.get();
+      if (curNumConn >= maxConnections) {
+        return false;
+      }
+
+      if (numConnections.compareAndSet(curNumConn, curNumConn + 1)) {
+        connectionCounted = true;
+        return true;
+      }
+    }
+  }
+
+  private void handleWebSocketFrame(ChannelHandlerContext ctx, WebSocketFrame frame) {
+
+    if (frame instanceof TextWebSocketFrame) {
+      processMessage(ctx.channel(), ((TextWebSocketFrame) frame).text());
+    } else if (frame instanceof PingWebSocketFrame) {
+      ctx.writeAndFlush(new PongWebSocketFrame(frame.content().retain()));
+    } else if (frame instanceof CloseWebSocketFrame) {
+      CloseWebSocketFrame closeFrame = (CloseWebSocketFrame) frame;
+      closeStatusCode = closeFrame.statusCode();
+      closeReason = closeFrame.reasonText();
+      handshaker.close(ctx.channel(), closeFrame.retain());
+    } else if (!(frame instanceof PongWebSocketFrame)) {
+      log.warn("{} Received frame of type {}. Will be ignored", endpoint.label,
+          frame.getClass().getSimpleName());
+    }
+  }
+
+  private void processMessage(final Channel channel, String messageJson) {
+
+    final String label = endpoint.label;
+
+    try {
+
+      ServerSessionFactory factory = new ServerSessionFactory() {
+        @Override
+        public ServerSession createSession(String sessionId, Object registerInfo,
+            SessionsManager sessionsManager) {
+          return new NettyServerSession(sessionId, registerInfo, sessionsManager, channel,
+              transportId);
+        }
+
+        @Override
+        public void updateSessionOnReconnection(ServerSession session) {
+          ((NettyServerSession) session).updateChannel(channel);
+        }
+      };
+
+      endpoint.protocolManager.processMessage(messageJson, factory, new ResponseSender() {
+        @Override
+        public void sendResponse(Message message) throws IOException {
+
+          String jsonMessage = message.toString();
+          log.debug("{} Res<- {}", label, jsonMessage);
+          sendJsonMessage(jsonMessage);
+        }
+
+        @Override
+        public void sendPingResponse(Message message) throws IOException {
+
+          String jsonMessage = message.toString();
+          log.trace("{} Res<- {}", label, jsonMessage);
+          sendJsonMessage(jsonMessage);
+        }
+
+        private void sendJsonMessage(String jsonMessage) {
+          if (channel.isActive()) {
+            channel.writeAndFlush(new TextWebSocketFrame(jsonMessage));
+          } else {
+            log.error("Trying to send a message to a closed session");
+          }
+        }
+      }, transportId);
+
+    } catch (Throwable t) {
+      log.error("{} Exception processing request {}.", label, messageJson, t);
+    }
+  }
+
+  @Override
+  public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+
+    if (connectionCounted) {
+      numConnections.decrementAndGet();
+      connectionCounted = false;
+    }
+
+    if (endpoint == null) {
+      return;
+    }
+
+    String label = endpoint.label;
+
+    try {
+      ServerSession session =
+          (ServerSession) endpoint.protocolManager.getSessionByTransportId(transportId);
+
+      if (session != null) {
+
+        if (session.isGracefullyClosed()) {
+
+          log.debug("{} WebSocket session {} with transportId {} closed gracefully", label,
+              session.getSessionId(), transportId);
+
+        } else {
+
+          log.debug(
+              "{} WebSocket session {} with transportId {} closed for {} (code {}, reason '{}')",
+              label, session.getSessionId(), transportId,
+              CloseStatusHelper.getCloseStatusType(closeStatusCode), closeStatusCode,
+              closeReason);
+
+          endpoint.protocolManager.closeSessionIfTimeout(transportId, closeReason);
+        }
+      } else {
+        log.debug(
+            "{} WebSocket session not associated to any jsonRpcSession "
+                + "with transportId {} closed for {} (code {}, reason '{}')",
+            label, transportId, CloseStatusHelper.getCloseStatusType(closeStatusCode),
+            closeStatusCode, closeReason);
+      }
+
+    } catch (Throwable t) {
+      log.error("{} Exception processing channelInactive in session={}", label, transportId, t);
+    }
+  }
+
+  @Override
+  public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+
+    if (endpoint != null) {
+      try {
+        endpoint.protocolManager.processTransportError(transportId, cause);
+      } catch (Throwable t) {
+        log.error("{} Exception processing transportError in session={}", endpoint.label,
+            transportId, t);
+      }
+    } else {
+      log.warn("Exception in Netty JSON-RPC server channel {}", ctx.channel(), cause);
+    }
+
+    ctx.close();
+  }
+
+  private void sendHttpError(ChannelHandlerContext ctx, FullHttpRequest request,
+      HttpResponseStatus status) {
+
+    FullHttpResponse response = new DefaultFullHttpResponse(request.protocolVersion(), status,
+        Unpooled.copiedBuffer(status.toString(), CharsetUtil.UTF_8));
+    response.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/plain; charset=UTF-8");
+    HttpUtil.setContentLength(response, response.content().readableBytes());
+
+    ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+  }
+
+}
@@ -0,0 +1,217 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.jsonrpc.internal.netty;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.kurento.commons.PropertiesManager;
+import org.kurento.commons.exception.KurentoException;
+import org.kurento.jsonrpc.JsonRpcException;
+import org.kurento.jsonrpc.JsonUtils;
+import org.kurento.jsonrpc.TransportException;
+import org.kurento.jsonrpc.client.Continuation;
+import org.kurento.jsonrpc.internal.JsonRpcRequestSenderHelper;
+import org.kurento.jsonrpc.internal.server.ServerSession;
+import org.kurento.jsonrpc.internal.server.SessionsManager;
+import org.kurento.jsonrpc.internal.ws.PendingRequests;
+import org.kurento.jsonrpc.message.MessageUtils;
+import org.kurento.jsonrpc.message.Request;
+import org.kurento.jsonrpc.message.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.gson.JsonElement;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.handler.codec.http.websocketx.CloseWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+
+/**
+ * Server session bound to a WebSocket connection accepted by the Netty server backend. Unlike
+ * {@link org.kurento.jsonrpc.internal.ws.WebSocketServerSession}, asynchronous requests to the
+ * client do not hold any thread while waiting for the response.
+ */
+public class NettyServerSession extends ServerSession {
+
+  private static final long TIMEOUT =
+      PropertiesManager.getProperty("jsonRpcServerWebSocket.timeout", 10000);
+
+  private static final Logger log = LoggerFactory.getLogger(NettyServerSession.class);
+
+  private volatile Channel channel;
+
+  private final PendingRequests pendingRequests = new PendingRequests();
+
+  public NettyServerSession(String sessionId, Object registerInfo,
+      SessionsManager sessionsManager, Channel channel, String transportId) {
+
+    super(sessionId, registerInfo, sessionsManager, transportId);
+
+    this.channel = channel;
+
+    this.setRsHelper(new JsonRpcRequestSenderHelper(sessionId) {
+      @Override
+      public <P, R> Response<R> internalSendRequest(Request<P> request, Class<R> resultClass)
+          throws IOException {
+        return sendRequestWebSocket(request, resultClass);
+      }
+
+      @Override
+      protected void internalSendRequest(Request<? extends Object> request,
+          Class<JsonElement> resultClass, Continuation<Response<JsonElement>> continuation) {
+        sendRequestWebSocket(request, resultClass, continuation);
+      }
+    });
+  }
+
+  private <P, R> Response<R> sendRequestWebSocket(Request<P> request, Class<R> resultClass) {
+
+    log.debug("Req-> {}", request);
+
+    ListenableFuture<Response<JsonElement>> responseFuture = null;
+
+    if (request.getId() != null) {
+      responseFuture = pendingRequests.prepareResponse(request.getId());
+    }
+
+    sendJsonMessage(JsonUtils.toJson(request));
+
+    if (responseFuture == null) {
+      return null;
+    }
+
+    Response<JsonElement> responseJson;
+    try {
+      responseJson = responseFuture.get(TIMEOUT, TimeUnit.MILLISECONDS);
+
+      log.debug("<-Res {}", responseJson);
+
+    } catch (InterruptedException e) {
+      throw new JsonRpcException("Interrupted while waiting for a response", e);
+    } catch (ExecutionException e) {
+      throw new JsonRpcException("This exception shouldn't be thrown", e);
+    } catch (TimeoutException e) {
+      throw new TransportException(
+          "Timeout of " + TIMEOUT + " milliseconds waiting from response to request with id:"
+              + request.getId() + ". Request: " + request,
+          e);
+    }
+
+    return MessageUtils.convertResponse(responseJson, resultClass);
+  }
+
+  private void sendRequestWebSocket(Request<? extends Object> request,
+      final Class<JsonElement> resultClass,
+      final Continuation<Response<JsonElement>> continuation) {
+
+    try {
+
+      ListenableFuture<Response<JsonElement>> responseFuture = null;
+
+      if (request.getId() != null) {
+        responseFuture = pendingRequests.prepareResponse(request.getId());
+      }
+
+      log.debug("Req-> {}", request);
+
+      sendJsonMessage(JsonUtils.toJson(request));
+
+      if (responseFuture == null) {
+        continuation.onSuccess(null);
+        return;
+      }
+
+      Futures.addCallback(responseFuture, new FutureCallback<Response<JsonElement>>() {
+        @Override
+        public void onSuccess(Response<JsonElement> responseJson) {
+          try {
+            continuation.onSuccess(MessageUtils.convertResponse(responseJson, resultClass));
+          } catch (Exception e) {
+            log.error("Exception while processing response", e);
+          }
+        }
+
+        @Override
+        public void onFailure(Throwable thrown) {
+          continuation.onError(thrown);
+        }
+      }, MoreExecutors.directExecutor());
+
+    } catch (Exception e) {
+      continuation.onError(e);
+    }
+  }
+
+  /**
+   * Writes a message in the channel. Netty serializes writes issued from any thread, so no lock
+   * is needed here.
+   */
+  void sendJsonMessage(String jsonMessage) {
+    Channel currentChannel = channel;
+    if (currentChannel == null || !currentChannel.isActive()) {
+      throw new KurentoException("Exception while sending message '" + jsonMessage
+          + "' to websocket with native sessionId '" + getTransportId()
+          + "': channel is closed");
+    }
+    currentChannel.writeAndFlush(new TextWebSocketFrame(jsonMessage));
+  }
+
+  @Override
+  public void handleResponse(Response<JsonElement> response) {
+    pendingRequests.handleResponse(response);
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      pendingRequests.closeAllPendingRequests();
+      Channel currentChannel = channel;
+      if (currentChannel != null) {
+        currentChannel.close();
+      }
+    } finally {
+      super.close();
+    }
+  }
+
+  public void updateChannel(Channel channel) {
+    this.channel = channel;
+  }
+
+  public Channel getChannel() {
+    return channel;
+  }
+
+  @Override
+  public void closeNativeSession(String reason) {
+    Channel currentChannel = channel;
+    if (currentChannel != null && currentChannel.isActive()) {
+      currentChannel.writeAndFlush(new CloseWebSocketFrame(1000, reason))
+          .addListener(ChannelFutureListener.CLOSE);
+    }
+  }
+
+}
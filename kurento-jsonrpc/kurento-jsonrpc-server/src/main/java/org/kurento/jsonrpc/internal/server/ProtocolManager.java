@@ -17,6 +17,8 @@
 
 package org.kurento.jsonrpc.internal.server;
 
+import static org.kurento.jsonrpc.internal.JsonRpcConstants.DEADLINE_EXPIRED;
+import static org.kurento.jsonrpc.internal.JsonRpcConstants.ERROR_DEADLINE_EXPIRED;
 import static org.kurento.jsonrpc.internal.JsonRpcConstants.METHOD_CLOSE;
 import static org.kurento.jsonrpc.internal.JsonRpcConstants.METHOD_CONNECT;
 import static org.kurento.jsonrpc.internal.JsonRpcConstants.METHOD_PING;
@@ -212,9 +214,29 @@ public class ProtocolManager {
         responseSender.sendResponse(new Response<Object>(request.getId(), Collections.emptyList()));
 
       } else {
+
+        final long expirationTime = request.getDeadline() != null
+            ? System.currentTimeMillis() + request.getDeadline().longValue()
+            : 0;
+
         session.processRequest(new Runnable() {
           @Override
           public void run() {
+            if (expirationTime != 0 && System.currentTimeMillis() > expirationTime) {
+              log.warn("{} Discarding request {} because its deadline of {} ms expired while"
+                  + " waiting to be processed [jsonRpcSessionId={}]", label, request.getId(),
+                  request.getDeadline(), session.getSessionId());
+              // Transports without a persistent connection (e.g. HTTP) keep the exchange open
+              // until a response is sent, so the request is answered with an error
+              try {
+                responseSender.sendResponse(new Response<>(request.getId(),
+                    new ResponseError(ERROR_DEADLINE_EXPIRED, DEADLINE_EXPIRED)));
+              } catch (IOException e) {
+                log.warn("{} Exception sending deadline expiration of request {}", label,
+                    request.getId(), e);
+              }
+              return;
+            }
             handlerManager.handleRequest(session, request, responseSender);
           }
         });
@@ -391,7 +413,15 @@ public class ProtocolManager {
     Response<JsonElement> response = JsonUtils.fromJsonResponse(messagetJsonObject,
         JsonElement.class);
 
-    ServerSession session = sessionsManager.getByTransportId(internalSessionId);
+    ServerSession session = internalSessionId != null
+        ? sessionsManager.getByTransportId(internalSessionId)
+        : null;
+
+    if (session == null && response.getSessionId() != null) {
+      // Transports without a persistent connection (e.g. HTTP) identify the session in the
+      // message itself
+      session = sessionsManager.get(response.getSessionId());
+    }
 
     if (session != null) {
       session.handleResponse(response);
@@ -473,4 +503,8 @@ public class ProtocolManager {
   public AbstractSession getSessionByTransportId(String transportId) {
     return sessionsManager.getByTransportId(transportId);
   }
+
+  public ServerSession getSession(String sessionId) {
+    return sessionsManager.get(sessionId);
+  }
 }
@@ -0,0 +1,267 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.jsonrpc.server;
+
+import java.io.Closeable;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.kurento.commons.PropertiesManager;
+import org.kurento.jsonrpc.JsonRpcHandler;
+import org.kurento.jsonrpc.internal.netty.JsonRpcNettyServerHandler;
+import org.kurento.jsonrpc.internal.netty.JsonRpcNettyServerHandler.Endpoint;
+import org.kurento.jsonrpc.internal.server.ProtocolManager;
+import org.kurento.jsonrpc.internal.server.SessionsManager;
+import org.kurento.jsonrpc.internal.server.config.DefaultJsonRpcHandlerRegistration;
+import org.kurento.jsonrpc.internal.server.config.DefaultJsonRpcHandlerRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpServerCodec;
+
+/**
+ * JSON-RPC server built directly on Netty's HTTP and WebSocket codecs. It is an alternative to the
+ * Spring based server ({@code JsonRpcConfiguration}) for small processes that only need to publish
+ * some handlers through WebSocket: no application context nor servlet container is started.
+ *
+ * Handlers are registered with the same {@link JsonRpcHandlerRegistry} interface used by
+ * {@link JsonRpcConfigurer}s, and messages are processed by the same {@link ProtocolManager}, so
+ * handlers behave equally in both backends. Per-session handlers and SockJS need a Spring context
+ * and are not supported.
+ *
+ * <pre>
+ * NettyJsonRpcServer server = new NettyJsonRpcServer(8888);
+ * server.addHandler(new EchoHandler(), "/echo");
+ * server.start();
+ * </pre>
+ */
+public class NettyJsonRpcServer implements JsonRpcHandlerRegistry, Closeable {
+
+  private static final Logger log = LoggerFactory.getLogger(NettyJsonRpcServer.class);
+
+  private static final long MAX_WS_CONNECTIONS =
+      PropertiesManager.getProperty("ws.maxSessions", Long.MAX_VALUE);
+
+  private static final int MAX_MESSAGE_SIZE =
+      PropertiesManager.getProperty("jsonRpcServerNetty.maxMessageSize", 1024 * 1024);
+
+  private final String host;
+  private final int port;
+
+  private final DefaultJsonRpcHandlerRegistry registry = new DefaultJsonRpcHandlerRegistry();
+  private final AtomicLong numConnections = new AtomicLong();
+
+  private SessionsManager sessionsManager;
+  private ThreadPoolTaskScheduler taskScheduler;
+  private EventLoopGroup bossGroup;
+  private EventLoopGroup workerGroup;
+  private Channel serverChannel;
+
+  /**
+   * Creates a server listening in all interfaces.
+   *
+   * @param port
+   *          the port to listen to. If 0, a free port is chosen when the server is started
+   */
+  public NettyJsonRpcServer(int port) {
+    this(null, port);
+  }
+
+  public NettyJsonRpcServer(String host, int port) {
+    this.host = host;
+    this.port = port;
+  }
+
+  @Override
+  public JsonRpcHandlerRegistration addHandler(JsonRpcHandler<?> jsonRpcHandler,
+      String... paths) {
+    return registry.addHandler(jsonRpcHandler, paths);
+  }
+
+  @Override
+  public JsonRpcHandlerRegistration addPerSessionHandler(
+      Class<? extends JsonRpcHandler<?>> handlerClass, String... paths) {
+    throw new UnsupportedOperationException(
+        "Per-session handlers need a Spring context and are not supported by "
+            + NettyJsonRpcServer.class.getSimpleName());
+  }
+
+  @Override
+  public JsonRpcHandlerRegistration addPerSessionHandler(String beanName, String... paths) {
+    throw new UnsupportedOperationException(
+        "Per-session handlers need a Spring context and are not supported by "
+            + NettyJsonRpcServer.class.getSimpleName());
+  }
+
+  /**
+   * Starts listening for connections. Handlers registered after this call are not published.
+   *
+   * @return this server
+   * @throws InterruptedException
+   *           if interrupted while binding the port
+   */
+  public synchronized NettyJsonRpcServer start() throws InterruptedException {
+
+    if (serverChannel != null) {
+      throw new IllegalStateException("Server already started");
+    }
+
+    sessionsManager = new SessionsManager();
+
+    taskScheduler = new ThreadPoolTaskScheduler();
+    taskScheduler.setThreadNamePrefix("NettyJsonRpcServer-scheduler-");
+    taskScheduler.setDaemon(true);
+    taskScheduler.initialize();
+
+    final Map<String, Endpoint> endpoints = createEndpoints();
+
+    bossGroup = new NioEventLoopGroup(1);
+    workerGroup = new NioEventLoopGroup();
+
+    ServerBootstrap b = new ServerBootstrap();
+    b.group(bossGroup, workerGroup).channel(NioServerSocketChannel.class)
+        .childHandler(new ChannelInitializer<SocketChannel>() {
+          @Override
+          protected void initChannel(SocketChannel ch) {
+            ch.pipeline().addLast(new HttpServerCodec(), new HttpObjectAggregator(65536),
+                new JsonRpcNettyServerHandler(endpoints, numConnections, MAX_WS_CONNECTIONS,
+                    MAX_MESSAGE_SIZE));
+          }
+        });
+
+    try {
+      InetSocketAddress address =
+          host == null ? new InetSocketAddress(port) : new InetSocketAddress(host, port);
+      serverChannel = b.bind(address).sync().channel();
+    } catch (InterruptedException | RuntimeException e) {
+      releaseResources();
+      throw e;
+    }
+
+    log.info("Netty JSON-RPC server listening on {} with endpoints {}",
+        serverChannel.localAddress(), endpoints.keySet());
+
+    return this;
+  }
+
+  private Map<String, Endpoint> createEndpoints() {
+
+    Map<String, Endpoint> endpoints = new HashMap<>();
+
+    for (DefaultJsonRpcHandlerRegistration registration : registry.getRegistrations()) {
+      for (Entry<JsonRpcHandler<?>, List<String>> e : registration.getHandlerMap().entrySet()) {
+
+        JsonRpcHandler<?> handler = e.getKey();
+
+        ProtocolManager protocolManager =
+            new ProtocolManager(handler, sessionsManager, taskScheduler);
+        protocolManager.setPingWachdog(handler.isPingWatchdog());
+
+        if (handler.getLabel() != null) {
+          protocolManager.setLabel(handler.getLabel());
+        }
+
+        if (handler.isSockJSEnabled()) {
+          log.warn("SockJS is not supported by {}. Handler {} is published as plain WebSocket",
+              NettyJsonRpcServer.class.getSimpleName(), handler);
+        }
+
+        if (!handler.interceptors().isEmpty()) {
+          log.warn("Handshake interceptors are not supported by {}. Ignored for handler {}",
+              NettyJsonRpcServer.class.getSimpleName(), handler);
+        }
+
+        Endpoint endpoint =
+            new Endpoint(protocolManager, handler.allowedOrigins(), handler.getLabel());
+
+        for (String path : e.getValue()) {
+          if (endpoints.put(path, endpoint) != null) {
+            throw new IllegalStateException("More than one handler registered in path " + path);
+          }
+        }
+      }
+    }
+
+    return endpoints;
+  }
+
+  /**
+   * @return the port the server is listening to, or -1 if it is not started
+   */
+  public synchronized int getPort() {
+    if (serverChannel == null) {
+      return -1;
+    }
+    return ((InetSocketAddress) serverChannel.localAddress()).getPort();
+  }
+
+  public synchronized boolean isStarted() {
+    return serverChannel != null;
+  }
+
+  /**
+   * Stops listening and closes all open connections.
+   */
+  public synchronized void stop() {
+    if (serverChannel != null) {
+      try {
+        serverChannel.close().sync();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      serverChannel = null;
+    }
+    releaseResources();
+  }
+
+  private void releaseResources() {
+    if (bossGroup != null) {
+      bossGroup.shutdownGracefully().syncUninterruptibly();
+      bossGroup = null;
+    }
+    if (workerGroup != null) {
+      workerGroup.shutdownGracefully().syncUninterruptibly();
+      workerGroup = null;
+    }
+    if (taskScheduler != null) {
+      taskScheduler.shutdown();
+      taskScheduler = null;
+    }
+    sessionsManager = null;
+    numConnections.set(0);
+  }
+
+  @Override
+  public void close() {
+    stop();
+  }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.kurento.jsonrpc.test;
+
+import static org.kurento.jsonrpc.internal.JsonRpcConstants.ERROR_DEADLINE_EXPIRED;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.kurento.jsonrpc.DefaultJsonRpcHandler;
+import org.kurento.jsonrpc.Transaction;
+import org.kurento.jsonrpc.internal.client.TransactionImpl.ResponseSender;
+import org.kurento.jsonrpc.internal.server.ProtocolManager;
+import org.kurento.jsonrpc.internal.server.ProtocolManager.ServerSessionFactory;
+import org.kurento.jsonrpc.internal.server.ServerSession;
+import org.kurento.jsonrpc.internal.server.SessionsManager;
+import org.kurento.jsonrpc.message.Message;
+import org.kurento.jsonrpc.message.Request;
+import org.kurento.jsonrpc.message.Response;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import com.google.gson.JsonObject;
+
+public class ExpiredDeadlineTest {
+
+  @Test
+  public void expiredRequestIsAnsweredWithError() throws Exception {
+
+    final AtomicBoolean handled = new AtomicBoolean(false);
+
+    DefaultJsonRpcHandler<JsonObject> handler = new DefaultJsonRpcHandler<JsonObject>() {
+      @Override
+      public void handleRequest(Transaction transaction, Request<JsonObject> request)
+          throws Exception {
+        handled.set(true);
+      }
+    };
+
+    ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+    scheduler.initialize();
+
+    ProtocolManager protocolManager =
+        new ProtocolManager(handler, new SessionsManager(), scheduler);
+
+    // The session queues the request instead of executing it, as if the session thread were busy
+    final AtomicReference<Runnable> queued = new AtomicReference<>();
+    final ServerSession session = mock(ServerSession.class);
+    when(session.getSessionId()).thenReturn("sessionId");
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) {
+        queued.set(invocation.<Runnable> getArgument(0));
+        return null;
+      }
+    }).when(session).processRequest(any(Runnable.class));
+
+    ServerSessionFactory factory = new ServerSessionFactory() {
+      @Override
+      public ServerSession createSession(String sessionId, Object registerInfo,
+          SessionsManager sessionsManager) {
+        return session;
+      }
+
+      @Override
+      public void updateSessionOnReconnection(ServerSession session) {
+      }
+    };
+
+    ResponseSender responseSender = mock(ResponseSender.class);
+
+    Request<JsonObject> request = new Request<>(1, "method", null);
+    request.setDeadline(Long.valueOf(10));
+
+    protocolManager.processMessage(request.toString(), factory, responseSender, null);
+
+    Thread.sleep(50);
+    queued.get().run();
+
+    ArgumentCaptor<Message> response = ArgumentCaptor.forClass(Message.class);
+    verify(responseSender).sendResponse(response.capture());
+
+    Response<?> error = (Response<?>) response.getValue();
+    Assert.assertFalse(handled.get());
+    Assert.assertEquals(Integer.valueOf(1), error.getId());
+    Assert.assertEquals(ERROR_DEADLINE_EXPIRED, error.getError().getCode());
+
+    scheduler.shutdown();
+  }
+
+}
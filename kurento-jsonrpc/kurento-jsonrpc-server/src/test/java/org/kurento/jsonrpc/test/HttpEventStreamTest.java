@@ -0,0 +1,196 @@
+/*
+ * (C) Copyright 2016 Kurento (http://kurento.org/)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package org.kurento.jsonrpc.test;
+
+import static org.kurento.jsonrpc.internal.JsonRpcConstants.SESSION_ID_PROPERTY;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.BufferedReader;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.kurento.jsonrpc.DefaultJsonRpcHandler;
+import org.kurento.jsonrpc.JsonUtils;
+import org.kurento.jsonrpc.Session;
+import org.kurento.jsonrpc.Transaction;
+import org.kurento.jsonrpc.client.Continuation;
+import org.kurento.jsonrpc.internal.http.HttpEventStream;
+import org.kurento.jsonrpc.internal.http.JsonRpcHttpRequestHandler;
+import org.kurento.jsonrpc.internal.server.ProtocolManager;
+import org.kurento.jsonrpc.internal.server.SessionsManager;
+import org.kurento.jsonrpc.message.Request;
+import org.kurento.jsonrpc.message.Response;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * Drives the HTTP transport with mocked servlet objects. The client side of the event stream is
+ * played by the test, parsing the events as JsonRpcClientHttp does.
+ */
+public class HttpEventStreamTest {
+
+  private static final long REQUEST_ASYNC_TIMEOUT = 60000;
+
+  private ThreadPoolTaskScheduler scheduler;
+  private JsonRpcHttpRequestHandler httpHandler;
+
+  private final AtomicReference<Session> serverSession = new AtomicReference<>();
+
+  @Before
+  public void setupHandler() {
+
+    DefaultJsonRpcHandler<JsonObject> handler = new DefaultJsonRpcHandler<JsonObject>() {
+      @Override
+      public void handleRequest(Transaction transaction, Request<JsonObject> request)
+          throws Exception {
+        serverSession.set(transaction.getSession());
+        if ("unanswered".equals(request.getMethod())) {
+          transaction.startAsync();
+        } else {
+          transaction.sendResponse("ok");
+        }
+      }
+    };
+
+    scheduler = new ThreadPoolTaskScheduler();
+    scheduler.initialize();
+
+    httpHandler = new JsonRpcHttpRequestHandler(
+        new ProtocolManager(handler, new SessionsManager(), scheduler));
+  }
+
+  @After
+  public void shutdown() {
+    scheduler.shutdown();
+  }
+
+  @Test
+  public void serverRequestIsSentThroughEventStream() throws Exception {
+
+    StringWriter postBody = new StringWriter();
+    AsyncContext postContext = post(new Request<>(1, "connect-me", null).toString(), postBody);
+    verify(postContext, timeout(5000)).complete();
+
+    String sessionId =
+        JsonUtils.fromJsonResponse(postBody.toString().trim(), JsonElement.class).getSessionId();
+    Assert.assertNotNull(sessionId);
+
+    StringWriter events = new StringWriter();
+    openEventStream(sessionId, events);
+
+    final AtomicReference<JsonElement> result = new AtomicReference<>();
+    final CountDownLatch answered = new CountDownLatch(1);
+
+    serverSession.get().sendRequest("onEvent", new JsonObject(), new Continuation<JsonElement>() {
+      @Override
+      public void onSuccess(JsonElement response) {
+        result.set(response);
+        answered.countDown();
+      }
+
+      @Override
+      public void onError(Throwable cause) {
+        answered.countDown();
+      }
+    });
+
+    String event = events.toString();
+    Assert.assertTrue(event, event.startsWith("data: ") && event.endsWith("\n\n"));
+
+    Request<JsonElement> pushed =
+        JsonUtils.fromJsonRequest(event.substring("data: ".length()).trim(), JsonElement.class);
+    Assert.assertEquals("onEvent", pushed.getMethod());
+
+    // The client answers with a POST, which expects no response and is completed at once
+    JsonObject received = new JsonObject();
+    received.addProperty("received", true);
+    Response<JsonElement> answer = new Response<JsonElement>(sessionId, pushed.getId(), received);
+    AsyncContext answerContext = post(answer.toString(), new StringWriter());
+    verify(answerContext).complete();
+
+    Assert.assertTrue(answered.await(5, TimeUnit.SECONDS));
+    Assert.assertEquals(received, result.get());
+  }
+
+  @Test
+  public void unansweredPostIsLeftToTheAsyncTimeout() throws Exception {
+
+    AsyncContext postContext = post(new Request<>(1, "unanswered", null).toString(),
+        new StringWriter());
+
+    verify(postContext).setTimeout(REQUEST_ASYNC_TIMEOUT);
+    verify(postContext, after(200).never()).complete();
+  }
+
+  private AsyncContext post(String body, StringWriter responseBody) throws Exception {
+
+    AsyncContext asyncContext = mock(AsyncContext.class);
+
+    HttpServletRequest request = mock(HttpServletRequest.class);
+    when(request.getMethod()).thenReturn("POST");
+    when(request.getReader()).thenReturn(new BufferedReader(new StringReader(body)));
+    when(request.startAsync()).thenReturn(asyncContext);
+
+    HttpServletResponse response = mock(HttpServletResponse.class);
+    when(response.getWriter()).thenReturn(new PrintWriter(responseBody, true));
+
+    httpHandler.handleRequest(request, response);
+
+    return asyncContext;
+  }
+
+  private void openEventStream(String sessionId, StringWriter events) throws Exception {
+
+    HttpServletResponse response = mock(HttpServletResponse.class);
+    when(response.getWriter()).thenReturn(new PrintWriter(events));
+
+    AsyncContext asyncContext = mock(AsyncContext.class);
+    when(asyncContext.getResponse()).thenReturn(response);
+
+    HttpServletRequest request = mock(HttpServletRequest.class);
+    when(request.getMethod()).thenReturn("GET");
+    when(request.getHeader("Accept")).thenReturn(HttpEventStream.EVENT_STREAM_CONTENT_TYPE);
+    when(request.getParameter(SESSION_ID_PROPERTY)).thenReturn(sessionId);
+    when(request.startAsync()).thenReturn(asyncContext);
+
+    httpHandler.handleRequest(request, response);
+
+    verify(asyncContext).setTimeout(0);
+  }
+
+}